@@ -30,7 +30,9 @@ package org.alfresco.repo.security.permissions.impl;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -263,6 +265,26 @@ public class ExtendedPermissionServiceImpl extends PermissionServiceImpl impleme
         return super.hasPermission(nodeRef, perm);
     }
 
+    /**
+     * Override to check each node with {@link #hasPermission(NodeRef, String)}, as the permission processors
+     * work node by node.
+     *
+     * @see org.alfresco.service.cmr.security.PermissionService#filterByPermission(java.util.Collection, java.lang.String)
+     */
+    @Override
+    public List<NodeRef> filterByPermission(Collection<NodeRef> nodeRefs, String perm)
+    {
+        List<NodeRef> allowed = new ArrayList<>(nodeRefs.size());
+        for (NodeRef nodeRef : nodeRefs)
+        {
+            if (nodeRef != null && AccessStatus.ALLOWED.equals(hasPermission(nodeRef, perm)))
+            {
+                allowed.add(nodeRef);
+            }
+        }
+        return allowed;
+    }
+
     /**
      * @see org.alfresco.repo.security.permissions.impl.PermissionServiceImpl#canRead(java.lang.Long)
      */
@@ -27,6 +27,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * Generic bridge table support with optional reference counting to allow multiple membership for an object via several
  * relationships.
+ * <p>
+ * Reads take the read lock and changes the write lock, so a table may be changed while other threads read it.
  * 
  * @author Andy
  */
@@ -106,20 +108,15 @@ public class BridgeTable<T>
 
     public HashSet<T> getDescendants(T node, int start, int end)
     {
-        HashSet<T> answer = new HashSet<T>();
-        HashMap<Integer, HashMap<T, Counter>> found = descendants.get(node);
-        if (found != null)
+        readWriteLock.readLock().lock();
+        try
         {
-            for (Integer key : found.keySet())
-            {
-                if ((key.intValue() >= start) && (key.intValue() <= end))
-                {
-                    HashMap<T, Counter> asd = found.get(key);
-                    answer.addAll(asd.keySet());
-                }
-            }
+            return getRange(descendants.get(node), start, end);
+        }
+        finally
+        {
+            readWriteLock.readLock().unlock();
         }
-        return answer;
     }
 
     public HashSet<T> getAncestors(T node)
@@ -133,9 +130,24 @@ public class BridgeTable<T>
     }
 
     public HashSet<T> getAncestors(T node, int start, int end)
+    {
+        readWriteLock.readLock().lock();
+        try
+        {
+            return getRange(ancestors.get(node), start, end);
+        }
+        finally
+        {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The read lock must be held.
+     */
+    private HashSet<T> getRange(HashMap<Integer, HashMap<T, Counter>> found, int start, int end)
     {
         HashSet<T> answer = new HashSet<T>();
-        HashMap<Integer, HashMap<T, Counter>> found = ancestors.get(node);
         if (found != null)
         {
             for (Integer key : found.keySet())
@@ -402,7 +414,15 @@ public class BridgeTable<T>
 
     public int size()
     {
-        return ancestors.size();
+        readWriteLock.readLock().lock();
+        try
+        {
+            return ancestors.size();
+        }
+        finally
+        {
+            readWriteLock.readLock().unlock();
+        }
     }
     
     private static class Counter
@@ -436,10 +456,18 @@ public class BridgeTable<T>
     }
 
     /**
-     * @return Set<T>
+     * @return a copy of the nodes in the table
      */
     public Set<T> keySet()
     {
-        return ancestors.keySet();
+        readWriteLock.readLock().lock();
+        try
+        {
+            return new HashSet<T>(ancestors.keySet());
+        }
+        finally
+        {
+            readWriteLock.readLock().unlock();
+        }
     }
 }
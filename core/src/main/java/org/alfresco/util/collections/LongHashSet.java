@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2005-2023 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.util.collections;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * A set of primitive <tt>long</tt> values, such as database IDs, that does not box its
+ * values or allocate an entry object per value.
+ * <p>
+ * The values are held in a single open-addressed array.  The <tt>long</tt> methods should be used
+ * where possible; the {@link java.util.Set} methods are provided so that the set can be handed to
+ * code expecting a <tt>Set&lt;Long&gt;</tt>, but they box the values going in and out.
+ * <tt>null</tt> is not supported and the {@link Iterator#remove() iterator} cannot remove values.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @since 23.1
+ */
+public class LongHashSet extends AbstractSet<Long>
+{
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /** Slots holding <tt>0</tt> are free; the value <tt>0</tt> itself is tracked separately */
+    private long[] keys;
+    private boolean containsZero;
+    private int size;
+    private int resizeAt;
+
+    public LongHashSet()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize          the number of values the set should hold before having to grow
+     */
+    public LongHashSet(int expectedSize)
+    {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * @param values                the values to start with
+     */
+    public LongHashSet(Collection<Long> values)
+    {
+        this(values.size());
+        addAll(values);
+    }
+
+    static int capacityFor(int expectedSize)
+    {
+        int capacity = 4;
+        while (capacity * LOAD_FACTOR < expectedSize)
+        {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int slot(long value, int mask)
+    {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * @return                      <tt>true</tt> if the value was not already present
+     */
+    public boolean add(long value)
+    {
+        if (value == 0L)
+        {
+            if (containsZero)
+            {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(value, mask);
+        long existing;
+        while ((existing = keys[slot]) != 0L)
+        {
+            if (existing == value)
+            {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        if (++size > resizeAt)
+        {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean contains(long value)
+    {
+        if (value == 0L)
+        {
+            return containsZero;
+        }
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * @return                      <tt>true</tt> if the value was present
+     */
+    public boolean remove(long value)
+    {
+        if (value == 0L)
+        {
+            if (!containsZero)
+            {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int slot = indexOf(value);
+        if (slot < 0)
+        {
+            return false;
+        }
+        // Shift back any values that probed past the freed slot
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        long key;
+        while ((key = keys[next]) != 0L)
+        {
+            int ideal = slot(key, mask);
+            if (((next - ideal) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = key;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0L;
+        size--;
+        return true;
+    }
+
+    private int indexOf(long value)
+    {
+        int mask = keys.length - 1;
+        int slot = slot(value, mask);
+        long existing;
+        while ((existing = keys[slot]) != 0L)
+        {
+            if (existing == value)
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (long key : oldKeys)
+        {
+            if (key != 0L)
+            {
+                int slot = slot(key, mask);
+                while (keys[slot] != 0L)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    /**
+     * @return                      the values in no particular order
+     */
+    public long[] toLongArray()
+    {
+        long[] values = new long[size];
+        int i = 0;
+        if (containsZero)
+        {
+            values[i++] = 0L;
+        }
+        for (long key : keys)
+        {
+            if (key != 0L)
+            {
+                values[i++] = key;
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(keys, 0L);
+        containsZero = false;
+        size = 0;
+    }
+
+    @Override
+    public boolean add(Long value)
+    {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean contains(Object value)
+    {
+        return (value instanceof Long) && contains(((Long) value).longValue());
+    }
+
+    @Override
+    public boolean remove(Object value)
+    {
+        return (value instanceof Long) && remove(((Long) value).longValue());
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> values)
+    {
+        boolean modified = false;
+        for (Object value : values)
+        {
+            modified |= remove(value);
+        }
+        return modified;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> values)
+    {
+        return removeIf(value -> !values.contains(value));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Long> filter)
+    {
+        // Values are collected first as removals move other values around
+        boolean modified = false;
+        for (long value : toLongArray())
+        {
+            if (filter.test(value))
+            {
+                modified |= remove(value);
+            }
+        }
+        return modified;
+    }
+
+    @Override
+    public Iterator<Long> iterator()
+    {
+        return new Iterator<Long>()
+        {
+            private boolean zeroPending = containsZero;
+            private int next = advance(0);
+
+            private int advance(int from)
+            {
+                while (from < keys.length && keys[from] == 0L)
+                {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return zeroPending || next < keys.length;
+            }
+
+            @Override
+            public Long next()
+            {
+                if (zeroPending)
+                {
+                    zeroPending = false;
+                    return 0L;
+                }
+                if (next >= keys.length)
+                {
+                    throw new NoSuchElementException();
+                }
+                long value = keys[next];
+                next = advance(next + 1);
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2005-2023 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive <tt>long</tt> keys, such as database IDs, to objects that does not box
+ * its keys or allocate an entry object per mapping.
+ * <p>
+ * Keys and values are held in parallel open-addressed arrays.  <tt>null</tt> values are not
+ * supported as <tt>null</tt> is returned for missing keys.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @param <V>                       the value type
+ * 
+ * @since 23.1
+ */
+public class LongObjectHashMap<V>
+{
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /** Slots holding a <tt>null</tt> value are free; the key <tt>0</tt> is tracked separately */
+    private long[] keys;
+    private Object[] values;
+    private Object zeroValue;
+    private int size;
+    private int resizeAt;
+
+    public LongObjectHashMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize          the number of mappings the map should hold before having to grow
+     */
+    public LongObjectHashMap(int expectedSize)
+    {
+        allocate(LongHashSet.capacityFor(expectedSize));
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * @return                      the value mapped to the key or <tt>null</tt> if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        if (key == 0L)
+        {
+            return (V) zeroValue;
+        }
+        int slot = indexOf(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    public boolean containsKey(long key)
+    {
+        return key == 0L ? zeroValue != null : indexOf(key) >= 0;
+    }
+
+    /**
+     * @param value                 the value to map (not <tt>null</tt>)
+     * @return                      the value previously mapped to the key or <tt>null</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        if (key == 0L)
+        {
+            Object previous = zeroValue;
+            zeroValue = value;
+            if (previous == null)
+            {
+                size++;
+            }
+            return (V) previous;
+        }
+        int mask = keys.length - 1;
+        int slot = LongHashSet.slot(key, mask);
+        while (values[slot] != null)
+        {
+            if (keys[slot] == key)
+            {
+                Object previous = values[slot];
+                values[slot] = value;
+                return (V) previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt)
+        {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return                      the value that was mapped to the key or <tt>null</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        if (key == 0L)
+        {
+            Object previous = zeroValue;
+            if (previous != null)
+            {
+                zeroValue = null;
+                size--;
+            }
+            return (V) previous;
+        }
+        int slot = indexOf(key);
+        if (slot < 0)
+        {
+            return null;
+        }
+        Object previous = values[slot];
+        // Shift back any mappings that probed past the freed slot
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != null)
+        {
+            int ideal = LongHashSet.slot(keys[next], mask);
+            if (((next - ideal) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0L;
+        values[gap] = null;
+        size--;
+        return (V) previous;
+    }
+
+    private int indexOf(long key)
+    {
+        int mask = keys.length - 1;
+        int slot = LongHashSet.slot(key, mask);
+        while (values[slot] != null)
+        {
+            if (keys[slot] == key)
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity)
+    {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldValues[i] != null)
+            {
+                int slot = LongHashSet.slot(oldKeys[i], mask);
+                while (values[slot] != null)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        zeroValue = null;
+        size = 0;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2005-2023 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.util.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LongHashSet}.
+ * 
+ * @since 23.1
+ */
+public class LongHashSetTest
+{
+    @Test
+    public void addContainsRemove()
+    {
+        LongHashSet set = new LongHashSet(2);
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(0L));
+        assertTrue(set.add(-5L));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertFalse(set.add(-5L));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(Long.valueOf(-5L)));
+        assertFalse(set.contains("-5"));
+        assertFalse(set.contains(6L));
+
+        assertTrue(set.remove(0L));
+        assertFalse(set.remove(0L));
+        assertTrue(set.remove(Long.valueOf(Long.MAX_VALUE)));
+        assertEquals(1, set.size());
+        assertEquals(new HashSet<>(Arrays.asList(-5L)), set);
+    }
+
+    /**
+     * Compares against a {@link HashSet} under random operations, which exercises growth and the
+     * shifting of clustered values on removal
+     */
+    @Test
+    public void behavesLikeHashSet()
+    {
+        Random random = new Random(42L);
+        Set<Long> expected = new HashSet<>();
+        LongHashSet set = new LongHashSet();
+        for (int i = 0; i < 100000; i++)
+        {
+            long value = random.nextInt(5000);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+            else
+            {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (long value = 0; value < 5000; value++)
+        {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+        assertEquals(expected, set);
+        assertEquals(expected, new HashSet<>(set));
+        assertEquals(expected.size(), set.toLongArray().length);
+    }
+
+    @Test
+    public void bulkRemoval()
+    {
+        LongHashSet set = new LongHashSet();
+        for (long value = 0; value < 100; value++)
+        {
+            set.add(value);
+        }
+        assertTrue(set.removeIf(value -> value % 2 == 0));
+        assertEquals(50, set.size());
+        assertTrue(set.retainAll(Arrays.asList(1L, 3L, 4L)));
+        assertEquals(new HashSet<>(Arrays.asList(1L, 3L)), set);
+        assertTrue(set.removeAll(Arrays.asList(3L, 8L)));
+        assertEquals(1, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+    }
+
+    /**
+     * Checks the visited-ID tracking done when walking a large node hierarchy against a {@link HashSet}
+     */
+    @Test
+    public void compareWithHashSet()
+    {
+        int count = 1000000;
+        long[] ids = new long[count];
+        Random random = new Random(42L);
+        for (int i = 0; i < count; i++)
+        {
+            ids[i] = 1000000L + random.nextInt(count * 4);
+        }
+        Set<Long> boxed = new HashSet<>();
+        LongHashSet primitive = new LongHashSet();
+        for (long id : ids)
+        {
+            assertEquals(boxed.add(id), primitive.add(id));
+        }
+        assertEquals(boxed.size(), primitive.size());
+        assertEquals(boxed, primitive);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2005-2023 Alfresco Software Limited.
+ *
+ * This file is part of Alfresco
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.alfresco.util.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LongObjectHashMap}.
+ * 
+ * @since 23.1
+ */
+public class LongObjectHashMapTest
+{
+    @Test
+    public void putGetRemove()
+    {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(2);
+        assertTrue(map.isEmpty());
+        assertNull(map.put(0L, "zero"));
+        assertNull(map.put(7L, "seven"));
+        assertEquals("seven", map.put(7L, "SEVEN"));
+        assertEquals(2, map.size());
+        assertEquals("zero", map.get(0L));
+        assertEquals("SEVEN", map.get(7L));
+        assertNull(map.get(8L));
+        assertTrue(map.containsKey(0L));
+        assertFalse(map.containsKey(8L));
+
+        assertEquals("zero", map.remove(0L));
+        assertNull(map.remove(0L));
+        assertEquals(1, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(7L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue()
+    {
+        new LongObjectHashMap<String>().put(1L, null);
+    }
+
+    @Test
+    public void behavesLikeHashMap()
+    {
+        Random random = new Random(42L);
+        Map<Long, Long> expected = new HashMap<>();
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        for (int i = 0; i < 100000; i++)
+        {
+            long key = random.nextInt(5000);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            else
+            {
+                Long value = Long.valueOf(i);
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 5000; key++)
+        {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
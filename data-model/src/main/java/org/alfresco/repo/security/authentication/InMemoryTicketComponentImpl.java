@@ -163,6 +163,29 @@ public class InMemoryTicketComponentImpl implements TicketComponent
         usernameToTicketIdCache.put(ticket.getUserName(), ticket.getTicketId());
     }
 
+    /**
+     * Replaces a ticket whose expiry has slid forward. The ticket id is unchanged, so the username mapping in
+     * usernameToTicketIdCache is only written again if it no longer points at the ticket, e.g. because it was
+     * evicted from the size-limited cache.
+     */
+    private void renewInCache(Ticket ticket)
+    {
+        if (logger.isTraceEnabled())
+        {
+            logger.trace("Renewing in ticketsCache " + ticketsCache.toString() + " ticket: " + ticket);
+        }
+        ticketsCache.put(ticket.getTicketId(), ticket);
+
+        if (!ticket.getTicketId().equals(usernameToTicketIdCache.get(ticket.getUserName())))
+        {
+            if (logger.isTraceEnabled())
+            {
+                logger.trace("Putting into usernameToTicketIdCache " + usernameToTicketIdCache.toString() + " username and ticketId of: " + ticket);
+            }
+            usernameToTicketIdCache.put(ticket.getUserName(), ticket.getTicketId());
+        }
+    }
+
     /**
      * All remove operations from ticketsCache and usernameToTicketIdCache should go through this method,
      * so we can debug/trace ticket problems easier from the logs
@@ -238,7 +261,7 @@ public class InMemoryTicketComponentImpl implements TicketComponent
                 {
                     if (newTicket != ticketFromCache)
                     {
-                        putIntoCache(newTicket);
+                        renewInCache(newTicket);
                     }
                     return newTicket;
                 }
@@ -283,7 +306,7 @@ public class InMemoryTicketComponentImpl implements TicketComponent
         }
         else if (newTicket != ticket)
         {
-            putIntoCache(newTicket);
+            renewInCache(newTicket);
         }
         currentTicket.set(ticketString);
         if (logger.isTraceEnabled())
@@ -489,6 +512,9 @@ public class InMemoryTicketComponentImpl implements TicketComponent
         
         private final Duration testDuration;
 
+        // Time in millis after which an AFTER_INACTIVITY ticket is renewed; 0 until first computed
+        private transient volatile long renewAfterTime;
+
         Ticket(ExpiryMode expires, Date expiryDate, String userName, Duration validDuration)
         {
             checkValidTicketParameters(expires, expiryDate, userName, validDuration);
@@ -581,7 +607,27 @@ public class InMemoryTicketComponentImpl implements TicketComponent
 
         boolean hasExpired(Date now)
         {
-            return ((expiryDate != null) && (expiryDate.compareTo(now) < 0));
+            return hasExpired(now.getTime());
+        }
+
+        private boolean hasExpired(long now)
+        {
+            return ((expiryDate != null) && (expiryDate.getTime() < now));
+        }
+
+        /**
+         * The renewal point is derived from the immutable expiry date and test duration, so it is computed once per
+         * ticket instance rather than on every validation.
+         */
+        private long getRenewAfterTime()
+        {
+            long time = renewAfterTime;
+            if (time == 0L)
+            {
+                time = Duration.subtract(expiryDate, testDuration).getTime();
+                renewAfterTime = time;
+            }
+            return time;
         }
 
         Ticket getNewEntry()
@@ -589,7 +635,7 @@ public class InMemoryTicketComponentImpl implements TicketComponent
             switch (expires)
             {
             case AFTER_FIXED_TIME:
-                if (hasExpired(new Date()))
+                if (hasExpired(System.currentTimeMillis()))
                 {
                     return null;
                 }
@@ -599,21 +645,21 @@ public class InMemoryTicketComponentImpl implements TicketComponent
                 }
 
             case AFTER_INACTIVITY:
-                Date now = new Date();
+                long now = System.currentTimeMillis();
                 if (hasExpired(now))
                 {
                     return null;
                 }
                 else
                 {
-                    Duration remaining = new Duration(now, expiryDate);
-                    if(remaining.compareTo(testDuration) < 0)
+                    // The remaining time is below the test duration once we are past the renewal point
+                    if (now > getRenewAfterTime())
                     {
                         if (logger.isTraceEnabled())
                         {
                             logger.trace("AFTER_INACTIVITY case, Creating new ticket based on the current one that expires at: " + expiryDate);
                         }
-                        return new Ticket(expires, Duration.add(now, validDuration), userName, validDuration, ticketId);
+                        return new Ticket(expires, Duration.add(new Date(now), validDuration), userName, validDuration, ticketId);
                     }
                     else
                     {
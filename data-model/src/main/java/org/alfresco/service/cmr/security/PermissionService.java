@@ -25,6 +25,9 @@
  */
 package org.alfresco.service.cmr.security;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.alfresco.api.AlfrescoPublicApi;
@@ -234,6 +237,50 @@ public interface PermissionService
     @Auditable(parameters = { "nodeRef" })
     public AccessStatus hasReadPermission(NodeRef nodeRef);
 
+    /**
+     * Filter nodes down to those that have a particular permission for the current authentication.  The answer for
+     * each node is that of {@link #hasPermission(NodeRef, String)}, but implementations may evaluate nodes that
+     * share an ACL together.
+     * 
+     * @param nodeRefs              the nodes to check (<tt>null</tt> entries are ignored)
+     * @param permission            the permission to check
+     * @return                      the nodes with the permission, in the order given
+     */
+    @Auditable(parameters = { "nodeRefs", "permission" })
+    public default List<NodeRef> filterByPermission(Collection<NodeRef> nodeRefs, String permission)
+    {
+        List<NodeRef> allowed = new ArrayList<NodeRef>(nodeRefs.size());
+        for (NodeRef nodeRef : nodeRefs)
+        {
+            if (nodeRef != null && hasPermission(nodeRef, permission) == AccessStatus.ALLOWED)
+            {
+                allowed.add(nodeRef);
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Filter nodes down to those that can be read by the current authentication.  The answer for each node is that
+     * of {@link #hasReadPermission(NodeRef)}, but implementations may evaluate nodes that share an ACL together.
+     * 
+     * @param nodeRefs              the nodes to check (<tt>null</tt> entries are ignored)
+     * @return                      the readable nodes, in the order given
+     */
+    @Auditable(parameters = { "nodeRefs" })
+    public default List<NodeRef> filterReadable(Collection<NodeRef> nodeRefs)
+    {
+        List<NodeRef> readable = new ArrayList<NodeRef>(nodeRefs.size());
+        for (NodeRef nodeRef : nodeRefs)
+        {
+            if (nodeRef != null && hasReadPermission(nodeRef) == AccessStatus.ALLOWED)
+            {
+                readable.add(nodeRef);
+            }
+        }
+        return readable;
+    }
+
     /**
      * Get the readers associated with a given ACL
      * 
@@ -1,5 +1,6 @@
 package org.alfresco.repo.security.authentication;
 
+import org.alfresco.repo.cache.MemoryCache;
 import org.alfresco.service.cmr.repository.datatype.Duration;
 import org.junit.Test;
 
@@ -7,6 +8,11 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -57,6 +63,55 @@ public class InMemoryTicketComponentTest
         checkInvalidExpireDateParameter(validDuration, expireMode, randomUserName);
     }
 
+    @Test
+    public void testTicketRenewalAfterInactivity()
+    {
+        final Duration validDuration = new Duration("PT1H");
+        final InMemoryTicketComponentImpl.ExpiryMode expireMode = InMemoryTicketComponentImpl.ExpiryMode.AFTER_INACTIVITY;
+        final long now = System.currentTimeMillis();
+
+        // Plenty of time left: the same instance is returned so the cache is not written
+        InMemoryTicketComponentImpl.Ticket fresh = new InMemoryTicketComponentImpl.Ticket(expireMode,
+            new Date(now + 3600000L), "someUserName", validDuration);
+        assertSame(fresh, fresh.getNewEntry());
+        assertSame(fresh, fresh.getNewEntry());
+
+        // Past the renewal point: a new entry with the same id and a later expiry
+        InMemoryTicketComponentImpl.Ticket ageing = new InMemoryTicketComponentImpl.Ticket(expireMode,
+            new Date(now + 600000L), "someUserName", validDuration);
+        InMemoryTicketComponentImpl.Ticket renewed = ageing.getNewEntry();
+        assertNotSame(ageing, renewed);
+        assertEquals(ageing.getTicketId(), renewed.getTicketId());
+        assertTrue(renewed.getExpiryDate().after(ageing.getExpiryDate()));
+
+        // Expired: no entry
+        InMemoryTicketComponentImpl.Ticket expired = new InMemoryTicketComponentImpl.Ticket(expireMode,
+            new Date(now - 1000L), "someUserName", validDuration);
+        assertNull(expired.getNewEntry());
+    }
+
+    @Test
+    public void testRenewalRestoresEvictedUsernameMapping()
+    {
+        final Duration validDuration = new Duration("PT1H");
+        MemoryCache<String, InMemoryTicketComponentImpl.Ticket> ticketsCache = new MemoryCache<>();
+        MemoryCache<String, String> usernameToTicketIdCache = new MemoryCache<>();
+        InMemoryTicketComponentImpl ticketComponent = new InMemoryTicketComponentImpl();
+        ticketComponent.setTicketsCache(ticketsCache);
+        ticketComponent.setUsernameToTicketIdCache(usernameToTicketIdCache);
+
+        // A ticket past its renewal point whose username mapping has been evicted
+        InMemoryTicketComponentImpl.Ticket ageing = new InMemoryTicketComponentImpl.Ticket(
+            InMemoryTicketComponentImpl.ExpiryMode.AFTER_INACTIVITY, new Date(System.currentTimeMillis() + 600000L),
+            "someUserName", validDuration);
+        ticketsCache.put(ageing.getTicketId(), ageing);
+
+        ticketComponent.validateTicket(InMemoryTicketComponentImpl.GRANTED_AUTHORITY_TICKET_PREFIX + ageing.getTicketId());
+
+        assertEquals(ageing.getTicketId(), usernameToTicketIdCache.get("someUserName"));
+        assertTrue(ticketsCache.get(ageing.getTicketId()).getExpiryDate().after(ageing.getExpiryDate()));
+    }
+
     private void checkEqualsAndHashCode(Duration validDuration, InMemoryTicketComponentImpl.ExpiryMode expireMode, Date someDate,
         String randomUserName)
     {
@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.alfresco.repo.cache.lookup.CacheRegionKey;
+import org.alfresco.repo.cache.lookup.EntityLookupCache;
+import org.springframework.beans.factory.BeanNameAware;
+
+/**
+ * Base class for {@link CacheWarmupLoader loaders} of caches that are used through an
+ * {@link EntityLookupCache}.  The loader takes its name from the bean name.
+ * 
+ * @since 23.1
+ */
+public abstract class AbstractCacheWarmupLoader implements CacheWarmupLoader, BeanNameAware
+{
+    /**
+     * Shared caches also hold value-key entries and the entries of other cache regions,
+     * so more keys are sampled than the number of entities wanted.
+     */
+    private static final int HOT_KEY_OVERSAMPLE = 2;
+
+    private String name;
+
+    @Override
+    public void setBeanName(String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Get the entity keys of one region of a shared cache, the most used first where the
+     * cache is able to tell (see {@link HotKeysCache}).  Tenant-specific entries are ignored.
+     * 
+     * @param sharedCache       the shared cache behind the transactional cache
+     * @param cacheRegion       the {@link EntityLookupCache} cache region
+     * @param limit             the maximum number of keys to return
+     * @return                  the entity keys in the region
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected static List<Serializable> getHottestEntityKeys(SimpleCache<?, ?> sharedCache, String cacheRegion, int limit)
+    {
+        Collection<?> cacheKeys;
+        if (sharedCache instanceof HotKeysCache)
+        {
+            cacheKeys = ((HotKeysCache) sharedCache).getHottestKeys(limit * HOT_KEY_OVERSAMPLE);
+        }
+        else
+        {
+            cacheKeys = sharedCache.getKeys();
+        }
+        List<Serializable> entityKeys = new ArrayList<Serializable>(Math.min(limit, cacheKeys.size()));
+        for (Object cacheKey : cacheKeys)
+        {
+            if (entityKeys.size() >= limit)
+            {
+                break;
+            }
+            // Value keys are CacheRegionValueKey instances and tenant keys are wrapped by the TransactionalCache
+            if (cacheKey instanceof CacheRegionKey && cacheRegion.equals(((CacheRegionKey) cacheKey).getCacheRegion()))
+            {
+                entityKeys.add(((CacheRegionKey) cacheKey).getCacheKey());
+            }
+        }
+        return entityKeys;
+    }
+}
@@ -97,6 +97,14 @@ public abstract class AbstractMTAsynchronouslyRefreshedCache<T>
        return isUpToDate(tenantId);
     } 
 
+    /**
+     * @return the tenant of the current user, which is the key of its cache entry
+     */
+    protected String getCurrentTenantId()
+    {
+        return tenantService.getCurrentUserDomain();
+    }
+
     /**
      * Build the cache entry for the specific tenant.
      * This method is called in a thread-safe manner i.e. it is only ever called by a single
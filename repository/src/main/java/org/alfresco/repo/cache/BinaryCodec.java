@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+/**
+ * Converts cache values to and from a compact binary form so that they can be held outside
+ * of the Java heap, for example by the {@link OffHeapSimpleCache}.
+ * <p>
+ * Implementations must be thread-safe and must support <tt>null</tt> values.
+ * 
+ * @param <V> the type of value being encoded
+ * 
+ * @since 23.1
+ */
+public interface BinaryCodec<V>
+{
+    /**
+     * @param value         the value to encode (may be <tt>null</tt>)
+     * @return              the binary form of the value
+     */
+    byte[] encode(V value);
+    
+    /**
+     * @param bytes         the binary form produced by {@link #encode(Object)}
+     * @return              the decoded value (may be <tt>null</tt>)
+     */
+    V decode(byte[] bytes);
+}
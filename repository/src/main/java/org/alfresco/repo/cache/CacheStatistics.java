@@ -26,6 +26,7 @@
 package org.alfresco.repo.cache;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 import org.alfresco.repo.cache.TransactionStats.OpType;
 
@@ -93,4 +94,15 @@ public interface CacheStatistics
      * @return Map of OpType to OperationStats
      */
     Map<OpType, OperationStats> allStats(String cacheName);
+    
+    /**
+     * Register statistics that a cache records itself, rather than per transaction. Whatever the source
+     * has recorded is added to the statistics for the cache each time they are read.
+     * 
+     * @param cacheName  The cache name.
+     * @param source     Returns the operations recorded since it was last called, by type.
+     */
+    default void addSource(String cacheName, Supplier<Map<OpType, OperationStats>> source)
+    {
+    }
 }
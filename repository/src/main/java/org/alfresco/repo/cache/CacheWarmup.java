@@ -0,0 +1,429 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.alfresco.repo.batch.BatchProcessWorkProvider;
+import org.alfresco.repo.batch.BatchProcessor;
+import org.alfresco.repo.batch.BatchProcessor.BatchProcessWorkerAdaptor;
+import org.alfresco.repo.management.DynamicMBeanExportOperations;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.attributes.AttributeService;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.extensions.surf.util.AbstractLifecycleBean;
+
+/**
+ * Preloads the repository caches after a restart so that a new or restarted server does not
+ * have to fill them one request at a time.
+ * <p>
+ * A {@link #snapshot() snapshot} records the IDs of the most used entities of each
+ * {@link CacheWarmupLoader loader}.  Snapshots are taken at shutdown and, optionally, on a
+ * schedule by the {@link CacheWarmupSnapshotJob}.  They are held by the {@link AttributeService},
+ * so a server joining a cluster can use the snapshot taken by another member.
+ * <p>
+ * At startup the entities are reloaded in the background using a {@link BatchProcessor}, so
+ * requests are served while the warm-up runs.  Progress is available through the
+ * {@link CacheWarmupMBean management interface}.
+ * 
+ * @since 23.1
+ */
+public class CacheWarmup extends AbstractLifecycleBean implements CacheWarmupMBean
+{
+    private static final Log logger = LogFactory.getLog(CacheWarmup.class);
+
+    private static final String ATTR_KEY_SNAPSHOT = ".cacheWarmupSnapshot";
+    private static final String OBJECT_NAME = "Alfresco:Name=CacheWarmup";
+
+    private static enum Status
+    {
+        IDLE, RUNNING, COMPLETE, FAILED
+    }
+
+    private TransactionService transactionService;
+    private AttributeService attributeService;
+    private DynamicMBeanExportOperations mbeanExporter;
+    private List<CacheWarmupLoader> loaders = Collections.emptyList();
+    private boolean enabled;
+    private boolean snapshotOnShutdown = true;
+    private int maxEntities = 10000;
+    private int batchSize = 256;
+    private int workerThreads = 2;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Status status = Status.IDLE;
+    private volatile String currentLoader;
+    private final AtomicLong totalEntities = new AtomicLong();
+    private final AtomicLong loadedEntities = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private ObjectName objectName;
+
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+
+    public void setAttributeService(AttributeService attributeService)
+    {
+        this.attributeService = attributeService;
+    }
+
+    /**
+     * @param mbeanExporter         used to register the {@link CacheWarmupMBean}; optional
+     */
+    public void setMbeanExporter(DynamicMBeanExportOperations mbeanExporter)
+    {
+        this.mbeanExporter = mbeanExporter;
+    }
+
+    public void setLoaders(List<CacheWarmupLoader> loaders)
+    {
+        this.loaders = loaders;
+    }
+
+    /**
+     * @param enabled               <tt>true</tt> to warm up the caches at startup and take snapshots
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param snapshotOnShutdown    <tt>true</tt> (default) to take a snapshot when the server shuts down
+     */
+    public void setSnapshotOnShutdown(boolean snapshotOnShutdown)
+    {
+        this.snapshotOnShutdown = snapshotOnShutdown;
+    }
+
+    /**
+     * @param maxEntities           the maximum number of entities recorded per loader (default 10000)
+     */
+    public void setMaxEntities(int maxEntities)
+    {
+        this.maxEntities = maxEntities;
+    }
+
+    /**
+     * @param batchSize             the number of entities loaded per transaction (default 256)
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param workerThreads         the number of threads loading batches (default 2)
+     */
+    public void setWorkerThreads(int workerThreads)
+    {
+        this.workerThreads = workerThreads;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "transactionService", transactionService);
+        PropertyCheck.mandatory(this, "attributeService", attributeService);
+        PropertyCheck.mandatory(this, "loaders", loaders);
+        if (maxEntities < 1 || batchSize < 1 || workerThreads < 1)
+        {
+            throw new IllegalArgumentException(
+                    "'maxEntities', 'batchSize' and 'workerThreads' must all be positive: " +
+                    maxEntities + ", " + batchSize + ", " + workerThreads);
+        }
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public String getStatus()
+    {
+        return status.name();
+    }
+
+    @Override
+    public String getCurrentLoader()
+    {
+        return currentLoader;
+    }
+
+    @Override
+    public long getTotalEntities()
+    {
+        return totalEntities.get();
+    }
+
+    @Override
+    public long getLoadedEntities()
+    {
+        return loadedEntities.get();
+    }
+
+    @Override
+    public long getFailedBatches()
+    {
+        return failedBatches.get();
+    }
+
+    @Override
+    public void snapshot()
+    {
+        if (transactionService.isReadOnly())
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Not taking cache snapshot as the repository is read-only.");
+            }
+            return;
+        }
+        for (final CacheWarmupLoader loader : loaders)
+        {
+            List<Long> ids = loader.getHotIds(maxEntities);
+            final long[] snapshot = new long[ids.size()];
+            for (int i = 0; i < snapshot.length; i++)
+            {
+                snapshot[i] = ids.get(i);
+            }
+            RetryingTransactionCallback<Void> saveCallback = new RetryingTransactionCallback<Void>()
+            {
+                @Override
+                public Void execute() throws Throwable
+                {
+                    attributeService.setAttribute(snapshot, ATTR_KEY_SNAPSHOT, loader.getName());
+                    return null;
+                }
+            };
+            transactionService.getRetryingTransactionHelper().doInTransaction(saveCallback, false, true);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Recorded " + snapshot.length + " entities for cache warm-up '" + loader.getName() + "'.");
+            }
+        }
+    }
+
+    @Override
+    public void warmup()
+    {
+        if (!running.compareAndSet(false, true))
+        {
+            return;
+        }
+        totalEntities.set(0L);
+        loadedEntities.set(0L);
+        failedBatches.set(0L);
+        status = Status.RUNNING;
+
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runWarmup();
+            }
+        }, "CacheWarmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void runWarmup()
+    {
+        long start = System.currentTimeMillis();
+        try
+        {
+            for (CacheWarmupLoader loader : loaders)
+            {
+                currentLoader = loader.getName();
+                warmup(loader);
+            }
+            status = Status.COMPLETE;
+            if (logger.isInfoEnabled())
+            {
+                logger.info(
+                        "Cache warm-up loaded " + loadedEntities.get() + " of " + totalEntities.get() + " entities in " +
+                        (System.currentTimeMillis() - start) + "ms.");
+            }
+        }
+        catch (Throwable e)
+        {
+            status = Status.FAILED;
+            logger.error("Cache warm-up failed.", e);
+        }
+        finally
+        {
+            currentLoader = null;
+            running.set(false);
+        }
+    }
+
+    private void warmup(final CacheWarmupLoader loader)
+    {
+        RetryingTransactionCallback<Serializable> readCallback = new RetryingTransactionCallback<Serializable>()
+        {
+            @Override
+            public Serializable execute() throws Throwable
+            {
+                return attributeService.getAttribute(ATTR_KEY_SNAPSHOT, loader.getName());
+            }
+        };
+        Serializable snapshot = transactionService.getRetryingTransactionHelper().doInTransaction(readCallback, true, true);
+        if (!(snapshot instanceof long[]))
+        {
+            // Nothing recorded yet
+            return;
+        }
+        long[] ids = (long[]) snapshot;
+        totalEntities.addAndGet(ids.length);
+
+        // Each unit of work is a whole batch so that the loader can use bulk queries
+        final List<List<Long>> batches = new ArrayList<List<Long>>(ids.length / batchSize + 1);
+        for (int i = 0; i < ids.length; i += batchSize)
+        {
+            List<Long> batch = new ArrayList<Long>(Math.min(batchSize, ids.length - i));
+            for (int j = i; j < ids.length && j < i + batchSize; j++)
+            {
+                batch.add(ids[j]);
+            }
+            batches.add(batch);
+        }
+        BatchProcessWorkProvider<List<Long>> workProvider = new BatchProcessWorkProvider<List<Long>>()
+        {
+            private boolean hasMore = true;
+
+            @Override
+            public int getTotalEstimatedWorkSize()
+            {
+                return batches.size();
+            }
+
+            @Override
+            public long getTotalEstimatedWorkSizeLong()
+            {
+                return batches.size();
+            }
+
+            @Override
+            public Collection<List<Long>> getNextWork()
+            {
+                if (hasMore)
+                {
+                    hasMore = false;
+                    return batches;
+                }
+                return Collections.emptyList();
+            }
+        };
+        BatchProcessor<List<Long>> batchProcessor = new BatchProcessor<List<Long>>(
+                "CacheWarmup." + loader.getName(),
+                transactionService.getRetryingTransactionHelper(),
+                workProvider,
+                workerThreads, 1,
+                getApplicationContext(),
+                logger, 100);
+        batchProcessor.processLong(new BatchProcessWorkerAdaptor<List<Long>>()
+        {
+            @Override
+            public String getIdentifier(List<Long> batch)
+            {
+                return loader.getName() + " from ID " + batch.get(0);
+            }
+
+            @Override
+            public void process(final List<Long> batch) throws Throwable
+            {
+                AuthenticationUtil.runAsSystem(() ->
+                {
+                    loader.load(batch);
+                    return null;
+                });
+                loadedEntities.addAndGet(batch.size());
+            }
+        }, true);
+        failedBatches.addAndGet(batchProcessor.getTotalErrorsLong());
+    }
+
+    @Override
+    protected void onBootstrap(ApplicationEvent event)
+    {
+        if (mbeanExporter != null)
+        {
+            try
+            {
+                objectName = mbeanExporter.registerMBean(this, new ObjectName(OBJECT_NAME));
+            }
+            catch (MalformedObjectNameException e)
+            {
+                throw new IllegalStateException("Invalid MBean name: " + OBJECT_NAME, e);
+            }
+        }
+        if (enabled)
+        {
+            warmup();
+        }
+    }
+
+    @Override
+    protected void onShutdown(ApplicationEvent event)
+    {
+        try
+        {
+            if (enabled && snapshotOnShutdown)
+            {
+                snapshot();
+            }
+        }
+        catch (Throwable e)
+        {
+            logger.warn("Failed to record the cache warm-up snapshot at shutdown.", e);
+        }
+        finally
+        {
+            if (objectName != null)
+            {
+                mbeanExporter.unregisterMBean(objectName);
+                objectName = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.util.List;
+
+/**
+ * Knows how to find the most used entities held in one or more shared caches and how to
+ * load those entities back into the caches after a restart.
+ * <p>
+ * Entities are identified by their database IDs so that the snapshots can be stored
+ * compactly and shared between the members of a cluster.
+ * 
+ * @see CacheWarmup
+ * @since 23.1
+ */
+public interface CacheWarmupLoader
+{
+    /**
+     * @return              a name that is unique among the loaders; the snapshot is stored against it
+     */
+    String getName();
+
+    /**
+     * Find the IDs of the most used entities in the shared caches.
+     * 
+     * @param limit         the maximum number of IDs to return
+     * @return              the IDs, the most used first
+     */
+    List<Long> getHotIds(int limit);
+
+    /**
+     * Load a batch of entities into the caches.  This is called in a transaction; the
+     * transactional caches write the values through to the shared caches on commit.
+     * 
+     * @param ids           the IDs of the entities to load
+     */
+    void load(List<Long> ids);
+}
@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+/**
+ * Management interface of the {@link CacheWarmup cache warm-up}.
+ * 
+ * @since 23.1
+ */
+public interface CacheWarmupMBean
+{
+    /**
+     * @return              <tt>true</tt> if the caches are warmed up at startup
+     */
+    public boolean isEnabled();
+
+    /**
+     * @return              one of <tt>IDLE</tt>, <tt>RUNNING</tt>, <tt>COMPLETE</tt> or <tt>FAILED</tt>
+     */
+    public String getStatus();
+
+    /**
+     * @return              the name of the loader being run, or <tt>null</tt> if the warm-up is not running
+     */
+    public String getCurrentLoader();
+
+    /**
+     * @return              the number of entity IDs found in the snapshots
+     */
+    public long getTotalEntities();
+
+    /**
+     * @return              the number of entities loaded into the caches so far
+     */
+    public long getLoadedEntities();
+
+    /**
+     * @return              the number of batches that could not be loaded
+     */
+    public long getFailedBatches();
+
+    /**
+     * Record the most used entities of each cache so that a later warm-up can reload them.
+     */
+    public void snapshot();
+
+    /**
+     * Start loading the entities recorded by the last snapshot in the background.
+     * Nothing happens if a warm-up is already running.
+     */
+    public void warmup();
+}
@@ -0,0 +1,68 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.quartz.Job;
+import org.quartz.JobDataMap;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+
+/**
+ * Records a {@link CacheWarmup#snapshot() cache warm-up snapshot}.
+ * <p>
+ * The following parameters are required:
+ * <ul>
+ *   <li><b>cacheWarmup</b>: The cache warm-up bean</li>
+ * </ul>
+ * 
+ * @since 23.1
+ */
+public class CacheWarmupSnapshotJob implements Job
+{
+    public CacheWarmupSnapshotJob()
+    {
+    }
+
+    /**
+     * Takes the snapshot if the cache warm-up is enabled
+     */
+    public void execute(JobExecutionContext context) throws JobExecutionException
+    {
+        JobDataMap jobData = context.getJobDetail().getJobDataMap();
+        Object cacheWarmupObj = jobData.get("cacheWarmup");
+        if (cacheWarmupObj == null || !(cacheWarmupObj instanceof CacheWarmup))
+        {
+            throw new AlfrescoRuntimeException(
+                    "CacheWarmupSnapshotJob data must contain valid 'cacheWarmup' reference");
+        }
+        CacheWarmup cacheWarmup = (CacheWarmup) cacheWarmupObj;
+        if (cacheWarmup.isEnabled())
+        {
+            cacheWarmup.snapshot();
+        }
+    }
+}
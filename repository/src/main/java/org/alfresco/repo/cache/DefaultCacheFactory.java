@@ -35,6 +35,13 @@ import org.apache.commons.logging.LogFactory;
  * The caches are created with a capacity specified by the property {name}.maxItems.
  * For example, a cache named <tt>cache.ticketsCache</tt> would have a capacity specified
  * by the property <tt>cache.ticketsCache.maxItems</tt>
+ * <p>
+ * Setting the property {name}.implementation to <tt>tinylfu</tt> creates a {@link TinyLfuSimpleCache}
+ * instead, which records its statistics when {name}.statsEnabled is <tt>true</tt>.
+ * <p>
+ * Setting the property {name}.offHeap.maxBytes to a positive value places an {@link OffHeapSimpleCache}
+ * of that size behind the cache, using a {@link TieredSimpleCache}.  The values are converted using
+ * the {@link BinaryCodec} class given by {name}.offHeap.codec, which defaults to {@link SerializingBinaryCodec}.
  * 
  * @author Matt Ward
  */
@@ -42,7 +49,20 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
 {
     private static final Log log = LogFactory.getLog(DefaultCacheFactory.class);
     private static final String EVICT_NONE = "NONE";
+    private static final String IMPLEMENTATION_DEFAULT = "default";
+    private static final String IMPLEMENTATION_TINYLFU = "tinylfu";
     
+    private CacheStatistics cacheStatistics;
+    
+    /**
+     * Provide the statistics service used by caches that have statistics enabled.
+     * 
+     * @param cacheStatistics CacheStatistics
+     */
+    public void setCacheStatistics(CacheStatistics cacheStatistics)
+    {
+        this.cacheStatistics = cacheStatistics;
+    }
     
     @Override
     public SimpleCache<K, V> createCache(String cacheName)
@@ -56,13 +76,64 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
         boolean useMaxItems = useMaxItems(cacheName);
         int ttlSecs = ttlSeconds(cacheName);
         int maxIdleSeconds = maxIdleSeconds(cacheName);
-        DefaultSimpleCache<K, V> cache = new DefaultSimpleCache<K, V>(maxItems, useMaxItems, ttlSecs, maxIdleSeconds, cacheName);
+        SimpleCache<K, V> cache;
+        String implementation = implementation(cacheName);
+        if (implementation.equalsIgnoreCase(IMPLEMENTATION_TINYLFU))
+        {
+            CacheStatistics stats = statsEnabled(cacheName) ? cacheStatistics : null;
+            cache = new TinyLfuSimpleCache<K, V>(maxItems, useMaxItems, ttlSecs, maxIdleSeconds, cacheName, stats);
+        }
+        else if (implementation.equalsIgnoreCase(IMPLEMENTATION_DEFAULT))
+        {
+            cache = new DefaultSimpleCache<K, V>(maxItems, useMaxItems, ttlSecs, maxIdleSeconds, cacheName);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown implementation '" + implementation + "' for cache: " + cacheName);
+        }
+        long offHeapMaxBytes = offHeapMaxBytes(cacheName);
+        if (offHeapMaxBytes > 0)
+        {
+            OffHeapSimpleCache<K, V> offHeapCache = new OffHeapSimpleCache<K, V>(offHeapMaxBytes, offHeapCodec(cacheName), cacheName);
+            cache = new TieredSimpleCache<K, V>(cache, offHeapCache, cacheName);
+        }
         if (log.isDebugEnabled())
         {
             log.debug("Creating cache: " + cache);
         }
         return cache;
     }
+    
+    private String implementation(String cacheName)
+    {
+        return getProperty(cacheName, "implementation", IMPLEMENTATION_DEFAULT);
+    }
+    
+    private long offHeapMaxBytes(String cacheName)
+    {
+        String maxBytesStr = getProperty(cacheName, "offHeap.maxBytes", "0");
+        return Long.parseLong(maxBytesStr);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private BinaryCodec<V> offHeapCodec(String cacheName)
+    {
+        String codecClassName = getProperty(cacheName, "offHeap.codec", SerializingBinaryCodec.class.getName());
+        try
+        {
+            return (BinaryCodec<V>) Class.forName(codecClassName).getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | ClassCastException e)
+        {
+            throw new IllegalArgumentException("Unable to create codec '" + codecClassName + "' for cache: " + cacheName, e);
+        }
+    }
+    
+    private boolean statsEnabled(String cacheName)
+    {
+        String statsEnabledStr = getProperty(cacheName, "statsEnabled", "false");
+        return Boolean.parseBoolean(statsEnabledStr);
+    }
 
     private int maxItems(String cacheName)
     {
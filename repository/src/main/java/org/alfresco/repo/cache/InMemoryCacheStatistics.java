@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.cache;
 
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,6 +34,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.function.Supplier;
 
 import org.alfresco.repo.cache.TransactionStats.OpType;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
@@ -51,12 +54,15 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     /** Read/Write locks by cache name */
     private final ConcurrentMap<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
     private Map<String, Map<OpType, OperationStats>> cacheToStatsMap = new HashMap<>();
+    /** Statistics recorded by the caches themselves, by cache name */
+    private final ConcurrentMap<String, Supplier<Map<OpType, OperationStats>>> sources = new ConcurrentHashMap<>();
     private ApplicationContext applicationContext;
     
     
     @Override
     public long count(String cacheName, OpType opType)
     {
+        addSourceStats(cacheName);
         ReadLock readLock = getReadLock(cacheName);
         readLock.lock();
         try
@@ -78,6 +84,7 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     @Override
     public double meanTime(String cacheName, OpType opType)
     {
+        addSourceStats(cacheName);
         ReadLock readLock = getReadLock(cacheName);
         readLock.lock();
         try
@@ -98,6 +105,41 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
 
     @Override
     public void add(String cacheName, TransactionStats txStats)
+    {
+        Map<OpType, OperationStats> operations = new EnumMap<>(OpType.class);
+        for (OpType opType : OpType.values())
+        {
+            SummaryStatistics txOpSummary = txStats.getTimings(opType);
+            operations.put(opType, new OperationStats(txOpSummary.getSum(), txOpSummary.getN()));
+        }
+        add(cacheName, operations);
+    }
+    
+    @Override
+    public void addSource(String cacheName, Supplier<Map<OpType, OperationStats>> source)
+    {
+        sources.put(cacheName, source);
+        // Make the statistics for the cache available straight away
+        add(cacheName, Collections.emptyMap());
+    }
+    
+    /**
+     * Adds anything recorded by the cache's own statistics source since the last time it was read.
+     */
+    private void addSourceStats(String cacheName)
+    {
+        Supplier<Map<OpType, OperationStats>> source = sources.get(cacheName);
+        if (source != null)
+        {
+            Map<OpType, OperationStats> operations = source.get();
+            if (!operations.isEmpty())
+            {
+                add(cacheName, operations);
+            }
+        }
+    }
+    
+    private void add(String cacheName, Map<OpType, OperationStats> operations)
     {
         boolean registerCacheStats = false;
         WriteLock writeLock = getWriteLock(cacheName);
@@ -115,9 +157,9 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
             
             for (OpType opType : OpType.values())
             {                
-                SummaryStatistics txOpSummary = txStats.getTimings(opType);
-                long count = txOpSummary.getN();
-                double totalTime = txOpSummary.getSum();
+                OperationStats opStats = operations.get(opType);
+                long count = opStats == null ? 0L : opStats.getCount();
+                double totalTime = opStats == null ? 0.0 : opStats.getTotalTime();
                     
                 OperationStats oldStats = cacheStats.get(opType);
                 OperationStats newStats;
@@ -148,6 +190,7 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     @Override
     public double hitMissRatio(String cacheName)
     {
+        addSourceStats(cacheName);
         ReadLock readLock = getReadLock(cacheName);
         readLock.lock();
         try
@@ -170,6 +213,7 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     @Override
     public long numGets(String cacheName)
     {
+        addSourceStats(cacheName);
         ReadLock readLock = getReadLock(cacheName);
         readLock.lock();
         try
@@ -192,6 +236,7 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     @Override
     public Map<OpType, OperationStats> allStats(String cacheName)
     {
+        addSourceStats(cacheName);
         ReadLock readLock = getReadLock(cacheName);
         readLock.lock();
         try
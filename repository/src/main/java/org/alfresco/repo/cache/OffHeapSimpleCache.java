@@ -0,0 +1,344 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.BeanNameAware;
+
+/**
+ * {@link SimpleCache} implementation that holds its values outside of the Java heap.
+ * <p>
+ * Values are converted using a {@link BinaryCodec} and appended to a ring of fixed-size direct
+ * {@link ByteBuffer} segments.  Only the keys and the location of each value are kept on the heap.
+ * When the ring is full, the oldest segment is reused and all the entries it holds are evicted,
+ * so the cache never uses more than its configured number of bytes.  Space taken by replaced or
+ * removed values is reclaimed when their segment is reused.
+ * <p>
+ * Every <tt>get</tt> decodes a new copy of the value, so this cache is best used as a second-level
+ * tier behind an on-heap cache; see {@link TieredSimpleCache}.  The direct memory used by all
+ * instances is limited by the JVM option <tt>-XX:MaxDirectMemorySize</tt>.
+ * 
+ * @since 23.1
+ */
+public final class OffHeapSimpleCache<K extends Serializable, V extends Object>
+    implements SimpleCache<K, V>, BeanNameAware
+{
+    /** The default size of each memory segment */
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+    
+    private final BinaryCodec<V> codec;
+    private final long maxBytes;
+    private final int segmentSize;
+    private final ByteBuffer[] segments;
+    private final long[] segmentGenerations;
+    private final List<Set<K>> segmentKeys;
+    private final ConcurrentHashMap<K, Location> index;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int currentSegment;
+    private int writeOffset;
+    private String cacheName;
+    
+    /**
+     * Construct a cache using the specified memory size and name.
+     * 
+     * @param maxBytes      the maximum number of bytes of memory to use for values; at least two segments are used
+     * @param segmentSize   the number of bytes in each memory segment; larger values are not cached
+     * @param codec         converts the values to and from binary
+     * @param cacheName     an arbitrary cache name
+     */
+    public OffHeapSimpleCache(long maxBytes, int segmentSize, BinaryCodec<V> codec, String cacheName)
+    {
+        if (segmentSize <= 0)
+        {
+            throw new IllegalArgumentException("segmentSize must be positive, but was " + segmentSize);
+        }
+        if (maxBytes <= 0)
+        {
+            throw new IllegalArgumentException("maxBytes must be positive, but was " + maxBytes);
+        }
+        if (codec == null)
+        {
+            throw new IllegalArgumentException("A codec is required.");
+        }
+        int segmentCount = (int) Math.max(2L, Math.min(Integer.MAX_VALUE, maxBytes / segmentSize));
+        this.codec = codec;
+        this.maxBytes = maxBytes;
+        this.segmentSize = segmentSize;
+        this.segments = new ByteBuffer[segmentCount];
+        this.segmentGenerations = new long[segmentCount];
+        this.segmentKeys = new ArrayList<Set<K>>(segmentCount);
+        for (int i = 0; i < segmentCount; i++)
+        {
+            segmentKeys.add(new HashSet<K>());
+        }
+        this.index = new ConcurrentHashMap<K, Location>();
+        setBeanName(cacheName);
+    }
+    
+    /**
+     * Construct a cache using the {@link #DEFAULT_SEGMENT_SIZE default segment size}.
+     * 
+     * @param maxBytes      the maximum number of bytes of memory to use for values
+     * @param codec         converts the values to and from binary
+     * @param cacheName     an arbitrary cache name
+     */
+    public OffHeapSimpleCache(long maxBytes, BinaryCodec<V> codec, String cacheName)
+    {
+        this(maxBytes, (int) Math.max(1L, Math.min(DEFAULT_SEGMENT_SIZE, maxBytes / 2)), codec, cacheName);
+    }
+
+    @Override
+    public boolean contains(K key)
+    {
+        lock.readLock().lock();
+        try
+        {
+            return isLive(index.get(key));
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<K> getKeys()
+    {
+        return index.keySet();
+    }
+
+    @Override
+    public V get(K key)
+    {
+        byte[] bytes;
+        lock.readLock().lock();
+        try
+        {
+            Location location = index.get(key);
+            if (!isLive(location))
+            {
+                return null;
+            }
+            bytes = new byte[location.length];
+            ByteBuffer buffer = segments[location.segment].duplicate();
+            buffer.position(location.offset);
+            buffer.get(bytes);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        // Decode outside of the lock
+        return codec.decode(bytes);
+    }
+
+    @Override
+    public void put(K key, V value)
+    {
+        byte[] bytes = codec.encode(value);
+        if (bytes.length > segmentSize)
+        {
+            // Too big to cache, but make sure that no old value is left behind
+            remove(key);
+            return;
+        }
+        lock.writeLock().lock();
+        try
+        {
+            if (writeOffset + bytes.length > segmentSize)
+            {
+                nextSegment();
+            }
+            ByteBuffer segment = segments[currentSegment];
+            if (segment == null)
+            {
+                // Segments are only allocated once they are needed
+                segment = ByteBuffer.allocateDirect(segmentSize);
+                segments[currentSegment] = segment;
+            }
+            ByteBuffer buffer = segment.duplicate();
+            buffer.position(writeOffset);
+            buffer.put(bytes);
+            Location previous = index.put(key, new Location(currentSegment, segmentGenerations[currentSegment], writeOffset, bytes.length));
+            if (previous != null && previous.segment != currentSegment)
+            {
+                segmentKeys.get(previous.segment).remove(key);
+            }
+            segmentKeys.get(currentSegment).add(key);
+            writeOffset += bytes.length;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(K key)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Location location = index.remove(key);
+            if (location != null)
+            {
+                segmentKeys.get(location.segment).remove(key);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            index.clear();
+            for (int i = 0; i < segments.length; i++)
+            {
+                segmentGenerations[i]++;
+                segmentKeys.get(i).clear();
+            }
+            currentSegment = 0;
+            writeOffset = 0;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Move on to the next segment, evicting everything that it currently holds.
+     * The write lock must be held.
+     */
+    private void nextSegment()
+    {
+        currentSegment = (currentSegment + 1) % segments.length;
+        writeOffset = 0;
+        long generation = segmentGenerations[currentSegment];
+        Set<K> keys = segmentKeys.get(currentSegment);
+        for (K key : keys)
+        {
+            Location location = index.get(key);
+            if (location != null && location.segment == currentSegment && location.generation == generation)
+            {
+                index.remove(key, location);
+            }
+        }
+        keys.clear();
+        segmentGenerations[currentSegment] = generation + 1;
+    }
+    
+    /**
+     * The read or write lock must be held.
+     */
+    private boolean isLive(Location location)
+    {
+        return location != null && segmentGenerations[location.segment] == location.generation;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OffHeapSimpleCache[maxBytes=" + maxBytes + ", segmentSize=" + segmentSize + ", cacheName=" + cacheName + "]";
+    }
+    
+    /**
+     * @return the maximum number of bytes used for values
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+    
+    /**
+     * @return the number of bytes in each memory segment
+     */
+    public int getSegmentSize()
+    {
+        return segmentSize;
+    }
+    
+    /**
+     * @return the codec used to convert the values
+     */
+    public BinaryCodec<V> getCodec()
+    {
+        return codec;
+    }
+
+    /**
+     * Retrieve the name of this cache.
+     * 
+     * @return the cacheName
+     */
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /**
+     * @param cacheName Set automatically by Spring, but can be set manually if required.
+     */
+    @Override
+    public void setBeanName(String cacheName)
+    {
+        this.cacheName = cacheName;
+    }
+    
+    /**
+     * Where a value is held
+     */
+    private static final class Location
+    {
+        private final int segment;
+        private final long generation;
+        private final int offset;
+        private final int length;
+        
+        private Location(int segment, long generation, int offset, int length)
+        {
+            this.segment = segment;
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+
+/**
+ * {@link BinaryCodec} that uses standard Java serialization.  This works for any <tt>Serializable</tt>
+ * value but is not particularly compact; use a dedicated codec for the larger caches.
+ * 
+ * @since 23.1
+ */
+public class SerializingBinaryCodec<V> implements BinaryCodec<V>
+{
+    @Override
+    public byte[] encode(V value)
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bos))
+        {
+            oos.writeObject(value);
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Failed to serialize cache value: " + value, e);
+        }
+        return bos.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V decode(byte[] bytes)
+    {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return (V) ois.readObject();
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new AlfrescoRuntimeException("Failed to deserialize cache value", e);
+        }
+    }
+}
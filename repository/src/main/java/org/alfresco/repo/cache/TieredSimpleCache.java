@@ -0,0 +1,231 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.BeanNameAware;
+
+/**
+ * {@link SimpleCache} implementation that places a second-level cache - usually an
+ * {@link OffHeapSimpleCache} - behind a smaller first-level cache.
+ * <p>
+ * Writes go through to both levels.  Reads that miss the first level are served by the second level
+ * and the value is copied back into the first level.  This allows the first level to hold only the
+ * hottest entries while the bulk of the data is kept outside of the Java heap.
+ * <p>
+ * A value read from the second level is only copied into the first level if no write to that key
+ * (or to another key sharing its lock stripe) happened in the meantime, so a concurrent
+ * <tt>put</tt> or <tt>remove</tt> can never be undone by a promotion.
+ * 
+ * @since 23.1
+ */
+public final class TieredSimpleCache<K extends Serializable, V extends Object>
+    implements SimpleCache<K, V>, HotKeysCache<K>, BeanNameAware
+{
+    private static final int STRIPES = 64;
+    
+    private final SimpleCache<K, V> firstLevel;
+    private final SimpleCache<K, V> secondLevel;
+    /** Number of writes started and finished, per stripe of keys */
+    private final AtomicLongArray writesStarted = new AtomicLongArray(STRIPES);
+    private final AtomicLongArray writesFinished = new AtomicLongArray(STRIPES);
+    private String cacheName;
+    
+    /**
+     * @param firstLevel        the small, fast cache that is checked first
+     * @param secondLevel       the large cache that is checked when the first level misses
+     * @param cacheName         an arbitrary cache name
+     */
+    public TieredSimpleCache(SimpleCache<K, V> firstLevel, SimpleCache<K, V> secondLevel, String cacheName)
+    {
+        if (firstLevel == null || secondLevel == null)
+        {
+            throw new IllegalArgumentException("Both cache levels are required.");
+        }
+        this.firstLevel = firstLevel;
+        this.secondLevel = secondLevel;
+        setBeanName(cacheName);
+    }
+
+    @Override
+    public boolean contains(K key)
+    {
+        return firstLevel.contains(key) || secondLevel.contains(key);
+    }
+
+    @Override
+    public Collection<K> getKeys()
+    {
+        Set<K> keys = new HashSet<K>(secondLevel.getKeys());
+        keys.addAll(firstLevel.getKeys());
+        return keys;
+    }
+
+    /**
+     * The hottest keys are the ones held by the first level.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<K> getHottestKeys(int limit)
+    {
+        if (firstLevel instanceof HotKeysCache)
+        {
+            return ((HotKeysCache<K>) firstLevel).getHottestKeys(limit);
+        }
+        return firstLevel.getKeys().stream().limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public V get(K key)
+    {
+        V value = firstLevel.get(key);
+        if (value != null || firstLevel.contains(key))
+        {
+            return value;
+        }
+        int stripe = stripe(key);
+        // Read finished before started, so that equal counts mean no write was in progress
+        long finished = writesFinished.get(stripe);
+        long started = writesStarted.get(stripe);
+        value = secondLevel.get(key);
+        if ((value != null || secondLevel.contains(key)) && started == finished)
+        {
+            // Promote the entry, but back out if a write started since the value was read
+            firstLevel.put(key, value);
+            if (writesStarted.get(stripe) != started)
+            {
+                firstLevel.remove(key);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value)
+    {
+        int stripe = stripe(key);
+        writesStarted.incrementAndGet(stripe);
+        try
+        {
+            firstLevel.put(key, value);
+            secondLevel.put(key, value);
+        }
+        finally
+        {
+            writesFinished.incrementAndGet(stripe);
+        }
+    }
+
+    @Override
+    public void remove(K key)
+    {
+        int stripe = stripe(key);
+        writesStarted.incrementAndGet(stripe);
+        try
+        {
+            secondLevel.remove(key);
+            firstLevel.remove(key);
+        }
+        finally
+        {
+            writesFinished.incrementAndGet(stripe);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            writesStarted.incrementAndGet(i);
+        }
+        try
+        {
+            secondLevel.clear();
+            firstLevel.clear();
+        }
+        finally
+        {
+            for (int i = 0; i < STRIPES; i++)
+            {
+                writesFinished.incrementAndGet(i);
+            }
+        }
+    }
+    
+    private static int stripe(Object key)
+    {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+    
+    /**
+     * @return the first-level cache
+     */
+    public SimpleCache<K, V> getFirstLevel()
+    {
+        return firstLevel;
+    }
+    
+    /**
+     * @return the second-level cache
+     */
+    public SimpleCache<K, V> getSecondLevel()
+    {
+        return secondLevel;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TieredSimpleCache[firstLevel=" + firstLevel + ", secondLevel=" + secondLevel + ", cacheName=" + cacheName + "]";
+    }
+
+    /**
+     * Retrieve the name of this cache.
+     * 
+     * @return the cacheName
+     */
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /**
+     * @param cacheName Set automatically by Spring, but can be set manually if required.
+     */
+    @Override
+    public void setBeanName(String cacheName)
+    {
+        this.cacheName = cacheName;
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.alfresco.repo.cache.TransactionStats.OpType;
+import org.springframework.beans.factory.BeanNameAware;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+
+/**
+ * {@link SimpleCache} implementation backed by a Caffeine {@link Cache}, which uses a frequency-aware
+ * (W-TinyLFU) eviction policy instead of the LRU policy used by {@link DefaultSimpleCache}.
+ * <p>
+ * Entries that are only read once - as happens during large scans such as reindexing or bulk import -
+ * have to compete on access frequency with the entries already in the cache, so they do not push
+ * the frequently used entries out.
+ * <p>
+ * If a {@link CacheStatistics} instance is provided, cache hits, misses, puts, removals, clears and
+ * evictions are recorded against the cache name.  They are counted without locking and added to the
+ * {@link CacheStatistics} whenever the statistics are read.
+ * 
+ * @since 23.1
+ */
+public final class TinyLfuSimpleCache<K extends Serializable, V extends Object>
+    implements SimpleCache<K, V>, HotKeysCache<K>, BeanNameAware
+{
+    private static final int DEFAULT_CAPACITY = Integer.MAX_VALUE;
+    private static final OpType[] OP_TYPES = OpType.values();
+    
+    private final Cache<K, AbstractMap.SimpleImmutableEntry<K, V>> cache;
+    private final CacheStatistics cacheStats;
+    /** Operation counts and total times in nanoseconds not yet added to the {@link CacheStatistics}, by {@link OpType} */
+    private final LongAdder[] opCounts = newAdders();
+    private final LongAdder[] opTimes = newAdders();
+    private String cacheName;
+    private final int maxItems;
+    private final boolean useMaxItems;
+    private final int ttlSecs;
+    private final int maxIdleSecs;
+    
+    /**
+     * Construct a cache using the specified capacity and name.
+     * 
+     * @param maxItems The cache capacity. 0 = use {@link #DEFAULT_CAPACITY}
+     * @param useMaxItems Whether the maxItems value should be applied as a size-cap for the cache.
+     * @param ttlSecs Time-to-live of the cache entries in seconds. 0 = no expiry.
+     * @param maxIdleSecs Time-to-idle of the cache entries in seconds. 0 = no expiry.
+     * @param cacheName An arbitrary cache name.
+     * @param cacheStats Where to record the cache statistics, <tt>null</tt> to disable statistics.
+     */
+    public TinyLfuSimpleCache(int maxItems, boolean useMaxItems, int ttlSecs, int maxIdleSecs, String cacheName, CacheStatistics cacheStats)
+    {
+        if (maxItems == 0)
+        {
+            maxItems = DEFAULT_CAPACITY;
+        }
+        else if (maxItems < 0)
+        {
+            throw new IllegalArgumentException("maxItems may not be negative, but was " + maxItems);
+        }
+        this.maxItems = maxItems;
+        this.useMaxItems = useMaxItems;
+        this.ttlSecs = ttlSecs;
+        this.maxIdleSecs = maxIdleSecs;
+        this.cacheStats = cacheStats;
+        setBeanName(cacheName);
+        
+        // Maintenance (including eviction) is done by the calling threads rather than the common pool
+        Caffeine<K, AbstractMap.SimpleImmutableEntry<K, V>> builder = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .evictionListener((key, kvp, cause) -> recordEviction());
+        if (useMaxItems)
+        {
+            builder.maximumSize(maxItems);
+        }
+        if (ttlSecs > 0)
+        {
+            builder.expireAfterWrite(ttlSecs, TimeUnit.SECONDS);
+        }
+        if (maxIdleSecs > 0)
+        {
+            builder.expireAfterAccess(maxIdleSecs, TimeUnit.SECONDS);
+        }
+        
+        cache = builder.build();
+    }
+    
+    /**
+     * Create a size limited, named cache with no other features enabled.
+     * 
+     * @param maxItems int
+     * @param cacheName String
+     */
+    public TinyLfuSimpleCache(int maxItems, String cacheName)
+    {
+        this(maxItems, true, 0, 0, cacheName, null);
+    }
+    
+    @Override
+    public boolean contains(K key)
+    {
+        return cache.asMap().containsKey(key);
+    }
+
+    @Override
+    public Collection<K> getKeys()
+    {
+        return cache.asMap().keySet();
+    }
+
+    /**
+     * Uses the frequency sketch of the eviction policy.  Caches without a size cap keep no access
+     * frequencies, so an arbitrary selection of keys is returned for them.
+     */
+    @Override
+    public Collection<K> getHottestKeys(int limit)
+    {
+        Optional<Policy.Eviction<K, AbstractMap.SimpleImmutableEntry<K, V>>> eviction = cache.policy().eviction();
+        if (eviction.isPresent())
+        {
+            return eviction.get().hottest(limit).keySet();
+        }
+        return cache.asMap().keySet().stream().limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public V get(K key)
+    {
+        long start = startTime();
+        AbstractMap.SimpleImmutableEntry<K, V> kvp = cache.getIfPresent(key);
+        if (kvp == null)
+        {
+            recordStats(start, OpType.GET_MISS);
+            return null;
+        }
+        recordStats(start, OpType.GET_HIT);
+        return kvp.getValue();
+    }
+
+    @Override
+    public void put(K key, V value)
+    {
+        putAndCheckUpdate(key, value);
+    }
+
+    /**
+     * <code>put</code> method that may be used to check for updates in a thread-safe manner.
+     * 
+     * @return <code>true</code> if the put resulted in a change in value, <code>false</code> otherwise.
+     */
+    public boolean putAndCheckUpdate(K key, V value)
+    {
+        long start = startTime();
+        AbstractMap.SimpleImmutableEntry<K, V> kvp = new AbstractMap.SimpleImmutableEntry<K, V>(key, value);
+        AbstractMap.SimpleImmutableEntry<K, V> priorKVP = cache.asMap().put(key, kvp);
+        recordStats(start, OpType.PUT);
+        return (priorKVP != null && (!priorKVP.equals(kvp)));
+    }
+    
+    @Override
+    public void remove(K key)
+    {
+        long start = startTime();
+        cache.invalidate(key);
+        recordStats(start, OpType.REMOVE);
+    }
+
+    @Override
+    public void clear()
+    {
+        long start = startTime();
+        cache.invalidateAll();
+        recordStats(start, OpType.CLEAR);
+    }
+    
+    private long startTime()
+    {
+        return (cacheStats == null) ? 0L : System.nanoTime();
+    }
+    
+    private void recordEviction()
+    {
+        if (cacheStats != null)
+        {
+            long now = System.nanoTime();
+            recordStats(now, OpType.EVICT);
+        }
+    }
+    
+    private void recordStats(long start, OpType opType)
+    {
+        if (cacheStats == null)
+        {
+            return;
+        }
+        opCounts[opType.ordinal()].increment();
+        opTimes[opType.ordinal()].add(System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the operations recorded since the last call, for the {@link CacheStatistics}.
+     * 
+     * @param statsCacheName the cache name the statistics were registered under
+     */
+    private Map<OpType, OperationStats> drainStats(String statsCacheName)
+    {
+        Map<OpType, OperationStats> operations = new EnumMap<>(OpType.class);
+        if (statsCacheName.equals(cacheName))
+        {
+            for (OpType opType : OP_TYPES)
+            {
+                long count = opCounts[opType.ordinal()].sumThenReset();
+                if (count > 0L)
+                {
+                    long time = opTimes[opType.ordinal()].sumThenReset();
+                    operations.put(opType, new OperationStats(time, count));
+                }
+            }
+        }
+        return operations;
+    }
+    
+    private static LongAdder[] newAdders()
+    {
+        LongAdder[] adders = new LongAdder[OP_TYPES.length];
+        for (int i = 0; i < adders.length; i++)
+        {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TinyLfuSimpleCache[maxItems=" + maxItems + ", useMaxItems=" + useMaxItems + ", cacheName=" + cacheName + "]";
+    }
+    
+    /**
+     * Gets the maximum number of items that the cache will hold.
+     * 
+     * @return maxItems
+     */
+    public int getMaxItems()
+    {
+        return maxItems;
+    }
+    
+    /**
+     * Is a size-cap in use?
+     * 
+     * @return useMaxItems
+     */
+    public boolean isUseMaxItems()
+    {
+        return this.useMaxItems;
+    }
+    
+    /**
+     * Get the time-to-live setting in seconds.
+     * 
+     * @return ttlSecs
+     */
+    public int getTTLSecs()
+    {
+        return this.ttlSecs;
+    }
+
+    /**
+     * Get the time-to-idle setting in seconds.
+     * 
+     * @return maxIdleSecs
+     */
+    public int getMaxIdleSecs()
+    {
+        return this.maxIdleSecs;
+    }
+    
+    /**
+     * Are cache statistics being recorded?
+     * 
+     * @return <tt>true</tt> if a {@link CacheStatistics} was provided
+     */
+    public boolean isStatsEnabled()
+    {
+        return cacheStats != null;
+    }
+
+    /**
+     * Retrieve the name of this cache.
+     * 
+     * @return the cacheName
+     */
+    public String getCacheName()
+    {
+        return this.cacheName;
+    }
+
+    /**
+     * Since there are many cache instances, it is useful to be able to associate
+     * a name with each one.
+     * 
+     * @param cacheName Set automatically by Spring, but can be set manually if required.
+     */
+    @Override
+    public void setBeanName(String cacheName)
+    {
+        this.cacheName = cacheName;
+        if (cacheStats != null)
+        {
+            cacheStats.addSource(cacheName, () -> drainStats(cacheName));
+        }
+    }
+}
@@ -49,7 +49,9 @@ public class TransactionStats
         GET_MISS,
         PUT,
         REMOVE,
-        CLEAR
+        CLEAR,
+        /** An entry was evicted or expired by the cache itself */
+        EVICT
     }
     
     public long getCount(OpType op)
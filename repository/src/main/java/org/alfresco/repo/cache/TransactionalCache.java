@@ -265,12 +265,9 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         if (data == null)
         {
             data = new TransactionData();
-            // create and initialize caches
-            data.updatedItemsCache = new LRULinkedHashMap<Serializable, CacheBucket<V>>(23);
-            data.removedItemsCache = new HashSet<Serializable>(13);
-            data.lockedItemsCache = new HashSet<Serializable>(13);
+            // The per-transaction caches are only created when first written to
             data.isReadOnly = AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_READ_ONLY;
-            data.stats = new TransactionStats();
+            data.stats = cacheStatsEnabled ? new TransactionStats() : null;
 
             // ensure that we get the transaction callbacks as we have bound the unique
             // transactional caches to a common manager
@@ -285,12 +282,23 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         return data;
     }
     
+    /**
+     * Snapshot transactions bypass the per-transaction caches and work directly against the shared cache.
+     * 
+     * @return              <tt>true</tt> if there is a transaction and it is not a
+     *                      {@link AlfrescoTransactionSupport#isSnapshot() snapshot}
+     */
+    private static boolean isInOverlayTransaction()
+    {
+        return AlfrescoTransactionSupport.getTransactionId() != null && !AlfrescoTransactionSupport.isSnapshot();
+    }
+    
     /**
      * @see #setDisableSharedCacheReadForTransaction(boolean)
      */
     public boolean getDisableSharedCacheReadForTransaction()
     {
-        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        if (isInOverlayTransaction())
         {
             TransactionData txnData = getTransactionData();
             return txnData.noSharedCacheRead;
@@ -324,7 +332,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             txnData.noSharedCacheRead = noSharedCacheRead;
             String currentCacheRegion = TenantUtil.getCurrentDomain();
             for (Map.Entry<Serializable, CacheBucket<V>> entry : new ArrayList<Map.Entry<Serializable, CacheBucket<V>>>(
-                    txnData.updatedItemsCache.entrySet()))
+                    txnData.getUpdatedItemsCache().entrySet()))
             {
                 Serializable cacheKey = entry.getKey();
                 K key = null;
@@ -347,7 +355,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                     // Simply 'forget' reads
                     if (bucket instanceof ReadCacheBucket)
                     {
-                        txnData.updatedItemsCache.remove(cacheKey);
+                        txnData.getUpdatedItemsCache().remove(cacheKey);
                     }
                     // Convert updates to removes
                     else if (bucket instanceof UpdateCacheBucket)
@@ -385,7 +393,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     {
         Collection<Serializable> keys = null;
         // in-txn layering
-        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        if (isInOverlayTransaction())
         {
             keys = new HashSet<Serializable>(23);
             TransactionData txnData = getTransactionData();
@@ -401,9 +409,15 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 keys.addAll(backingCacheKeys);
             }
             // add keys
-            keys.addAll(txnData.updatedItemsCache.keySet());
+            if (txnData.updatedItemsCache != null)
+            {
+                keys.addAll(txnData.updatedItemsCache.keySet());
+            }
             // remove keys
-            keys.removeAll(txnData.removedItemsCache);
+            if (txnData.removedItemsCache != null)
+            {
+                keys.removeAll(txnData.removedItemsCache);
+            }
         }
         else
         {
@@ -520,20 +534,20 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         /*
          * Locking will be very infrequent.  Calculating the hashcode of the key
          * and using it to determine whether the lockedItemsCache contains the key is an
-         * unnecessary overhead; use the size() method for a slightly faster answer
-         * in the bulk of cases.
+         * unnecessary overhead; the set is only created when something is locked, so
+         * the null check gives a faster answer in the bulk of cases.
          */
-        return (txnData.lockedItemsCache.size() > 0 && txnData.lockedItemsCache.contains(key));
+        return (txnData.lockedItemsCache != null && txnData.lockedItemsCache.contains(key));
     }
     
     @Override
     public boolean isValueLocked(K keyIn)
     {
-        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        if (isInOverlayTransaction())
         {
             final Serializable key = getTenantAwareCacheKey(keyIn);
             TransactionData txnData = getTransactionData();
-            return txnData.lockedItemsCache.contains(key);
+            return isValueLocked(txnData, key);
         }
         else
         {
@@ -545,11 +559,11 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     @Override
     public void lockValue(K keyIn)
     {
-        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        if (isInOverlayTransaction())
         {
             final Serializable key = getTenantAwareCacheKey(keyIn);
             TransactionData txnData = getTransactionData();
-            txnData.lockedItemsCache.add(key);
+            txnData.getLockedItemsCache().add(key);
             return;
         }
         else
@@ -562,11 +576,14 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     @Override
     public void unlockValue(K keyIn)
     {
-        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        if (isInOverlayTransaction())
         {
             final Serializable key = getTenantAwareCacheKey(keyIn);
             TransactionData txnData = getTransactionData();
-            txnData.lockedItemsCache.remove(key);
+            if (txnData.lockedItemsCache != null)
+            {
+                txnData.lockedItemsCache.remove(key);
+            }
             return;
         }
         else
@@ -586,7 +603,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         
         boolean ignoreSharedCache = false;
         // are we in a transaction?
-        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        if (isInOverlayTransaction())
         {
             TransactionData txnData = getTransactionData();
             if (txnData.isClosed)
@@ -599,7 +616,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 if (!txnData.isClearOn)   // deletions cache only useful before a clear
                 {
                     // check to see if the key is present in the transaction's removed items
-                    if (txnData.removedItemsCache.contains(key))
+                    if (txnData.removedItemsCache != null && txnData.removedItemsCache.contains(key))
                     {
                         // it has been removed in this transaction
                         if (isDebugEnabled)
@@ -613,7 +630,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 }
                 
                 // check for the item in the transaction's new/updated items
-                CacheBucket<V> bucket = (CacheBucket<V>) txnData.updatedItemsCache.get(key);
+                CacheBucket<V> bucket = txnData.updatedItemsCache == null ? null : txnData.updatedItemsCache.get(key);
                 if (bucket != null)
                 {
                     V value = bucket.getValue();
@@ -652,7 +669,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                         value = TransactionalCache.getSharedCacheValue(sharedCache, key, null);
                     }
                     bucket = new ReadCacheBucket<V>(value);
-                    txnData.updatedItemsCache.put(key, bucket);
+                    txnData.getUpdatedItemsCache().put(key, bucket);
                     return value;
                 }
             }
@@ -707,6 +724,15 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                         "   value: " + value);
             }
         }
+        else if (AlfrescoTransactionSupport.isSnapshot())
+        {
+            // A snapshot only populates the shared cache; as for a new value at commit time,
+            // anything already there was put by another transaction and is left alone
+            if (sharedCache.get(key) == null)
+            {
+                TransactionalCache.putSharedCacheValue(sharedCache, key, value, null);
+            }
+        }
         else  // transaction present
         {
             TransactionData txnData = getTransactionData();
@@ -738,7 +764,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             {
                 // we have an active transaction - add the item into the updated cache for this transaction
                 // are we in an overflow condition?
-                if (txnData.updatedItemsCache.hasHitSize())
+                if (txnData.updatedItemsCache != null && txnData.updatedItemsCache.hasHitSize())
                 {
                     // overflow about to occur or has occured - we can only guarantee non-stale
                     // data by clearing the shared cache after the transaction.  Also, the
@@ -775,9 +801,13 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                     // Record the existing value as is
                     bucket = new UpdateCacheBucket<V>(existingValueHolder, value);
                 }
-                txnData.updatedItemsCache.put(key, bucket);
+                txnData.getUpdatedItemsCache().put(key, bucket);
+                txnData.hasWriteBuckets = true;
                 // remove the item from the removed cache, if present
-                txnData.removedItemsCache.remove(key);
+                if (txnData.removedItemsCache != null)
+                {
+                    txnData.removedItemsCache.remove(key);
+                }
                 // done
                 if (isDebugEnabled)
                 {
@@ -801,7 +831,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         final Serializable key = getTenantAwareCacheKey(keyIn);
         
         // are we in a transaction?
-        if (AlfrescoTransactionSupport.getTransactionId() == null)  // not in transaction
+        if (!isInOverlayTransaction())  // not in transaction or in a snapshot
         {
             // no transaction
             sharedCache.remove(key);
@@ -848,7 +878,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 else
                 {
                     // are we in an overflow condition?
-                    if (txnData.removedItemsCache.size() >= maxCacheSize)
+                    if (txnData.removedItemsCache != null && txnData.removedItemsCache.size() >= maxCacheSize)
                     {
                         // overflow about to occur or has occured - we can only guarantee non-stale
                         // data by clearing the shared cache after the transaction.  Also, the
@@ -871,11 +901,14 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                     else
                     {
                         // Create a bucket to remove the value from the shared cache
-                        txnData.removedItemsCache.add(key);
+                        txnData.getRemovedItemsCache().add(key);
                     }
                 }
                 // remove the item from the udpated cache, if present
-                txnData.updatedItemsCache.remove(key);
+                if (txnData.updatedItemsCache != null)
+                {
+                    txnData.updatedItemsCache.remove(key);
+                }
                 // done
                 if (isDebugEnabled)
                 {
@@ -893,7 +926,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     public void clear()
     {
         // clear local caches
-        if (AlfrescoTransactionSupport.getTransactionId() != null)
+        if (isInOverlayTransaction())
         {
             if (isDebugEnabled)
             {
@@ -920,8 +953,9 @@ public class TransactionalCache<K extends Serializable, V extends Object>
                 // for the remainder of the transaction.
                 // We do, however, keep all locked values locked.
                 txnData.isClearOn = true;
-                txnData.updatedItemsCache.clear();
-                txnData.removedItemsCache.clear();
+                txnData.updatedItemsCache = null;
+                txnData.removedItemsCache = null;
+                txnData.hasWriteBuckets = false;
             }
         }
         else            // no transaction
@@ -962,52 +996,21 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         TransactionData txnData = getTransactionData();
         try
         {
-            if (txnData.isClearOn)
-            {
-                // clear shared cache
-                final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                sharedCache.clear();
-                final long endNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                if (cacheStatsEnabled)
-                {
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.CLEAR);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Clear notification recieved in commit - clearing shared cache");
-                }
-            }
-            else
+            transferClearOrRemovals(txnData, "commit");
+            
+            // transfer updates; a transaction that only read from the shared cache has nothing to write back
+            if (txnData.hasWriteBuckets)
             {
-                // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
-                if (isDebugEnabled)
+                for (Map.Entry<Serializable, CacheBucket<V>> entry : txnData.updatedItemsCache.entrySet())
                 {
-                    logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in commit");
+                    entry.getValue().doPreCommit(
+                            sharedCache,
+                            entry.getKey(), this.isMutable, this.allowEqualsChecks, txnData.isReadOnly);
                 }
             }
-            
-            // transfer updates
-            Set<Serializable> keys = (Set<Serializable>) txnData.updatedItemsCache.keySet();
-            for (Map.Entry<Serializable, CacheBucket<V>> entry : (Set<Map.Entry<Serializable, CacheBucket<V>>>) txnData.updatedItemsCache.entrySet())
-            {
-                Serializable key = entry.getKey();
-                CacheBucket<V> bucket = entry.getValue();
-                bucket.doPreCommit(
-                        sharedCache,
-                        key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly);
-            }
             if (isDebugEnabled)
             {
-                logger.debug("Pre-commit called for " + keys.size() + " values.");
+                logger.debug("Pre-commit called for " + getUpdatedItemsCount(txnData) + " values.");
             }
         }
         catch (Throwable e)
@@ -1034,69 +1037,45 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         TransactionData txnData = getTransactionData();
         try
         {
-            if (txnData.isClearOn)
-            {
-                // clear shared cache
-                final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                sharedCache.clear();
-                final long endNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                if (cacheStatsEnabled)
-                {
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.CLEAR);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Clear notification recieved in commit - clearing shared cache");
-                }
-            }
-            else
-            {
-                // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in commit");
-                }
-            }
+            transferClearOrRemovals(txnData, "commit");
             
-            // transfer updates
-            Set<Serializable> keys = (Set<Serializable>) txnData.updatedItemsCache.keySet();
-            for (Map.Entry<Serializable, CacheBucket<V>> entry : (Set<Map.Entry<Serializable, CacheBucket<V>>>) txnData.updatedItemsCache.entrySet())
+            // transfer updates; a transaction that only read from the shared cache has nothing to write back
+            if (txnData.hasWriteBuckets)
             {
-                Serializable key = entry.getKey();
-                CacheBucket<V> bucket = entry.getValue();
-                try
+                for (Map.Entry<Serializable, CacheBucket<V>> entry : txnData.updatedItemsCache.entrySet())
                 {
-                    bucket.doPostCommit(
-                            sharedCache,
-                            key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly, txnData.stats);
-                }
-                catch (Exception e)
-                {
-                    // MNT-10486: NPE in NodeEntity during post-commit write through to shared cache
-                    //              This try-catch is diagnostic in nature.  We need to know the names of the caches
-                    //              and details of the values involved.
-                    //              The causal exception will be rethrown.
-                    throw new AlfrescoRuntimeException(
-                            "CacheBucket postCommit transfer to shared cache failed: \n" +
-                            "   Cache:      " + sharedCache + "\n" +
-                            "   Key:        " + key + "\n" +
-                            "   New Value:  " + bucket.getValue() + "\n" +
-                            "   Cache Value:" + sharedCache.get(key),
-                            e);
+                    CacheBucket<V> bucket = entry.getValue();
+                    if (bucket instanceof ReadCacheBucket)
+                    {
+                        // Reads never write through
+                        continue;
+                    }
+                    Serializable key = entry.getKey();
+                    try
+                    {
+                        bucket.doPostCommit(
+                                sharedCache,
+                                key, this.isMutable, this.allowEqualsChecks, txnData.isReadOnly, txnData.stats);
+                    }
+                    catch (Exception e)
+                    {
+                        // MNT-10486: NPE in NodeEntity during post-commit write through to shared cache
+                        //              This try-catch is diagnostic in nature.  We need to know the names of the caches
+                        //              and details of the values involved.
+                        //              The causal exception will be rethrown.
+                        throw new AlfrescoRuntimeException(
+                                "CacheBucket postCommit transfer to shared cache failed: \n" +
+                                "   Cache:      " + sharedCache + "\n" +
+                                "   Key:        " + key + "\n" +
+                                "   New Value:  " + bucket.getValue() + "\n" +
+                                "   Cache Value:" + sharedCache.get(key),
+                                e);
+                    }
                 }
             }
             if (isDebugEnabled)
             {
-                logger.debug("Post-commit called for " + keys.size() + " values.");
+                logger.debug("Post-commit called for " + getUpdatedItemsCount(txnData) + " values.");
             }
         }
         catch (Throwable e)
@@ -1106,11 +1085,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         finally
         {
             removeCaches(txnData);
-            // Aggregate this transaction's stats with centralised cache stats.
-            if (cacheStatsEnabled)
-            {
-                cacheStats.add(name, txnData.stats);
-            }
+            aggregateStats(txnData);
         }
     }
 
@@ -1124,38 +1099,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         TransactionData txnData = getTransactionData();
         try
         {
-            if (txnData.isClearOn)
-            {
-                // clear shared cache
-                final long startNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                sharedCache.clear();
-                final long endNanos = cacheStatsEnabled ? System.nanoTime() : 0;
-                if (cacheStatsEnabled)
-                {
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.CLEAR);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Clear notification recieved in rollback - clearing shared cache");
-                }
-            }
-            else
-            {
-                // transfer any removed items
-                for (Serializable key : txnData.removedItemsCache)
-                {
-                    final long startNanos = System.nanoTime();
-                    sharedCache.remove(key);
-                    final long endNanos = System.nanoTime();
-                    TransactionStats stats = txnData.stats;
-                    stats.record(startNanos, endNanos, OpType.REMOVE);
-                }
-                if (isDebugEnabled)
-                {
-                    logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in rollback");
-                }
-            }
+            transferClearOrRemovals(txnData, "rollback");
         }
         catch (Throwable e)
         {
@@ -1164,14 +1108,70 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         finally
         {
             removeCaches(txnData);
-            // Aggregate this transaction's stats with centralised cache stats.
-            if (cacheStatsEnabled)
+            aggregateStats(txnData);
+        }
+    }
+    
+    /**
+     * Apply the transaction's clear or removals to the shared cache.  Nothing is allocated
+     * and no timings are taken unless the transaction actually recorded removals and
+     * statistics are being gathered.
+     * 
+     * @param txnData       the data with references to the the transactional caches
+     * @param phase         the transaction phase, for logging only
+     */
+    private void transferClearOrRemovals(TransactionData txnData, String phase)
+    {
+        TransactionStats stats = txnData.stats;
+        if (txnData.isClearOn)
+        {
+            // clear shared cache
+            final long startNanos = stats != null ? System.nanoTime() : 0;
+            sharedCache.clear();
+            if (stats != null)
+            {
+                stats.record(startNanos, System.nanoTime(), OpType.CLEAR);
+            }
+            if (isDebugEnabled)
+            {
+                logger.debug("Clear notification recieved in " + phase + " - clearing shared cache");
+            }
+        }
+        else if (txnData.removedItemsCache != null)
+        {
+            // transfer any removed items
+            for (Serializable key : txnData.removedItemsCache)
+            {
+                final long startNanos = stats != null ? System.nanoTime() : 0;
+                sharedCache.remove(key);
+                if (stats != null)
+                {
+                    stats.record(startNanos, System.nanoTime(), OpType.REMOVE);
+                }
+            }
+            if (isDebugEnabled)
             {
-                cacheStats.add(name, txnData.stats);
+                logger.debug("Removed " + txnData.removedItemsCache.size() + " values from shared cache in " + phase);
             }
         }
     }
     
+    private int getUpdatedItemsCount(TransactionData txnData)
+    {
+        return txnData.updatedItemsCache == null ? 0 : txnData.updatedItemsCache.size();
+    }
+    
+    /**
+     * Aggregate this transaction's stats with centralised cache stats.
+     */
+    private void aggregateStats(TransactionData txnData)
+    {
+        if (cacheStatsEnabled && txnData.stats != null)
+        {
+            cacheStats.add(name, txnData.stats);
+        }
+    }
+    
     /**
      * Ensures that the transactional caches are removed from the common cache manager.
      * 
@@ -1376,15 +1376,47 @@ public class TransactionalCache<K extends Serializable, V extends Object>
     /** Data holder to bind data to the transaction */
     private class TransactionData
     {
+        /** Lazily created: <tt>null</tt> until something is read or written in the transaction */
         private LRULinkedHashMap<Serializable, CacheBucket<V>> updatedItemsCache;
+        /** Lazily created: <tt>null</tt> until something is removed in the transaction */
         private Set<Serializable> removedItemsCache;
+        /** Lazily created: <tt>null</tt> until something is locked in the transaction */
         private Set<Serializable> lockedItemsCache;
+        /** <tt>true</tt> if the updated items hold anything other than values read from the shared cache */
+        private boolean hasWriteBuckets;
         private boolean haveIssuedFullWarning;
         private boolean isClearOn;
         private boolean isClosed;
         private boolean isReadOnly;
         private boolean noSharedCacheRead;
         private TransactionStats stats;
+        
+        private LRULinkedHashMap<Serializable, CacheBucket<V>> getUpdatedItemsCache()
+        {
+            if (updatedItemsCache == null)
+            {
+                updatedItemsCache = new LRULinkedHashMap<Serializable, CacheBucket<V>>(23);
+            }
+            return updatedItemsCache;
+        }
+        
+        private Set<Serializable> getRemovedItemsCache()
+        {
+            if (removedItemsCache == null)
+            {
+                removedItemsCache = new HashSet<Serializable>(13);
+            }
+            return removedItemsCache;
+        }
+        
+        private Set<Serializable> getLockedItemsCache()
+        {
+            if (lockedItemsCache == null)
+            {
+                lockedItemsCache = new HashSet<Serializable>(13);
+            }
+            return lockedItemsCache;
+        }
     }
     
     /**
@@ -1513,6 +1545,22 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             this.rand = (int) (Math.random() * Integer.MAX_VALUE);
             this.value = value;
         }
+        private ValueHolder(int rand, V2 value)
+        {
+            this.rand = rand;
+            this.value = value;
+        }
+        /**
+         * Recreates a holder that was written out by a cache codec, keeping its identity
+         * 
+         * @param hashCode      the {@link #hashCode()} of the original holder
+         * @param value         the value of the original holder
+         * @since 23.1
+         */
+        public static <V2> ValueHolder<V2> restore(int hashCode, V2 value)
+        {
+            return new ValueHolder<V2>(hashCode, value);
+        }
         public final V2 getValue()
         {
             return value;
@@ -27,6 +27,9 @@ package org.alfresco.repo.cache.lookup;
 
 import java.io.Serializable;
 import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.domain.control.ControlDAO;
@@ -91,6 +94,32 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
          */
         Pair<K1, V1> findByKey(K1 key);
         
+        /**
+         * Find the entities for a given list of keys.  Implementations should override this to
+         * resolve all the keys using as few queries as possible; the default implementation
+         * simply calls {@link #findByKey(Serializable) findByKey} for each key.
+         * <p/>
+         * Keys that do not reference an entity are simply left out of the results.
+         * 
+         * @param keys          the keys (IDs) used to identify the entities (never <tt>null</tt> or containing <tt>null</tt>)
+         * @return              Returns the entities found, in no particular order (never <tt>null</tt>)
+         * 
+         * @since 23.1
+         */
+        default List<Pair<K1, V1>> findByKeys(List<K1> keys)
+        {
+            List<Pair<K1, V1>> results = new ArrayList<Pair<K1, V1>>(keys.size());
+            for (K1 key : keys)
+            {
+                Pair<K1, V1> entityPair = findByKey(key);
+                if (entityPair != null)
+                {
+                    results.add(entityPair);
+                }
+            }
+            return results;
+        }
+        
         /**
          * Find and entity using the given value key.  The <code>equals</code> and <code>hashCode</code>
          * methods of the value object should respect case-sensitivity in the same way that this
@@ -353,6 +382,90 @@ public class EntityLookupCache<K extends Serializable, V extends Object, VK exte
         return entityPair;
     }
     
+    /**
+     * Find the entities associated with the given keys.  Keys already present in the cache are
+     * resolved from it and all the remaining keys are passed to the
+     * {@link EntityLookupCallbackDAO#findByKeys(List) entity callback} in a single call.
+     * <p/>
+     * Keys that do not reference an entity are left out of the results.  Unlike {@link #getByKey(Serializable)},
+     * the absence of an entity is <b>not</b> cached, leaving it up to a subsequent call to
+     * {@link #getByKey(Serializable)} to decide how to handle the missing entity.
+     * 
+     * @param keys                  The entity keys, which may be valid or invalid (<tt>null</tt> not allowed)
+     * @return                      Returns the key-value pairs for the entities found, in no particular order
+     * 
+     * @since 23.1
+     */
+    @SuppressWarnings("unchecked")
+    public List<Pair<K, V>> getByKeys(Collection<K> keys)
+    {
+        if (keys == null)
+        {
+            throw new IllegalArgumentException("Entity lookup keys may not be null");
+        }
+        // Handle missing cache
+        if (cache == null)
+        {
+            return entityLookup.findByKeys(new ArrayList<K>(keys));
+        }
+        
+        List<Pair<K, V>> results = new ArrayList<Pair<K, V>>(keys.size());
+        List<K> missingKeys = new ArrayList<K>(keys.size());
+        for (K key : keys)
+        {
+            if (key == null)
+            {
+                throw new IllegalArgumentException("An entity lookup key may not be null");
+            }
+            // Look in the cache
+            V value = (V) cache.get(new CacheRegionKey(cacheRegion, key));
+            if (value == null)
+            {
+                missingKeys.add(key);
+            }
+            else if (value.equals(VALUE_NOT_FOUND))
+            {
+                // We checked before
+                continue;
+            }
+            else if (value.equals(VALUE_NULL))
+            {
+                results.add(new Pair<K, V>(key, null));
+            }
+            else
+            {
+                results.add(new Pair<K, V>(key, value));
+            }
+        }
+        if (missingKeys.isEmpty())
+        {
+            return results;
+        }
+        
+        // Resolve all the misses in one go
+        List<Pair<K, V>> entityPairs = entityLookup.findByKeys(missingKeys);
+        for (Pair<K, V> entityPair : entityPairs)
+        {
+            K key = entityPair.getFirst();
+            V value = entityPair.getSecond();
+            // Get the value key
+            VK valueKey = (value == null) ? (VK)VALUE_NULL : entityLookup.getValueKey(value);
+            // Check if the value has a good key
+            if (valueKey != null)
+            {
+                CacheRegionValueKey valueCacheKey = new CacheRegionValueKey(cacheRegion, valueKey);
+                // The key is good, so we can cache the value
+                cache.put(valueCacheKey, key);
+            }
+            cache.put(
+                    new CacheRegionKey(cacheRegion, key),
+                    (value == null ? VALUE_NULL : value));
+        }
+        results.addAll(entityPairs);
+        // Done
+        return results;
+    }
+    
     /**
      * Find the entity associated with the given value.
      * The {@link EntityLookupCallbackDAO#findByValue(Object) entity callback} will be used if no entry exists in the cache.
@@ -28,8 +28,17 @@ package org.alfresco.repo.content.filestore;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.alfresco.api.AlfrescoPublicApi;
 import org.alfresco.error.AlfrescoRuntimeException;
@@ -41,9 +50,11 @@ import org.alfresco.repo.content.EmptyContentReader;
 import org.alfresco.repo.content.UnsupportedContentUrlException;
 import org.alfresco.service.cmr.repository.ContentIOException;
 import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentStreamListener;
 import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.util.Deleter;
 import org.alfresco.util.Pair;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -79,6 +90,11 @@ public class FileContentStore
      */
     public static final String STORE_PROTOCOL = "store";
     public static final String SPOOF_PROTOCOL = "spoof";
+
+    /** Directory below the store root that holds one link to each distinct binary when deduplicating */
+    public static final String DEDUPLICATION_DIRECTORY = ".dedup";
+    /** Directory below {@link #DEDUPLICATION_DIRECTORY} that maps the inode of each shared copy to its digest */
+    private static final String INODE_INDEX_DIRECTORY = "inodes";
     
     private static final Log logger = LogFactory.getLog(FileContentStore.class);
     
@@ -89,6 +105,9 @@ public class FileContentStore
     private ApplicationContext applicationContext;
     private boolean deleteEmptyDirs = true;
     private FileContentUrlProvider fileContentUrlProvider = new TimeBasedFileContentUrlProvider();
+    private boolean deduplicate;
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
 
     /**
      * Private: for Spring-constructed instances only.
@@ -207,8 +226,45 @@ public class FileContentStore
     }
     
     public void setFileContentUrlProvider(FileContentUrlProvider fileContentUrlProvider)
-    {
-        this.fileContentUrlProvider = fileContentUrlProvider;
+    {
+        this.fileContentUrlProvider = fileContentUrlProvider;
+    }
+
+    /**
+     * Store identical binaries only once.  Each content URL still gets its own file, but once the
+     * content has been written the file is hard linked to a single copy held under
+     * {@link #DEDUPLICATION_DIRECTORY}, keyed by the SHA-256 of the content.  Content URLs, the
+     * <tt>alf_content_url</tt> table and the orphan cleanup are unaffected: the file system link
+     * count acts as the reference count and deleting the last URL releases the shared copy.
+     * <p>
+     * Requires a file system with hard links and unix link counts; otherwise the setting is ignored.
+     * 
+     * @param deduplicate       <tt>true</tt> to deduplicate content written to this store
+     */
+    public void setDeduplicate(boolean deduplicate)
+    {
+        if (deduplicate && !isDeduplicationSupported())
+        {
+            logger.warn("Content deduplication needs hard links and unix link counts, which are not supported for " + rootDirectory);
+            deduplicate = false;
+        }
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * @return          Returns the number of written files that were replaced by a link to identical content
+     */
+    public long getDeduplicatedCount()
+    {
+        return deduplicatedCount.get();
+    }
+
+    /**
+     * @return          Returns the number of bytes of disk space saved by deduplicated writes
+     */
+    public long getDeduplicatedBytes()
+    {
+        return deduplicatedBytes.get();
     }
 
     /**
@@ -512,8 +568,21 @@ public class FileContentStore
                 contentUrl = newContentUrl;
             }
             // create the writer
-            FileContentWriter writer = new FileContentWriter(file, contentUrl, existingContentReader);
+            final FileContentWriter writer = new FileContentWriter(file, contentUrl, existingContentReader);
             
+            if (deduplicate)
+            {
+                final MessageDigest messageDigest = newMessageDigest();
+                writer.setDigest(messageDigest);
+                writer.addListener(new ContentStreamListener()
+                {
+                    @Override
+                    public void contentStreamClosed() throws ContentIOException
+                    {
+                        deduplicate(writer.getFile(), messageDigest);
+                    }
+                });
+            }
             if (contentLimitProvider != null)
             {
                 writer.setContentLimitProvider(contentLimitProvider);
@@ -563,7 +632,13 @@ public class FileContentStore
         }
         else
         {
+            // Deduplicated content may have been written while the mode was on, so always check
+            File sharedFile = getLinkedSharedFile(file);
             deleted = file.delete();
+            if (deleted && sharedFile != null)
+            {
+                releaseSharedFile(sharedFile);
+            }
         }
         
         // Delete empty parents regardless of whether the file was ignore above.
@@ -582,6 +657,197 @@ public class FileContentStore
         return deleted;
     }
 
+    private boolean isDeduplicationSupported()
+    {
+        try
+        {
+            return Files.getFileStore(rootDirectory.toPath()).supportsFileAttributeView("unix");
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Replaces a newly written file with a hard link to an identical, already stored binary, or
+     * records it as the shared copy if its content has not been seen before.  Failures only mean
+     * that the content is not deduplicated; the written file is always left in place.
+     */
+    private void deduplicate(File file, MessageDigest messageDigest)
+    {
+        Path path = file.toPath();
+        try
+        {
+            long size = Files.size(path);
+            if (size == 0)
+            {
+                return;
+            }
+            String digest = new String(Hex.encodeHex(messageDigest.digest()));
+            Path sharedPath = getSharedFile(digest).toPath();
+            Files.createDirectories(sharedPath.getParent());
+            try
+            {
+                Files.createLink(sharedPath, path);
+                // First copy of this content, indexed so that deletes can find it without reading the content
+                Path indexPath = getInodeIndexFile(path).toPath();
+                Files.createDirectories(indexPath.getParent());
+                Files.write(indexPath, digest.getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            catch (FileAlreadyExistsException e)
+            {
+                // The content is already stored
+            }
+            if (Files.size(sharedPath) != size)
+            {
+                logger.warn("Not deduplicating " + file + ": size differs from content with the same digest " + sharedPath);
+                return;
+            }
+            // Swap the written file for a link to the shared copy
+            Path linkPath = path.resolveSibling(path.getFileName() + ".dedup");
+            Files.createLink(linkPath, sharedPath);
+            Files.move(linkPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            deduplicatedCount.incrementAndGet();
+            deduplicatedBytes.addAndGet(size);
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Deduplicated content: \n" +
+                        "   file: " + file + "\n" +
+                        "   shared: " + sharedPath + "\n" +
+                        "   total saved: " + deduplicatedBytes.get() + " bytes in " + deduplicatedCount.get() + " files");
+            }
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            logger.warn("Failed to deduplicate content file " + file, e);
+        }
+    }
+
+    /**
+     * @return          Returns the shared copy that the given file is a link to, or <tt>null</tt> if it is not
+     *                  linked to one.  The copy is found through the index of shared inodes, so content is
+     *                  never read, and nothing is looked up at all in stores that have never deduplicated.
+     */
+    private File getLinkedSharedFile(File file)
+    {
+        if (!new File(rootDirectory, DEDUPLICATION_DIRECTORY).exists())
+        {
+            return null;
+        }
+        Path path = file.toPath();
+        try
+        {
+            if (getLinkCount(path) < 2)
+            {
+                return null;
+            }
+            File indexFile = getInodeIndexFile(path);
+            if (indexFile == null || !indexFile.exists())
+            {
+                // Linked by something other than deduplication, such as a backup
+                return null;
+            }
+            String digest = new String(Files.readAllBytes(indexFile.toPath()), StandardCharsets.US_ASCII);
+            File sharedFile = getSharedFile(digest);
+            return sharedFile.exists() && Files.isSameFile(sharedFile.toPath(), path) ? sharedFile : null;
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to check shared content for " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Removes a shared copy once it is the only link left.  Links held by anything other than
+     * content URLs keep it in place.
+     */
+    private void releaseSharedFile(File sharedFile)
+    {
+        try
+        {
+            if (getLinkCount(sharedFile.toPath()) != 1)
+            {
+                return;
+            }
+            File indexFile = getInodeIndexFile(sharedFile.toPath());
+            if (sharedFile.delete() && deleteEmptyDirs)
+            {
+                Deleter.deleteEmptyParents(sharedFile, getRootLocation());
+            }
+            if (indexFile != null && indexFile.delete() && deleteEmptyDirs)
+            {
+                Deleter.deleteEmptyParents(indexFile, getRootLocation());
+            }
+        }
+        catch (NoSuchFileException e)
+        {
+            // Released concurrently
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to release shared content " + sharedFile, e);
+        }
+    }
+
+    /**
+     * @return          Returns the number of hard links to the file, or <tt>1</tt> if the file system does not count them
+     */
+    private int getLinkCount(Path path) throws IOException
+    {
+        try
+        {
+            Number links = (Number) Files.getAttribute(path, "unix:nlink");
+            return links == null ? 1 : links.intValue();
+        }
+        catch (UnsupportedOperationException | IllegalArgumentException e)
+        {
+            return 1;
+        }
+    }
+
+    /**
+     * @return          Returns the location of the shared copy for content with the given SHA-256 digest
+     */
+    private File getSharedFile(String digest)
+    {
+        File dir = new File(new File(new File(rootDirectory, DEDUPLICATION_DIRECTORY), digest.substring(0, 2)), digest.substring(2, 4));
+        return new File(dir, digest);
+    }
+
+    /**
+     * @return          Returns the index entry that names the digest of the shared copy with the same inode as the
+     *                  given file, or <tt>null</tt> if the file system does not expose inodes
+     */
+    private File getInodeIndexFile(Path path) throws IOException
+    {
+        try
+        {
+            Object device = Files.getAttribute(path, "unix:dev");
+            Object inode = Files.getAttribute(path, "unix:ino");
+            File dir = new File(new File(rootDirectory, DEDUPLICATION_DIRECTORY), INODE_INDEX_DIRECTORY);
+            return new File(dir, device + "-" + inode);
+        }
+        catch (UnsupportedOperationException | IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
+    private static MessageDigest newMessageDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new AlfrescoRuntimeException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * Creates a new content URL.  This must be supported by all
      * stores that are compatible with Alfresco.
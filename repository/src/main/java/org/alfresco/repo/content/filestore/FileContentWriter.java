@@ -32,6 +32,8 @@ import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 
 import org.alfresco.api.AlfrescoPublicApi;     
 import org.alfresco.repo.content.AbstractContentWriter;
@@ -55,6 +57,7 @@ public class FileContentWriter extends AbstractContentWriter
     
     private File file;
     private boolean allowRandomAccess;
+    private MessageDigest digest;
     
     /**
      * Constructor that builds a URL based on the absolute path of the file.
@@ -103,6 +106,17 @@ public class FileContentWriter extends AbstractContentWriter
         this.allowRandomAccess = allow;
     }
 
+    /**
+     * Digest the content as it is written.  The file is then written sequentially, so that every
+     * byte passes through the digest, and random access is provided through a temporary file.
+     * 
+     * @param digest the digest to update with the written content
+     */
+    /* package */ void setDigest(MessageDigest digest)
+    {
+        this.digest = digest;
+    }
+
     /**
      * @return Returns the file that this writer accesses
      */
@@ -148,7 +162,7 @@ public class FileContentWriter extends AbstractContentWriter
             }
             // create the channel
             WritableByteChannel channel = null;
-            if (allowRandomAccess)
+            if (allowRandomAccess && digest == null)
             {
                 RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");  // will create it
                 channel = randomAccessFile.getChannel();
@@ -156,6 +170,10 @@ public class FileContentWriter extends AbstractContentWriter
             else
             {
                 OutputStream os = new FileOutputStream(file);
+                if (digest != null)
+                {
+                    os = new DigestOutputStream(os, digest);
+                }
                 channel = Channels.newChannel(os);
             }
             // done
@@ -163,7 +181,7 @@ public class FileContentWriter extends AbstractContentWriter
             {
                 logger.debug("Opened write channel to file: \n" +
                         "   file: " + file + "\n" +
-                        "   random-access: " + allowRandomAccess);
+                        "   random-access: " + (allowRandomAccess && digest == null));
             }
             return channel;
         }
@@ -62,16 +62,25 @@ public class LocalTransformImpl extends AbstractLocalTransform
                               Set<TransformOption> transformsTransformOptions,
                               LocalTransformServiceRegistry localTransformServiceRegistry, String baseUrl,
                               HttpClientConfig httpClientConfig,
-                              int startupRetryPeriodSeconds)
+                              int startupRetryPeriodSeconds,
+                              RemoteTransformerClient.ConnectionPools connectionPools)
     {
         super(name, transformerDebug, mimetypeService, strictMimeTypeCheck, strictMimetypeExceptions,
                 retryTransformOnDifferentMimeType, transformsTransformOptions, localTransformServiceRegistry);
-        remoteTransformerClient = new RemoteTransformerClient(name, baseUrl, httpClientConfig);
+        remoteTransformerClient = new RemoteTransformerClient(name, baseUrl, httpClientConfig, connectionPools);
         remoteTransformerClient.setStartupRetryPeriodSeconds(startupRetryPeriodSeconds);
 
         checkAvailability();
     }
 
+    /**
+     * @see RemoteTransformerClient#setMaxConnections(int)
+     */
+    public void setMaxConnections(int maxConnections)
+    {
+        remoteTransformerClient.setMaxConnections(maxConnections);
+    }
+
     public boolean remoteTransformerClientConfigured()
     {
         return remoteTransformerClient.getBaseUrl() != null;
@@ -80,6 +80,8 @@ public class LocalTransformServiceRegistry extends TransformServiceRegistryImpl
     private Map<String, Set<String>> strictMimetypeExceptions;
     private boolean retryTransformOnDifferentMimeType;
     private HttpClientConfig httpClientConfig;
+    private int maxConcurrentTransforms;
+    private final RemoteTransformerClient.ConnectionPools connectionPools = new RemoteTransformerClient.ConnectionPools();
 
     public HttpClientConfig getHttpClientConfig()
     {
@@ -91,6 +93,14 @@ public class LocalTransformServiceRegistry extends TransformServiceRegistryImpl
         this.httpClientConfig = httpClientConfig;
     }
 
+    /**
+     * The number of transforms that may run at the same time, used to size the connection pool of each T-Engine.
+     */
+    public void setMaxConcurrentTransforms(int maxConcurrentTransforms)
+    {
+        this.maxConcurrentTransforms = maxConcurrentTransforms;
+    }
+
     public void setPipelineConfigDir(String pipelineConfigDir)
     {
         this.pipelineConfigDir = pipelineConfigDir;
@@ -144,6 +154,14 @@ public class LocalTransformServiceRegistry extends TransformServiceRegistryImpl
         super.afterPropertiesSet();
     }
 
+    /**
+     * Closes the connection pools used to talk to the T-Engines.
+     */
+    public void destroy()
+    {
+        connectionPools.close();
+    }
+
     @Override
     public boolean readConfig() throws IOException
     {
@@ -199,10 +217,12 @@ public class LocalTransformServiceRegistry extends TransformServiceRegistryImpl
             else if (!isPipeline && !isFailover)
             {
                 int startupRetryPeriodSeconds = getStartupRetryPeriodSeconds(name);
-                localTransform = new LocalTransformImpl(name, transformerDebug, mimetypeService,
+                LocalTransformImpl localTransformImpl = new LocalTransformImpl(name, transformerDebug, mimetypeService,
                          strictMimeTypeCheck, strictMimetypeExceptions, retryTransformOnDifferentMimeType,
                         transformsTransformOptions, this, baseUrl, httpClientConfig,
-                        startupRetryPeriodSeconds);
+                        startupRetryPeriodSeconds, connectionPools);
+                localTransformImpl.setMaxConnections(maxConcurrentTransforms);
+                localTransform = localTransformImpl;
             }
             else if (isPipeline)
             {
@@ -27,11 +27,14 @@ package org.alfresco.repo.content.transform;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.httpclient.HttpClient4Factory;
 import org.alfresco.httpclient.HttpClientConfig;
+import org.alfresco.repo.content.filestore.FileContentReader;
 import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.util.Pair;
@@ -44,25 +47,42 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.apache.http.entity.mime.content.FileBody;
+import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 /**
  * Client class that transfers content (from a ContentReader) to a remote transformation agent together with
  * request parameters that will be used to transform the content. The transformed content is then returned and
  * saved in a ContentWriter. In the event of an error an Exception is thrown.
+ * <p>
+ * Requests go through a pooled, keep-alive HttpClient that is shared by the clients of the same endpoint and
+ * configuration that were given the same {@link ConnectionPools}, so connections are reused across transforms and
+ * across re-reads of the transformer configuration.
+ * The pool limits are the <tt>maxTotalConnections</tt> and per route <tt>maxHostConnections</tt> of the
+ * {@link HttpClientConfig}, raised to the number of transforms that may run at the same time. Timing out while waiting
+ * for a pooled connection only fails the request; it does not mark the endpoint as unavailable. The pools are closed
+ * by {@link ConnectionPools#close()} when the registry that owns them is destroyed.
  *
  * @since 6.0
  */
 public class RemoteTransformerClient
 {
+    private final ConnectionPools connectionPools;
     private final HttpClientConfig httpClientConfig;
 
     private final String name;
     private final String baseUrl;
 
+    private int maxConnections;
+
     // The length of time to wait after a connection problem before checking availability again.
     private long startupRetryPeriod = 15000;
 
@@ -74,10 +94,17 @@ public class RemoteTransformerClient
     private Pair<Boolean, String> checkResult = new Pair<>(null, null);
 
     public RemoteTransformerClient(String name, String baseUrl, HttpClientConfig httpClientConfig)
+    {
+        this(name, baseUrl, httpClientConfig, new ConnectionPools());
+    }
+
+    public RemoteTransformerClient(String name, String baseUrl, HttpClientConfig httpClientConfig,
+                                   ConnectionPools connectionPools)
     {
         this.name = name;
         this.baseUrl = baseUrl == null || baseUrl.trim().isEmpty() ? null : baseUrl.trim();
         this.httpClientConfig = httpClientConfig;
+        this.connectionPools = connectionPools;
     }
 
     public void setStartupRetryPeriodSeconds(int startupRetryPeriodSeconds)
@@ -85,6 +112,15 @@ public class RemoteTransformerClient
         startupRetryPeriod = startupRetryPeriodSeconds*1000;
     }
 
+    /**
+     * Sets the number of requests this client may make at the same time, normally the number of transforms that may
+     * run concurrently. The connection pool of the endpoint is raised to at least this size.
+     */
+    public void setMaxConnections(int maxConnections)
+    {
+        this.maxConnections = maxConnections;
+    }
+
     public String getBaseUrl()
     {
         return baseUrl;
@@ -101,6 +137,16 @@ public class RemoteTransformerClient
 
         StringJoiner sj = new StringJoiner(" ");
 
+        if (reader instanceof FileContentReader)
+        {
+            // Send the file directly, which also gives the request a content length rather than chunking it
+            ContentBody contentBody = new FileBody(((FileContentReader) reader).getFile(), ContentType.create(sourceMimetype),
+                    "tmp." + sourceExtension);
+            HttpEntity reqEntity = getRequestEntity(contentBody, targetExtension, timeoutMs, args, sj);
+            request(logger, sourceExtension, targetExtension, reqEntity, writer, sj.toString());
+            return;
+        }
+
         try (InputStream contentStream = reader.getContentInputStream())
         {
             HttpEntity reqEntity = getRequestEntity(contentStream, sourceMimetype, sourceExtension, targetExtension, timeoutMs,
@@ -131,79 +177,79 @@ public class RemoteTransformerClient
             logger.debug(name+' '+sourceExtension+' '+targetExtension+' '+url+' '+args);
         }
 
+        long start = System.currentTimeMillis();
         try
         {
-            try (CloseableHttpClient httpclient = HttpClient4Factory.createHttpClient(httpClientConfig))
+            CloseableHttpClient httpclient = getHttpClient();
+            try (CloseableHttpResponse response = execute(httpclient, httppost))
             {
-                try (CloseableHttpResponse response = execute(httpclient, httppost))
+                StatusLine statusLine = response.getStatusLine();
+                if (statusLine == null)
                 {
-                    StatusLine statusLine = response.getStatusLine();
-                    if (statusLine == null)
-                    {
-                        throw new AlfrescoRuntimeException(name+" returned no status " + url + ' ' + args);
-                    }
-                    HttpEntity resEntity = response.getEntity();
-                    if (resEntity != null)
+                    throw new AlfrescoRuntimeException(name+" returned no status " + url + ' ' + args);
+                }
+                HttpEntity resEntity = response.getEntity();
+                if (resEntity != null)
+                {
+                    int statusCode = statusLine.getStatusCode();
+                    if (statusCode == 200)
                     {
-                        int statusCode = statusLine.getStatusCode();
-                        if (statusCode == 200)
+                        try
                         {
-                            try
-                            {
-                                if (logger.isDebugEnabled())
-                                {
-                                    long responseContentLength = resEntity.getContentLength();
-                                    Header responseContentEncoding = resEntity.getContentEncoding();
-                                    Header responseContentType = resEntity.getContentType();
-                                    logger.debug(name + ' ' + sourceExtension + ' ' + targetExtension +
-                                            " returned. length=" + responseContentLength +
-                                            " type=" + responseContentType +
-                                            " encoding=" + responseContentEncoding);
-                                }
-
-                                writer.putContent(resEntity.getContent());
-                                EntityUtils.consume(resEntity);
-                            }
-                            catch (IOException e)
+                            if (logger.isDebugEnabled())
                             {
-                                throw new AlfrescoRuntimeException(name + " failed to read the returned content", e);
+                                long responseContentLength = resEntity.getContentLength();
+                                Header responseContentEncoding = resEntity.getContentEncoding();
+                                Header responseContentType = resEntity.getContentType();
+                                logger.debug(name + ' ' + sourceExtension + ' ' + targetExtension +
+                                        " returned. length=" + responseContentLength +
+                                        " type=" + responseContentType +
+                                        " encoding=" + responseContentEncoding);
                             }
+
+                            writer.putContent(resEntity.getContent());
+                            EntityUtils.consume(resEntity);
                         }
-                        else
+                        catch (IOException e)
                         {
-                            String message = getErrorMessage(resEntity);
-                            String msg = (name + " returned a " + statusCode + " status " + message +
-                                    ' ' + url + ' ' + args).trim();
-                            if (statusCode == 401)
-                            {
-                                throw new UnsupportedTransformationException(msg);
-                            }
-                            else if (statusCode == 402)
-                            {
-                                throw new UnimportantTransformException(msg);
-                            }
-                            else
-                            {
-                                throw new AlfrescoRuntimeException(msg);
-                            }
+                            throw new AlfrescoRuntimeException(name + " failed to read the returned content", e);
                         }
                     }
                     else
                     {
-                        throw new AlfrescoRuntimeException(name + " did not return an entity " + url);
+                        String message = getErrorMessage(resEntity);
+                        String msg = (name + " returned a " + statusCode + " status " + message +
+                                ' ' + url + ' ' + args).trim();
+                        if (statusCode == 401)
+                        {
+                            throw new UnsupportedTransformationException(msg);
+                        }
+                        else if (statusCode == 402)
+                        {
+                            throw new UnimportantTransformException(msg);
+                        }
+                        else
+                        {
+                            throw new AlfrescoRuntimeException(msg);
+                        }
                     }
                 }
-                catch (IOException e)
+                else
                 {
-                    // In the case of transform requests, unlike version checks, it is only the failure to connect that
-                    // forces a wait before trying again.
-                    connectionFailed();
-                    throw new AlfrescoRuntimeException(name + " failed to connect or to read the response", e);
+                    throw new AlfrescoRuntimeException(name + " did not return an entity " + url);
                 }
             }
+            catch (ConnectionPoolTimeoutException e)
+            {
+                // Every pooled connection is in use, which says nothing about whether the T-Engine is available.
+                throw new AlfrescoRuntimeException(name + " timed out waiting for a pooled connection " + getPoolStats(), e);
+            }
             catch (IOException e)
             {
-                throw new AlfrescoRuntimeException(name + " failed to create an HttpClient", e);
+                // In the case of transform requests, unlike version checks, it is only the failure to connect that
+                // forces a wait before trying again.
+                connectionFailed();
+                throw new AlfrescoRuntimeException(name + " failed to connect or to read the response", e);
             }
         }
         catch (AlfrescoRuntimeException e)
@@ -214,6 +260,132 @@ public class RemoteTransformerClient
             }
             throw e;
         }
+        finally
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(name + ' ' + sourceExtension + ' ' + targetExtension + " took " +
+                        (System.currentTimeMillis() - start) + "ms " + getPoolStats());
+            }
+        }
+    }
+
+    /**
+     * Returns the pooled client for this endpoint, creating it on first use.
+     */
+    CloseableHttpClient getHttpClient()
+    {
+        return getSharedHttpClient().httpClient;
+    }
+
+    /**
+     * Returns the leased, pending, available and maximum connections of the pool used for this endpoint, or all zeros
+     * if no pool has been created yet or it has been closed. Does not create a pool.
+     */
+    public PoolStats getPoolStats()
+    {
+        SharedHttpClient sharedHttpClient = connectionPools.get(baseUrl, httpClientConfig);
+        return sharedHttpClient == null
+                ? new PoolStats(0, 0, 0, 0)
+                : sharedHttpClient.connectionManager.getTotalStats();
+    }
+
+    private SharedHttpClient getSharedHttpClient()
+    {
+        SharedHttpClient sharedHttpClient = connectionPools.getOrCreate(baseUrl, httpClientConfig);
+        sharedHttpClient.ensureMaxConnections(maxConnections);
+        return sharedHttpClient;
+    }
+
+    /**
+     * The pooled clients created for the {@link RemoteTransformerClient}s of one owner, keyed on endpoint and
+     * configuration. Closing them does not affect the pools of other owners.
+     */
+    public static class ConnectionPools
+    {
+        private final Map<Pair<String, HttpClientConfig>, SharedHttpClient> sharedHttpClients = new ConcurrentHashMap<>();
+
+        private SharedHttpClient get(String baseUrl, HttpClientConfig httpClientConfig)
+        {
+            return sharedHttpClients.get(new Pair<>(baseUrl, httpClientConfig));
+        }
+
+        private SharedHttpClient getOrCreate(String baseUrl, HttpClientConfig httpClientConfig)
+        {
+            return sharedHttpClients.computeIfAbsent(new Pair<>(baseUrl, httpClientConfig),
+                    key -> new SharedHttpClient(httpClientConfig));
+        }
+
+        /**
+         * Closes the pooled clients of all endpoints. Clients used after this create new pools.
+         */
+        public void close()
+        {
+            for (Pair<String, HttpClientConfig> key : sharedHttpClients.keySet())
+            {
+                SharedHttpClient sharedHttpClient = sharedHttpClients.remove(key);
+                if (sharedHttpClient != null)
+                {
+                    sharedHttpClient.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * A keep-alive HttpClient and the connection pool behind it.
+     */
+    private static class SharedHttpClient
+    {
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+
+        private SharedHttpClient(HttpClientConfig httpClientConfig)
+        {
+            if (httpClientConfig.isMTLSEnabled())
+            {
+                connectionManager = HttpClient4Factory.createPoolingConnectionManager(httpClientConfig);
+            }
+            else
+            {
+                // Default registry so that plain https endpoints keep working
+                connectionManager = new PoolingHttpClientConnectionManager();
+                if (httpClientConfig.getMaxTotalConnections() > 0)
+                {
+                    connectionManager.setMaxTotal(httpClientConfig.getMaxTotalConnections());
+                }
+                if (httpClientConfig.getMaxHostConnections() > 0)
+                {
+                    connectionManager.setDefaultMaxPerRoute(httpClientConfig.getMaxHostConnections());
+                }
+            }
+            httpClient = HttpClient4Factory.createHttpClient(httpClientConfig, connectionManager);
+        }
+
+        private synchronized void ensureMaxConnections(int maxConnections)
+        {
+            if (connectionManager.getMaxTotal() < maxConnections)
+            {
+                connectionManager.setMaxTotal(maxConnections);
+            }
+            if (connectionManager.getDefaultMaxPerRoute() < maxConnections)
+            {
+                connectionManager.setDefaultMaxPerRoute(maxConnections);
+            }
+        }
+
+        private void close()
+        {
+            try
+            {
+                httpClient.close();
+            }
+            catch (IOException e)
+            {
+                // Nothing more can be done with the pool
+            }
+            connectionManager.shutdown();
+        }
     }
 
     /**
@@ -236,67 +408,67 @@ public class RemoteTransformerClient
 
         try
         {
-            try (CloseableHttpClient httpclient = HttpClient4Factory.createHttpClient(httpClientConfig))
+            CloseableHttpClient httpclient = getHttpClient();
+            try (CloseableHttpResponse response = execute(httpclient, httpGet))
             {
-                try (CloseableHttpResponse response = execute(httpclient, httpGet))
+                StatusLine statusLine = response.getStatusLine();
+                if (statusLine == null)
                 {
-                    StatusLine statusLine = response.getStatusLine();
-                    if (statusLine == null)
-                    {
-                        throw new AlfrescoRuntimeException(name+" check returned no status " + url);
-                    }
-                    HttpEntity resEntity = response.getEntity();
-                    if (resEntity != null)
+                    throw new AlfrescoRuntimeException(name+" check returned no status " + url);
+                }
+                HttpEntity resEntity = response.getEntity();
+                if (resEntity != null)
+                {
+                    int statusCode = statusLine.getStatusCode();
+                    if (statusCode == 200)
                     {
-                        int statusCode = statusLine.getStatusCode();
-                        if (statusCode == 200)
+                        try
                         {
-                            try
-                            {
-                                String version = getContent(resEntity);
-
-                                if (logger.isTraceEnabled())
-                                {
-                                    long responseContentLength = resEntity.getContentLength();
-                                    Header responseContentType = resEntity.getContentType();
-                                    Header responseContentEncoding = resEntity.getContentEncoding();
-                                    logger.trace(name +
-                                            " check returned. length=" + responseContentLength +
-                                            " type=" + responseContentType +
-                                            " encoding=" + responseContentEncoding+
-                                            " content="+version);
-                                }
-
-                                EntityUtils.consume(resEntity);
-                                connectionSuccess();
-                                Pair<Boolean, String> success = new Pair<>(true, version);
-                                setCheckResult(success);
-                                return success;
-                            }
-                            catch (IOException e)
+                            String version = getContent(resEntity);
+
+                            if (logger.isTraceEnabled())
                             {
-                                throw new AlfrescoRuntimeException(name + " check failed to read the returned content", e);
+                                long responseContentLength = resEntity.getContentLength();
+                                Header responseContentType = resEntity.getContentType();
+                                Header responseContentEncoding = resEntity.getContentEncoding();
+                                logger.trace(name +
+                                        " check returned. length=" + responseContentLength +
+                                        " type=" + responseContentType +
+                                        " encoding=" + responseContentEncoding+
+                                        " content="+version);
                             }
+
+                            EntityUtils.consume(resEntity);
+                            connectionSuccess();
+                            Pair<Boolean, String> success = new Pair<>(true, version);
+                            setCheckResult(success);
+                            return success;
                         }
-                        else
+                        catch (IOException e)
                         {
-                            String message = getErrorMessage(resEntity);
-                            throw new AlfrescoRuntimeException(name + " check returned a " + statusCode + " status " + message + ' ' + url);
+                            throw new AlfrescoRuntimeException(name + " check failed to read the returned content", e);
                         }
                     }
                     else
                     {
-                        throw new AlfrescoRuntimeException(name + " check did not return an entity " + url);
+                        String message = getErrorMessage(resEntity);
+                        throw new AlfrescoRuntimeException(name + " check returned a " + statusCode + " status " + message + ' ' + url);
                     }
                 }
-                catch (IOException e)
+                else
                 {
-                    throw new AlfrescoRuntimeException(name + " check failed to connect or to read the response", e);
+                    throw new AlfrescoRuntimeException(name + " check did not return an entity " + url);
                 }
             }
+            catch (ConnectionPoolTimeoutException e)
+            {
+                // Busy rather than unavailable, so report the last result and allow another check straight away
+                logger.debug(name + " check timed out waiting for a pooled connection " + getPoolStats());
+                return getCheckResult();
+            }
             catch (IOException e)
             {
-                throw new AlfrescoRuntimeException(name + " check failed to create an HttpClient", e);
+                throw new AlfrescoRuntimeException(name + " check failed to connect or to read the response", e);
             }
         }
         catch (AlfrescoRuntimeException e)
@@ -327,10 +499,16 @@ public class RemoteTransformerClient
 
     private HttpEntity getRequestEntity(InputStream contentStream, String sourceMimetype, String sourceExtension,
             String targetExtension, long timeoutMs, String[] args, StringJoiner sj)
+    {
+        ContentBody contentBody = new InputStreamBody(contentStream, ContentType.create(sourceMimetype), "tmp." + sourceExtension);
+        return getRequestEntity(contentBody, targetExtension, timeoutMs, args, sj);
+    }
+
+    private HttpEntity getRequestEntity(ContentBody contentBody, String targetExtension, long timeoutMs, String[] args,
+            StringJoiner sj)
     {
         MultipartEntityBuilder builder = MultipartEntityBuilder.create();
-        ContentType contentType = ContentType.create(sourceMimetype);
-        builder.addBinaryBody("file", contentStream, contentType, "tmp." + sourceExtension);
+        builder.addPart("file", contentBody);
         builder.addTextBody("targetExtension", targetExtension);
         sj.add("targetExtension" + '=' + targetExtension);
         for (int i = 0; i < args.length; i += 2)
@@ -36,13 +36,13 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.Stack;
 import java.util.TreeSet;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -99,6 +99,8 @@ import org.alfresco.util.Pair;
 import org.alfresco.util.PropertyCheck;
 import org.alfresco.util.ReadWriteLockExecuter;
 import org.alfresco.util.ValueProtectingMap;
+import org.alfresco.util.collections.LongHashSet;
+import org.alfresco.util.collections.LongObjectHashMap;
 import org.alfresco.util.transaction.TransactionListenerAdapter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -119,8 +121,8 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
 {
     private static final String CACHE_REGION_ROOT_NODES = "N.RN";
     public static final String CACHE_REGION_NODES = "N.N";
-    private static final String CACHE_REGION_ASPECTS = "N.A";
-    private static final String CACHE_REGION_PROPERTIES = "N.P";
+    static final String CACHE_REGION_ASPECTS = "N.A";
+    static final String CACHE_REGION_PROPERTIES = "N.P";
     
     private static final String KEY_LOST_NODE_PAIRS = AbstractNodeDAOImpl.class.getName() + ".lostNodePairs";
     private static final String KEY_DELETED_ASSOCS = AbstractNodeDAOImpl.class.getName() + ".deletedAssocs";
@@ -195,6 +197,14 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     private ParentAssocsCache parentAssocsCache;
     private int parentAssocsCacheSize;
     private int parentAssocsCacheLimitFactor = 8;
+    /**
+     * Non-clustered caches for the primary and for all paths of a node:<br/>
+     * KEY: node ID<br/>
+     * VALUE: NodePaths, checked against the current parent assocs on each use
+     */
+    private NodePathsCache primaryPathsCache;
+    private NodePathsCache allPathsCache;
+    private int pathsCacheSize;
         
     /**
      * Cache for fast lookups of child nodes by <b>cm:name</b>. 
@@ -393,6 +403,18 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         this.parentAssocsCacheLimitFactor = parentAssocsCacheLimitFactor;
     }
 
+    /**
+     * Sets the maximum number of nodes whose paths are cached, for each of the primary and the full
+     * path caches.  The cached paths of a node are only used while the node and all its ancestors
+     * have the same parent associations as when the paths were built.
+     * 
+     * @param pathsCacheSize        the cache size or <tt>0</tt> to not keep paths between calls
+     */
+    public void setPathsCacheSize(int pathsCacheSize)
+    {
+        this.pathsCacheSize = pathsCacheSize;
+    }
+
     /**
      * Set the cache that maintains lookups by child <b>cm:name</b>
      * 
@@ -420,6 +442,8 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
 
         this.nodePropertyHelper = new NodePropertyHelper(dictionaryService, qnameDAO, localeDAO, contentDataDAO);
         this.parentAssocsCache = new ParentAssocsCache(this.parentAssocsCacheSize, this.parentAssocsCacheLimitFactor);
+        this.primaryPathsCache = new NodePathsCache(this.pathsCacheSize);
+        this.allPathsCache = new NodePathsCache(this.pathsCacheSize);
     }
     
     /*
@@ -432,6 +456,8 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         aspectsCache.clear();
         propertiesCache.clear();
         parentAssocsCache.clear();
+        primaryPathsCache.clear();
+        allPathsCache.clear();
     }
     
     /**
@@ -1185,37 +1211,8 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             auditableProperties = Collections.emptyMap();
         }
         
-        // Get the parent node
-        Node parentNode = getNodeNotNull(parentNodeId, true);
-        
         // Find an initial ACL for the node
-        Long parentAclId = parentNode.getAclId();
-        AccessControlListProperties inheritedAcl = null;
-        Long childAclId = null;
-        if (parentAclId != null)
-        {
-            try
-            {
-                Long inheritedACL = aclDAO.getInheritedAccessControlList(parentAclId);
-                inheritedAcl = aclDAO.getAccessControlListProperties(inheritedACL);
-                if (inheritedAcl != null)
-                {
-                    childAclId = inheritedAcl.getId();
-                }
-            }
-            catch (RuntimeException e)
-            {
-                // The get* calls above actually do writes.  So pessimistically get rid of the
-                // parent node from the cache in case it was wrong somehow.
-                invalidateNodeCaches(parentNodeId);
-                // Rethrow for a retry (ALF-17286)
-                throw new RuntimeException(
-                        "Failure while 'getting' inherited ACL or ACL properties: \n" +
-                        "   parent ACL ID:  " + parentAclId + "\n" +
-                        "   inheritied ACL: " + inheritedAcl,
-                        e);
-            }
-        }
+        Long childAclId = getInheritedAclId(parentNodeId);
         // Build the cm:auditable properties
         AuditablePropertiesEntity auditableProps = new AuditablePropertiesEntity();
         boolean setAuditProps = auditableProps.setAuditValues(null, null, auditableProperties);
@@ -1264,6 +1261,214 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         return assoc;
     }
 
+    /**
+     * Find the ACL that a new primary child of the given parent will inherit.
+     * 
+     * @return                  the inherited ACL ID or <tt>null</tt> if the parent has no ACL
+     */
+    private Long getInheritedAclId(Long parentNodeId)
+    {
+        // Get the parent node
+        Node parentNode = getNodeNotNull(parentNodeId, true);
+        
+        Long parentAclId = parentNode.getAclId();
+        AccessControlListProperties inheritedAcl = null;
+        Long childAclId = null;
+        if (parentAclId != null)
+        {
+            try
+            {
+                Long inheritedACL = aclDAO.getInheritedAccessControlList(parentAclId);
+                inheritedAcl = aclDAO.getAccessControlListProperties(inheritedACL);
+                if (inheritedAcl != null)
+                {
+                    childAclId = inheritedAcl.getId();
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // The get* calls above actually do writes.  So pessimistically get rid of the
+                // parent node from the cache in case it was wrong somehow.
+                invalidateNodeCaches(parentNodeId);
+                // Rethrow for a retry (ALF-17286)
+                throw new RuntimeException(
+                        "Failure while 'getting' inherited ACL or ACL properties: \n" +
+                        "   parent ACL ID:  " + parentAclId + "\n" +
+                        "   inheritied ACL: " + inheritedAcl,
+                        e);
+            }
+        }
+        return childAclId;
+    }
+
+    @Override
+    public List<ChildAssocEntity> newNodes(List<NewNodeSpec> newNodes) throws InvalidTypeException
+    {
+        int count = newNodes.size();
+        List<ChildAssocEntity> assocs = new ArrayList<ChildAssocEntity>(count);
+        if (count == 0)
+        {
+            return assocs;
+        }
+        // Siblings share their parent's ACL and store, so only look them up once per call
+        LongObjectHashMap<Long> childAclIdsByParentId = new LongObjectHashMap<Long>();
+        LongHashSet parentsWithoutAcl = new LongHashSet();
+        Map<StoreRef, StoreEntity> storesByRef = new HashMap<StoreRef, StoreEntity>(5);
+        // The values to write in a single batch once the node rows are in place
+        Map<Long, Set<Long>> aspectQNameIdsByNodeId = new LinkedHashMap<Long, Set<Long>>(count * 2);
+        Map<Long, Map<NodePropertyKey, NodePropertyValue>> propsRawByNodeId =
+                new LinkedHashMap<Long, Map<NodePropertyKey, NodePropertyValue>>(count * 2);
+        Map<Long, Set<QName>> aspectsToCache = new HashMap<Long, Set<QName>>(count * 2);
+        Map<Long, Map<QName, Serializable>> propsToCache = new HashMap<Long, Map<QName, Serializable>>(count * 2);
+        
+        for (NewNodeSpec newNode : newNodes)
+        {
+            Long parentNodeId = newNode.getParentNodeId();
+            QName nodeTypeQName = newNode.getNodeTypeQName();
+            
+            // Find an initial ACL for the node
+            Long childAclId = childAclIdsByParentId.get(parentNodeId);
+            if (childAclId == null && !parentsWithoutAcl.contains(parentNodeId))
+            {
+                childAclId = getInheritedAclId(parentNodeId);
+                if (childAclId == null)
+                {
+                    parentsWithoutAcl.add(parentNodeId);
+                }
+                else
+                {
+                    childAclIdsByParentId.put(parentNodeId, childAclId);
+                }
+            }
+            // Get the store
+            StoreRef storeRef = newNode.getStoreRef();
+            StoreEntity store = storesByRef.get(storeRef);
+            if (store == null)
+            {
+                store = getStoreNotNull(storeRef);
+                storesByRef.put(storeRef, store);
+            }
+            
+            // Split out the cm:auditable properties
+            Map<QName, Serializable> props = new HashMap<QName, Serializable>(newNode.getProperties());
+            AuditablePropertiesEntity auditableProps = new AuditablePropertiesEntity();
+            boolean setAuditProps = auditableProps.setAuditValues(null, null, props);
+            if (!setAuditProps)
+            {
+                // No cm:auditable properties were supplied
+                auditableProps = null;
+            }
+            props.keySet().removeAll(AuditablePropertiesEntity.getAuditablePropertyQNames());
+            // The node locale may also be given as sys:locale
+            Locale nodeLocale = newNode.getNodeLocale();
+            if (nodeLocale == null)
+            {
+                nodeLocale = DefaultTypeConverter.INSTANCE.convert(Locale.class, props.get(ContentModel.PROP_LOCALE));
+            }
+            Long nodeLocaleId = (nodeLocale == null) ? null : localeDAO.getOrCreateLocalePair(nodeLocale).getFirst();
+            
+            // Create the node (it is not a root node)
+            Long nodeTypeQNameId = qnameDAO.getOrCreateQName(nodeTypeQName).getFirst();
+            NodeEntity node = newNodeImpl(store, newNode.getUuid(), nodeTypeQNameId, nodeLocaleId, childAclId, auditableProps, true);
+            Long nodeId = node.getId();
+            
+            // Protect the node's cm:auditable if it was explicitly set
+            if (setAuditProps)
+            {
+                policyBehaviourFilter.disableBehaviour(node.getNodeRef(), ContentModel.ASPECT_AUDITABLE);
+            }
+            
+            // Now create a primary association for it
+            String childNodeName = newNode.getChildNodeName();
+            if (childNodeName == null)
+            {
+                childNodeName = node.getUuid();
+            }
+            ChildAssocEntity assoc = newChildAssocImpl(
+                    parentNodeId, nodeId, true, newNode.getAssocTypeQName(), newNode.getAssocQName(), childNodeName, false);
+            assocs.add(assoc);
+            
+            // Collect the aspects; the node may already have cm:auditable
+            Set<QName> aspectQNames = getNodeAspectsCached(nodeId);
+            Set<QName> aspectQNamesToAdd = new HashSet<QName>(newNode.getAspectQNames());
+            aspectQNamesToAdd.removeAll(aspectQNames);
+            aspectQNamesToAdd.remove(ContentModel.ASPECT_REFERENCEABLE);            // Implicit
+            aspectQNamesToAdd.remove(ContentModel.ASPECT_LOCALIZED);                // Implicit
+            if (!aspectQNamesToAdd.isEmpty())
+            {
+                aspectQNameIdsByNodeId.put(nodeId, qnameDAO.convertQNamesToIds(aspectQNamesToAdd, true));
+                aspectQNames.addAll(aspectQNamesToAdd);
+                aspectsToCache.put(nodeId, aspectQNames);
+            }
+            
+            // There will be no other parent assocs
+            boolean isRoot = aspectQNames.contains(ContentModel.ASPECT_ROOT);
+            boolean isStoreRoot = nodeTypeQName.equals(ContentModel.TYPE_STOREROOT);
+            if (isRoot)
+            {
+                // invalidate root nodes cache for the store
+                allRootNodesCache.remove(storeRef);
+            }
+            setParentAssocsCached(nodeId, new ParentAssocsInfo(isRoot, isStoreRoot, assoc));
+            
+            // Collect the properties
+            LocalizedPropertiesEntity.removeLocalizedProperties(node, props);
+            ReferenceablePropertiesEntity.removeReferenceableProperties(node, props);
+            if (!props.isEmpty())
+            {
+                // Convert to the model-compliant format before persisting
+                props = nodePropertyHelper.convertToPublicProperties(
+                        nodePropertyHelper.convertToPersistentProperties(props));
+                for (Map.Entry<QName, Serializable> entry : props.entrySet())
+                {
+                    Serializable value = entry.getValue();
+                    if (!(value instanceof ContentData) || value instanceof ContentDataWithId)
+                    {
+                        continue;
+                    }
+                    PropertyDefinition propDef = dictionaryService.getProperty(entry.getKey());
+                    if (propDef != null && propDef.getDataType().getName().equals(DataTypeDefinition.CONTENT))
+                    {
+                        ContentData contentData = (ContentData) value;
+                        Long contentDataId = contentDataDAO.createContentData(contentData).getFirst();
+                        entry.setValue(new ContentDataWithId(contentData, contentDataId));
+                    }
+                }
+                propsRawByNodeId.put(nodeId, nodePropertyHelper.convertToPersistentProperties(props));
+                propsToCache.put(nodeId, props);
+            }
+        }
+        
+        // Write all the aspects and properties together
+        try
+        {
+            insertNodeAspectsAndProperties(aspectQNameIdsByNodeId, propsRawByNodeId);
+        }
+        catch (RuntimeException e)
+        {
+            // Don't trust the caches for any of the new nodes
+            for (ChildAssocEntity assoc : assocs)
+            {
+                invalidateNodeCaches(assoc.getChildNode().getId());
+            }
+            throw e;
+        }
+        for (Map.Entry<Long, Set<QName>> entry : aspectsToCache.entrySet())
+        {
+            setNodeAspectsCached(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Long, Map<QName, Serializable>> entry : propsToCache.entrySet())
+        {
+            setNodePropertiesCached(entry.getKey(), entry.getValue());
+        }
+        
+        if (isDebugEnabled)
+        {
+            logger.debug("Created " + count + " new nodes.");
+        }
+        return assocs;
+    }
+
     /**
      * @param uuid                          the node UUID, or <tt>null</tt> to auto-generate
      * @param nodeTypeQNameId               the node's type
@@ -2053,15 +2258,15 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
 
     public Map<QName, Serializable> getNodeProperties(Long nodeId)
     {
-        Map<QName, Serializable> props = getNodePropertiesCached(nodeId);
-        // Create a shallow copy to allow additions
-        props = new HashMap<QName, Serializable>(props);
+        Map<QName, Serializable> cachedProps = getNodePropertiesCached(nodeId);
+        // Gather the properties held on the node itself
+        Map<QName, Serializable> nodeProps = new HashMap<QName, Serializable>(23);
         
         Node node = getNodeNotNull(nodeId, false);
         // Handle sys:referenceable
-        ReferenceablePropertiesEntity.addReferenceableProperties(node, props);
+        ReferenceablePropertiesEntity.addReferenceableProperties(node, nodeProps);
         // Handle sys:localized
-        LocalizedPropertiesEntity.addLocalizedProperties(localeDAO, node, props);
+        LocalizedPropertiesEntity.addLocalizedProperties(localeDAO, node, nodeProps);
         // Handle cm:auditable
         if (hasNodeAspect(nodeId, ContentModel.ASPECT_AUDITABLE))
         {
@@ -2070,7 +2275,19 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             {
                 auditableProperties = new AuditablePropertiesEntity();
             }
-            props.putAll(auditableProperties.getAuditableProperties());
+            nodeProps.putAll(auditableProperties.getAuditableProperties());
+        }
+        
+        Map<QName, Serializable> props;
+        if (cachedProps instanceof CompactPropertyMap)
+        {
+            // Combine without building the cached values; they are only built when read
+            props = ((CompactPropertyMap) cachedProps).withProperties(nodeProps);
+        }
+        else
+        {
+            props = new HashMap<QName, Serializable>(cachedProps);
+            props.putAll(nodeProps);
         }
         
         // Wrap to ensure that we only clone values if the client attempts to modify
@@ -2087,6 +2304,19 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         return props;
     }
 
+    @Override
+    public Map<Long, Map<QName, Serializable>> getNodeProperties(Collection<Long> nodeIds)
+    {
+        // The aspects are needed to decide on the cm:auditable properties
+        cacheNodeAspectsAndProperties(nodeIds, true);
+        Map<Long, Map<QName, Serializable>> propsByNodeId = new HashMap<Long, Map<QName, Serializable>>(nodeIds.size() * 2);
+        for (Long nodeId : nodeIds)
+        {
+            propsByNodeId.put(nodeId, getNodeProperties(nodeId));
+        }
+        return propsByNodeId;
+    }
+
     @Override
     public Serializable getNodeProperty(Long nodeId, QName propertyQName)
     {
@@ -2525,15 +2755,15 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     }
     
     /**
-     * Update the node properties cache.  The incoming properties will be wrapped to be
-     * unmodifiable.
+     * Update the node properties cache.  The incoming properties will be copied into an
+     * immutable {@link CompactPropertyMap}.
      * <p>
      * <b>NOTE:</b> Incoming properties must exclude the <b>cm:auditable</b> properties
      */
     private void setNodePropertiesCached(Long nodeId, Map<QName, Serializable> properties)
     {
         NodeVersionKey nodeVersionKey = getNodeNotNull(nodeId, false).getNodeVersionKey();
-        propertiesCache.setValue(nodeVersionKey, Collections.unmodifiableMap(properties));
+        propertiesCache.setValue(nodeVersionKey, new CompactPropertyMap(properties));
     }
     
     /**
@@ -2586,7 +2816,51 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             // Convert to public properties
             Map<QName, Serializable> props = nodePropertyHelper.convertToPublicProperties(propsRaw);
             // Done
-            return new Pair<NodeVersionKey, Map<QName, Serializable>>(nodeVersionKey, Collections.unmodifiableMap(props));
+            return new Pair<NodeVersionKey, Map<QName, Serializable>>(nodeVersionKey, new CompactPropertyMap(props));
+        }
+
+        /**
+         * Loads the properties for all the given node versions using a single query.  Node versions
+         * that do not match the current database state are left out.
+         */
+        @Override
+        public List<Pair<NodeVersionKey, Map<QName, Serializable>>> findByKeys(List<NodeVersionKey> nodeVersionKeys)
+        {
+            Set<Long> nodeIds = new TreeSet<Long>();
+            for (NodeVersionKey nodeVersionKey : nodeVersionKeys)
+            {
+                nodeIds.add(nodeVersionKey.getNodeId());
+            }
+            // First ensure all content data are pre-cached, so we don't have to load them individually when converting properties
+            contentDataDAO.cacheContentDataForNodes(nodeIds);
+            Map<NodeVersionKey, Map<NodePropertyKey, NodePropertyValue>> propsRawByNodeVersionKey = selectNodeProperties(nodeIds);
+            // Record the nodes that have properties of any version
+            LongHashSet nodeIdsWithProps = new LongHashSet(propsRawByNodeVersionKey.size());
+            for (NodeVersionKey nodeVersionKey : propsRawByNodeVersionKey.keySet())
+            {
+                nodeIdsWithProps.add(nodeVersionKey.getNodeId());
+            }
+            
+            List<Pair<NodeVersionKey, Map<QName, Serializable>>> results =
+                    new ArrayList<Pair<NodeVersionKey, Map<QName, Serializable>>>(nodeVersionKeys.size());
+            for (NodeVersionKey nodeVersionKey : nodeVersionKeys)
+            {
+                Map<NodePropertyKey, NodePropertyValue> propsRaw = propsRawByNodeVersionKey.get(nodeVersionKey);
+                if (propsRaw == null)
+                {
+                    if (nodeIdsWithProps.contains(nodeVersionKey.getNodeId()))
+                    {
+                        // Stale node version; leave it for the single lookup to deal with
+                        continue;
+                    }
+                    // This is OK.  The node has no properties
+                    propsRaw = Collections.emptyMap();
+                }
+                Map<QName, Serializable> props = nodePropertyHelper.convertToPublicProperties(propsRaw);
+                results.add(new Pair<NodeVersionKey, Map<QName, Serializable>>(nodeVersionKey, new CompactPropertyMap(props)));
+            }
+            // Done
+            return results;
         }
     }
     
@@ -2605,6 +2879,18 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         return nodeAspects;
     }
 
+    @Override
+    public Map<Long, Set<QName>> getNodeAspects(Collection<Long> nodeIds)
+    {
+        cacheNodeAspectsAndProperties(nodeIds, false);
+        Map<Long, Set<QName>> aspectsByNodeId = new HashMap<Long, Set<QName>>(nodeIds.size() * 2);
+        for (Long nodeId : nodeIds)
+        {
+            aspectsByNodeId.put(nodeId, getNodeAspects(nodeId));
+        }
+        return aspectsByNodeId;
+    }
+
     @Override
     public boolean hasNodeAspect(Long nodeId, QName aspectQName)
     {
@@ -2860,6 +3146,46 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             // Done
             return new Pair<NodeVersionKey, Set<QName>>(nodeVersionKey, Collections.unmodifiableSet(nodeAspectQNames));
         }
+
+        /**
+         * Loads the aspects for all the given node versions using a single query.  Node versions
+         * that do not match the current database state are left out.
+         */
+        @Override
+        public List<Pair<NodeVersionKey, Set<QName>>> findByKeys(List<NodeVersionKey> nodeVersionKeys)
+        {
+            Set<Long> nodeIds = new TreeSet<Long>();
+            for (NodeVersionKey nodeVersionKey : nodeVersionKeys)
+            {
+                nodeIds.add(nodeVersionKey.getNodeId());
+            }
+            Map<NodeVersionKey, Set<QName>> nodeAspectQNameIdsByVersionKey = selectNodeAspects(nodeIds);
+            // Record the nodes that have aspects of any version
+            LongHashSet nodeIdsWithAspects = new LongHashSet(nodeAspectQNameIdsByVersionKey.size());
+            for (NodeVersionKey nodeVersionKey : nodeAspectQNameIdsByVersionKey.keySet())
+            {
+                nodeIdsWithAspects.add(nodeVersionKey.getNodeId());
+            }
+            
+            List<Pair<NodeVersionKey, Set<QName>>> results = new ArrayList<Pair<NodeVersionKey, Set<QName>>>(nodeVersionKeys.size());
+            for (NodeVersionKey nodeVersionKey : nodeVersionKeys)
+            {
+                Set<QName> nodeAspectQNames = nodeAspectQNameIdsByVersionKey.get(nodeVersionKey);
+                if (nodeAspectQNames == null)
+                {
+                    if (nodeIdsWithAspects.contains(nodeVersionKey.getNodeId()))
+                    {
+                        // Stale node version; leave it for the single lookup to deal with
+                        continue;
+                    }
+                    // This is OK.  The node has no aspects
+                    nodeAspectQNames = Collections.emptySet();
+                }
+                results.add(new Pair<NodeVersionKey, Set<QName>>(nodeVersionKey, Collections.unmodifiableSet(nodeAspectQNames)));
+            }
+            // Done
+            return results;
+        }
     }
     
     /*
@@ -3770,7 +4096,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
 
     private class CycleCallBack implements ChildAssocRefQueryCallback
     {
-        final Set<Long> nodeIds = new HashSet<Long>(97);
+        final LongHashSet nodeIds = new LongHashSet(97);
         CyclicChildRelationshipException toThrow;
 
         @Override
@@ -3827,16 +4153,37 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     @Override
     public List<Path> getPaths(Pair<Long, NodeRef> nodePair, boolean primaryOnly) throws InvalidNodeRefException
     {
-        // create storage for the paths - only need 1 bucket if we are looking for the primary path
-        List<Path> paths = new ArrayList<Path>(primaryOnly ? 1 : 10);
-        // create an empty current path to start from
-        Path currentPath = new Path();
-        // create storage for touched associations
-        Stack<Long> assocIdStack = new Stack<Long>();
-        
-        // call recursive method to sort it out
-        prependPaths(nodePair, null, currentPath, paths, assocIdStack, primaryOnly);
-        
+        NodePaths nodePaths = getNodePaths(
+                nodePair,
+                primaryOnly,
+                new LongObjectHashMap<NodePaths>(),
+                new LongHashSet());
+        return checkPaths(nodePair, primaryOnly, nodePaths.toPaths());
+    }
+
+    @Override
+    public Map<Long, List<Path>> getPaths(List<Pair<Long, NodeRef>> nodePairs, boolean primaryOnly) throws InvalidNodeRefException
+    {
+        List<Long> nodeIds = new ArrayList<Long>(nodePairs.size());
+        for (Pair<Long, NodeRef> nodePair : nodePairs)
+        {
+            nodeIds.add(nodePair.getFirst());
+        }
+        cacheNodesById(nodeIds);
+        // The ancestors resolved for one node are reused for the rest
+        LongObjectHashMap<NodePaths> resolved = new LongObjectHashMap<NodePaths>(64);
+        LongHashSet inProgress = new LongHashSet();
+        Map<Long, List<Path>> pathsByNodeId = new HashMap<Long, List<Path>>(nodePairs.size() * 2);
+        for (Pair<Long, NodeRef> nodePair : nodePairs)
+        {
+            NodePaths nodePaths = getNodePaths(nodePair, primaryOnly, resolved, inProgress);
+            pathsByNodeId.put(nodePair.getFirst(), checkPaths(nodePair, primaryOnly, nodePaths.toPaths()));
+        }
+        return pathsByNodeId;
+    }
+
+    private List<Path> checkPaths(Pair<Long, NodeRef> nodePair, boolean primaryOnly, List<Path> paths)
+    {
         // check that for the primary only case we have exactly one path
         if (primaryOnly && paths.size() != 1)
         {
@@ -4034,154 +4381,307 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     }
     
     /**
-     * Build the paths for a node
+     * Get the paths for a node.  The paths of the node's ancestors are resolved first and the node's
+     * cached paths are reused if they were built from the same parent associations and ancestor paths.
      * 
-     * @param currentNodePair       the leave or child node to start with
-     * @param currentRootNodePair   pass in <tt>null</tt> only 
-     * @param currentPath           an empty {@link Path}
-     * @param completedPaths        completed paths i.e. the result
-     * @param assocIdStack          a stack to detected cyclic relationships
+     * @param nodePair              the leaf or child node to start with
      * @param primaryOnly           <tt>true</tt> to follow only primary parent associations
+     * @param resolved              the paths already resolved during this call, by node ID
+     * @param inProgress            the IDs of the nodes being resolved, to detect cyclic relationships
      * @throws CyclicChildRelationshipException
      */
-    private void prependPaths(
-            Pair<Long, NodeRef> currentNodePair,
-            Pair<StoreRef, NodeRef> currentRootNodePair,
-            Path currentPath,
-            Collection<Path> completedPaths,
-            Stack<Long> assocIdStack,
-            boolean primaryOnly) throws CyclicChildRelationshipException
+    private NodePaths getNodePaths(
+            Pair<Long, NodeRef> nodePair,
+            boolean primaryOnly,
+            LongObjectHashMap<NodePaths> resolved,
+            LongHashSet inProgress) throws CyclicChildRelationshipException
     {
-        if (isDebugEnabled)
+        Long nodeId = nodePair.getFirst();
+        NodePaths nodePaths = resolved.get(nodeId);
+        if (nodePaths != null)
         {
-            logger.debug("\n" +
-                    "Prepending paths: \n" +
-                    "   Current node: " + currentNodePair + "\n" +
-                    "   Current root: " + currentRootNodePair + "\n" +
-                    "   Current path: " + currentPath);
+            return nodePaths;
         }
-        Long currentNodeId = currentNodePair.getFirst();
-        NodeRef currentNodeRef = currentNodePair.getSecond();
+        StoreRef storeRef = nodePair.getSecond().getStoreRef();
 
-        // Check if we have changed root nodes
-        StoreRef currentStoreRef = currentNodeRef.getStoreRef();
-        if (currentRootNodePair == null || !currentStoreRef.equals(currentRootNodePair.getFirst()))
-        {
-            // We've changed stores
-            Pair<Long, NodeRef> rootNodePair = getRootNode(currentStoreRef);
-            currentRootNodePair = new Pair<StoreRef, NodeRef>(currentStoreRef, rootNodePair.getSecond());
-        }
-        
         // get the parent associations of the given node
-        ParentAssocsInfo parentAssocInfo = getParentAssocsCached(currentNodeId); // note: currently may throw NotLiveNodeException
-        // bulk load parents as we are certain to hit them in the next call
-        ArrayList<Long> toLoad = new ArrayList<Long>(parentAssocInfo.getParentAssocs().size());
-        for(Map.Entry<Long, ChildAssocEntity> entry : parentAssocInfo.getParentAssocs().entrySet())
+        ParentAssocsInfo parentAssocInfo = getParentAssocsCached(nodeId); // note: currently may throw NotLiveNodeException
+        List<ChildAssocEntity> parentAssocs = new ArrayList<ChildAssocEntity>(parentAssocInfo.getParentAssocs().size());
+        List<Long> toLoad = new ArrayList<Long>(parentAssocInfo.getParentAssocs().size());
+        for (ChildAssocEntity assoc : parentAssocInfo.getParentAssocs().values())
         {
-            toLoad.add(entry.getValue().getParentNode().getId());
+            // do we consider only primary assocs?
+            if (primaryOnly && !assoc.isPrimary())
+            {
+                continue;
+            }
+            parentAssocs.add(assoc);
+            toLoad.add(assoc.getParentNode().getId());
         }
+        // bulk load parents as we are certain to hit them next
         cacheNodesById(toLoad);
 
+        // walk up each parent association
+        NodePaths[] parentPaths = new NodePaths[parentAssocs.size()];
+        inProgress.add(nodeId);
+        for (int i = 0; i < parentPaths.length; i++)
+        {
+            ChildAssocEntity assoc = parentAssocs.get(i);
+            NodeEntity parentNode = assoc.getParentNode();
+            // is the parent already being resolved further down
+            if (inProgress.contains(parentNode.getId()))
+            {
+                logger.error(
+                        "Cyclic parent-child relationship detected: \n" +
+                        "   current node: " + nodeId + "\n" +
+                        "   next assoc: " + assoc.getId());
+                throw new CyclicChildRelationshipException("Node has been pasted into its own tree.", assoc.getRef(qnameDAO));
+            }
+            Pair<Long, NodeRef> parentNodePair = new Pair<Long, NodeRef>(parentNode.getId(), parentNode.getNodeRef());
+            parentPaths[i] = getNodePaths(parentNodePair, primaryOnly, resolved, inProgress);
+        }
+        inProgress.remove(nodeId);
+
+        NodePathsCache pathsCache = primaryOnly ? primaryPathsCache : allPathsCache;
+        nodePaths = pathsCache.get(nodeId);
+        if (nodePaths == null || !nodePaths.isBuiltFrom(storeRef, parentAssocInfo, parentPaths))
+        {
+            nodePaths = buildNodePaths(storeRef, parentAssocInfo, parentAssocs, parentPaths, primaryOnly);
+            pathsCache.put(nodeId, nodePaths);
+        }
+        else if (isDebugEnabled)
+        {
+            logger.debug("Reusing cached paths for node " + nodePair);
+        }
+        resolved.put(nodeId, nodePaths);
+        return nodePaths;
+    }
+
+    private NodePaths buildNodePaths(
+            StoreRef storeRef,
+            ParentAssocsInfo parentAssocInfo,
+            List<ChildAssocEntity> parentAssocs,
+            NodePaths[] parentPaths,
+            boolean primaryOnly)
+    {
+        List<PathPrefix> prefixes = new ArrayList<PathPrefix>(parentPaths.length + 1);
+
         // does the node have parents
         boolean hasParents = parentAssocInfo.getParentAssocs().size() > 0;
-        // does the current node have a root aspect?
-
         // look for a root. If we only want the primary root, then ignore all but the top-level root.
         if (!(primaryOnly && hasParents) && parentAssocInfo.isRoot()) // exclude primary search with parents present
         {
-            // create a one-sided assoc ref for the root node and prepend to the stack
-            // this effectively spoofs the fact that the current node is not below the root
-            // - we put this assoc in as the first assoc in the path must be a one-sided
-            // reference pointing to the root node
-            ChildAssociationRef assocRef = new ChildAssociationRef(null, null, null, currentRootNodePair.getSecond());
-            // create a path to save and add the 'root' assoc
-            Path pathToSave = new Path();
-            Path.ChildAssocElement first = null;
-            for (Path.Element element : currentPath)
-            {
-                if (first == null)
+            NodeRef rootNodeRef = getRootNode(storeRef).getSecond();
+            prefixes.add(new PathPrefix(rootNodeRef, parentAssocInfo.isStoreRoot()));
+        }
+
+        for (int i = 0; i < parentPaths.length; i++)
+        {
+            ChildAssociationRef assocRef = parentAssocs.get(i).getRef(qnameDAO);
+            // Ordering is meaningless here as we are constructing a path upwards
+            // and have no idea where the node comes in the sibling order or even
+            // if there are like-pathed siblings.
+            assocRef.setNthSibling(-1);
+            for (PathPrefix parentPrefix : parentPaths[i].prefixes)
+            {
+                prefixes.add(parentPrefix.append(assocRef));
+            }
+        }
+        return new NodePaths(storeRef, parentAssocInfo, parentPaths, prefixes);
+    }
+
+    /**
+     * A path from a root down to a node.  The elements above the node are not copied but shared with
+     * the path of the parent node.
+     */
+    private static final class PathPrefix
+    {
+        private final PathPrefix parent;
+        private final Path.Element element;
+        private final int size;
+        /** Set when the path ends at a root: the next association must be made to hang off this node */
+        private final NodeRef rootNodeRef;
+        private final boolean isStoreRoot;
+
+        /**
+         * Start a path at a root node with a one-sided assoc ref pointing to the root node of the store.
+         * This effectively spoofs the fact that the node is not below the store root.
+         */
+        private PathPrefix(NodeRef rootNodeRef, boolean isStoreRoot)
+        {
+            this.parent = null;
+            this.element = new Path.ChildAssocElement(new ChildAssociationRef(null, null, null, rootNodeRef));
+            this.size = 1;
+            this.rootNodeRef = rootNodeRef;
+            this.isStoreRoot = isStoreRoot;
+        }
+
+        private PathPrefix(PathPrefix parent, Path.Element element)
+        {
+            this.parent = parent;
+            this.element = element;
+            this.size = parent.size + 1;
+            this.rootNodeRef = null;
+            this.isStoreRoot = false;
+        }
+
+        private PathPrefix append(ChildAssociationRef assocRef)
+        {
+            if (rootNodeRef != null)
+            {
+                // mimic an association that would appear if the child node was below the root node
+                // or if first beneath the root node it will make the real thing
+                assocRef = new ChildAssociationRef(
+                        isStoreRoot ? ContentModel.ASSOC_CHILDREN : assocRef.getTypeQName(),
+                        rootNodeRef,
+                        assocRef.getQName(),
+                        assocRef.getChildRef());
+            }
+            return new PathPrefix(this, new Path.ChildAssocElement(assocRef));
+        }
+
+        private Path toPath()
+        {
+            Path.Element[] elements = new Path.Element[size];
+            PathPrefix prefix = this;
+            for (int i = size - 1; i >= 0; i--)
+            {
+                elements[i] = prefix.element;
+                prefix = prefix.parent;
+            }
+            Path path = new Path();
+            for (Path.Element element : elements)
+            {
+                path.append(element);
+            }
+            return path;
+        }
+    }
+
+    /**
+     * The paths of a node.  They stay valid for as long as the node's parent associations and the paths
+     * of its parents are the very instances they were built from.
+     */
+    private static final class NodePaths
+    {
+        private final StoreRef storeRef;
+        private final ParentAssocsInfo parentAssocInfo;
+        private final NodePaths[] parentPaths;
+        private final List<PathPrefix> prefixes;
+
+        private NodePaths(StoreRef storeRef, ParentAssocsInfo parentAssocInfo, NodePaths[] parentPaths, List<PathPrefix> prefixes)
+        {
+            this.storeRef = storeRef;
+            this.parentAssocInfo = parentAssocInfo;
+            this.parentPaths = parentPaths;
+            this.prefixes = prefixes;
+        }
+
+        private boolean isBuiltFrom(StoreRef storeRef, ParentAssocsInfo parentAssocInfo, NodePaths[] parentPaths)
+        {
+            if (this.parentAssocInfo != parentAssocInfo || !this.storeRef.equals(storeRef) || this.parentPaths.length != parentPaths.length)
+            {
+                return false;
+            }
+            for (int i = 0; i < parentPaths.length; i++)
+            {
+                if (this.parentPaths[i] != parentPaths[i])
                 {
-                    first = (Path.ChildAssocElement) element;
+                    return false;
                 }
-                else
+            }
+            return true;
+        }
+
+        private List<Path> toPaths()
+        {
+            List<Path> paths = new ArrayList<Path>(prefixes.size());
+            for (PathPrefix prefix : prefixes)
+            {
+                paths.add(prefix.toPath());
+            }
+            return paths;
+        }
+    }
+
+    /**
+     * A bounded map of the paths built for nodes, by node ID.  The oldest entries are pruned first.
+     */
+    private static class NodePathsCache
+    {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, NodePaths> cache;
+
+        /**
+         * @param size int
+         */
+        public NodePathsCache(final int size)
+        {
+            this.cache = new LinkedHashMap<Long, NodePaths>(Math.min(size, 1024) * 2)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, NodePaths> eldest)
                 {
-                    pathToSave.append(element);
+                    return size() > size;
                 }
+            };
+        }
+
+        private NodePaths get(Long nodeId)
+        {
+            lock.readLock().lock();
+            try
+            {
+                return cache.get(nodeId);
             }
-            if (first != null)
+            finally
             {
-                // mimic an association that would appear if the current node was below the root node
-                // or if first beneath the root node it will make the real thing
-                ChildAssociationRef updateAssocRef = new ChildAssociationRef(
-                        parentAssocInfo.isStoreRoot() ? ContentModel.ASSOC_CHILDREN : first.getRef().getTypeQName(),
-                        currentRootNodePair.getSecond(),
-                        first.getRef().getQName(),
-                        first.getRef().getChildRef());
-                Path.Element newFirst = new Path.ChildAssocElement(updateAssocRef);
-                pathToSave.prepend(newFirst);
+                lock.readLock().unlock();
             }
+        }
 
-            Path.Element element = new Path.ChildAssocElement(assocRef);
-            pathToSave.prepend(element);
-
-            // store the path just built
-            completedPaths.add(pathToSave);
+        private void put(Long nodeId, NodePaths nodePaths)
+        {
+            lock.writeLock().lock();
+            try
+            {
+                // Re-insert so that the entry counts as the newest
+                cache.remove(nodeId);
+                cache.put(nodeId, nodePaths);
+            }
+            finally
+            {
+                lock.writeLock().unlock();
+            }
         }
 
-        // walk up each parent association
-        for (Map.Entry<Long, ChildAssocEntity> entry : parentAssocInfo.getParentAssocs().entrySet())
+        private void remove(Long nodeId)
         {
-            Long assocId = entry.getKey();
-            ChildAssocEntity assoc = entry.getValue();
-            ChildAssociationRef assocRef = assoc.getRef(qnameDAO);
-            // do we consider only primary assocs?
-            if (primaryOnly && !assocRef.isPrimary())
+            lock.writeLock().lock();
+            try
             {
-                continue;
+                cache.remove(nodeId);
             }
-            // Ordering is meaningless here as we are constructing a path upwards
-            // and have no idea where the node comes in the sibling order or even
-            // if there are like-pathed siblings.
-            assocRef.setNthSibling(-1);
-            // build a path element
-            Path.Element element = new Path.ChildAssocElement(assocRef);
-            // create a new path that builds on the current path
-            Path path = new Path();
-            path.append(currentPath);
-            // prepend element
-            path.prepend(element);
-            // get parent node pair
-            Pair<Long, NodeRef> parentNodePair = new Pair<Long, NodeRef>(
-                    assoc.getParentNode().getId(),
-                    assocRef.getParentRef());
-
-            // does the association already exist in the stack
-            if (assocIdStack.contains(assocId))
-            {
-                // the association was present already
-                logger.error(
-                        "Cyclic parent-child relationship detected: \n" +
-                        "   current node: " + currentNodeId + "\n" +
-                        "   current path: " + currentPath + "\n" +
-                        "   next assoc: " + assocId);
-                throw new CyclicChildRelationshipException("Node has been pasted into its own tree.", assocRef);
+            finally
+            {
+                lock.writeLock().unlock();
             }
+        }
 
-            if (isDebugEnabled)
+        private void clear()
+        {
+            lock.writeLock().lock();
+            try
             {
-                logger.debug("\n" +
-                        "   Prepending path parent: \n" +
-                        "      Parent node: " + parentNodePair);
+                cache.clear();
+            }
+            finally
+            {
+                lock.writeLock().unlock();
             }
-            
-            // push the assoc stack, recurse and pop
-            assocIdStack.push(assocId);
-            
-            prependPaths(parentNodePair, currentRootNodePair, path, completedPaths, assocIdStack, primaryOnly);
-            
-            assocIdStack.pop();
         }
-        // done
     }
 
     /**
@@ -4413,6 +4913,9 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
                 parentAssocsCache.remove(new Pair<Long, String>(nodeId, currentTransactionId));
             }
         }                        
+        // The paths of descendants are rebuilt when they find that the node's paths have changed
+        primaryPathsCache.remove(nodeId);
+        allPathsCache.remove(nodeId);
     }
     
     private ParentAssocsInfo loadParentAssocs(NodeVersionKey nodeVersionKey)
@@ -4560,14 +5063,17 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         boolean forceBatch = false;
         
         List<Long> batchLoadNodeIds = new ArrayList<Long>(nodeIds.size());
+        List<NodeVersionKey> cachedNodeVersionKeys = new ArrayList<NodeVersionKey>(nodeIds.size());
         for (Long nodeId : nodeIds)
         {
             if (!forceBatch)
             {
                 // Is this node in the cache?
-                if (nodesCache.getValue(nodeId) != null)
+                Node node = nodesCache.getValue(nodeId);
+                if (node != null)
                 {
                     foundCacheEntryCount++;                             // Don't add it to the batch
+                    cachedNodeVersionKeys.add(node.getNodeVersionKey());
                     continue;
                 }
                 else
@@ -4586,6 +5092,8 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         
         int size = batchLoadNodeIds.size();
         cacheNodesBatch(batchLoadNodeIds);
+        // Cached nodes might still be missing their aspects or properties
+        cacheNodeAspectsAndPropertiesBatch(cachedNodeVersionKeys, true);
 
         if (logger.isDebugEnabled())
         {
@@ -4628,14 +5136,21 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
 
         // Group the nodes by store so that we don't *have* to eagerly join to store to get query performance
         Map<StoreRef, List<String>> uuidsByStore = new HashMap<StoreRef, List<String>>(3);
+        List<NodeVersionKey> cachedNodeVersionKeys = new ArrayList<NodeVersionKey>(nodeRefs.size());
         for (NodeRef nodeRef : nodeRefs)
         {
             if (!forceBatch)
             {
                 // Is this node in the cache?
-                if (nodesCache.getKey(nodeRef) != null)
+                Long nodeId = nodesCache.getKey(nodeRef);
+                if (nodeId != null)
                 {
                     foundCacheEntryCount++;                             // Don't add it to the batch
+                    Node node = nodesCache.getValue(nodeId);
+                    if (node != null)
+                    {
+                        cachedNodeVersionKeys.add(node.getNodeVersionKey());
+                    }
                     continue;
                 }
                 else
@@ -4667,6 +5182,8 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             List<String> uuids = entry.getValue();
             cacheNodes(storeRef, uuids);
         }
+        // Cached nodes might still be missing their aspects or properties
+        cacheNodeAspectsAndPropertiesBatch(cachedNodeVersionKeys, true);
         if (logger.isDebugEnabled())
         {
             logger.debug("Pre-loaded " + size + " nodes.");
@@ -4786,6 +5303,51 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }
     }
 
+    /**
+     * Ensures that the nodes, their aspects and, optionally, their properties are in the caches.
+     * Cache misses are resolved in batches using IN-list queries rather than one query per node.
+     * 
+     * @param nodeIds               the IDs of the nodes (all must exist)
+     * @param includeProperties     <tt>true</tt> to cache the node properties as well as the aspects
+     */
+    private void cacheNodeAspectsAndProperties(Collection<Long> nodeIds, boolean includeProperties)
+    {
+        // Nodes that are not cached are bulk-loaded along with their aspects and properties
+        List<Long> missingNodeIds = new ArrayList<Long>(nodeIds.size());
+        for (Long nodeId : nodeIds)
+        {
+            if (nodesCache.getValue(nodeId) == null)
+            {
+                missingNodeIds.add(nodeId);
+            }
+        }
+        cacheNodesBatch(missingNodeIds);
+        // Cached nodes might still be missing their aspects or properties
+        List<NodeVersionKey> nodeVersionKeys = new ArrayList<NodeVersionKey>(nodeIds.size());
+        for (Long nodeId : nodeIds)
+        {
+            nodeVersionKeys.add(getNodeNotNull(nodeId, false).getNodeVersionKey());
+        }
+        cacheNodeAspectsAndPropertiesBatch(nodeVersionKeys, includeProperties);
+    }
+
+    /**
+     * Loads any aspects and properties missing from the caches in batches, rather than one node at a time
+     */
+    private void cacheNodeAspectsAndPropertiesBatch(List<NodeVersionKey> nodeVersionKeys, boolean includeProperties)
+    {
+        int batchSize = 256;
+        for (int i = 0; i < nodeVersionKeys.size(); i += batchSize)
+        {
+            List<NodeVersionKey> batch = nodeVersionKeys.subList(i, Math.min(i + batchSize, nodeVersionKeys.size()));
+            aspectsCache.getByKeys(batch);
+            if (includeProperties)
+            {
+                propertiesCache.getByKeys(batch);
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      * <p/>
@@ -4951,6 +5513,9 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     protected abstract void insertNodeProperties(Long nodeId, Map<NodePropertyKey, NodePropertyValue> persistableProps);
     protected abstract Map<NodeVersionKey, Set<QName>> selectNodeAspects(Set<Long> nodeIds);
     protected abstract void insertNodeAspect(Long nodeId, Long qnameId);
+    protected abstract void insertNodeAspectsAndProperties(
+            Map<Long, Set<Long>> aspectQNameIdsByNodeId,
+            Map<Long, Map<NodePropertyKey, NodePropertyValue>> propsByNodeId);
     protected abstract int deleteNodeAspects(Long nodeId, Set<Long> qnameIds);
     protected abstract void selectNodesWithAspects(
             List<Long> qnameIds,
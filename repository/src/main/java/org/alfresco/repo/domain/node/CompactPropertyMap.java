@@ -0,0 +1,379 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.alfresco.service.namespace.QName;
+
+/**
+ * An immutable, compact map of node properties, as held in the node properties cache.
+ * <p>
+ * Entries are held in parallel arrays ordered by <tt>QName</tt> hash code instead of in hash map entries.
+ * Numbers, booleans and dates are packed into a <tt>long</tt> and are only boxed when they are read, and
+ * equal short strings are shared through a small, fixed size table rather than the JVM string pool, so
+ * arbitrary property values can not make it grow.  Other values are held as given.  Reading one property
+ * does not build any of the other values, so callers that only need a few properties do not pay for the rest.
+ * <p>
+ * Dates are rebuilt on each read, so the cached value can not be modified by the reader.
+ * 
+ * @since 23.1
+ */
+public class CompactPropertyMap extends AbstractMap<QName, Serializable> implements Serializable
+{
+    private static final long serialVersionUID = 4513092283367408791L;
+
+    /** Strings up to this length are shared, as they are mostly repeated across nodes */
+    private static final int MAX_INTERNED_LENGTH = 32;
+    /** Lossy table of shared strings: a slot is simply replaced when another string hashes to it */
+    private static final int INTERNED_SLOTS = 4096;
+    private static final AtomicReferenceArray<String> INTERNED = new AtomicReferenceArray<String>(INTERNED_SLOTS);
+
+    private static final byte TYPE_OBJECT = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_FLOAT = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_DATE = 6;
+
+    private final QName[] qnames;
+    private final byte[] types;
+    private final long[] packed;
+    private final Serializable[] objects;
+
+    /**
+     * @param properties            the properties to copy
+     */
+    public CompactPropertyMap(Map<QName, Serializable> properties)
+    {
+        this(properties.size());
+        int i = 0;
+        for (Map.Entry<QName, Serializable> entry : properties.entrySet())
+        {
+            set(i++, entry.getKey(), entry.getValue());
+        }
+        sort();
+    }
+
+    private CompactPropertyMap(int size)
+    {
+        qnames = new QName[size];
+        types = new byte[size];
+        packed = new long[size];
+        objects = new Serializable[size];
+    }
+
+    /**
+     * Get a copy of this map with more properties
+     * 
+     * @param properties            the properties to add or replace
+     * @return                      a new map with this map's properties and the given properties
+     */
+    public CompactPropertyMap withProperties(Map<QName, Serializable> properties)
+    {
+        int kept = 0;
+        for (QName qname : qnames)
+        {
+            if (!properties.containsKey(qname))
+            {
+                kept++;
+            }
+        }
+        CompactPropertyMap copy = new CompactPropertyMap(kept + properties.size());
+        int i = 0;
+        for (int j = 0; j < qnames.length; j++)
+        {
+            if (!properties.containsKey(qnames[j]))
+            {
+                // Packed values are copied as they are
+                copy.qnames[i] = qnames[j];
+                copy.types[i] = types[j];
+                copy.packed[i] = packed[j];
+                copy.objects[i] = objects[j];
+                i++;
+            }
+        }
+        for (Map.Entry<QName, Serializable> entry : properties.entrySet())
+        {
+            copy.set(i++, entry.getKey(), entry.getValue());
+        }
+        copy.sort();
+        return copy;
+    }
+
+    private void set(int i, QName qname, Serializable value)
+    {
+        qnames[i] = qname;
+        if (value instanceof Long)
+        {
+            types[i] = TYPE_LONG;
+            packed[i] = (Long) value;
+        }
+        else if (value instanceof Integer)
+        {
+            types[i] = TYPE_INTEGER;
+            packed[i] = (Integer) value;
+        }
+        else if (value instanceof Double)
+        {
+            types[i] = TYPE_DOUBLE;
+            packed[i] = Double.doubleToRawLongBits((Double) value);
+        }
+        else if (value instanceof Float)
+        {
+            types[i] = TYPE_FLOAT;
+            packed[i] = Float.floatToRawIntBits((Float) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            types[i] = TYPE_BOOLEAN;
+            packed[i] = ((Boolean) value) ? 1L : 0L;
+        }
+        else if (value != null && value.getClass() == Date.class)
+        {
+            // Subclasses such as java.sql.Timestamp are kept as they are
+            types[i] = TYPE_DATE;
+            packed[i] = ((Date) value).getTime();
+        }
+        else if (value instanceof String && ((String) value).length() <= MAX_INTERNED_LENGTH)
+        {
+            objects[i] = intern((String) value);
+        }
+        else
+        {
+            objects[i] = value;
+        }
+    }
+
+    /**
+     * Share equal short strings without holding on to more than {@link #INTERNED_SLOTS} of them
+     */
+    static String intern(String value)
+    {
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (INTERNED_SLOTS - 1);
+        String interned = INTERNED.get(slot);
+        if (value.equals(interned))
+        {
+            return interned;
+        }
+        INTERNED.set(slot, value);
+        return value;
+    }
+
+    private Serializable get(int i)
+    {
+        switch (types[i])
+        {
+        case TYPE_LONG:
+            return packed[i];
+        case TYPE_INTEGER:
+            return (int) packed[i];
+        case TYPE_DOUBLE:
+            return Double.longBitsToDouble(packed[i]);
+        case TYPE_FLOAT:
+            return Float.intBitsToFloat((int) packed[i]);
+        case TYPE_BOOLEAN:
+            return packed[i] != 0L;
+        case TYPE_DATE:
+            return new Date(packed[i]);
+        default:
+            return objects[i];
+        }
+    }
+
+    /**
+     * Insertion sort by hash code; property maps are small
+     */
+    private void sort()
+    {
+        for (int i = 1; i < qnames.length; i++)
+        {
+            QName qname = qnames[i];
+            byte type = types[i];
+            long value = packed[i];
+            Serializable object = objects[i];
+            int hash = qname.hashCode();
+            int j = i - 1;
+            while (j >= 0 && qnames[j].hashCode() > hash)
+            {
+                qnames[j + 1] = qnames[j];
+                types[j + 1] = types[j];
+                packed[j + 1] = packed[j];
+                objects[j + 1] = objects[j];
+                j--;
+            }
+            qnames[j + 1] = qname;
+            types[j + 1] = type;
+            packed[j + 1] = value;
+            objects[j + 1] = object;
+        }
+    }
+
+    private int indexOf(Object key)
+    {
+        if (!(key instanceof QName))
+        {
+            return -1;
+        }
+        int hash = key.hashCode();
+        // Find the first entry with the hash
+        int low = 0;
+        int high = qnames.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (qnames[mid].hashCode() < hash)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        for (int i = low; i < qnames.length && qnames[i].hashCode() == hash; i++)
+        {
+            if (qnames[i].equals(key))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size()
+    {
+        return qnames.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public Serializable get(Object key)
+    {
+        int i = indexOf(key);
+        return i < 0 ? null : get(i);
+    }
+
+    @Override
+    public Set<QName> keySet()
+    {
+        return new AbstractSet<QName>()
+        {
+            @Override
+            public int size()
+            {
+                return qnames.length;
+            }
+
+            @Override
+            public boolean contains(Object key)
+            {
+                return containsKey(key);
+            }
+
+            @Override
+            public Iterator<QName> iterator()
+            {
+                return new EntryIterator<QName>()
+                {
+                    @Override
+                    protected QName get(int i)
+                    {
+                        return qnames[i];
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<QName, Serializable>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<QName, Serializable>>()
+        {
+            @Override
+            public int size()
+            {
+                return qnames.length;
+            }
+
+            @Override
+            public Iterator<Map.Entry<QName, Serializable>> iterator()
+            {
+                return new EntryIterator<Map.Entry<QName, Serializable>>()
+                {
+                    @Override
+                    protected Map.Entry<QName, Serializable> get(int i)
+                    {
+                        return new SimpleImmutableEntry<QName, Serializable>(qnames[i], CompactPropertyMap.this.get(i));
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Read-only iteration over the entry indexes
+     */
+    private abstract class EntryIterator<T> implements Iterator<T>
+    {
+        private int next = 0;
+
+        protected abstract T get(int i);
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < qnames.length;
+        }
+
+        @Override
+        public T next()
+        {
+            if (next >= qnames.length)
+            {
+                throw new NoSuchElementException();
+            }
+            return get(next++);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.QName;
+import org.springframework.util.Assert;
+
+/**
+ * The details of a node to create with {@link NodeDAO#newNodes(java.util.List)}.
+ * <p>
+ * The properties may include <b>cm:auditable</b> values, which are then kept as given, and
+ * <b>sys:locale</b>, which is used if no node locale is set.
+ * 
+ * @since 23.1
+ */
+public class NewNodeSpec
+{
+    private final Long parentNodeId;
+    private final QName assocTypeQName;
+    private final QName assocQName;
+    private final StoreRef storeRef;
+    private final QName nodeTypeQName;
+    private String uuid;
+    private Locale nodeLocale;
+    private String childNodeName;
+    private Map<QName, Serializable> properties = Collections.emptyMap();
+    private Set<QName> aspectQNames = Collections.emptySet();
+
+    /**
+     * @param parentNodeId          the primary parent
+     * @param assocTypeQName        the primary association (<b>not null</b>)
+     * @param assocQName            the primary association path name (<b>not null</b>)
+     * @param storeRef              the store to create the node in
+     * @param nodeTypeQName         the type of the node
+     */
+    public NewNodeSpec(Long parentNodeId, QName assocTypeQName, QName assocQName, StoreRef storeRef, QName nodeTypeQName)
+    {
+        Assert.notNull(parentNodeId, "parentNodeId");
+        Assert.notNull(assocTypeQName, "assocTypeQName");
+        Assert.notNull(assocQName, "assocQName");
+        Assert.notNull(storeRef, "storeRef");
+        Assert.notNull(nodeTypeQName, "nodeTypeQName");
+        this.parentNodeId = parentNodeId;
+        this.assocTypeQName = assocTypeQName;
+        this.assocQName = assocQName;
+        this.storeRef = storeRef;
+        this.nodeTypeQName = nodeTypeQName;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("NewNodeSpec")
+          .append("[ parent=").append(parentNodeId)
+          .append(", assocQName=").append(assocQName)
+          .append(", type=").append(nodeTypeQName)
+          .append(", uuid=").append(uuid)
+          .append(", childNodeName=").append(childNodeName)
+          .append("]");
+        return sb.toString();
+    }
+
+    public Long getParentNodeId()
+    {
+        return parentNodeId;
+    }
+
+    public QName getAssocTypeQName()
+    {
+        return assocTypeQName;
+    }
+
+    public QName getAssocQName()
+    {
+        return assocQName;
+    }
+
+    public StoreRef getStoreRef()
+    {
+        return storeRef;
+    }
+
+    public QName getNodeTypeQName()
+    {
+        return nodeTypeQName;
+    }
+
+    public String getUuid()
+    {
+        return uuid;
+    }
+
+    /**
+     * @param uuid                  the node UUID, or <tt>null</tt> to auto-generate
+     */
+    public void setUuid(String uuid)
+    {
+        this.uuid = uuid;
+    }
+
+    public Locale getNodeLocale()
+    {
+        return nodeLocale;
+    }
+
+    /**
+     * @param nodeLocale            the locale of the node or <tt>null</tt> to use <b>sys:locale</b> or the default
+     */
+    public void setNodeLocale(Locale nodeLocale)
+    {
+        this.nodeLocale = nodeLocale;
+    }
+
+    public String getChildNodeName()
+    {
+        return childNodeName;
+    }
+
+    /**
+     * @param childNodeName         the <b>cm:name</b> equivalent for the association or <tt>null</tt> to use the UUID
+     */
+    public void setChildNodeName(String childNodeName)
+    {
+        this.childNodeName = childNodeName;
+    }
+
+    public Map<QName, Serializable> getProperties()
+    {
+        return properties;
+    }
+
+    /**
+     * @param properties            the initial properties of the node
+     */
+    public void setProperties(Map<QName, Serializable> properties)
+    {
+        this.properties = (properties == null) ? Collections.<QName, Serializable>emptyMap() : properties;
+    }
+
+    public Set<QName> getAspectQNames()
+    {
+        return aspectQNames;
+    }
+
+    /**
+     * @param aspectQNames          the initial aspects of the node
+     */
+    public void setAspectQNames(Set<QName> aspectQNames)
+    {
+        this.aspectQNames = (aspectQNames == null) ? Collections.<QName>emptySet() : aspectQNames;
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.cache.BinaryCodec;
+import org.alfresco.repo.cache.OffHeapSimpleCache;
+import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * Compact {@link BinaryCodec} for the values held in the node caches, allowing them to be kept
+ * in an {@link OffHeapSimpleCache}.
+ * <p>
+ * {@link NodeEntity nodes}, {@link NodeVersionKey node version keys}, {@link CompactPropertyMap property maps}
+ * and unmodifiable <tt>QName</tt> sets (aspects) are written field by field, as are the common property value
+ * types.  Anything else, including other maps and sets, falls back to Java serialization so that it is decoded
+ * as the same type.  Decoded nodes are {@link Node#lock() locked}, as they are when they are put into the caches.
+ * <p>
+ * Shared caches behind a <tt>TransactionalCache</tt> hold {@link ValueHolder value holders}; these are written as
+ * their identity followed by the wrapped value, so that the wrapped values still get the compact encoding.
+ * 
+ * @since 23.1
+ */
+public class NodeCacheBinaryCodec implements BinaryCodec<Serializable>
+{
+    static final byte TYPE_NULL = 0;
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_LONG = 2;
+    static final byte TYPE_INTEGER = 3;
+    static final byte TYPE_BOOLEAN = 4;
+    static final byte TYPE_DATE = 5;
+    static final byte TYPE_DOUBLE = 6;
+    static final byte TYPE_FLOAT = 7;
+    static final byte TYPE_QNAME = 8;
+    static final byte TYPE_NODE_REF = 9;
+    static final byte TYPE_LOCALE = 10;
+    static final byte TYPE_NODE_VERSION_KEY = 11;
+    static final byte TYPE_NODE = 12;
+    static final byte TYPE_QNAME_MAP = 13;
+    static final byte TYPE_QNAME_SET = 14;
+    static final byte TYPE_SERIALIZED = 15;
+    static final byte TYPE_VALUE_HOLDER = 16;
+    
+    /** The type of the aspect sets held in the aspects cache */
+    private static final Class<?> UNMODIFIABLE_SET_CLASS = Collections.unmodifiableSet(new HashSet<Object>()).getClass();
+    
+    @Override
+    public byte[] encode(Serializable value)
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bos))
+        {
+            writeValue(out, value);
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Failed to encode cache value: " + value, e);
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public Serializable decode(byte[] bytes)
+    {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return readValue(in);
+        }
+        catch (IOException | ClassNotFoundException e)
+        {
+            throw new AlfrescoRuntimeException("Failed to decode cache value", e);
+        }
+    }
+    
+    private void writeValue(DataOutputStream out, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(TYPE_NULL);
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value.getClass() == Date.class)
+        {
+            // Subclasses such as java.sql.Timestamp are serialized
+            out.writeByte(TYPE_DATE);
+            out.writeLong(((Date) value).getTime());
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat((Float) value);
+        }
+        else if (value instanceof QName)
+        {
+            out.writeByte(TYPE_QNAME);
+            writeQName(out, (QName) value);
+        }
+        else if (value.getClass() == NodeRef.class)
+        {
+            out.writeByte(TYPE_NODE_REF);
+            writeNodeRef(out, (NodeRef) value);
+        }
+        else if (value instanceof Locale && isEncodableLocale((Locale) value))
+        {
+            Locale locale = (Locale) value;
+            out.writeByte(TYPE_LOCALE);
+            writeString(out, locale.getLanguage());
+            writeString(out, locale.getCountry());
+            writeString(out, locale.getVariant());
+        }
+        else if (value instanceof ValueHolder)
+        {
+            ValueHolder<?> valueHolder = (ValueHolder<?>) value;
+            out.writeByte(TYPE_VALUE_HOLDER);
+            out.writeInt(valueHolder.hashCode());
+            writeValue(out, valueHolder.getValue());
+        }
+        else if (value instanceof NodeVersionKey)
+        {
+            out.writeByte(TYPE_NODE_VERSION_KEY);
+            NodeVersionKey nodeVersionKey = (NodeVersionKey) value;
+            out.writeLong(nodeVersionKey.getNodeId());
+            out.writeLong(nodeVersionKey.getVersion());
+        }
+        else if (value.getClass() == NodeEntity.class && isEncodable((NodeEntity) value))
+        {
+            out.writeByte(TYPE_NODE);
+            writeNode(out, (NodeEntity) value);
+        }
+        else if (value instanceof CompactPropertyMap)
+        {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(TYPE_QNAME_MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet())
+            {
+                writeQName(out, (QName) entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+        else if (value.getClass() == UNMODIFIABLE_SET_CLASS && isQNameKeyed((Set<?>) value))
+        {
+            Set<?> set = (Set<?>) value;
+            out.writeByte(TYPE_QNAME_SET);
+            out.writeInt(set.size());
+            for (Object qname : set)
+            {
+                writeQName(out, (QName) qname);
+            }
+        }
+        else
+        {
+            out.writeByte(TYPE_SERIALIZED);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos))
+            {
+                oos.writeObject(value);
+            }
+            out.writeInt(bos.size());
+            bos.writeTo(out);
+        }
+    }
+    
+    private Serializable readValue(DataInputStream in) throws IOException, ClassNotFoundException
+    {
+        byte type = in.readByte();
+        switch (type)
+        {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return readString(in);
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_INTEGER:
+            return in.readInt();
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_DATE:
+            return new Date(in.readLong());
+        case TYPE_DOUBLE:
+            return in.readDouble();
+        case TYPE_FLOAT:
+            return in.readFloat();
+        case TYPE_QNAME:
+            return readQName(in);
+        case TYPE_NODE_REF:
+            return readNodeRef(in);
+        case TYPE_LOCALE:
+            return new Locale(readString(in), readString(in), readString(in));
+        case TYPE_NODE_VERSION_KEY:
+            return new NodeVersionKey(in.readLong(), in.readLong());
+        case TYPE_NODE:
+            return readNode(in);
+        case TYPE_VALUE_HOLDER:
+        {
+            int hashCode = in.readInt();
+            return ValueHolder.restore(hashCode, readValue(in));
+        }
+        case TYPE_QNAME_MAP:
+        {
+            int size = in.readInt();
+            Map<QName, Serializable> map = new HashMap<QName, Serializable>(size * 2);
+            for (int i = 0; i < size; i++)
+            {
+                QName qname = readQName(in);
+                map.put(qname, readValue(in));
+            }
+            return new CompactPropertyMap(map);
+        }
+        case TYPE_QNAME_SET:
+        {
+            int size = in.readInt();
+            Set<QName> set = new HashSet<QName>(size * 2);
+            for (int i = 0; i < size; i++)
+            {
+                set.add(readQName(in));
+            }
+            return (Serializable) Collections.unmodifiableSet(set);
+        }
+        case TYPE_SERIALIZED:
+        {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes)))
+            {
+                return (Serializable) ois.readObject();
+            }
+        }
+        default:
+            throw new AlfrescoRuntimeException("Unknown cache value type: " + type);
+        }
+    }
+    
+    private boolean isQNameKeyed(Set<?> keys)
+    {
+        for (Object key : keys)
+        {
+            if (!(key instanceof QName))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Locales with a script or extensions are serialized instead
+     */
+    private boolean isEncodableLocale(Locale locale)
+    {
+        return locale.equals(new Locale(locale.getLanguage(), locale.getCountry(), locale.getVariant()));
+    }
+    
+    /**
+     * Nodes that are not fully filled or that carry a store's root node are serialized instead
+     */
+    private boolean isEncodable(NodeEntity node)
+    {
+        return node.getId() != null && node.getVersion() != null
+                && node.getStore() != null && node.getStore().getRootNode() == null;
+    }
+    
+    private void writeNode(DataOutputStream out, NodeEntity node) throws IOException
+    {
+        out.writeLong(node.getId());
+        out.writeLong(node.getVersion());
+        StoreEntity store = node.getStore();
+        writeNullableLong(out, store.getId());
+        writeNullableLong(out, store.getVersion());
+        writeNullableString(out, store.getProtocol());
+        writeNullableString(out, store.getIdentifier());
+        writeNullableString(out, node.getUuid());
+        writeNullableLong(out, node.getTypeQNameId());
+        writeNullableLong(out, node.getLocaleId());
+        writeNullableLong(out, node.getAclId());
+        TransactionEntity txn = node.getTransaction();
+        out.writeBoolean(txn != null);
+        if (txn != null)
+        {
+            writeNullableLong(out, txn.getId());
+            writeNullableLong(out, txn.getVersion());
+            writeNullableString(out, txn.getChangeTxnId());
+            writeNullableLong(out, txn.getCommitTimeMs());
+        }
+        AuditablePropertiesEntity auditableProperties = node.getAuditableProperties();
+        out.writeBoolean(auditableProperties != null);
+        if (auditableProperties != null)
+        {
+            writeNullableString(out, auditableProperties.getAuditCreator());
+            writeNullableString(out, auditableProperties.getAuditCreated());
+            writeNullableString(out, auditableProperties.getAuditModifier());
+            writeNullableString(out, auditableProperties.getAuditModified());
+            writeNullableString(out, auditableProperties.getAuditAccessed());
+        }
+        writeNullableString(out, node.getShardKey());
+        Integer explicitShardId = node.getExplicitShardId();
+        writeNullableLong(out, explicitShardId == null ? null : explicitShardId.longValue());
+    }
+    
+    private NodeEntity readNode(DataInputStream in) throws IOException
+    {
+        NodeEntity node = new NodeEntity();
+        node.setId(in.readLong());
+        node.setVersion(in.readLong());
+        StoreEntity store = new StoreEntity();
+        store.setId(readNullableLong(in));
+        store.setVersion(readNullableLong(in));
+        store.setProtocol(readNullableString(in));
+        store.setIdentifier(readNullableString(in));
+        node.setStore(store);
+        node.setUuid(readNullableString(in));
+        node.setTypeQNameId(readNullableLong(in));
+        node.setLocaleId(readNullableLong(in));
+        node.setAclId(readNullableLong(in));
+        if (in.readBoolean())
+        {
+            TransactionEntity txn = new TransactionEntity();
+            txn.setId(readNullableLong(in));
+            txn.setVersion(readNullableLong(in));
+            txn.setChangeTxnId(readNullableString(in));
+            txn.setCommitTimeMs(readNullableLong(in));
+            node.setTransaction(txn);
+        }
+        if (in.readBoolean())
+        {
+            AuditablePropertiesEntity auditableProperties = new AuditablePropertiesEntity();
+            auditableProperties.setAuditCreator(readNullableString(in));
+            auditableProperties.setAuditCreated(readNullableString(in));
+            auditableProperties.setAuditModifier(readNullableString(in));
+            auditableProperties.setAuditModified(readNullableString(in));
+            auditableProperties.setAuditAccessed(readNullableString(in));
+            node.setAuditableProperties(auditableProperties);
+        }
+        node.setShardKey(readNullableString(in));
+        Long explicitShardId = readNullableLong(in);
+        node.setExplicitShardId(explicitShardId == null ? null : explicitShardId.intValue());
+        // Cached nodes are always read-only
+        node.lock();
+        return node;
+    }
+    
+    private void writeQName(DataOutputStream out, QName qname) throws IOException
+    {
+        writeString(out, qname.getNamespaceURI());
+        writeString(out, qname.getLocalName());
+    }
+    
+    private QName readQName(DataInputStream in) throws IOException
+    {
+        String namespaceURI = readString(in);
+        String localName = readString(in);
+        return QName.createQName(namespaceURI, localName);
+    }
+    
+    private void writeNodeRef(DataOutputStream out, NodeRef nodeRef) throws IOException
+    {
+        StoreRef storeRef = nodeRef.getStoreRef();
+        writeString(out, storeRef.getProtocol());
+        writeString(out, storeRef.getIdentifier());
+        writeString(out, nodeRef.getId());
+    }
+    
+    private NodeRef readNodeRef(DataInputStream in) throws IOException
+    {
+        String protocol = readString(in);
+        String identifier = readString(in);
+        String id = readString(in);
+        return new NodeRef(new StoreRef(protocol, identifier), id);
+    }
+    
+    private void writeNullableLong(DataOutputStream out, Long value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            out.writeLong(value);
+        }
+    }
+    
+    private Long readNullableLong(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+    
+    private void writeNullableString(DataOutputStream out, String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+        {
+            writeString(out, value);
+        }
+    }
+    
+    private String readNullableString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? readString(in) : null;
+    }
+    
+    /**
+     * Strings are written as UTF-8 with a length prefix; unlike <tt>writeUTF</tt> this has no size limit.
+     */
+    private void writeString(DataOutputStream out, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private String readString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.alfresco.repo.cache.AbstractCacheWarmupLoader;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Warms up the node, aspects and properties caches.  The hot node IDs are taken from
+ * all three shared caches and the nodes are reloaded through {@link NodeDAO#cacheNodesById(List)}
+ * followed by the bulk aspect and property lookups.
+ * 
+ * @since 23.1
+ */
+public class NodeCacheWarmupLoader extends AbstractCacheWarmupLoader
+{
+    private NodeDAO nodeDAO;
+    private SimpleCache<Serializable, Object> nodesSharedCache;
+    private SimpleCache<Serializable, Object> aspectsSharedCache;
+    private SimpleCache<Serializable, Object> propertiesSharedCache;
+
+    public void setNodeDAO(NodeDAO nodeDAO)
+    {
+        this.nodeDAO = nodeDAO;
+    }
+
+    public void setNodesSharedCache(SimpleCache<Serializable, Object> nodesSharedCache)
+    {
+        this.nodesSharedCache = nodesSharedCache;
+    }
+
+    public void setAspectsSharedCache(SimpleCache<Serializable, Object> aspectsSharedCache)
+    {
+        this.aspectsSharedCache = aspectsSharedCache;
+    }
+
+    public void setPropertiesSharedCache(SimpleCache<Serializable, Object> propertiesSharedCache)
+    {
+        this.propertiesSharedCache = propertiesSharedCache;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "nodeDAO", nodeDAO);
+        PropertyCheck.mandatory(this, "nodesSharedCache", nodesSharedCache);
+        PropertyCheck.mandatory(this, "aspectsSharedCache", aspectsSharedCache);
+        PropertyCheck.mandatory(this, "propertiesSharedCache", propertiesSharedCache);
+    }
+
+    @Override
+    public List<Long> getHotIds(int limit)
+    {
+        Set<Long> nodeIds = new LinkedHashSet<Long>(limit * 2);
+        for (Serializable key : getHottestEntityKeys(nodesSharedCache, AbstractNodeDAOImpl.CACHE_REGION_NODES, limit))
+        {
+            nodeIds.add((Long) key);
+        }
+        addNodeIds(nodeIds, getHottestEntityKeys(propertiesSharedCache, AbstractNodeDAOImpl.CACHE_REGION_PROPERTIES, limit), limit);
+        addNodeIds(nodeIds, getHottestEntityKeys(aspectsSharedCache, AbstractNodeDAOImpl.CACHE_REGION_ASPECTS, limit), limit);
+        return new ArrayList<Long>(nodeIds);
+    }
+
+    private void addNodeIds(Set<Long> nodeIds, List<Serializable> nodeVersionKeys, int limit)
+    {
+        for (Serializable key : nodeVersionKeys)
+        {
+            if (nodeIds.size() >= limit)
+            {
+                break;
+            }
+            nodeIds.add(((NodeVersionKey) key).getNodeId());
+        }
+    }
+
+    @Override
+    public void load(List<Long> ids)
+    {
+        nodeDAO.cacheNodesById(ids);
+        // Nodes deleted since the snapshot was taken are dropped
+        List<Long> nodeIds = new ArrayList<Long>(ids.size());
+        for (Long nodeId : ids)
+        {
+            if (nodeDAO.exists(nodeId))
+            {
+                nodeIds.add(nodeId);
+            }
+        }
+        nodeDAO.getNodeAspects(nodeIds);
+        nodeDAO.getNodeProperties(nodeIds);
+    }
+}
@@ -28,7 +28,6 @@ package org.alfresco.repo.domain.node;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -48,6 +47,7 @@ import org.alfresco.service.cmr.repository.StoreExistsException;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
+import org.alfresco.util.collections.LongHashSet;
 import org.springframework.dao.ConcurrencyFailureException;
 
 /**
@@ -224,6 +224,24 @@ public interface NodeDAO extends NodeBulkLoader
             String childNodeName,
             Map<QName, Serializable> auditableProperties) throws InvalidTypeException;
 
+    /**
+     * Create a batch of new nodes, along with their primary associations, aspects and properties.
+     * This is intended for callers streaming large numbers of nodes into the repository, who should
+     * call this with chunks of a few hundred nodes at a time within a transaction.
+     * <p/>
+     * As with {@link #newNode(Long, QName, QName, StoreRef, String, QName, Locale, String, Map) newNode},
+     * no policies are fired; the caller is responsible for firing any aggregated notifications.
+     * The aspects and properties of all the nodes are written in a single batch.
+     * 
+     * @param newNodes          the details of the nodes to create
+     * @return                  Returns the details of the child associations created, in the same order
+     * @throws InvalidTypeException if any node type is invalid or is not a valid real node
+     * @throws NodeExistsException          if a target reference is already taken by a live node
+     * 
+     * @since 23.1
+     */
+    public List<ChildAssocEntity> newNodes(List<NewNodeSpec> newNodes) throws InvalidTypeException;
+
     /**
      * Update a node's primary association, giving it a new parent and new association parameters.
      * <p/>
@@ -276,6 +294,8 @@ public interface NodeDAO extends NodeBulkLoader
      * This class is NOT thread-safe and should only be used within a transaction.
      * Client code should use the getters to get the ID sets and add any IDs
      * that have been visited during policy triggering.
+     * The sets hold primitive IDs, so callers can use {@link LongHashSet#add(long)} and
+     * {@link LongHashSet#contains(long)} without boxing.
      * 
      * @author Derek Hulley
      * @since 4.1.1
@@ -298,34 +318,34 @@ public interface NodeDAO extends NodeBulkLoader
             return nodeView;
         }
         
-        private Set<Long> primaryParentAssocIds = new HashSet<Long>(7);
-        private Set<Long> secondaryParentAssocIds = new HashSet<Long>(7);
-        private Set<Long> primaryChildAssocIds = new HashSet<Long>(167);
-        private Set<Long> secondaryChildAssocIds = new HashSet<Long>(11);
-        private Set<Long> targetAssocIds = new HashSet<Long>(11);
-        private Set<Long> sourceAssocIds = new HashSet<Long>(11);
+        private final LongHashSet primaryParentAssocIds = new LongHashSet(4);
+        private final LongHashSet secondaryParentAssocIds = new LongHashSet(4);
+        private final LongHashSet primaryChildAssocIds = new LongHashSet(100);
+        private final LongHashSet secondaryChildAssocIds = new LongHashSet(8);
+        private final LongHashSet targetAssocIds = new LongHashSet(8);
+        private final LongHashSet sourceAssocIds = new LongHashSet(8);
         
-        public Set<Long> getPrimaryParentAssocIds()
+        public LongHashSet getPrimaryParentAssocIds()
         {
             return primaryParentAssocIds;
         }
-        public Set<Long> getSecondaryParentAssocIds()
+        public LongHashSet getSecondaryParentAssocIds()
         {
             return secondaryParentAssocIds;
         }
-        public Set<Long> getPrimaryChildAssocIds()
+        public LongHashSet getPrimaryChildAssocIds()
         {
             return primaryChildAssocIds;
         }
-        public Set<Long> getSecondaryChildAssocIds()
+        public LongHashSet getSecondaryChildAssocIds()
         {
             return secondaryChildAssocIds;
         }
-        public Set<Long> getTargetAssocIds()
+        public LongHashSet getTargetAssocIds()
         {
             return targetAssocIds;
         }
-        public Set<Long> getSourceAssocIds()
+        public LongHashSet getSourceAssocIds()
         {
             return sourceAssocIds;
         }
@@ -354,6 +374,15 @@ public interface NodeDAO extends NodeBulkLoader
 
     public Map<QName, Serializable> getNodeProperties(Long nodeId);
     
+    /**
+     * Get the properties for a collection of nodes.  Properties that are not already cached are
+     * loaded in bulk rather than one node at a time.
+     * 
+     * @param nodeIds           the IDs of the nodes (all must exist)
+     * @return                  Returns the properties of each node, keyed by node ID
+     */
+    public Map<Long, Map<QName, Serializable>> getNodeProperties(Collection<Long> nodeIds);
+    
     public boolean setNodeProperties(Long nodeId, Map<QName, Serializable> properties);
     
     public boolean addNodeProperty(Long nodeId, QName qname, Serializable value);
@@ -392,6 +421,15 @@ public interface NodeDAO extends NodeBulkLoader
     
     public Set<QName> getNodeAspects(Long nodeId);
     
+    /**
+     * Get the aspects for a collection of nodes.  Aspects that are not already cached are
+     * loaded in bulk rather than one node at a time.
+     * 
+     * @param nodeIds           the IDs of the nodes (all must exist)
+     * @return                  Returns the aspects of each node, keyed by node ID
+     */
+    public Map<Long, Set<QName>> getNodeAspects(Collection<Long> nodeIds);
+    
     public boolean hasNodeAspect(Long nodeId, QName aspectQName);
     
     public boolean addNodeAspects(Long nodeId, Set<QName> aspectQNames);
@@ -784,6 +822,18 @@ public interface NodeDAO extends NodeBulkLoader
      */
     public List<Path> getPaths(Pair<Long, NodeRef> nodePair, boolean primaryOnly) throws InvalidNodeRefException;
     
+    /**
+     * Build the paths for several nodes, typically siblings, in one pass.  Ancestors shared by
+     * the nodes are only walked once.
+     * 
+     * @param nodePairs             the nodes to start with
+     * @param primaryOnly           <tt>true</tt> to follow only primary parent associations
+     * @return                      the paths of each node, by node ID
+     * 
+     * @see #getPaths(Pair, boolean)
+     */
+    public Map<Long, List<Path>> getPaths(List<Pair<Long, NodeRef>> nodePairs, boolean primaryOnly) throws InvalidNodeRefException;
+    
     /**
      * Perform a check for cyclic relationships
      */
@@ -102,6 +102,9 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
     private int numThreads = 4;
     private boolean forceSharedACL = false;
 
+    private volatile int lastExecutionNodeCount;
+    private volatile long lastExecutionTime;
+
     private ClassPolicyDelegate<OnInheritPermissionsDisabled> onInheritPermissionsDisabledDelegate;
     private PolicyComponent policyComponent;
     private PolicyIgnoreUtil policyIgnoreUtil;
@@ -163,6 +166,22 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
         this.policyIgnoreUtil = policyIgnoreUtil;
     }
 
+    /**
+     * @return the number of pending nodes processed by the last completed execution
+     */
+    public int getLastExecutionNodeCount()
+    {
+        return lastExecutionNodeCount;
+    }
+
+    /**
+     * @return the duration in milliseconds of the last completed execution
+     */
+    public long getLastExecutionTime()
+    {
+        return lastExecutionTime;
+    }
+
     /** Register a {@link FixedAclUpdaterListener} to be notified when a node is updated by an instance of this class. */
     public static void registerListener(FixedAclUpdaterListener listener)
     {
@@ -238,9 +257,11 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
     private class AclWorkProvider implements BatchProcessWorkProvider<NodeRef>
     {
         private GetNodesWithAspects getNodesWithAspects;
+        private JobLockRefreshCallback jobLockRefreshCallback;
 
-        AclWorkProvider()
+        AclWorkProvider(JobLockRefreshCallback jobLockRefreshCallback)
         {
+            this.jobLockRefreshCallback = jobLockRefreshCallback;
             getNodesWithAspects = new GetNodesWithAspects(Collections.singleton(ContentModel.ASPECT_PENDING_FIX_ACL));
         }
 
@@ -259,6 +280,11 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
         @Override
         public Collection<NodeRef> getNextWork()
         {
+            // Leave the remaining nodes to whoever holds the lock now; their pending aspects are kept
+            if (!jobLockRefreshCallback.isActive())
+            {
+                return Collections.emptyList();
+            }
             return getNodesWithAspects.getNodesWithAspects();
         }
     }
@@ -266,12 +292,30 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
     protected class AclWorker implements BatchProcessor.BatchProcessWorker<NodeRef>
     {
         private Set<QName> aspects = new HashSet<>(1);
+        /** Set once a committed batch has left part of a subtree pending for a later pass. */
+        private final AtomicBoolean subtreesSplit = new AtomicBoolean(false);
+        private final TransactionListenerAdapter subtreesSplitListener = new TransactionListenerAdapter()
+        {
+            @Override
+            public void afterCommit()
+            {
+                subtreesSplit.set(true);
+            }
+        };
 
         AclWorker()
         {
             aspects.add(ContentModel.ASPECT_PENDING_FIX_ACL);
         }
 
+        /**
+         * @return <tt>true</tt> if processing has marked further nodes as pending since the last call
+         */
+        boolean resetSubtreesSplit()
+        {
+            return subtreesSplit.getAndSet(false);
+        }
+
         public String getIdentifier(NodeRef nodeRef)
         {
             return String.valueOf(nodeRef.toString());
@@ -321,11 +365,16 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
                         // Remove aspect
                         accessControlListDAO.removePendingAclAspect(nodeId);
 
-                        if (!policyIgnoreUtil.ignorePolicy(nodeRef))
+                        boolean transformedToAsyncOperation = toBoolean((Boolean) AlfrescoTransactionSupport
+                                .getResource(FixedAclUpdater.FIXED_ACL_ASYNC_REQUIRED_KEY));
+                        if (transformedToAsyncOperation)
                         {
-                            boolean transformedToAsyncOperation = toBoolean((Boolean) AlfrescoTransactionSupport
-                                    .getResource(FixedAclUpdater.FIXED_ACL_ASYNC_REQUIRED_KEY));
+                            // The rest of the subtree was marked pending, split into its child nodes
+                            AlfrescoTransactionSupport.bindListener(subtreesSplitListener);
+                        }
 
+                        if (!policyIgnoreUtil.ignorePolicy(nodeRef))
+                        {
                             OnInheritPermissionsDisabled onInheritPermissionsDisabledPolicy = onInheritPermissionsDisabledDelegate
                                     .get(ContentModel.TYPE_BASE);
                             onInheritPermissionsDisabledPolicy.onInheritPermissionsDisabled(nodeRef, transformedToAsyncOperation);
@@ -454,12 +503,31 @@ public class FixedAclUpdater extends TransactionListenerAdapter implements Appli
             lockToken = jobLockService.getLock(LOCK_Q_NAME, lockTimeToLive, 0, 1);
             jobLockService.refreshLock(lockToken, LOCK_Q_NAME, lockRefreshTime, jobLockRefreshCallback);
 
-            AclWorkProvider provider = new AclWorkProvider();
+            long start = System.currentTimeMillis();
             AclWorker worker = createAclWorker();
-            BatchProcessor<NodeRef> bp = new BatchProcessor<>("FixedAclUpdater",
-                    transactionService.getRetryingTransactionHelper(), provider, numThreads, maxItemBatchSize, applicationContext,
-                    log, 100);
-            int count = bp.process(worker, true);
+            int count = 0;
+            int passes = 0;
+            do
+            {
+                // Subtrees that exceeded the transaction time limit were left pending from their child nodes on.
+                // Those may sort before the point the previous pass had reached, so each pass starts over.
+                AclWorkProvider provider = new AclWorkProvider(jobLockRefreshCallback);
+                BatchProcessor<NodeRef> bp = new BatchProcessor<>("FixedAclUpdater",
+                        transactionService.getRetryingTransactionHelper(), provider, numThreads, maxItemBatchSize, applicationContext,
+                        log, 100);
+                count += bp.process(worker, true);
+                passes++;
+            }
+            while (worker.resetSubtreesSplit() && jobLockRefreshCallback.isActive());
+
+            long time = System.currentTimeMillis() - start;
+            lastExecutionNodeCount = count;
+            lastExecutionTime = time;
+            if (log.isDebugEnabled() && count > 0)
+            {
+                log.debug("Processed " + count + " pending ACL nodes in " + passes + " passes and " + time + " ms ("
+                        + (count * 1000L / Math.max(time, 1L)) + " nodes/s)");
+            }
             return count;
         }
         catch (LockAcquisitionException e)
@@ -48,7 +48,7 @@ import org.springframework.extensions.surf.util.ParameterCheck;
 public abstract class AbstractQNameDAOImpl implements QNameDAO
 {
     private static final String CACHE_REGION_NAMESPACE = "Namespace";
-    private static final String CACHE_REGION_QNAME = "QName";
+    static final String CACHE_REGION_QNAME = "QName";
     
     /**
      * Cache for the Namespace values:<br/>
@@ -0,0 +1,82 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.qname;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.repo.cache.AbstractCacheWarmupLoader;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.util.PropertyCheck;
+
+/**
+ * Warms up the QName entries of the immutable entity cache through {@link QNameDAO#getQName(Long)}.
+ * 
+ * @since 23.1
+ */
+public class QNameCacheWarmupLoader extends AbstractCacheWarmupLoader
+{
+    private QNameDAO qnameDAO;
+    private SimpleCache<Serializable, Object> qnameSharedCache;
+
+    public void setQnameDAO(QNameDAO qnameDAO)
+    {
+        this.qnameDAO = qnameDAO;
+    }
+
+    public void setQnameSharedCache(SimpleCache<Serializable, Object> qnameSharedCache)
+    {
+        this.qnameSharedCache = qnameSharedCache;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "qnameDAO", qnameDAO);
+        PropertyCheck.mandatory(this, "qnameSharedCache", qnameSharedCache);
+    }
+
+    @Override
+    public List<Long> getHotIds(int limit)
+    {
+        List<Serializable> keys = getHottestEntityKeys(qnameSharedCache, AbstractQNameDAOImpl.CACHE_REGION_QNAME, limit);
+        List<Long> ids = new ArrayList<Long>(keys.size());
+        for (Serializable key : keys)
+        {
+            ids.add((Long) key);
+        }
+        return ids;
+    }
+
+    @Override
+    public void load(List<Long> ids)
+    {
+        for (Long id : ids)
+        {
+            qnameDAO.getQName(id);
+        }
+    }
+}
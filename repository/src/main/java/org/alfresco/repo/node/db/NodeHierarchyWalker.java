@@ -37,6 +37,7 @@ import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
+import org.alfresco.util.collections.LongObjectHashMap;
 import org.springframework.dao.ConcurrencyFailureException;
 
 /**
@@ -52,7 +53,7 @@ public class NodeHierarchyWalker
 {
     private final NodeDAO nodeDAO;
     /** Store for all nodes by ID */
-    private final Map<Long, VisitedNode> nodesVisitedById = new HashMap<Long, VisitedNode>(59);
+    private final LongObjectHashMap<VisitedNode> nodesVisitedById = new LongObjectHashMap<VisitedNode>(59);
     /** Store for all nodes by ID */
     private final Map<NodeRef, VisitedNode> nodesVisitedByNodeRef = new HashMap<NodeRef, VisitedNode>(59);
     /** Store all the nodes visited from the leaf nodes up */
@@ -73,7 +74,7 @@ public class NodeHierarchyWalker
      */
     public VisitedNode getNode(Long id)
     {
-        return nodesVisitedById.get(id);
+        return id == null ? null : nodesVisitedById.get(id);
     }
     
     /**
@@ -27,11 +27,13 @@ package org.alfresco.repo.policy;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.alfresco.api.AlfrescoPublicApi;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.util.LockHelper;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -70,6 +72,9 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
     // Try lock timeout (MNT-11371)
     private long tryLockTimeout;
 
+    // Policy given to snapshot transactions, which invoke no behaviours
+    private final P noopPolicy;
+
 
     public void setTryLockTimeout(long tryLockTimeout)
     {
@@ -87,6 +92,7 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
     {
         super(policyClass, index);
         behaviourFilter = index.getFilter();
+        noopPolicy = toPolicy(Collections.<P>emptyList());
 
         // Register this cached policy factory as a change observer of the behaviour index
         // to allow for cache to be cleared appropriately.
@@ -110,6 +116,12 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
     @Override
     public P create(B binding)
     {
+        // Snapshot transactions skip behaviour lookups altogether
+        if (AlfrescoTransactionSupport.isSnapshot())
+        {
+            return noopPolicy;
+        }
+        
         // When behaviour filters are activated bypass the cache 
         if (behaviourFilter != null && behaviourFilter.isActivated())
         {
@@ -157,6 +169,12 @@ public class CachedPolicyFactory<B extends BehaviourBinding, P extends Policy> e
     @Override
     public Collection<P> createList(B binding)
     {
+        // Snapshot transactions skip behaviour lookups altogether
+        if (AlfrescoTransactionSupport.isSnapshot())
+        {
+            return Collections.<P>emptyList();
+        }
+        
         // When behaviour filters are activated bypass the cache 
         if (behaviourFilter != null && behaviourFilter.isActivated())
         {
@@ -28,6 +28,7 @@ package org.alfresco.repo.rendition2;
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.content.transform.LocalTransform;
 import org.alfresco.repo.content.transform.LocalTransformServiceRegistry;
+import org.alfresco.repo.management.DynamicMBeanExportOperations;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentService;
@@ -37,15 +38,29 @@ import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.transform.config.CoreFunction;
 import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.TraceableThreadFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.alfresco.model.ContentModel.PROP_CONTENT;
 import static org.alfresco.transform.common.RequestParamMap.DIRECT_ACCESS_URL;
@@ -55,12 +70,25 @@ import static org.alfresco.transform.common.RequestParamMap.DIRECT_ACCESS_URL;
  * {@link LocalTransform}. The transform and consumption of the
  * resulting content is linked into a single operation that will take place at some point in the future on the local
  * machine.
+ * <p>
+ * Transforms run on a bounded pool of <tt>maxConcurrentTransforms</tt> threads. Interactive renditions (such as
+ * <tt>doclib</tt> thumbnails) are taken from the queue ahead of everything else, and identical rendition requests
+ * for the same source content are only queued once. Once <tt>maxQueuedTransforms</tt> other transforms are waiting,
+ * further requests wait up to <tt>queueTimeoutMs</tt> for room, which slows down bulk producers rather than letting
+ * the queue grow without limit. As requests are made from a transaction, a request that still finds no room is
+ * dropped rather than holding the transaction open. Back-pressure is not a transform failure, so no failed rendition
+ * is stored and the next request for the rendition schedules it again.
+ * <p>
+ * The thread pool and the {@link LocalTransformClientMBean}, named after the bean, are only created once the first
+ * transform is requested, so a bean definition that is only used as a parent costs nothing.
  *
  * @author adavis
  */
-public class LocalTransformClient implements TransformClient, InitializingBean
+public class LocalTransformClient implements TransformClient, InitializingBean, DisposableBean, BeanNameAware,
+        LocalTransformClientMBean
 {
     private static final String TRANSFORM = "Local transform ";
+    private static final String OBJECT_NAME = "Alfresco:Name=LocalTransformClient";
     private static Log logger = LogFactory.getLog(LocalTransformClient.class);
 
     private LocalTransformServiceRegistry localTransformServiceRegistry;
@@ -70,8 +98,28 @@ public class LocalTransformClient implements TransformClient, InitializingBean
     private boolean directAccessUrlEnabled;
 
     private ExecutorService executorService;
+    private volatile boolean started;
     private ThreadLocal<LocalTransform> transform = new ThreadLocal<>();
 
+    private int maxConcurrentTransforms = 16;
+    private int maxQueuedTransforms = 1000;
+    private long queueTimeoutMs = 10000;
+    private Set<String> interactiveRenditions = Set.of("doclib", "imgpreview");
+    private DynamicMBeanExportOperations mbeanExporter;
+    private String beanName;
+    private ObjectName objectName;
+
+    private Semaphore queuePermits;
+    private final Set<String> pendingTransforms = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Boolean> runningTransform = new ThreadLocal<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger queuedTransforms = new AtomicInteger();
+    private final AtomicInteger activeTransforms = new AtomicInteger();
+    private final AtomicLong completedTransforms = new AtomicLong();
+    private final AtomicLong deduplicatedTransforms = new AtomicLong();
+    private final AtomicLong totalWaitTimeMs = new AtomicLong();
+    private final AtomicLong maxWaitTimeMs = new AtomicLong();
+
     public void setLocalTransformServiceRegistry(LocalTransformServiceRegistry localTransformServiceRegistry)
     {
         this.localTransformServiceRegistry = localTransformServiceRegistry;
@@ -102,6 +150,56 @@ public class LocalTransformClient implements TransformClient, InitializingBean
         this.executorService = executorService;
     }
 
+    /**
+     * @param maxConcurrentTransforms   the size of the transform thread pool, used if no executor service is set
+     */
+    public void setMaxConcurrentTransforms(int maxConcurrentTransforms)
+    {
+        this.maxConcurrentTransforms = maxConcurrentTransforms;
+    }
+
+    /**
+     * @param maxQueuedTransforms       the number of non-interactive transforms that may wait before requests block
+     */
+    public void setMaxQueuedTransforms(int maxQueuedTransforms)
+    {
+        this.maxQueuedTransforms = maxQueuedTransforms;
+    }
+
+    /**
+     * @param queueTimeoutMs            how long a non-interactive request waits for room in the queue before it is
+     *                                  dropped
+     */
+    public void setQueueTimeoutMs(long queueTimeoutMs)
+    {
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    /**
+     * @param interactiveRenditions     comma separated names of renditions that users are waiting for, which run
+     *                                  first and are never blocked
+     */
+    public void setInteractiveRenditions(String interactiveRenditions)
+    {
+        this.interactiveRenditions = interactiveRenditions == null || interactiveRenditions.isBlank()
+                ? Collections.emptySet()
+                : Set.copyOf(Arrays.asList(interactiveRenditions.trim().split("\\s*,\\s*")));
+    }
+
+    /**
+     * @param mbeanExporter             used to register the {@link LocalTransformClientMBean}; optional
+     */
+    public void setMbeanExporter(DynamicMBeanExportOperations mbeanExporter)
+    {
+        this.mbeanExporter = mbeanExporter;
+    }
+
+    @Override
+    public void setBeanName(String beanName)
+    {
+        this.beanName = beanName;
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception
     {
@@ -110,9 +208,58 @@ public class LocalTransformClient implements TransformClient, InitializingBean
         PropertyCheck.mandatory(this, "contentService", contentService);
         PropertyCheck.mandatory(this, "renditionService2", renditionService2);
         PropertyCheck.mandatory(this, "directAccessUrlEnabled", directAccessUrlEnabled);
-        if (executorService == null)
+        queuePermits = new Semaphore(maxQueuedTransforms);
+    }
+
+    @Override
+    public synchronized void destroy()
+    {
+        if (objectName != null)
         {
-            executorService = Executors.newCachedThreadPool();
+            mbeanExporter.unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    /**
+     * Creates the thread pool and registers the MBean on first use.
+     */
+    private ExecutorService getExecutorService()
+    {
+        if (!started)
+        {
+            synchronized (this)
+            {
+                if (executorService == null)
+                {
+                    TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+                    threadFactory.setNamePrefix("LocalTransform");
+                    threadFactory.setThreadDaemon(true);
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(maxConcurrentTransforms,
+                            maxConcurrentTransforms, 60L, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), threadFactory);
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    executorService = threadPoolExecutor;
+                }
+                registerMBean();
+                started = true;
+            }
+        }
+        return executorService;
+    }
+
+    private void registerMBean()
+    {
+        if (mbeanExporter != null && objectName == null)
+        {
+            String name = beanName == null ? OBJECT_NAME : OBJECT_NAME + ",Bean=" + beanName;
+            try
+            {
+                objectName = mbeanExporter.registerMBean(this, new ObjectName(name));
+            }
+            catch (MalformedObjectNameException e)
+            {
+                throw new IllegalStateException("Invalid MBean name: " + name, e);
+            }
         }
     }
 
@@ -147,7 +294,7 @@ public class LocalTransformClient implements TransformClient, InitializingBean
         LocalTransform localTransform = transform.get();
         Map<String, String> actualOptions = addDirectAccessUrlToOptionsIfPossible(renditionOptions, sourceNodeRef, localTransform);
 
-        executorService.submit(() ->
+        scheduleTransform(sourceNodeRef, renditionDefinition, sourceContentHashCode, () ->
         {
             AuthenticationUtil.runAs((AuthenticationUtil.RunAsWork<Void>) () ->
                 transactionService.getRetryingTransactionHelper().doInTransaction(() ->
@@ -202,6 +349,204 @@ public class LocalTransformClient implements TransformClient, InitializingBean
         });
     }
 
+    /**
+     * Queues a transform, dropping it if an identical rendition request is already waiting. While too many
+     * non-interactive transforms are waiting the caller is blocked for up to <tt>queueTimeoutMs</tt>, after which the
+     * request is dropped. A dropped rendition is left unset so that a later request schedules it, while other
+     * transform requests are still sent a reply as their callers are waiting for one.
+     */
+    private void scheduleTransform(NodeRef sourceNodeRef, RenditionDefinition2 renditionDefinition,
+                                   int sourceContentHashCode, Runnable work)
+    {
+        String renditionName = renditionDefinition.getRenditionName();
+
+        // Requests from other transform clients each expect their own reply, so only renditions are de-duplicated
+        String pendingKey = renditionDefinition instanceof TransformDefinition
+                ? null
+                : sourceNodeRef + "/" + renditionName + "/" + sourceContentHashCode;
+        if (pendingKey != null && !pendingTransforms.add(pendingKey))
+        {
+            deduplicatedTransforms.incrementAndGet();
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(TRANSFORM + renditionName + " is already queued for " + sourceNodeRef);
+            }
+            return;
+        }
+
+        // Never block a transform thread, as it would be waiting for itself
+        boolean interactive = interactiveRenditions.contains(renditionName);
+        boolean throttled = !interactive && !Boolean.TRUE.equals(runningTransform.get());
+        if (throttled && !acquireQueuePermit())
+        {
+            if (pendingKey != null)
+            {
+                pendingTransforms.remove(pendingKey);
+            }
+            String message = TRANSFORM + renditionName + " was not queued as " + maxQueuedTransforms +
+                    " transforms are already waiting";
+            if (logger.isDebugEnabled())
+            {
+                logger.debug(message + " for " + sourceNodeRef);
+            }
+            if (renditionDefinition instanceof TransformDefinition)
+            {
+                ((TransformDefinition) renditionDefinition).setErrorMessage(message);
+                renditionService2.failure(sourceNodeRef, renditionDefinition, sourceContentHashCode);
+            }
+            return;
+        }
+
+        long queuedAt = System.currentTimeMillis();
+        queuedTransforms.incrementAndGet();
+        try
+        {
+            getExecutorService().execute(new ScheduledTransform(interactive, sequence.getAndIncrement(), () ->
+            {
+                queuedTransforms.decrementAndGet();
+                recordWaitTime(System.currentTimeMillis() - queuedAt);
+                if (pendingKey != null)
+                {
+                    pendingTransforms.remove(pendingKey);
+                }
+                activeTransforms.incrementAndGet();
+                runningTransform.set(Boolean.TRUE);
+                try
+                {
+                    work.run();
+                }
+                catch (RuntimeException e)
+                {
+                    // Already reported to the rendition service as a failure
+                    if (logger.isDebugEnabled())
+                    {
+                        logger.debug(TRANSFORM + "ended with an error " + renditionName, e);
+                    }
+                }
+                finally
+                {
+                    runningTransform.remove();
+                    activeTransforms.decrementAndGet();
+                    completedTransforms.incrementAndGet();
+                    if (throttled)
+                    {
+                        queuePermits.release();
+                    }
+                }
+            }));
+        }
+        catch (RuntimeException e)
+        {
+            queuedTransforms.decrementAndGet();
+            if (pendingKey != null)
+            {
+                pendingTransforms.remove(pendingKey);
+            }
+            if (throttled)
+            {
+                queuePermits.release();
+            }
+            throw e;
+        }
+    }
+
+    private boolean acquireQueuePermit()
+    {
+        try
+        {
+            return queuePermits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void recordWaitTime(long waitTimeMs)
+    {
+        totalWaitTimeMs.addAndGet(waitTimeMs);
+        maxWaitTimeMs.accumulateAndGet(waitTimeMs, Math::max);
+    }
+
+    @Override
+    public int getMaxConcurrentTransforms()
+    {
+        return executorService instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) executorService).getMaximumPoolSize()
+                : maxConcurrentTransforms;
+    }
+
+    @Override
+    public int getActiveTransforms()
+    {
+        return activeTransforms.get();
+    }
+
+    @Override
+    public int getQueuedTransforms()
+    {
+        return queuedTransforms.get();
+    }
+
+    @Override
+    public long getCompletedTransforms()
+    {
+        return completedTransforms.get();
+    }
+
+    @Override
+    public long getDeduplicatedTransforms()
+    {
+        return deduplicatedTransforms.get();
+    }
+
+    @Override
+    public long getAverageWaitTimeMs()
+    {
+        long started = completedTransforms.get() + activeTransforms.get();
+        return started == 0 ? 0 : totalWaitTimeMs.get() / started;
+    }
+
+    @Override
+    public long getMaxWaitTimeMs()
+    {
+        return maxWaitTimeMs.get();
+    }
+
+    /**
+     * A queued transform, ordered with interactive renditions first and then in the order requested.
+     */
+    private static class ScheduledTransform implements Runnable, Comparable<ScheduledTransform>
+    {
+        private final boolean interactive;
+        private final long sequence;
+        private final Runnable work;
+
+        private ScheduledTransform(boolean interactive, long sequence, Runnable work)
+        {
+            this.interactive = interactive;
+            this.sequence = sequence;
+            this.work = work;
+        }
+
+        @Override
+        public void run()
+        {
+            work.run();
+        }
+
+        @Override
+        public int compareTo(ScheduledTransform other)
+        {
+            if (interactive != other.interactive)
+            {
+                return interactive ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
     private Map<String, String> addDirectAccessUrlToOptionsIfPossible(Map<String, String> actualOptions,
                                                                       NodeRef sourceNodeRef, LocalTransform transform)
     {
@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.rendition2;
+
+/**
+ * Management interface of the {@link LocalTransformClient} scheduler.
+ * 
+ * @since 23.1
+ */
+public interface LocalTransformClientMBean
+{
+    /**
+     * @return              the maximum number of transforms that run at the same time
+     */
+    public int getMaxConcurrentTransforms();
+
+    /**
+     * @return              the number of transforms running now
+     */
+    public int getActiveTransforms();
+
+    /**
+     * @return              the number of transforms waiting to run
+     */
+    public int getQueuedTransforms();
+
+    /**
+     * @return              the number of transforms that have finished, successfully or not
+     */
+    public long getCompletedTransforms();
+
+    /**
+     * @return              the number of requests dropped because an identical request was already waiting
+     */
+    public long getDeduplicatedTransforms();
+
+    /**
+     * @return              the average time in milliseconds that transforms waited before running
+     */
+    public long getAverageWaitTimeMs();
+
+    /**
+     * @return              the longest time in milliseconds that a transform waited before running
+     */
+    public long getMaxWaitTimeMs();
+}
@@ -27,6 +27,7 @@ package org.alfresco.repo.rendition2;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.model.RenditionModel;
+import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.content.ContentServicePolicies;
 import org.alfresco.repo.content.MimetypeMap;
 import org.alfresco.repo.content.metadata.AsynchronousExtractor;
@@ -50,6 +51,7 @@ import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.service.namespace.RegexQNamePattern;
 import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.transform.registry.TransformServiceRegistry;
 import org.alfresco.util.PropertyCheck;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -63,6 +65,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.alfresco.model.ContentModel.PROP_CONTENT;
@@ -115,6 +118,8 @@ public class RenditionService2Impl implements RenditionService2, InitializingBea
     private PostTxnCallbackScheduler renditionRequestSheduler;
     private TransformReplyProvider transformReplyProvider;
     private AsynchronousExtractor asynchronousExtractor;
+    private SimpleCache<String, ContentData> renditionContentCache;
+    private TransformServiceRegistry transformServiceRegistry;
     private boolean enabled;
     private boolean thumbnailsEnabled;
 
@@ -184,6 +189,25 @@ public class RenditionService2Impl implements RenditionService2, InitializingBea
         this.asynchronousExtractor = asynchronousExtractor;
     }
 
+    /**
+     * Optional cache of rendition content, keyed by the source content and rendition definition. When set, a
+     * rendition of content that has already been rendered elsewhere (such as a copy or a restored version) reuses
+     * the existing rendition content rather than transforming it again.
+     */
+    public void setRenditionContentCache(SimpleCache<String, ContentData> renditionContentCache)
+    {
+        this.renditionContentCache = renditionContentCache;
+    }
+
+    /**
+     * Used to include the transformer that would create a rendition in the key of the rendition content cache, so
+     * that content is not reused once a different transformer is selected. Renditions are not cached without it.
+     */
+    public void setTransformServiceRegistry(TransformServiceRegistry transformServiceRegistry)
+    {
+        this.transformServiceRegistry = transformServiceRegistry;
+    }
+
     public void setEnabled(boolean enabled)
     {
         this.enabled = enabled;
@@ -346,7 +370,10 @@ public class RenditionService2Impl implements RenditionService2, InitializingBea
 
                     if (sourceContentHashCode != SOURCE_HAS_NO_CONTENT)
                     {
-                        transformClient.transform(sourceNodeRef, renditionDefinition, user, sourceContentHashCode);
+                        if (!reuseCachedRendition(sourceNodeRef, renditionDefinition, sourceContentHashCode))
+                        {
+                            transformClient.transform(sourceNodeRef, renditionDefinition, user, sourceContentHashCode);
+                        }
                     }
                     else
                     {
@@ -408,10 +435,80 @@ public class RenditionService2Impl implements RenditionService2, InitializingBea
         }
         else
         {
-            consumeRendition(sourceNodeRef, sourceContentHashCode, transformInputStream, renditionDefinition, transformContentHashCode);
+            consumeRendition(sourceNodeRef, sourceContentHashCode, transformInputStream, null, renditionDefinition,
+                    transformContentHashCode);
         }
     }
 
+    /**
+     * Links the rendition to content previously created for the same source content and rendition definition, if
+     * there is any and it still exists.
+     *
+     * @return {@code true} if the rendition was set from the cache, so no transform is needed.
+     */
+    private boolean reuseCachedRendition(NodeRef sourceNodeRef, RenditionDefinition2 renditionDefinition,
+                                         int sourceContentHashCode)
+    {
+        String cacheKey = getRenditionContentCacheKey(sourceNodeRef, renditionDefinition);
+        ContentData renditionContentData = cacheKey == null ? null : renditionContentCache.get(cacheKey);
+        if (renditionContentData == null)
+        {
+            return false;
+        }
+
+        String renditionName = renditionDefinition.getRenditionName();
+        if (!contentService.getRawReader(renditionContentData.getContentUrl()).exists())
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Cached content for rendition " + renditionName + " no longer exists");
+            }
+            renditionContentCache.remove(cacheKey);
+            return false;
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Reuse cached content " + renditionContentData.getContentUrl() + " for rendition " +
+                    renditionName + " on " + sourceNodeRef);
+        }
+        consumeRendition(sourceNodeRef, sourceContentHashCode, null, renditionContentData, renditionDefinition,
+                sourceContentHashCode);
+        return true;
+    }
+
+    /**
+     * Returns the key of the rendition content cache, made up of the source content, everything in the rendition
+     * definition that affects the result and the transformer that would be used, or {@code null} if the rendition
+     * should not be cached. Changes within a transformer, such as a T-Engine upgrade, are covered by the time to live
+     * of the cache.
+     */
+    String getRenditionContentCacheKey(NodeRef sourceNodeRef, RenditionDefinition2 renditionDefinition)
+    {
+        if (renditionContentCache == null || transformServiceRegistry == null ||
+                renditionDefinition instanceof TransformDefinition)
+        {
+            return null;
+        }
+        ContentData contentData = DefaultTypeConverter.INSTANCE.convert(ContentData.class, nodeService.getProperty(sourceNodeRef, PROP_CONTENT));
+        if (contentData == null || contentData.getContentUrl() == null)
+        {
+            return null;
+        }
+        Map<String, String> transformOptions = renditionDefinition.getTransformOptions();
+        String renditionName = renditionDefinition.getRenditionName();
+        String targetMimetype = renditionDefinition.getTargetMimetype();
+        String transformerName = transformServiceRegistry.findTransformerName(contentData.getMimetype(),
+                contentData.getSize(), targetMimetype, transformOptions, renditionName);
+        if (transformerName == null)
+        {
+            return null;
+        }
+        return contentData.getContentUrl() + '|' + contentData.getMimetype() + '|' + renditionName + '|' +
+                targetMimetype + '|' + (transformOptions == null ? "" : new TreeMap<>(transformOptions)) + '|' +
+                transformerName;
+    }
+
     private void consumeExtractedMetadata(NodeRef nodeRef, int sourceContentHashCode, InputStream transformInputStream,
                                           TransformDefinition transformDefinition, int transformContentHashCode)
     {
@@ -486,10 +583,12 @@ public class RenditionService2Impl implements RenditionService2, InitializingBea
     /**
      *  Takes a transformation (InputStream) and attaches it as a rendition to the source node.
      *  Does nothing if there is already a newer rendition.
-     *  If the transformInputStream is null, this is taken to be a transform failure.
+     *  If the transformInputStream is null, this is taken to be a transform failure, unless the content of an
+     *  identical rendition is supplied as cachedRenditionContentData.
      */
     private void consumeRendition(NodeRef sourceNodeRef, int sourceContentHashCode, InputStream transformInputStream,
-                                  RenditionDefinition2 renditionDefinition, int transformContentHashCode)
+                                  ContentData cachedRenditionContentData, RenditionDefinition2 renditionDefinition,
+                                  int transformContentHashCode)
     {
         String renditionName = renditionDefinition.getRenditionName();
         if (transformContentHashCode != sourceContentHashCode)
@@ -539,7 +638,13 @@ public class RenditionService2Impl implements RenditionService2, InitializingBea
                             }
                             setThumbnailLastModified(sourceNodeRef, renditionName);
 
-                            if (transformInputStream != null)
+                            if (cachedRenditionContentData != null)
+                            {
+                                // Share the content of an identical rendition
+                                nodeService.setProperty(renditionNode, DEFAULT_RENDITION_CONTENT_PROP, cachedRenditionContentData);
+                                nodeService.setProperty(renditionNode, RenditionModel.PROP_RENDITION_CONTENT_HASH_CODE, transformContentHashCode);
+                            }
+                            else if (transformInputStream != null)
                             {
                                 try
                                 {
@@ -559,6 +664,12 @@ public class RenditionService2Impl implements RenditionService2, InitializingBea
                                             logger.debug("Set rendition hashcode for " + renditionName);
                                         }
                                         nodeService.setProperty(renditionNode, RenditionModel.PROP_RENDITION_CONTENT_HASH_CODE, transformContentHashCode);
+
+                                        String cacheKey = getRenditionContentCacheKey(sourceNodeRef, renditionDefinition);
+                                        if (cacheKey != null)
+                                        {
+                                            renditionContentCache.put(cacheKey, contentReader.getContentData());
+                                        }
                                     }
                                     else
                                     {
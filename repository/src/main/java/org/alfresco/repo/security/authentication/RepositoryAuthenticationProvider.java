@@ -25,40 +25,135 @@
  */
 package org.alfresco.repo.security.authentication;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 import net.sf.acegisecurity.Authentication;
 import net.sf.acegisecurity.UserDetails;
 import net.sf.acegisecurity.providers.dao.DaoAuthenticationProvider;
 import net.sf.acegisecurity.providers.dao.SaltSource;
+import org.alfresco.repo.cache.SimpleCache;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
  * A DaoAuthenticationProvider that makes use of a CompositePasswordEncoder to check the
  * password is correct.
+ * <p>
+ * Clients such as WebDAV, IMAP and CMIS send basic auth credentials on every request. Successful
+ * checks can be remembered in an optional, node-local <tt>verifiedCredentialsCache</tt> so that
+ * repeated requests skip the (deliberately slow) password hashing. Entries are keyed by an HMAC,
+ * under a random key held only by this instance, of the username, the presented password and the
+ * stored hash, salt and hash indicator. A password change or re-hash therefore never matches an
+ * old entry, and raw credentials are never stored.
  *
  * @author Gethin James
  */
 public class RepositoryAuthenticationProvider extends DaoAuthenticationProvider
 {
     private static Log logger = LogFactory.getLog(RepositoryAuthenticationProvider.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
     CompositePasswordEncoder compositePasswordEncoder;
+    private SimpleCache<String, Boolean> verifiedCredentialsCache;
+    private boolean verifiedCredentialsCacheEnabled = true;
+    private final SecretKeySpec credentialsKey;
+
+    public RepositoryAuthenticationProvider()
+    {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        credentialsKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
 
     public void setCompositePasswordEncoder(CompositePasswordEncoder compositePasswordEncoder)
     {
         this.compositePasswordEncoder = compositePasswordEncoder;
     }
 
+    /**
+     * Sets the cache of recently verified credentials. It must not be shared across the cluster;
+     * its entries expire by time-to-live only.
+     */
+    public void setVerifiedCredentialsCache(SimpleCache<String, Boolean> verifiedCredentialsCache)
+    {
+        this.verifiedCredentialsCache = verifiedCredentialsCache;
+    }
+
+    public void setVerifiedCredentialsCacheEnabled(boolean verifiedCredentialsCacheEnabled)
+    {
+        this.verifiedCredentialsCacheEnabled = verifiedCredentialsCacheEnabled;
+    }
+
     @Override
     protected boolean isPasswordCorrect(Authentication authentication, UserDetails user)
     {
         if (user instanceof RepositoryAuthenticatedUser)
         {
             RepositoryAuthenticatedUser repoUser = (RepositoryAuthenticatedUser) user;
-            return compositePasswordEncoder.matchesPassword(authentication.getCredentials().toString(),user.getPassword(), repoUser.getSalt(), repoUser.getHashIndicator() );
+            String rawPassword = authentication.getCredentials().toString();
+
+            String verifiedKey = null;
+            if (verifiedCredentialsCacheEnabled && verifiedCredentialsCache != null)
+            {
+                verifiedKey = getVerifiedCredentialsKey(repoUser, rawPassword);
+                if (verifiedKey != null && verifiedCredentialsCache.contains(verifiedKey))
+                {
+                    return true;
+                }
+            }
+
+            boolean correct = compositePasswordEncoder.matchesPassword(rawPassword, user.getPassword(), repoUser.getSalt(), repoUser.getHashIndicator());
+            if (correct && verifiedKey != null)
+            {
+                verifiedCredentialsCache.put(verifiedKey, Boolean.TRUE);
+            }
+            return correct;
         }
 
         logger.error(
             "Password check error for '" + AuthenticationUtil.maskUsername(user.getUsername()) + "'; unknown user type: " + user.getClass().getName());
         return false;
     }
+
+    /**
+     * @return the HMAC of the presented and stored credentials, or <tt>null</tt> if it can't be computed
+     */
+    private String getVerifiedCredentialsKey(RepositoryAuthenticatedUser user, String rawPassword)
+    {
+        try
+        {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(credentialsKey);
+            updateMac(mac, user.getUsername());
+            updateMac(mac, user.getPassword());
+            updateMac(mac, String.valueOf(user.getSalt()));
+            updateMac(mac, String.valueOf(user.getHashIndicator()));
+            updateMac(mac, rawPassword);
+            return new String(Hex.encodeHex(mac.doFinal()));
+        }
+        catch (GeneralSecurityException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Unable to compute verified credentials key, the cache will not be used", e);
+            }
+            return null;
+        }
+    }
+
+    private static void updateMac(Mac mac, String value)
+    {
+        if (value != null)
+        {
+            mac.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separator so that values can't run into each other
+        mac.update((byte) 0);
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.authority;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.alfresco.util.cache.RefreshableCacheEvent;
+
+/**
+ * Event carrying the group membership links added and removed by a committed transaction, so that every
+ * {@link AuthorityBridgeTableAsynchronouslyRefreshedCache} can apply them to its bridge table in place rather
+ * than rebuilding it.
+ * 
+ * @since 23.1
+ */
+public class AuthorityBridgeLinksChangedEvent implements RefreshableCacheEvent
+{
+    private static final long serialVersionUID = 4893260157836625178L;
+
+    private final String cacheId;
+    private final String key;
+    private final List<LinkChange> changes;
+
+    public AuthorityBridgeLinksChangedEvent(String cacheId, String key, List<LinkChange> changes)
+    {
+        this.cacheId = cacheId;
+        this.key = key;
+        this.changes = Collections.unmodifiableList(new ArrayList<LinkChange>(changes));
+    }
+
+    @Override
+    public String getCacheId()
+    {
+        return cacheId;
+    }
+
+    @Override
+    public String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * @return the link changes in the order they were made
+     */
+    public List<LinkChange> getChanges()
+    {
+        return changes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AuthorityBridgeLinksChangedEvent [cacheId=" + cacheId + ", tenantId=" + key + ", changes=" + changes.size() + "]";
+    }
+
+    /**
+     * A single parent-child link that was added or removed.
+     */
+    public static class LinkChange implements Serializable
+    {
+        private static final long serialVersionUID = -2739127412839457763L;
+
+        private final String parentName;
+        private final String childName;
+        private final boolean added;
+
+        public LinkChange(String parentName, String childName, boolean added)
+        {
+            this.parentName = parentName;
+            this.childName = childName;
+            this.added = added;
+        }
+
+        public String getParentName()
+        {
+            return parentName;
+        }
+
+        public String getChildName()
+        {
+            return childName;
+        }
+
+        public boolean isAdded()
+        {
+            return added;
+        }
+
+        @Override
+        public String toString()
+        {
+            return (added ? "+" : "-") + parentName + " -> " + childName;
+        }
+    }
+}
@@ -25,36 +25,59 @@
  */
 package org.alfresco.repo.security.authority;
 
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.cache.AbstractMTAsynchronouslyRefreshedCache;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
+import org.alfresco.repo.security.authority.AuthorityBridgeLinksChangedEvent.LinkChange;
 import org.alfresco.repo.tenant.TenantAdminService;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
 import org.alfresco.util.BridgeTable;
 import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.cache.AsynchronouslyRefreshedCacheRegistry;
+import org.alfresco.util.cache.RefreshableCacheEvent;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
+ * Bridge table of group memberships, one per tenant.
+ * <p>
+ * Membership changes reported through {@link #addLink(String, String)} and {@link #removeLink(String, String)} are
+ * applied to the existing tables in place once the transaction commits.  A full rebuild is only queued when a change
+ * does not fit the current table, e.g. a link that would close a cycle or the removal of a link the table does not
+ * hold.  Changes committed while a table is being rebuilt are held back and applied on the next access, rather than
+ * making the committing thread wait for the rebuild.
+ * 
  * @author Andy
  * @since 4.1.3
  */
 public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractMTAsynchronouslyRefreshedCache<BridgeTable<String>> implements InitializingBean
 {
+    private static final String KEY_PENDING_LINK_CHANGES = "AuthorityBridgeTableAsynchronouslyRefreshedCache.pendingLinkChanges";
+
     private AuthorityBridgeDAO authorityBridgeDAO;
     private RetryingTransactionHelper retryingTransactionHelper;
     private TenantAdminService tenantAdminService;
     private AuthorityDAO authorityDAO;
+    private AsynchronouslyRefreshedCacheRegistry registry;
+    private final LinkChangesTransactionListener linkChangesTransactionListener = new LinkChangesTransactionListener();
+    private final Queue<AuthorityBridgeLinksChangedEvent> pendingLinkChangesEvents = new ConcurrentLinkedQueue<AuthorityBridgeLinksChangedEvent>();
 
     private Log logger = LogFactory.getLog(getClass());
 
@@ -90,6 +113,198 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
         this.tenantAdminService = tenantAdminService;
     }
 
+    @Override
+    public void setRegistry(AsynchronouslyRefreshedCacheRegistry registry)
+    {
+        super.setRegistry(registry);
+        this.registry = registry;
+    }
+
+    /**
+     * Record that a group membership link was added for the current tenant.  The bridge tables are updated once the
+     * current transaction commits, or immediately if there is no transaction.
+     */
+    public void addLink(String parentName, String childName)
+    {
+        recordLinkChange(new LinkChange(parentName, childName, true));
+    }
+
+    /**
+     * Record that a group membership link was removed for the current tenant.  The bridge tables are updated once the
+     * current transaction commits, or immediately if there is no transaction.
+     */
+    public void removeLink(String parentName, String childName)
+    {
+        recordLinkChange(new LinkChange(parentName, childName, false));
+    }
+
+    private void recordLinkChange(LinkChange change)
+    {
+        String tenantId = getCurrentTenantId();
+        if (AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_NONE)
+        {
+            List<LinkChange> changes = new ArrayList<LinkChange>(1);
+            changes.add(change);
+            registry.broadcastEvent(new AuthorityBridgeLinksChangedEvent(getCacheId(), tenantId, changes), true);
+            return;
+        }
+        Map<String, List<LinkChange>> pending = TransactionalResourceHelper.getMap(getPendingLinkChangesKey());
+        List<LinkChange> changes = pending.get(tenantId);
+        if (changes == null)
+        {
+            changes = new ArrayList<LinkChange>();
+            pending.put(tenantId, changes);
+        }
+        changes.add(change);
+        AlfrescoTransactionSupport.bindListener(linkChangesTransactionListener);
+    }
+
+    private String getPendingLinkChangesKey()
+    {
+        return KEY_PENDING_LINK_CHANGES + "." + getCacheId();
+    }
+
+    /**
+     * The bridge table is not up to date for a transaction that has changed links it cannot see yet, nor while
+     * committed changes are held back by a rebuild.
+     */
+    @Override
+    public boolean isUpToDate(String key)
+    {
+        for (AuthorityBridgeLinksChangedEvent event : pendingLinkChangesEvents)
+        {
+            if (event.getKey().equals(key))
+            {
+                return false;
+            }
+        }
+        if (AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE
+                && TransactionalResourceHelper.isResourcePresent(getPendingLinkChangesKey()))
+        {
+            Map<String, List<LinkChange>> pending = TransactionalResourceHelper.getMap(getPendingLinkChangesKey());
+            if (pending.containsKey(key))
+            {
+                return false;
+            }
+        }
+        return super.isUpToDate(key);
+    }
+
+    @Override
+    public void onRefreshableCacheEvent(RefreshableCacheEvent refreshableCacheEvent)
+    {
+        if (refreshableCacheEvent instanceof AuthorityBridgeLinksChangedEvent)
+        {
+            if (refreshableCacheEvent.getCacheId().equals(getCacheId()))
+            {
+                pendingLinkChangesEvents.add((AuthorityBridgeLinksChangedEvent) refreshableCacheEvent);
+                applyPendingLinkChanges();
+            }
+            return;
+        }
+        super.onRefreshableCacheEvent(refreshableCacheEvent);
+    }
+
+    @Override
+    public BridgeTable<String> get(String key)
+    {
+        if (!pendingLinkChangesEvents.isEmpty())
+        {
+            applyPendingLinkChanges();
+        }
+        return super.get(key);
+    }
+
+    /**
+     * Apply committed link changes to the live bridge tables, unless a table is being rebuilt.  The rebuild holds the
+     * lock on the live tables, so the changes are then left for the next attempt instead of waiting for it.
+     */
+    private void applyPendingLinkChanges()
+    {
+        if (!liveLock.writeLock().tryLock())
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Bridge tables are being rebuilt; link changes will be applied later");
+            }
+            return;
+        }
+        List<AuthorityBridgeLinksChangedEvent> applied = new ArrayList<AuthorityBridgeLinksChangedEvent>();
+        try
+        {
+            AuthorityBridgeLinksChangedEvent event;
+            while ((event = pendingLinkChangesEvents.poll()) != null)
+            {
+                applyLinkChanges(event);
+                applied.add(event);
+            }
+        }
+        finally
+        {
+            liveLock.writeLock().unlock();
+        }
+
+        // Listeners holding results derived from the bridge table must drop them
+        for (AuthorityBridgeLinksChangedEvent event : applied)
+        {
+            broadcastEvent(event);
+        }
+    }
+
+    /**
+     * Apply committed link changes to the live bridge table of the tenant.  If they are not consistent with it the
+     * table is dropped, so that the next {@link #get()} rebuilds it in full from the database.  A tenant without a live
+     * table is left alone for the same reason.  The write lock on the live tables must be held; readers of the table
+     * itself are kept out by its own lock.
+     */
+    private void applyLinkChanges(AuthorityBridgeLinksChangedEvent event)
+    {
+        String tenantId = event.getKey();
+        BridgeTable<String> bridgeTable = live.get(tenantId);
+        if (bridgeTable == null)
+        {
+            return;
+        }
+        for (LinkChange change : event.getChanges())
+        {
+            if (!applyLinkChange(bridgeTable, change))
+            {
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Link change " + change + " is inconsistent with the bridge table for tenant " + tenantId
+                            + "; it will be rebuilt");
+                }
+                live.remove(tenantId);
+                break;
+            }
+        }
+    }
+
+    private boolean applyLinkChange(BridgeTable<String> bridgeTable, LinkChange change)
+    {
+        String parentName = change.getParentName();
+        String childName = change.getChildName();
+        boolean linked = bridgeTable.getDescendants(parentName, 1).contains(childName);
+        if (change.isAdded())
+        {
+            // A link closing a cycle is broken by the full rebuild
+            if (linked || parentName.equals(childName) || bridgeTable.getDescendants(childName).contains(parentName))
+            {
+                return false;
+            }
+            bridgeTable.addLink(parentName, childName);
+        }
+        else
+        {
+            if (!linked)
+            {
+                return false;
+            }
+            bridgeTable.removeLink(parentName, childName);
+        }
+        return true;
+    }
+
     @Override
     protected BridgeTable<String> buildCache(final String tenantId)
     {
@@ -244,4 +459,20 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
         PropertyCheck.mandatory(this, "authorityDAO", authorityDAO);
         super.afterPropertiesSet();
     }
+
+    /**
+     * Sends the link changes of a committed transaction to all caches.
+     */
+    private class LinkChangesTransactionListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void afterCommit()
+        {
+            Map<String, List<LinkChange>> pending = TransactionalResourceHelper.getMap(getPendingLinkChangesKey());
+            for (Map.Entry<String, List<LinkChange>> entry : pending.entrySet())
+            {
+                registry.broadcastEvent(new AuthorityBridgeLinksChangedEvent(getCacheId(), entry.getKey(), entry.getValue()), true);
+            }
+        }
+    }
 }
@@ -81,7 +81,7 @@ public interface AuthorityDAO
     void removeAuthority(String parentName, String childName);
 
     /**
-     * Remove an authority without authorityBridgeTableCache refresh.
+     * Remove an authority, optionally without updating the authorityBridgeTableCache.
      */
     void removeAuthority(String parentName, String childName, boolean cacheRefresh);
 
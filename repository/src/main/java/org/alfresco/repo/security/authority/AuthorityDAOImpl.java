@@ -101,6 +101,13 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
     private static Log logger = LogFactory.getLog(AuthorityDAOImpl.class);
     
     private static String PARENTS_OF_DELETING_CHILDREN_SET_RESOURCE = "ParentsOfDeletingChildrenSetResource";
+
+    /**
+     * Transactional count of the authority membership changes made by the current transaction, allowing authorities
+     * computed earlier in the transaction to be reused until it changes.  Changes that bypass this DAO are not counted,
+     * so authorities computed before them are not recomputed within the transaction.
+     */
+    public static final String KEY_MEMBERSHIP_CHANGES = "AuthorityDAOImpl.membershipChanges";
     private static final char[] ILLEGAL_CHARACTERS = {'/', '\\', '\r', '\n', '\"'};
     
     private static final NodeRef NULL_NODEREF = new NodeRef("null", "null", "null");
@@ -367,6 +374,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
 
         nodeService.addChild(parentRefs, childRef, ContentModel.ASSOC_MEMBER, QName.createQName("cm", childName,
                 namespacePrefixResolver));
+        TransactionalResourceHelper.incrementCount(KEY_MEMBERSHIP_CHANGES);
         if (isUser)
         {
             userAuthorityCache.remove(childName);
@@ -374,7 +382,11 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         else
         {
             userAuthorityCache.clear();
-            authorityBridgeTableCache.refresh();
+            String childAuthorityName = getAuthorityName(childRef);
+            for (NodeRef parentRef : parentRefs)
+            {
+                authorityBridgeTableCache.addLink(getAuthorityName(parentRef), childAuthorityName);
+            }
         }
     }
 
@@ -434,6 +446,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         nodeService.deleteNode(nodeRef);
         
         authorityLookupCache.remove(cacheKey(name));
+        TransactionalResourceHelper.incrementCount(KEY_MEMBERSHIP_CHANGES);
         userAuthorityCache.clear();
         authorityBridgeTableCache.refresh();
     }
@@ -803,6 +816,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         nodeService.removeChild(parentRef, childRef);
         childAuthorityCache.remove(parentRef);
+        TransactionalResourceHelper.incrementCount(KEY_MEMBERSHIP_CHANGES);
         if (AuthorityType.getAuthorityType(childName) == AuthorityType.USER)
         {
             // Normalize the user name
@@ -814,7 +828,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
             userAuthorityCache.clear();
             if (cacheRefresh)
             {
-                authorityBridgeTableCache.refresh();
+                authorityBridgeTableCache.removeLink(getAuthorityName(parentRef), getAuthorityName(childRef));
             }
         }
     }
@@ -1580,6 +1594,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
     public void beforeDeleteNode(NodeRef nodeRef)
     {
         String authorityName = getAuthorityName(nodeRef);
+        TransactionalResourceHelper.incrementCount(KEY_MEMBERSHIP_CHANGES);
         userAuthorityCache.remove(authorityName);
         if (userAuthorityCache instanceof TransactionalCache)
         {
@@ -1647,6 +1662,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
                 }
                 // Remove cache entires for the parents.  No need to lock because the data has already been updated.
                 removeParentsFromChildAuthorityCache(nodeRef, false);
+                TransactionalResourceHelper.incrementCount(KEY_MEMBERSHIP_CHANGES);
             }
             else
             {
@@ -28,6 +28,7 @@ package org.alfresco.repo.security.permissions;
 import java.io.Serializable;
 import java.util.List;
 
+import org.alfresco.repo.security.permissions.impl.CompiledAcl;
 import org.alfresco.repo.security.permissions.impl.SimpleNodePermissionEntry;
 
 public interface AccessControlList extends Serializable
@@ -54,4 +55,13 @@ public interface AccessControlList extends Serializable
     public SimpleNodePermissionEntry getCachedSimpleNodePermissionEntry();
     
     public void setCachedSimpleNodePermissionEntry(SimpleNodePermissionEntry cachedSimpleNodePermissionEntry);
+    
+    /**
+     * Get the entries compiled for permission evaluation, if they have been compiled
+     * 
+     * @return CompiledAcl or <tt>null</tt>
+     */
+    public CompiledAcl getCompiledAcl();
+    
+    public void setCompiledAcl(CompiledAcl compiledAcl);
 }
@@ -28,6 +28,7 @@ package org.alfresco.repo.security.permissions;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.alfresco.repo.security.permissions.impl.CompiledAcl;
 import org.alfresco.repo.security.permissions.impl.SimpleNodePermissionEntry;
 
 public class SimpleAccessControlList implements AccessControlList
@@ -43,6 +44,8 @@ public class SimpleAccessControlList implements AccessControlList
     
     private transient SimpleNodePermissionEntry cachedSimpleNodePermissionEntry;
     
+    private transient CompiledAcl compiledAcl;
+    
     public List<AccessControlEntry> getEntries()
     {
         return entries;
@@ -72,6 +75,16 @@ public class SimpleAccessControlList implements AccessControlList
     {
         this.cachedSimpleNodePermissionEntry = cachedSimpleNodePermissionEntry;
     }
+
+    public synchronized CompiledAcl getCompiledAcl()
+    {
+        return compiledAcl;
+    }
+
+    public synchronized void setCompiledAcl(CompiledAcl compiledAcl)
+    {
+        this.compiledAcl = compiledAcl;
+    }
     
     
 
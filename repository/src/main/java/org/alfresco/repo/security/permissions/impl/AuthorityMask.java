@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.permissions.impl;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import org.alfresco.repo.security.permissions.impl.CompiledAcl.AuthorityIds;
+
+/**
+ * The authorities of a user as a mask over the IDs allocated by a {@link CompiledAclRegistry}.
+ * <p>
+ * The set of authorities is only ever asked about the authorities found in the ACLs being checked,
+ * so membership is resolved lazily, one ID at a time, and remembered; sets such as those of
+ * {@link org.alfresco.repo.security.authority.AuthorityServiceImpl} are expensive to enumerate.
+ * <p>
+ * Masks are not thread safe and are expected to live for one request.
+ * 
+ * @since 23.1
+ */
+class AuthorityMask
+{
+    private final AuthorityIds authorityIds;
+    private final Set<String> authorities;
+    private final BitSet members = new BitSet();
+    private final BitSet nonMembers = new BitSet();
+    private final AuthorityMask parent;
+
+    /**
+     * @param authorityIds      the IDs the mask is over
+     * @param authorities       the authorities of the user
+     */
+    AuthorityMask(AuthorityIds authorityIds, Set<String> authorities)
+    {
+        this(authorityIds, authorities, null);
+    }
+
+    private AuthorityMask(AuthorityIds authorityIds, Set<String> authorities, AuthorityMask parent)
+    {
+        this.authorityIds = authorityIds;
+        this.authorities = authorities;
+        this.parent = parent;
+    }
+
+    /**
+     * @return                  the IDs the mask is over, to be used for the whole check
+     */
+    AuthorityIds getAuthorityIds()
+    {
+        return authorityIds;
+    }
+
+    /**
+     * @return                  the authorities this mask was created over, without any additional authorities
+     */
+    Set<String> getAuthorities()
+    {
+        return parent == null ? authorities : parent.getAuthorities();
+    }
+
+    /**
+     * Get a view of this mask with some additional authorities, such as those granted dynamically
+     * for a node.  This mask is not changed and remembers nothing about the additional authorities.
+     * 
+     * @param extraAuthorities  the additional authorities
+     * @return                  a mask for the union of both sets of authorities
+     */
+    AuthorityMask withAuthorities(Set<String> extraAuthorities)
+    {
+        if (extraAuthorities == null || extraAuthorities.isEmpty())
+        {
+            return this;
+        }
+        return new AuthorityMask(authorityIds, extraAuthorities, this);
+    }
+
+    /**
+     * @return                  <tt>true</tt> if the authority with the given ID is in the mask
+     */
+    boolean contains(int authorityId)
+    {
+        if (parent != null && parent.contains(authorityId))
+        {
+            return true;
+        }
+        if (members.get(authorityId))
+        {
+            return true;
+        }
+        if (nonMembers.get(authorityId))
+        {
+            return false;
+        }
+        if (authorities.contains(authorityIds.getAuthority(authorityId)))
+        {
+            members.set(authorityId);
+            return true;
+        }
+        else
+        {
+            nonMembers.set(authorityId);
+            return false;
+        }
+    }
+
+    /**
+     * @return                  <tt>true</tt> if the authority is in the mask
+     */
+    boolean contains(String authority)
+    {
+        return contains(authorityIds.getId(authority));
+    }
+
+    /**
+     * @return                  <tt>true</tt> if any of the authorities with the given IDs is in the mask
+     */
+    boolean containsAny(int[] authorityIds)
+    {
+        for (int authorityId : authorityIds)
+        {
+            if (contains(authorityId))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.permissions.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.repo.security.permissions.AccessControlEntry;
+import org.alfresco.repo.security.permissions.PermissionReference;
+import org.alfresco.service.cmr.security.AccessStatus;
+
+/**
+ * The entries of an ACL compiled, once per required permission, into the IDs of the authorities
+ * that are granted or denied that permission.  Evaluating a permission is then a matter of testing
+ * those IDs against an {@link AuthorityMask} rather than walking the entries and the permission model.
+ * <p>
+ * Instances are immutable apart from the lazily-compiled permissions and are attached to the
+ * {@link org.alfresco.repo.security.permissions.AccessControlList ACL} they were built from, so they
+ * share its lifecycle in the ACL cache.
+ * <p>
+ * Authority IDs are allocated from the current {@link AuthorityIds} of a {@link CompiledAclRegistry}.
+ * Compiled permissions remember the IDs they were compiled against and are compiled again once those
+ * IDs have been replaced, so dropping the IDs drops everything compiled from them.
+ * 
+ * @since 23.1
+ */
+public final class CompiledAcl
+{
+    private final List<AccessControlEntry> entries;
+    private final Map<PermissionReference, PermissionBits> bitsByPermission = new ConcurrentHashMap<PermissionReference, PermissionBits>(8);
+
+    /**
+     * @param entries           the ordered entries of the ACL
+     */
+    public CompiledAcl(List<AccessControlEntry> entries)
+    {
+        this.entries = entries;
+    }
+
+    /**
+     * Get the compiled form of the entries for a permission, compiling it on first use or if it was
+     * compiled against other authority IDs.
+     * 
+     * @param authorityIds      the authority IDs to compile against
+     * @param required          the permission being checked
+     * @param granters          all the permissions that grant the required permission
+     * @param allPermissions    the references meaning <b>all permissions</b>
+     * @param modelDAO          the permission model
+     */
+    PermissionBits getPermissionBits(
+            AuthorityIds authorityIds,
+            PermissionReference required,
+            Set<PermissionReference> granters,
+            Set<PermissionReference> allPermissions,
+            ModelDAO modelDAO)
+    {
+        PermissionBits bits = bitsByPermission.get(required);
+        if (bits == null || bits.authorityIds != authorityIds)
+        {
+            bits = new PermissionBits(authorityIds, entries, required, granters, allPermissions, modelDAO);
+            bitsByPermission.put(required, bits);
+        }
+        return bits;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompiledAcl [entries=" + entries.size() + ", permissions=" + bitsByPermission.keySet() + "]";
+    }
+
+    /**
+     * The authorities granted and denied a single permission by an ACL.
+     * <p>
+     * ACEs are applied in order, per authority.  Denying a permission to an authority hides later grants
+     * of that permission to the same authority.  Denying <b>all permissions</b> only hides later grants if
+     * the permission applies to the node's type and aspects, so those grants are held apart and the node
+     * is only consulted if they are relevant.  The same applies, in reverse, to denials when any deny denies.
+     */
+    static final class PermissionBits
+    {
+        /** The IDs the authorities were compiled against */
+        final AuthorityIds authorityIds;
+        /** Authorities granted the permission */
+        final int[] allowed;
+        /** Authorities granted the permission unless an earlier 'deny all' covers it */
+        final int[] allowedUnlessAllDenied;
+        /** Authorities denied the permission */
+        final int[] denied;
+        /** Authorities denied the permission unless an earlier 'allow all' covers it */
+        final int[] deniedUnlessAllAllowed;
+
+        PermissionBits(
+                AuthorityIds authorityIds,
+                List<AccessControlEntry> entries,
+                PermissionReference required,
+                Set<PermissionReference> granters,
+                Set<PermissionReference> allPermissions,
+                ModelDAO modelDAO)
+        {
+            this.authorityIds = authorityIds;
+            // Grants are checked against earlier denials and denials against earlier grants
+            BitSet[] grants = compile(authorityIds, entries, AccessStatus.ALLOWED, required, granters, allPermissions, modelDAO);
+            BitSet[] denials = compile(authorityIds, entries, AccessStatus.DENIED, required, granters, allPermissions, modelDAO);
+            allowed = grants[0].stream().toArray();
+            allowedUnlessAllDenied = grants[1].stream().toArray();
+            denied = denials[0].stream().toArray();
+            deniedUnlessAllAllowed = denials[1].stream().toArray();
+        }
+
+        /**
+         * @return              the unconditional and conditional authority IDs for the given access status
+         */
+        private static BitSet[] compile(
+                AuthorityIds authorityIds,
+                List<AccessControlEntry> entries,
+                AccessStatus status,
+                PermissionReference required,
+                Set<PermissionReference> granters,
+                Set<PermissionReference> allPermissions,
+                ModelDAO modelDAO)
+        {
+            BitSet matched = new BitSet();
+            BitSet matchedUnlessAll = new BitSet();
+            BitSet blocked = new BitSet();
+            BitSet blockedByAll = new BitSet();
+            BitSet resolved = new BitSet();
+            for (AccessControlEntry ace : entries)
+            {
+                int authorityId = authorityIds.getId(ace.getAuthority());
+                if (resolved.get(authorityId) || blocked.get(authorityId))
+                {
+                    continue;
+                }
+                PermissionReference permission = ace.getPermission();
+                if (ace.getAccessStatus() == status)
+                {
+                    if (!granters.contains(permission))
+                    {
+                        continue;
+                    }
+                    resolved.set(authorityId);
+                    if (blockedByAll.get(authorityId))
+                    {
+                        matchedUnlessAll.set(authorityId);
+                    }
+                    else
+                    {
+                        matched.set(authorityId);
+                    }
+                }
+                else if (permission.equals(required)
+                        || modelDAO.getGrantingPermissions(permission).contains(required)
+                        || modelDAO.getGranteePermissions(permission).contains(required))
+                {
+                    blocked.set(authorityId);
+                }
+                else if (allPermissions.contains(permission))
+                {
+                    blockedByAll.set(authorityId);
+                }
+            }
+            return new BitSet[] {matched, matchedUnlessAll};
+        }
+    }
+
+    /**
+     * IDs allocated to authorities, in order of first use.  IDs are never reused; once {@link #isFull() full}
+     * the IDs are expected to be replaced, which invalidates everything compiled or masked against them.
+     */
+    static final class AuthorityIds
+    {
+        private final int maxAuthorities;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>(1024);
+        private volatile String[] names = new String[1024];
+
+        /**
+         * @param maxAuthorities    the number of IDs after which the IDs are full
+         */
+        AuthorityIds(int maxAuthorities)
+        {
+            this.maxAuthorities = maxAuthorities;
+        }
+
+        /**
+         * Get the ID of an authority, allocating one if necessary.  IDs are allocated even once full,
+         * so that a check that is already running is not affected.
+         */
+        int getId(String authority)
+        {
+            Integer id = ids.get(authority);
+            if (id != null)
+            {
+                return id;
+            }
+            synchronized (this)
+            {
+                id = ids.get(authority);
+                if (id == null)
+                {
+                    id = ids.size();
+                    String[] allNames = names;
+                    if (id == allNames.length)
+                    {
+                        allNames = Arrays.copyOf(allNames, allNames.length * 2);
+                    }
+                    allNames[id] = authority;
+                    names = allNames;
+                    // Only visible once the name can be looked up
+                    ids.put(authority, id);
+                }
+                return id;
+            }
+        }
+
+        /**
+         * @return              the authority with the given ID
+         */
+        String getAuthority(int id)
+        {
+            return names[id];
+        }
+
+        /**
+         * @return              <tt>true</tt> if the maximum number of IDs has been allocated
+         */
+        boolean isFull()
+        {
+            return ids.size() >= maxAuthorities;
+        }
+    }
+}
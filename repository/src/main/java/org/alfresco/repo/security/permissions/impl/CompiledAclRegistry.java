@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.permissions.impl;
+
+import org.alfresco.repo.security.permissions.impl.CompiledAcl.AuthorityIds;
+
+/**
+ * Holds the authority IDs that {@link CompiledAcl compiled ACLs} and {@link AuthorityMask authority masks}
+ * are built against.
+ * <p>
+ * The IDs are replaced once they reach the maximum number of authorities, or when they are {@link #clear() cleared},
+ * for example because the permission model has changed.  Everything compiled against the old IDs is then
+ * compiled again on use, so neither the IDs nor the compiled permissions grow without bound or outlive the model.
+ * 
+ * @since 23.1
+ */
+public class CompiledAclRegistry
+{
+    /** The default maximum number of authorities held before the IDs are replaced */
+    public static final int DEFAULT_MAX_AUTHORITIES = 100000;
+
+    private int maxAuthorities = DEFAULT_MAX_AUTHORITIES;
+    private volatile AuthorityIds authorityIds = new AuthorityIds(DEFAULT_MAX_AUTHORITIES);
+
+    /**
+     * @param maxAuthorities    the number of authorities after which the IDs are replaced
+     */
+    public void setMaxAuthorities(int maxAuthorities)
+    {
+        this.maxAuthorities = maxAuthorities;
+        clear();
+    }
+
+    /**
+     * Drop all authority IDs, and with them all compiled permissions.
+     */
+    public void clear()
+    {
+        authorityIds = new AuthorityIds(maxAuthorities);
+    }
+
+    /**
+     * Get the authority IDs to use for a permission check, replacing them first if they are full.
+     * The same IDs must be used for the whole check.
+     */
+    AuthorityIds getAuthorityIds()
+    {
+        AuthorityIds ids = authorityIds;
+        if (ids.isFull())
+        {
+            synchronized (this)
+            {
+                if (authorityIds == ids)
+                {
+                    authorityIds = new AuthorityIds(maxAuthorities);
+                }
+                ids = authorityIds;
+            }
+        }
+        return ids;
+    }
+}
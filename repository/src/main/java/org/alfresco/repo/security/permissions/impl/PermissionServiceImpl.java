@@ -28,7 +28,11 @@ package org.alfresco.repo.security.permissions.impl;
 import static org.apache.commons.lang3.BooleanUtils.toBoolean;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -43,11 +47,13 @@ import org.alfresco.model.ContentModel;
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.domain.permissions.AclDAO;
 import org.alfresco.repo.domain.permissions.FixedAclUpdater;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.policy.ClassPolicyDelegate;
 import org.alfresco.repo.policy.JavaBehaviour;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
+import org.alfresco.repo.security.authority.AuthorityDAOImpl;
 import org.alfresco.repo.security.authority.AuthorityServiceImpl;
 import org.alfresco.repo.security.permissions.ACLType;
 import org.alfresco.repo.security.permissions.AccessControlEntry;
@@ -67,6 +73,8 @@ import org.alfresco.repo.security.permissions.impl.traitextender.PermissionServi
 import org.alfresco.repo.security.permissions.impl.traitextender.PermissionServiceTrait;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
 import org.alfresco.repo.version.Version2Model;
 import org.alfresco.repo.version.VersionModel;
 import org.alfresco.repo.version.common.VersionUtil;
@@ -111,6 +119,8 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
 
     private static Log log = LogFactory.getLog(PermissionServiceImpl.class);
 
+    private static final String KEY_AUTHORITY_MASKS = "PermissionServiceImpl.authorityMasks";
+
     /** a transactionally-safe cache to be injected */
     protected SimpleCache<Serializable, AccessStatus> accessCache;
     
@@ -165,6 +175,10 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
     protected PermissionReference allPermissionReference;
     
     protected FixedAclUpdater fixedAclUpdater;
+    
+    protected NodeBulkLoader nodeBulkLoader;
+    
+    protected CompiledAclRegistry compiledAclRegistry = new CompiledAclRegistry();
 
     protected boolean anyDenyDenies = false;
 
@@ -227,6 +241,16 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         this.modelDAO = modelDAO;
     }
 
+    /**
+     * Set the registry of the authority IDs that ACLs are compiled against
+     * 
+     * @param compiledAclRegistry CompiledAclRegistry
+     */
+    public void setCompiledAclRegistry(CompiledAclRegistry compiledAclRegistry)
+    {
+        this.compiledAclRegistry = compiledAclRegistry;
+    }
+
     /**
      * Set the node service.
      * 
@@ -300,6 +324,16 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         this.fixedAclUpdater = fixedAclUpdater;
     }
     
+    /**
+     * Set the loader used to fetch nodes in bulk before filtering them (optional)
+     * 
+     * @param nodeBulkLoader NodeBulkLoader
+     */
+    public void setNodeBulkLoader(NodeBulkLoader nodeBulkLoader)
+    {
+        this.nodeBulkLoader = nodeBulkLoader;
+    }
+    
     /**
      * Set the permissions access cache.
      * 
@@ -703,11 +737,11 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
                 {
                     throw new IllegalStateException("Unauthenticated");
                 }
-                Set<String> storeAuthorisations = getAuthorisations(auth, (PermissionContext) null);
+                AuthorityMask storeAuthorityMask = getAuthorityMask(auth, null);
                 QName typeQname = context.getType();
                 Set<QName> aspectQNames = context.getAspects();
                 AclTest aclTest = new AclTest(permission, typeQname, aspectQNames);
-                boolean result = aclTest.evaluate(storeAuthorisations, context.getStoreAcl(), context);
+                boolean result = aclTest.evaluate(storeAuthorityMask, context.getStoreAcl(), context);
                 AccessStatus status = result ? AccessStatus.ALLOWED : AccessStatus.DENIED;
                 return status;
             }
@@ -736,7 +770,7 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             throw new IllegalStateException("Unauthenticated");
         }
 
-        Set<String> authorisations = getAuthorisations(auth, context);
+        AuthorityMask authorityMask = getAuthorityMask(auth, context);
 
         // If the node does not support the given permission there is no point
         // doing the test
@@ -764,7 +798,7 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
                             return modelDAO.getAllPermissions(ContentModel.TYPE_BASE, aspectQNames);
                         }
                     });
-            if(permissionsSystemBase.contains(permission) && authorisations.contains(AuthenticationUtil.getAdminRoleName()))
+            if(permissionsSystemBase.contains(permission) && authorityMask.contains(AuthenticationUtil.getAdminRoleName()))
             {
                 return AccessStatus.ALLOWED;
             }
@@ -785,13 +819,13 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         if (context.getStoreAcl() == null)
         {
             AclTest aclTest = new AclTest(permission, typeQname, aspectQNames);
-            result = aclTest.evaluate(authorisations, aclId, context);
+            result = aclTest.evaluate(authorityMask, aclId, context);
         }
         else
         {
-            Set<String> storeAuthorisations = getAuthorisations(auth, (PermissionContext) null);
+            AuthorityMask storeAuthorityMask = getAuthorityMask(auth, null);
             AclTest aclTest = new AclTest(permission, typeQname, aspectQNames);
-            result = aclTest.evaluate(authorisations, aclId, context) && aclTest.evaluate(storeAuthorisations, context.getStoreAcl(), context);
+            result = aclTest.evaluate(authorityMask, aclId, context) && aclTest.evaluate(storeAuthorityMask, context.getStoreAcl(), context);
         }
         AccessStatus status = result ? AccessStatus.ALLOWED : AccessStatus.DENIED;
         return status;
@@ -947,6 +981,53 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         return dynAuths;
     }
 
+    /**
+     * Get the authorisations for the currently authenticated user as a mask for checking compiled ACLs.
+     * <p>
+     * The mask of core authorisations is kept for each run-as authentication for the rest of the transaction,
+     * so what it learns is shared by every check of the request.  It is recomputed once the transaction
+     * changes any authority membership or the authority IDs are replaced.  Outside a transaction the mask only
+     * lasts for the check.
+     * <p>
+     * Only the membership changes counted by {@link AuthorityDAOImpl} under
+     * {@link AuthorityDAOImpl#KEY_MEMBERSHIP_CHANGES} are noticed.  Authorities changed by any other means, such as
+     * writing the membership associations directly through the node service, stay as they were for the rest of the
+     * transaction.
+     * 
+     * @param auth Authentication
+     * @param context the context providing dynamic authorities (may be <tt>null</tt>)
+     * @return the mask of authorisations
+     */
+    protected AuthorityMask getAuthorityMask(Authentication auth, PermissionContext context)
+    {
+        AuthorityMask mask;
+        CompiledAcl.AuthorityIds authorityIds = compiledAclRegistry.getAuthorityIds();
+        if (auth != null && AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE)
+        {
+            Map<Authentication, Pair<Integer, AuthorityMask>> masks = TransactionalResourceHelper.getMap(KEY_AUTHORITY_MASKS);
+            Integer membershipChanges = TransactionalResourceHelper.getCount(AuthorityDAOImpl.KEY_MEMBERSHIP_CHANGES);
+            Pair<Integer, AuthorityMask> cached = masks.get(auth);
+            if (cached != null && cached.getFirst().equals(membershipChanges) && cached.getSecond().getAuthorityIds() == authorityIds)
+            {
+                mask = cached.getSecond();
+            }
+            else
+            {
+                mask = new AuthorityMask(authorityIds, getCoreAuthorisations(auth));
+                masks.put(auth, new Pair<Integer, AuthorityMask>(membershipChanges, mask));
+            }
+        }
+        else
+        {
+            mask = new AuthorityMask(authorityIds, getCoreAuthorisations(auth));
+        }
+        if (auth != null && context != null)
+        {
+            mask = mask.withAuthorities(getDynamicAuthorities(auth, context, mask.getAuthorities()));
+        }
+        return mask;
+    }
+
     @Override
     @Extend(traitAPI = PermissionServiceTrait.class, extensionAPI = PermissionServiceExtension.class)
     public NodePermissionEntry explainPermission(NodeRef nodeRef, PermissionReference perm)
@@ -1271,8 +1352,36 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             return AccessStatus.ALLOWED;
         }
 
-        // any dynamic authorities other than those defined in the default permissions model with full
-        // control or read permission force hasPermission check
+        if(isReadCheckedByHasPermission())
+        {
+            return hasPermission(nodeRef, PermissionService.READ);
+        }
+
+        Long aclID = nodeService.getNodeAclId(nodeRef);
+        if(aclID == null)
+        {
+            // ACLID is null - need to call default permissions evaluation
+            // This will end up calling the old-style ACL code that walks up the ACL tree
+            status = hasPermission(nodeRef, getPermissionReference(null, PermissionService.READ));
+        }
+        else
+        {
+            status = (canRead(aclID) == AccessStatus.ALLOWED ||
+                    adminRead() == AccessStatus.ALLOWED ||
+                    ownerRead(runAsUser, nodeRef) == AccessStatus.ALLOWED) ? AccessStatus.ALLOWED : AccessStatus.DENIED;
+        }
+
+        return status;
+    }
+
+    /**
+     * Any dynamic authorities other than those defined in the default permissions model with full
+     * control or read permission force a full {@link #hasPermission(NodeRef, String)} check for reads.
+     * 
+     * @return true if read permission has to be checked using hasPermission
+     */
+    private boolean isReadCheckedByHasPermission()
+    {
         Boolean forceHasPermission = (Boolean)AlfrescoTransactionSupport.getResource("forceHasPermission");
         if(forceHasPermission == null)
         {
@@ -1294,26 +1403,136 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             AlfrescoTransactionSupport.bindResource("forceHasPermission", forceHasPermission);            
         }
 
-        if(forceHasPermission == Boolean.TRUE)
+        return forceHasPermission == Boolean.TRUE;
+    }
+
+    @Override
+    @Extend(traitAPI = PermissionServiceTrait.class, extensionAPI = PermissionServiceExtension.class)
+    public List<NodeRef> filterReadable(Collection<NodeRef> nodeRefs)
+    {
+        String runAsUser = AuthenticationUtil.getRunAsUser();
+        if (runAsUser == null || AuthenticationUtil.isRunAsUserTheSystemUser() || isReadCheckedByHasPermission())
         {
-            return hasPermission(nodeRef, PermissionService.READ);
+            return PermissionServiceSPI.super.filterReadable(nodeRefs);
         }
 
-        Long aclID = nodeService.getNodeAclId(nodeRef);
-        if(aclID == null)
+        cacheNodes(nodeRefs);
+
+        boolean adminRead = adminRead() == AccessStatus.ALLOWED;
+        Map<Long, AccessStatus> statusByAcl = new HashMap<Long, AccessStatus>();
+        List<NodeRef> readable = new ArrayList<NodeRef>(nodeRefs.size());
+        for (NodeRef nodeRef : nodeRefs)
         {
-            // ACLID is null - need to call default permissions evaluation
-            // This will end up calling the old-style ACL code that walks up the ACL tree
-            status = hasPermission(nodeRef, getPermissionReference(null, PermissionService.READ));
+            if (nodeRef == null)
+            {
+                continue;
+            }
+            Long aclID = nodeService.exists(nodeRef) ? nodeService.getNodeAclId(nodeRef) : null;
+            if (aclID == null)
+            {
+                if (hasReadPermission(nodeRef) == AccessStatus.ALLOWED)
+                {
+                    readable.add(nodeRef);
+                }
+                continue;
+            }
+            AccessStatus status = statusByAcl.get(aclID);
+            if (status == null)
+            {
+                status = canRead(aclID);
+                statusByAcl.put(aclID, status);
+            }
+            if (status == AccessStatus.ALLOWED || adminRead || ownerRead(runAsUser, nodeRef) == AccessStatus.ALLOWED)
+            {
+                readable.add(nodeRef);
+            }
         }
-        else
+        return readable;
+    }
+
+    @Override
+    @Extend(traitAPI = PermissionServiceTrait.class, extensionAPI = PermissionServiceExtension.class)
+    public List<NodeRef> filterByPermission(Collection<NodeRef> nodeRefs, String permission)
+    {
+        PermissionReference perm = getPermissionReference(permission);
+        if (perm == null || AuthenticationUtil.getRunAsUser() == null || AuthenticationUtil.isRunAsUserTheSystemUser())
         {
-            status = (canRead(aclID) == AccessStatus.ALLOWED ||
-                    adminRead() == AccessStatus.ALLOWED ||
-                    ownerRead(runAsUser, nodeRef) == AccessStatus.ALLOWED) ? AccessStatus.ALLOWED : AccessStatus.DENIED;
+            return PermissionServiceSPI.super.filterByPermission(nodeRefs, permission);
+        }
+        if (perm.equals(OLD_ALL_PERMISSIONS_REFERENCE))
+        {
+            perm = getAllPermissionReference();
         }
 
-        return status;
+        cacheNodes(nodeRefs);
+
+        // Nodes sharing an ACL, type, aspects and dynamic authorities get the same answer
+        Authentication auth = AuthenticationUtil.getRunAsAuthentication();
+        String user = AuthenticationUtil.getRunAsUser();
+        Map<List<Object>, AccessStatus> statusByAcl = new HashMap<List<Object>, AccessStatus>();
+        List<NodeRef> allowed = new ArrayList<NodeRef>(nodeRefs.size());
+        for (NodeRef passedNodeRef : nodeRefs)
+        {
+            if (passedNodeRef == null)
+            {
+                continue;
+            }
+            AccessStatus status = null;
+            if (auth != null && !isVersionNodeRef(passedNodeRef) && nodeService.exists(passedNodeRef))
+            {
+                NodeRef nodeRef = tenantService.getName(passedNodeRef);
+                AccessControlListProperties properties = permissionsDaoComponent.getAccessControlListProperties(nodeRef);
+                if ((properties != null) && (properties.getAclType() != null) && (properties.getAclType() != ACLType.OLD))
+                {
+                    QName typeQname = nodeService.getType(nodeRef);
+                    Set<QName> aspectQNames = nodeService.getAspects(nodeRef);
+                    Set<String> dynamicAuthorities = getDynamicAuthorities(auth, nodeRef, perm);
+                    List<Object> key = Arrays.asList(properties.getId(), typeQname, aspectQNames, dynamicAuthorities);
+                    status = statusByAcl.get(key);
+                    if (status == null)
+                    {
+                        PermissionContext context = new PermissionContext(typeQname);
+                        context.getAspects().addAll(aspectQNames);
+                        for (String dynamicAuthority : dynamicAuthorities)
+                        {
+                            context.addDynamicAuthorityAssignment(user, dynamicAuthority);
+                        }
+                        status = hasPermission(properties.getId(), context, perm);
+                        statusByAcl.put(key, status);
+                    }
+                }
+            }
+            if (status == null)
+            {
+                // Old ACLs, versions and missing nodes
+                status = hasPermission(passedNodeRef, perm);
+            }
+            if (status == AccessStatus.ALLOWED)
+            {
+                allowed.add(passedNodeRef);
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Fetch nodes into the caches before they are checked one by one
+     */
+    private void cacheNodes(Collection<NodeRef> nodeRefs)
+    {
+        if (nodeBulkLoader == null)
+        {
+            return;
+        }
+        List<NodeRef> toCache = new ArrayList<NodeRef>(nodeRefs.size());
+        for (NodeRef nodeRef : nodeRefs)
+        {
+            if (nodeRef != null)
+            {
+                toCache.add(tenantService.getName(nodeRef));
+            }
+        }
+        nodeBulkLoader.cacheNodes(toCache);
     }
 
     protected AccessStatus adminRead()
@@ -1384,9 +1603,9 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             assigned.add(ace.getAuthority());
         }
 
+        UnconditionalAclTest test = new UnconditionalAclTest(getPermissionReference(PermissionService.READ));
         for (String authority : assigned)
         {
-            UnconditionalAclTest test = new UnconditionalAclTest(getPermissionReference(PermissionService.READ));
             if (test.evaluate(authority, aclId))
             {
                 readers.add(authority);
@@ -1412,12 +1631,12 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
         {
             return Collections.emptySet();
         }
-        Set<String> denied = readersDeniedCache.get(aclId);
+        Set<String> denied = readersDeniedCache.get((Serializable)acl.getProperties());
         if (denied != null)
         {
             return denied;
         }
-        denied = new HashSet<String>();
+        Set<String> deniedReaders = new HashSet<String>();
         Set<String> assigned = new HashSet<String>();
 
         for (AccessControlEntry ace : acl.getEntries())
@@ -1425,15 +1644,16 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             assigned.add(ace.getAuthority());
         }
 
+        UnconditionalDeniedAclTest test = new UnconditionalDeniedAclTest(getPermissionReference(PermissionService.READ));
         for(String authority : assigned)
         {
-            UnconditionalDeniedAclTest test = new UnconditionalDeniedAclTest(getPermissionReference(PermissionService.READ));
             if(test.evaluate(authority, aclId))
             {
-                denied.add(authority);
+                deniedReaders.add(authority);
             }
         }
         
+        denied = Collections.unmodifiableSet(deniedReaders);
         readersDeniedCache.put((Serializable)acl.getProperties(), denied);
 
         return denied;
@@ -1990,6 +2210,11 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
          */
         Set<PermissionReference> granters;
 
+        /*
+         * The references to all permissions
+         */
+        Set<PermissionReference> allPermissions = new HashSet<PermissionReference>(4);
+
         /*
          * The additional permissions required at the node level.
          */
@@ -2040,6 +2265,9 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             granters.addAll(modelDAO.getGrantingPermissions(required));
             granters.add(getAllPermissionReference());
             granters.add(OLD_ALL_PERMISSIONS_REFERENCE);
+
+            allPermissions.add(getAllPermissionReference());
+            allPermissions.add(OLD_ALL_PERMISSIONS_REFERENCE);
         }
 
         /**
@@ -2051,6 +2279,19 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
          * @return true if granted
          */
         boolean evaluate(Set<String> authorisations, Long aclId, PermissionContext context)
+        {
+            return evaluate(new AuthorityMask(compiledAclRegistry.getAuthorityIds(), authorisations), aclId, context);
+        }
+
+        /**
+         * Internal hook point for recursion
+         * 
+         * @param authorityMask AuthorityMask
+         * @param aclId Long
+         * @param context PermissionContext
+         * @return true if granted
+         */
+        boolean evaluate(AuthorityMask authorityMask, Long aclId, PermissionContext context)
         {
             // Start out true and "and" all other results
             boolean success = true;
@@ -2061,7 +2302,7 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             {
 
                 // We have to do the test as no parent will help us out
-                success &= hasSinglePermission(authorisations, aclId, context);
+                success &= hasSinglePermission(authorityMask, aclId, context);
 
                 if (!success)
                 {
@@ -2074,7 +2315,7 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             {
                 // Build a new test
                 AclTest nt = new AclTest(pr, typeQName, aspectQNames);
-                success &= nt.evaluate(authorisations, aclId, context);
+                success &= nt.evaluate(authorityMask, aclId, context);
                 if (!success)
                 {
                     return false;
@@ -2084,30 +2325,30 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             return success;
         }
 
-        boolean hasSinglePermission(Set<String> authorisations, Long aclId, PermissionContext context)
+        boolean hasSinglePermission(AuthorityMask authorityMask, Long aclId, PermissionContext context)
         {
             // Check global permission
 
-            if (checkGlobalPermissions(authorisations))
+            if (checkGlobalPermissions(authorityMask))
             {
                 return true;
             }
 
-            return checkRequired(authorisations, aclId, context);
+            return checkRequired(authorityMask, aclId, context);
 
         }
 
         /**
          * Check if we have a global permission
          * 
-         * @param authorisations Set<String>
+         * @param authorityMask AuthorityMask
          * @return true if granted
          */
-        private boolean checkGlobalPermissions(Set<String> authorisations)
+        private boolean checkGlobalPermissions(AuthorityMask authorityMask)
         {
             for (PermissionEntry pe : modelDAO.getGlobalPermissionEntries())
             {
-                if (isGranted(pe, authorisations))
+                if (isGranted(pe, authorityMask))
                 {
                     return true;
                 }
@@ -2117,13 +2358,16 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
 
         /**
          * Check that a given authentication is available on a node
+         * <p>
+         * The entries of the ACL are compiled, once per permission, into the authorities they grant and deny
+         * it to and kept with the cached ACL.  See {@link CompiledAcl} for how the entries are applied.
          * 
-         * @param authorisations Set<String>
+         * @param authorityMask AuthorityMask
          * @param aclId Long
          * @param context PermissionContext
          * @return true if a check is required
          */
-        boolean checkRequired(Set<String> authorisations, Long aclId, PermissionContext context)
+        boolean checkRequired(AuthorityMask authorityMask, Long aclId, PermissionContext context)
         {
             AccessControlList acl = aclDaoComponent.getAccessControlList(aclId);
 
@@ -2132,180 +2376,47 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
                 return false;
             }
 
-            if(anyDenyDenies)
+            CompiledAcl compiledAcl = acl.getCompiledAcl();
+            if (compiledAcl == null)
             {
-                Set<Pair<String, PermissionReference>> allowed = new HashSet<Pair<String, PermissionReference>>();
-
-                // Check if each permission allows - the first wins.
-                // We could have other voting style mechanisms here
-                for (AccessControlEntry ace : acl.getEntries())
-                {
-                    if (isDenied(ace, authorisations, allowed, context))
-                    {
-                        return false;
-                    }
-                }
-            }
-            
-            Set<Pair<String, PermissionReference>> denied = new HashSet<Pair<String, PermissionReference>>();
-
-            // Check if each permission allows - the first wins.
-            // We could have other voting style mechanisms here
-            for (AccessControlEntry ace : acl.getEntries())
-            {
-                if (isGranted(ace, authorisations, denied, context))
-                {
-                    return true;
-                }
+                compiledAcl = new CompiledAcl(acl.getEntries());
+                acl.setCompiledAcl(compiledAcl);
             }
-            return false;
-        }
+            CompiledAcl.PermissionBits bits = compiledAcl.getPermissionBits(
+                    authorityMask.getAuthorityIds(), required, granters, allPermissions, modelDAO);
 
-        /**
-         * Is a permission granted
-         * 
-         * @param ace AccessControlEntry
-         * @param authorisations -
-         *            the set of authorities
-         * @param denied -
-         *            the set of denied permissions/authority pais
-         * @param context PermissionContext
-         * @return true if granted
-         */
-        private boolean isGranted(AccessControlEntry ace, Set<String> authorisations, Set<Pair<String, PermissionReference>> denied, PermissionContext context)
-        {
-            // If the permission entry denies then we just deny
-            if (ace.getAccessStatus() == AccessStatus.DENIED)
+            if(anyDenyDenies)
             {
-                denied.add(new Pair<String, PermissionReference>(ace.getAuthority(), ace.getPermission()));
-
-                Set<PermissionReference> granters = modelDAO.getGrantingPermissions(ace.getPermission());
-                for (PermissionReference granter : granters)
-                {
-                    denied.add(new Pair<String, PermissionReference>(ace.getAuthority(), granter));
-                }
-
-                // All the things granted by this permission must be
-                // denied
-                Set<PermissionReference> grantees = modelDAO.getGranteePermissions(ace.getPermission());
-                for (PermissionReference grantee : grantees)
+                if (authorityMask.containsAny(bits.denied))
                 {
-                    denied.add(new Pair<String, PermissionReference>(ace.getAuthority(), grantee));
-                }
-
-                // All permission excludes all permissions available for
-                // the node.
-                if (ace.getPermission().equals(getAllPermissionReference()) || ace.getPermission().equals(OLD_ALL_PERMISSIONS_REFERENCE))
-                {
-                    for (PermissionReference deny : modelDAO.getAllPermissions(context.getType(), context.getAspects()))
-                    {
-                        denied.add(new Pair<String, PermissionReference>(ace.getAuthority(), deny));
-                    }
+                    return false;
                 }
-
-                return false;
-            }
-
-            // The permission is allowed but we deny it as it is in the denied
-            // set
-
-            if (denied != null)
-            {
-                Pair<String, PermissionReference> specific = new Pair<String, PermissionReference>(ace.getAuthority(), required);
-                if (denied.contains(specific))
+                if (authorityMask.containsAny(bits.deniedUnlessAllAllowed) && !isCoveredByAll(context))
                 {
                     return false;
                 }
             }
 
-            // If the permission has a match in both the authorities and
-            // granters list it is allowed
-            // It applies to the current user and it is granted
-            if (authorisations.contains(ace.getAuthority()) && granters.contains(ace.getPermission()))
+            if (authorityMask.containsAny(bits.allowed))
             {
-                {
-                    return true;
-                }
+                return true;
             }
-
-            // Default deny
-            return false;
+            return authorityMask.containsAny(bits.allowedUnlessAllDenied) && !isCoveredByAll(context);
         }
 
         /**
-         * Is a permission granted
+         * Does <b>all permissions</b> include the required permission for the node
          * 
-         * @param ace AccessControlEntry
-         * @param authorisations -
-         *            the set of authorities
-         * @param allowed -
-         *            the set of denied permissions/authority pais
          * @param context PermissionContext
-         * @return true if granted
+         * @return true if allowing or denying all permissions also allows or denies the required permission
          */
-        private boolean isDenied(AccessControlEntry ace, Set<String> authorisations, Set<Pair<String, PermissionReference>> allowed, PermissionContext context)
+        private boolean isCoveredByAll(PermissionContext context)
         {
-            // If the permission entry denies then we just deny
-            if (ace.getAccessStatus() == AccessStatus.ALLOWED)
-            {
-                allowed.add(new Pair<String, PermissionReference>(ace.getAuthority(), ace.getPermission()));
-
-                Set<PermissionReference> granters = modelDAO.getGrantingPermissions(ace.getPermission());
-                for (PermissionReference granter : granters)
-                {
-                    allowed.add(new Pair<String, PermissionReference>(ace.getAuthority(), granter));
-                }
-
-                // All the things granted by this permission must be
-                // denied
-                Set<PermissionReference> grantees = modelDAO.getGranteePermissions(ace.getPermission());
-                for (PermissionReference grantee : grantees)
-                {
-                    allowed.add(new Pair<String, PermissionReference>(ace.getAuthority(), grantee));
-                }
-
-                // All permission excludes all permissions available for
-                // the node.
-                if (ace.getPermission().equals(getAllPermissionReference()) || ace.getPermission().equals(OLD_ALL_PERMISSIONS_REFERENCE))
-                {
-                    for (PermissionReference deny : modelDAO.getAllPermissions(context.getType(), context.getAspects()))
-                    {
-                        allowed.add(new Pair<String, PermissionReference>(ace.getAuthority(), deny));
-                    }
-                }
-
-                return false;
-            }
-
-            // The permission is denied but we allow it as it is in the allowed
-            // set
-
-            if (allowed != null)
-            {
-                Pair<String, PermissionReference> specific = new Pair<String, PermissionReference>(ace.getAuthority(), required);
-                if (allowed.contains(specific))
-                {
-                    return false;
-                }
-            }
-
-
-            // If the permission has a match in both the authorities and
-            // granters list it is allowed
-            // It applies to the current user and it is granted
-            if (authorisations.contains(ace.getAuthority()) && granters.contains(ace.getPermission()))
-            {
-                {
-                    return true;
-                }
-            }
-
-            // Default allow
-            return false;
+            return modelDAO.getAllPermissions(context.getType(), context.getAspects()).contains(required);
         }
 
         
-        private boolean isGranted(PermissionEntry pe, Set<String> authorisations)
+        private boolean isGranted(PermissionEntry pe, AuthorityMask authorityMask)
         {
             // If the permission entry denies then we just deny
             if (pe.isDenied())
@@ -2316,7 +2427,7 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
             // If the permission has a match in both the authorities and
             // granters list it is allowed
             // It applies to the current user and it is granted
-            if (granters.contains(pe.getPermissionReference()) && authorisations.contains(pe.getAuthority()))
+            if (granters.contains(pe.getPermissionReference()) && authorityMask.contains(pe.getAuthority()))
             {
                 {
                     return true;
@@ -2912,23 +3023,10 @@ public class PermissionServiceImpl extends AbstractLifecycleBean implements Perm
     @Extend(traitAPI = PermissionServiceTrait.class, extensionAPI = PermissionServiceExtension.class)
     public Set<String> getAuthorisations()
     {
-        // Use TX cache 
-        @SuppressWarnings("unchecked")
-        Set<String> auths = (Set<String>) AlfrescoTransactionSupport.getResource("MyAuthCache");
+        // Share the transaction's authority mask with hasPermission; the DB query engine's read checks
+        // (NodePermissionAssessor) resolve their authorities here rather than through hasPermission
         Authentication auth = AuthenticationUtil.getRunAsAuthentication();
-        if (auths != null)
-        {
-            if (auth == null || !auths.contains(((User)auth.getPrincipal()).getUsername()))
-            {
-                auths = null;
-            }
-        }
-        if (auths == null)
-        {
-            auths = getCoreAuthorisations(auth);
-            AlfrescoTransactionSupport.bindResource("MyAuthCache", auths);
-        }
-        return Collections.unmodifiableSet(auths);   
+        return Collections.unmodifiableSet(getAuthorityMask(auth, null).getAuthorities());
     }
 
     @Override
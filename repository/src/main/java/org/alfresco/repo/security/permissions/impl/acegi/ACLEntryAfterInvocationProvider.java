@@ -377,6 +377,71 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
         return returnedObject;
     }
 
+    /**
+     * Check the permissions on a batch of results, marking those that are denied.  The permission service is called
+     * once per definition so that results sharing an ACL are evaluated together.
+     *
+     * @param returnedObject the results
+     * @param from the first result to check
+     * @param to the result after the last one to check
+     * @param supportedDefinitions the permissions to check, or <tt>null</tt> to check read permission
+     * @param denied the set of denied results to add to
+     */
+    private void checkBatch(ResultSet returnedObject, int from, int to, List<ConfigAttributeDefintion> supportedDefinitions, BitSet denied)
+    {
+        if (supportedDefinitions == null)
+        {
+            List<NodeRef> nodeRefs = new ArrayList<NodeRef>(to - from);
+            for (int i = from; i < to; i++)
+            {
+                nodeRefs.add(returnedObject.getNodeRef(i));
+            }
+            Set<NodeRef> readable = new HashSet<NodeRef>(permissionService.filterReadable(nodeRefs));
+            for (int i = from; i < to; i++)
+            {
+                NodeRef nodeRef = nodeRefs.get(i - from);
+                if (nodeRef != null && !readable.contains(nodeRef))
+                {
+                    denied.set(i);
+                }
+            }
+            return;
+        }
+
+        for (ConfigAttributeDefintion cad : supportedDefinitions)
+        {
+            NodeRef[] testNodeRefs = new NodeRef[to - from];
+            List<NodeRef> toCheck = new ArrayList<NodeRef>(to - from);
+            for (int i = from; i < to; i++)
+            {
+                NodeRef testNodeRef = null;
+                if (cad.typeString.equals(AFTER_ACL_NODE))
+                {
+                    testNodeRef = returnedObject.getNodeRef(i);
+                }
+                else if (cad.typeString.equals(AFTER_ACL_PARENT))
+                {
+                    testNodeRef = returnedObject.getChildAssocRef(i).getParentRef();
+                }
+
+                if (!isUnfiltered(testNodeRef))
+                {
+                    testNodeRefs[i - from] = testNodeRef;
+                    toCheck.add(testNodeRef);
+                }
+            }
+            Set<NodeRef> allowed = new HashSet<NodeRef>(permissionService.filterByPermission(toCheck, cad.required.toString()));
+            for (int i = from; i < to; i++)
+            {
+                NodeRef testNodeRef = testNodeRefs[i - from];
+                if (testNodeRef != null && !allowed.contains(testNodeRef))
+                {
+                    denied.set(i);
+                }
+            }
+        }
+    }
+
     private boolean isUnfiltered(NodeRef returnedObject)
     {
         if (returnedObject == null || !nodeService.exists(returnedObject))
@@ -542,12 +607,12 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
         // If optimisePermissionCheck=True, in order to check permissions, supportDefinitons are not used.
         if (optimisePermissionsCheck)
         {
-            resultSet = decidePermissions(returnedObject, null);
+            resultSet = decidePermissions(returnedObject, null, maxSize);
         }
         else
         {
             List<ConfigAttributeDefintion> supportedDefinitions = extractSupportedDefinitions(config);
-            resultSet = supportedDefinitions.isEmpty()? returnedObject: decidePermissions(returnedObject, supportedDefinitions);
+            resultSet = supportedDefinitions.isEmpty()? returnedObject: decidePermissions(returnedObject, supportedDefinitions, maxSize);
         }
 
         // Apply max size filtering. A new results set is created with the first maxSize elements.
@@ -564,12 +629,14 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
      *
      * decidePermissions filters all the results that are not allowed to be returned because permission issues.
      * If supportedDefinitions is not null, they are used to determined the permissions. Otherwise, permissionsService is used.
+     * Once one more than maxSize results have passed, the rest are not checked as they would be cut off anyway.
      *
      * @param returnedObject
      * @param supportedDefinitions
+     * @param maxSize the number of results wanted, or <tt>null</tt> for all of them
      * @return
      */
-    private ResultSet decidePermissions(ResultSet returnedObject, List<ConfigAttributeDefintion> supportedDefinitions)
+    private ResultSet decidePermissions(ResultSet returnedObject, List<ConfigAttributeDefintion> supportedDefinitions, Integer maxSize)
     {
         if (returnedObject == null)
         {
@@ -610,12 +677,23 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
 
         try
         {
+            // Permissions are checked a batch at a time so that nodes sharing an ACL are evaluated together
+            int batchSize = Math.max(optimisePermissionsBulkFetchSize, 1);
+            int batchEnd = 0;
+            BitSet denied = new BitSet(returnedObject.length());
+            // One result more than the max size shows that the results were cut off
+            long targetResultCount = maxSize == null ? Long.MAX_VALUE : maxSize + 1L;
+            int includedCount = 0;
+
             // Iterate over all the elements.
             for (int i = 0; i < returnedObject.length(); i++)
             {
-                long currentTimeMillis = System.currentTimeMillis();
+                if (includedCount >= targetResultCount)
+                {
+                    break;
+                }
 
-                NodeRef nodeRef = returnedObject.getNodeRef(i);
+                long currentTimeMillis = System.currentTimeMillis();
 
                 // All permission checks must pass
                 filteringResultSet.setIncluded(i, true);
@@ -635,40 +713,22 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
                     break;
                 }
 
-                // if supportedDefinitions is different from null, it is used to define the permission filter in results set.
-                if (supportedDefinitions != null)
+                if (i >= batchEnd)
                 {
-                    for (ConfigAttributeDefintion cad : supportedDefinitions)
-                    {
-                        NodeRef testNodeRef = null;
-                        if (cad.typeString.equals(AFTER_ACL_NODE))
-                        {
-                            testNodeRef = returnedObject.getNodeRef(i);
-                        }
-                        else if (cad.typeString.equals(AFTER_ACL_PARENT))
-                        {
-                            testNodeRef = returnedObject.getChildAssocRef(i).getParentRef();
-                        }
-
-                        if(isUnfiltered(testNodeRef))
-                        {
-                            continue;
-                        }
-
-                        if (filteringResultSet.getIncluded(i) && (testNodeRef != null)
-                                && (permissionService.hasPermission(
-                                        testNodeRef, cad.required.toString()) == AccessStatus.DENIED))
-                        {
-                            filteringResultSet.setIncluded(i, false);
-                        }
-                    }
+                    // Only check as many as could still be kept
+                    long wanted = targetResultCount - includedCount;
+                    batchEnd = (int) Math.min(Math.min(returnedObject.length(), maxChecks), i + Math.min(batchSize, wanted));
+                    checkBatch(returnedObject, i, batchEnd, supportedDefinitions, denied);
                 }
-                else  if (permissionService.hasReadPermission(nodeRef) == AccessStatus.DENIED)
-                    // If supportedDefinitions is not passed as parameter, permissionService is used to check permission on results.
+
+                if (denied.get(i))
                 {
                     filteringResultSet.setIncluded(i, false);
                 }
-
+                else
+                {
+                    includedCount++;
+                }
             }
         }
         finally
@@ -806,8 +866,16 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
         // Keep values explicitly
         List<Object> keepValues = new ArrayList<Object>(returnedObject.size());
         
-        for (Object nextObject : returnedObject)
+        // Permissions are checked a batch at a time so that nodes sharing an ACL are evaluated together
+        List<Object> values = new ArrayList<Object>(returnedObject);
+        int batchSize = Math.max(optimisePermissionsBulkFetchSize, 1);
+        int batchEnd = 0;
+        BitSet denied = new BitSet(values.size());
+        
+        for (int i = 0; i < values.size(); i++)
         {
+            Object nextObject = values.get(i);
+            
             // if the maximum result size or time has been exceeded, then we have to remove only
             long currentTimeMillis = System.currentTimeMillis();
             
@@ -837,96 +905,18 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
                 break;
             }
             
-            boolean allowed = true;
-            for (ConfigAttributeDefintion cad : supportedDefinitions)
+            if (i >= batchEnd)
             {
-                NodeRef testNodeRef = null;
-                if (cad.typeString.equals(AFTER_ACL_NODE))
-                {
-                    if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = nodeService.getRootNode((StoreRef) nextObject);
-                    }
-                    else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = (NodeRef) nextObject;
-                    }
-                    else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((ChildAssociationRef) nextObject).getChildRef();
-                    }
-                    else if (Pair.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
-                    }
-                    else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
-                    }
-                    else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((AssociationRef) nextObject).getTargetRef();
-                    }
-                    else
-                    {
-                        throw new ACLEntryVoterException("The specified parameter is not recognized: " + nextObject.getClass());
-                    }
-                }
-                else if (cad.typeString.equals(AFTER_ACL_PARENT))
-                {
-                    if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        // Will be allowed
-                        testNodeRef = null;
-                    }
-                    else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = nodeService.getPrimaryParent((NodeRef) nextObject).getParentRef();
-                    }
-                    else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((ChildAssociationRef) nextObject).getParentRef();
-                    }
-                    else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = ((AssociationRef) nextObject).getSourceRef();
-                    }
-                    else if (Pair.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
-                    }
-                    else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
-                    {
-                        NodeRef nodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
-                        testNodeRef = nodeService.getPrimaryParent(nodeRef).getParentRef();
-                    }
-                    else
-                    {
-                        throw new ACLEntryVoterException("The specified parameter is recognized: " + nextObject.getClass());
-                    }
-                }
-                
-                if (log.isDebugEnabled())
-                {
-                    log.debug("\t" + cad.typeString + " test on " + testNodeRef + " from " + nextObject.getClass().getName());
-                }
-                
-                if (isUnfiltered(testNodeRef))      // Null allows
-                {
-                    continue;                       // Continue to next ConfigAttributeDefintion
-                }
-                
-                if (allowed && (testNodeRef != null) && (permissionService.hasPermission(testNodeRef, cad.required.toString()) == AccessStatus.DENIED))
-                {
-                    allowed = false;
-                    break;                          // No point evaluating more ConfigAttributeDefintions
-                }
+                // Only check as many as could still be kept
+                long wanted = Math.max(targetResultCount - keepValues.size(), 1);
+                batchEnd = (int) Math.min(Math.min(values.size(), maxPermissionChecks), i + Math.min(batchSize, wanted));
+                checkBatch(values, i, batchEnd, supportedDefinitions, denied);
             }
             
             // Failure or success, increase the count
             count++;
             
-            if (allowed)
+            if (!denied.get(i))
             {
                 keepValues.add(nextObject);
             }
@@ -954,6 +944,129 @@ public class ACLEntryAfterInvocationProvider implements AfterInvocationProvider,
         return PermissionCheckedCollectionMixin.create(returnedObject, cutoff, checksRemaining, sizeOriginal);
     }
 
+    /**
+     * Check the permissions on a batch of values, marking those that are denied.  The permission service is called
+     * once per definition so that values sharing an ACL are evaluated together.
+     *
+     * @param values the values
+     * @param from the first value to check
+     * @param to the value after the last one to check
+     * @param supportedDefinitions the permissions to check
+     * @param denied the set of denied values to add to
+     */
+    private void checkBatch(List<Object> values, int from, int to, List<ConfigAttributeDefintion> supportedDefinitions, BitSet denied)
+    {
+        for (ConfigAttributeDefintion cad : supportedDefinitions)
+        {
+            NodeRef[] testNodeRefs = new NodeRef[to - from];
+            List<NodeRef> toCheck = new ArrayList<NodeRef>(to - from);
+            for (int i = from; i < to; i++)
+            {
+                Object nextObject = values.get(i);
+                NodeRef testNodeRef = getTestNodeRef(cad, nextObject);
+                
+                if (log.isDebugEnabled())
+                {
+                    log.debug("\t" + cad.typeString + " test on " + testNodeRef + " from " + nextObject.getClass().getName());
+                }
+                
+                if (isUnfiltered(testNodeRef))      // Null allows
+                {
+                    continue;                       // Continue to next value
+                }
+                testNodeRefs[i - from] = testNodeRef;
+                toCheck.add(testNodeRef);
+            }
+            Set<NodeRef> allowed = new HashSet<NodeRef>(permissionService.filterByPermission(toCheck, cad.required.toString()));
+            for (int i = from; i < to; i++)
+            {
+                NodeRef testNodeRef = testNodeRefs[i - from];
+                if (testNodeRef != null && !allowed.contains(testNodeRef))
+                {
+                    denied.set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the node to check for a value returned in a collection
+     *
+     * @param cad the definition being checked
+     * @param nextObject the value
+     * @return the node to check, or <tt>null</tt> if the value is allowed
+     */
+    @SuppressWarnings("rawtypes")
+    private NodeRef getTestNodeRef(ConfigAttributeDefintion cad, Object nextObject)
+    {
+        NodeRef testNodeRef = null;
+        if (cad.typeString.equals(AFTER_ACL_NODE))
+        {
+            if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = nodeService.getRootNode((StoreRef) nextObject);
+            }
+            else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = (NodeRef) nextObject;
+            }
+            else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((ChildAssociationRef) nextObject).getChildRef();
+            }
+            else if (Pair.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
+            }
+            else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
+            }
+            else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((AssociationRef) nextObject).getTargetRef();
+            }
+            else
+            {
+                throw new ACLEntryVoterException("The specified parameter is not recognized: " + nextObject.getClass());
+            }
+        }
+        else if (cad.typeString.equals(AFTER_ACL_PARENT))
+        {
+            if (StoreRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                // Will be allowed
+                testNodeRef = null;
+            }
+            else if (NodeRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = nodeService.getPrimaryParent((NodeRef) nextObject).getParentRef();
+            }
+            else if (ChildAssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((ChildAssociationRef) nextObject).getParentRef();
+            }
+            else if (AssociationRef.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = ((AssociationRef) nextObject).getSourceRef();
+            }
+            else if (Pair.class.isAssignableFrom(nextObject.getClass()))
+            {
+                testNodeRef = (NodeRef) ((Pair)nextObject).getSecond();
+            }
+            else if (PermissionCheckValue.class.isAssignableFrom(nextObject.getClass()))
+            {
+                NodeRef nodeRef = ((PermissionCheckValue) nextObject).getNodeRef();
+                testNodeRef = nodeService.getPrimaryParent(nodeRef).getParentRef();
+            }
+            else
+            {
+                throw new ACLEntryVoterException("The specified parameter is recognized: " + nextObject.getClass());
+            }
+        }
+        return testNodeRef;
+    }
+
     @SuppressWarnings("rawtypes")
     private Object[] decide(Authentication authentication, Object object, ConfigAttributeDefinition config, Object[] returnedObject) throws AccessDeniedException
     {
@@ -44,6 +44,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.alfresco.repo.security.permissions.PermissionEntry;
 import org.alfresco.repo.security.permissions.PermissionReference;
+import org.alfresco.repo.security.permissions.impl.CompiledAclRegistry;
 import org.alfresco.repo.security.permissions.impl.ModelDAO;
 import org.alfresco.repo.security.permissions.impl.RequiredPermission;
 import org.alfresco.repo.security.permissions.impl.RequiredPermission.On;
@@ -60,6 +61,8 @@ import org.alfresco.service.namespace.DynamicNamespacePrefixResolver;
 import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.util.Pair;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.dom4j.Attribute;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
@@ -78,6 +81,8 @@ import org.dom4j.tree.DefaultDocumentType;
  */
 public class PermissionModel implements ModelDAO
 {
+    private static Log log = LogFactory.getLog(PermissionModel.class);
+
     // IOC
 
     private NodeService nodeService;
@@ -489,6 +494,35 @@ public class PermissionModel implements ModelDAO
             return pg;
         }
         
+        /**
+         * Compute the granting permissions as simple permission references. The caller must hold the write lock.
+         */
+        private Set<PermissionReference> computeGrantingPermissions(PermissionReference permissionReference)
+        {
+            Set<PermissionReference> internal = getGrantingPermissionsImpl(permissionReference);
+            Set<PermissionReference> granters = new HashSet<PermissionReference>();
+            for (PermissionReference grantee : internal)
+            {
+                granters.add(SimplePermissionReference.getPermissionReference(grantee.getQName(), grantee.getName()));
+            }
+            return Collections.unmodifiableSet(granters);
+        }
+
+        /**
+         * Drop everything derived from the permission sets so that it is recomputed against the current model. The
+         * caller must hold the write lock.
+         */
+        private void clearDerivedCaches()
+        {
+            grantingPermissions.clear();
+            granteePermissions.clear();
+            groupsToBaseGroup.clear();
+            requiredPermissionsCache.clear();
+            unconditionalRequiredPermissionsCache.clear();
+            cachedTypePermissionsExposed.clear();
+            cachedTypePermissionsUnexposed.clear();
+        }
+
         private Set<PermissionReference> getGrantingPermissionsImpl(PermissionReference permissionReference)
         {
             // Query the model
@@ -1144,6 +1178,17 @@ public class PermissionModel implements ModelDAO
 
     private MutableState mutableState;
 
+    /*
+     * Granting permissions for every permission in the model, compiled when a model is added. Read without locking;
+     * anything missing falls back to the lazily populated cache in the mutable state.
+     */
+    private volatile Map<PermissionReference, Set<PermissionReference>> compiledGrantingPermissions = Collections.emptyMap();
+
+    /*
+     * ACLs compiled against the model, dropped whenever the model changes.
+     */
+    private CompiledAclRegistry compiledAclRegistry;
+
     /**
      * Default constructor
      */
@@ -1204,6 +1249,16 @@ public class PermissionModel implements ModelDAO
         this.nodeService = nodeService;
     }
 
+    /**
+     * Set the registry of compiled ACLs to clear when the model changes
+     * 
+     * @param compiledAclRegistry CompiledAclRegistry
+     */
+    public void setCompiledAclRegistry(CompiledAclRegistry compiledAclRegistry)
+    {
+        this.compiledAclRegistry = compiledAclRegistry;
+    }
+
     /**
      * Adds the {@link #setModel(String) model}.
      */
@@ -1290,6 +1345,14 @@ public class PermissionModel implements ModelDAO
             // Cache all aspect list
     
             mutableState.allAspects = dictionaryService.getAllAspects();
+
+            // The model has changed, so recompute anything derived from it
+            mutableState.clearDerivedCaches();
+            compiledGrantingPermissions = compileGrantingPermissions();
+            if (compiledAclRegistry != null)
+            {
+                compiledAclRegistry.clear();
+            }
         }
         finally
         {        
@@ -1297,6 +1360,32 @@ public class PermissionModel implements ModelDAO
         }
     }
 
+    /*
+     * Compute the granting permissions for every permission in the model. Must be called with the write lock held.
+     */
+    private Map<PermissionReference, Set<PermissionReference>> compileGrantingPermissions()
+    {
+        Map<PermissionReference, Set<PermissionReference>> compiled = new HashMap<PermissionReference, Set<PermissionReference>>(256);
+        for (PermissionReference permissionReference : mutableState.getAllPermissions())
+        {
+            try
+            {
+                Set<PermissionReference> granters = mutableState.computeGrantingPermissions(permissionReference);
+                compiled.put(permissionReference, granters);
+                mutableState.grantingPermissions.put(permissionReference, granters);
+            }
+            catch (RuntimeException e)
+            {
+                // Not resolvable yet (e.g. depends on a type that is not in the dictionary) - leave it to be computed on demand
+                if (log.isDebugEnabled())
+                {
+                    log.debug("Granting permissions for " + permissionReference + " will be computed on demand", e);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(compiled);
+    }
+
     /*
      * Create the XML document from the file location
      */
@@ -1596,6 +1685,12 @@ public class PermissionModel implements ModelDAO
             return Collections.<PermissionReference>emptySet();
         }
         
+        Set<PermissionReference> compiled = compiledGrantingPermissions.get(permissionReference);
+        if (compiled != null)
+        {
+            return compiled;
+        }
+
         mutableState.lock.readLock().lock();
         // Cache the results
         Set<PermissionReference> granters = mutableState.grantingPermissions.get(permissionReference);
@@ -1609,13 +1704,7 @@ public class PermissionModel implements ModelDAO
                 granters = mutableState.grantingPermissions.get(permissionReference);
                 if (granters == null)
                 {            
-                    Set<PermissionReference> internal = mutableState.getGrantingPermissionsImpl(permissionReference);
-                    granters = new HashSet<PermissionReference>();
-                    for (PermissionReference grantee : internal)
-                    {
-                        granters.add(SimplePermissionReference.getPermissionReference(grantee.getQName(), grantee.getName()));
-                    }
-                    granters = Collections.unmodifiableSet(granters);
+                    granters = mutableState.computeGrantingPermissions(permissionReference);
                     mutableState.grantingPermissions.put(permissionReference, granters);
                 }
             }
@@ -37,6 +37,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -106,6 +107,13 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
     /** Enable progress estimation? When enabled, the user query has to be run twice in order to count entries. */
     private boolean enableProgressEstimation = true;
 
+    /**
+     * The maximum number of group member DNs whose directory lookup results are remembered while processing a group
+     * query. Zero or less disables the cache. This only saves directory round trips; it does not bound the group
+     * and association data that the synchronizer holds in memory.
+     */
+    private int memberLookupCacheSize = 10000;
+
     /** The group query. */
     private String groupQuery = "(objectclass=groupOfNames)";
 
@@ -229,6 +237,18 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
         this.enableProgressEstimation = enableProgressEstimation;
     }
 
+    /**
+     * Sets the maximum number of group member DNs whose directory lookup results are remembered while processing a
+     * group query. Members that belong to many groups are then only looked up once.
+     * 
+     * @param memberLookupCacheSize
+     *            the maximum number of remembered lookups, or zero to disable the cache
+     */
+    public void setMemberLookupCacheSize(int memberLookupCacheSize)
+    {
+        this.memberLookupCacheSize = memberLookupCacheSize;
+    }
+
     /**
      * Sets the group id attribute name.
      * 
@@ -716,8 +736,25 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
             // We get a whole new context to avoid interference with cookies from paged results
             private DirContext ctx = LDAPUserRegistry.this.ldapInitialContextFactory.getDefaultIntialDirContext();
 
+            // Bounded LRU of member DNs already resolved by directory lookup, keyed by lower case DN
+            private final Map<String, String> resolvedMembers = new LinkedHashMap<String, String>(16, 0.75f, true)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+                {
+                    return size() > LDAPUserRegistry.this.memberLookupCacheSize;
+                }
+            };
+
+            private int groupCount;
+            private int directoryLookupCount;
+            private int cachedLookupCount;
+
             protected void doProcess(SearchResult result) throws NamingException, ParseException
             {
+                this.groupCount++;
                 Attributes attributes = result.getAttributes();
                 Attribute gidAttribute = attributes.get(LDAPUserRegistry.this.groupIdAttributeName);
                 if (gidAttribute == null)
@@ -821,8 +858,17 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                                 if (distinguishedNameForComparison.startsWith(userDistinguishedNamePrefix)
                                         || distinguishedNameForComparison.startsWith(groupDistinguishedNamePrefix))
                                 {
+                                    String memberKey = distinguishedNameForComparison.toString();
+                                    String resolvedMember = this.resolvedMembers.get(memberKey);
+                                    if (resolvedMember != null)
+                                    {
+                                        this.cachedLookupCount++;
+                                        childAssocs.add(resolvedMember);
+                                        continue;
+                                    }
                                     try
                                     {
+                                        this.directoryLookupCount++;
                                         Attributes childAttributes = this.ctx.getAttributes(jndiName(attribute),
                                                 new String[]
                                                 {
@@ -855,6 +901,7 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                                             {
                                                 LDAPUserRegistry.logger.debug("User DN recognized by directory lookup: " + nameAttribute.get());
                                             }
+                                            rememberMember(memberKey, (String) nameAttribute.get());
                                             childAssocs.add((String) nameAttribute.get());
                                             continue;
                                         }
@@ -879,6 +926,7 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                                             {
                                                 LDAPUserRegistry.logger.debug("Group DN recognized by directory lookup: " + "GROUP_" + nameAttribute.get());
                                             }
+                                            rememberMember(memberKey, "GROUP_" + nameAttribute.get());
                                             childAssocs.add("GROUP_" + nameAttribute.get());
                                             continue;
                                         }
@@ -956,9 +1004,23 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                 }
             }
 
+            private void rememberMember(String memberKey, String memberName)
+            {
+                if (LDAPUserRegistry.this.memberLookupCacheSize > 0)
+                {
+                    this.resolvedMembers.put(memberKey, memberName);
+                }
+            }
+
             public void close() throws NamingException
             {
                 this.ctx.close();
+                if (LDAPUserRegistry.logger.isInfoEnabled() && this.directoryLookupCount > 0)
+                {
+                    LDAPUserRegistry.logger.info("Resolved group members of " + this.groupCount + " groups with "
+                            + this.directoryLookupCount + " directory lookups and " + this.cachedLookupCount
+                            + " cached lookups");
+                }
             }
         }, this.groupSearchBase, query, this.groupKeys.getFirst());
 
@@ -44,6 +44,7 @@ public class TenantRoutingFileContentStore extends AbstractTenantRoutingContentS
 {
     private ContentLimitProvider contentLimitProvider = new NoLimitProvider();
     private FileContentUrlProvider fileContentUrlProvider;
+    private boolean deduplicate;
     
     /**
      * Sets a new {@link ContentLimitProvider} which will provide a maximum filesize for content.
@@ -59,6 +60,14 @@ public class TenantRoutingFileContentStore extends AbstractTenantRoutingContentS
     public void setFileContentUrlProvider(FileContentUrlProvider fileContentUrlProvider)
     {
         this.fileContentUrlProvider = fileContentUrlProvider;
+    }
+
+    /**
+     * Store identical binaries only once, see {@link FileContentStore#setDeduplicate(boolean)}.
+     */
+    public void setDeduplicate(boolean deduplicate)
+    {
+        this.deduplicate = deduplicate;
     }
     
     protected ContentStore initContentStore(ApplicationContext ctx, String contentRoot)
@@ -80,7 +89,8 @@ public class TenantRoutingFileContentStore extends AbstractTenantRoutingContentS
         if(fileContentUrlProvider != null)
         {
             fileContentStore.setFileContentUrlProvider(fileContentUrlProvider);
-        }
+        }
+        fileContentStore.setDeduplicate(deduplicate);
         return fileContentStore;
     }
 }
@@ -67,6 +67,9 @@ public abstract class AlfrescoTransactionSupport extends TransactionSupportUtil
      */
     public static final int SESSION_SYNCHRONIZATION_ORDER = 800;
 
+    /** Resource key marking the current transaction as a read-only snapshot */
+    private static final String RESOURCE_KEY_SNAPSHOT = "AlfrescoTransactionSupport.snapshot";
+
     private static Log logger = LogFactory.getLog(AlfrescoTransactionSupport.class);
     
     /**
@@ -135,6 +138,36 @@ public abstract class AlfrescoTransactionSupport extends TransactionSupportUtil
         }
     }
     
+    /**
+     * Mark the current read-only transaction as a <b>snapshot</b>.  For the rest of the transaction,
+     * {@link TransactionalCache transactional caches} read and populate their shared caches directly
+     * and no behaviours are invoked.  This suits long-running reporting work where no writes are made
+     * and per-transaction isolation of cached values is not required.
+     * 
+     * @throws IllegalStateException    if there is no transaction or it is not read-only
+     * 
+     * @since 23.1
+     */
+    public static void bindSnapshot()
+    {
+        if (getTransactionReadState() != TxnReadState.TXN_READ_ONLY)
+        {
+            throw new IllegalStateException("Only read-only transactions can be used as snapshots.");
+        }
+        bindResource(RESOURCE_KEY_SNAPSHOT, Boolean.TRUE);
+    }
+    
+    /**
+     * @return      Returns <tt>true</tt> if the current transaction is a read-only snapshot
+     * 
+     * @see #bindSnapshot()
+     * @since 23.1
+     */
+    public static boolean isSnapshot()
+    {
+        return getResource(RESOURCE_KEY_SNAPSHOT) != null;
+    }
+    
     /**
      * Are there any pending changes which must be synchronized with the store?
      * 
@@ -105,4 +105,13 @@ public class DummyTransactionService implements TransactionService
         helper.setReadOnly(false);
         return helper;
     }
+
+    @Override
+    public RetryingTransactionHelper getSnapshotTransactionHelper()
+    {
+        RetryingTransactionHelper helper = getRetryingTransactionHelper();
+        helper.setReadOnly(true);
+        helper.setSnapshot(true);
+        return helper;
+    }
 }
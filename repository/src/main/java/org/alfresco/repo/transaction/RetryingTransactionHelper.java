@@ -193,6 +193,11 @@ public class RetryingTransactionHelper
      */
     private boolean forceWritable;
     
+    /**
+     * Whether new transactions are read-only snapshots
+     */
+    private boolean snapshot;
+    
     /**
      * Random number generator for retry delays.
      */
@@ -292,6 +297,30 @@ public class RetryingTransactionHelper
     {
         this.forceWritable = forceWritable;
         this.readOnly = false;
+        this.snapshot = false;
+    }
+
+    /**
+     * Set whether the transactions started by this helper are read-only snapshots.
+     * Snapshots bypass the per-transaction cache layers and invoke no behaviours; they are
+     * intended for reporting work that reads large numbers of nodes.  Setting this makes the
+     * helper {@link #setReadOnly(boolean) read-only}.
+     * <p/>
+     * Callbacks that join an existing transaction run in that transaction's mode.
+     * 
+     * @param snapshot              <tt>true</tt> to start snapshot transactions
+     * 
+     * @see AlfrescoTransactionSupport#bindSnapshot()
+     * @since 23.1
+     */
+    public void setSnapshot(boolean snapshot)
+    {
+        this.snapshot = snapshot;
+        if (snapshot)
+        {
+            this.readOnly = true;
+            this.forceWritable = false;
+        }
     }
 
     /**
@@ -447,6 +476,10 @@ public class RetryingTransactionHelper
                         // Store the UserTransaction for static retrieval.  There is no need to unbind it
                         // because the transaction management will do that for us.
                         AlfrescoTransactionSupport.bindResource(KEY_ACTIVE_TRANSACTION, wrappedTxn);
+                        if (snapshot)
+                        {
+                            AlfrescoTransactionSupport.bindSnapshot();
+                        }
                     }
                     // Do the work.
                     R result = cb.execute();
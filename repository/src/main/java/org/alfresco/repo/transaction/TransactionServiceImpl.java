@@ -332,4 +332,21 @@ public class TransactionServiceImpl implements TransactionService
         }
         return helper;
     }
+
+    /**
+     * Creates a new helper that runs read-only <b>snapshot</b> transactions.  These read straight from
+     * the shared caches and the database, without per-transaction cache layers, transaction listeners
+     * or behaviours, which makes them suitable for reporting jobs that scan large numbers of nodes.
+     * Callbacks must be executed as read-only; any attempt to start a read-write transaction is denied.
+     * 
+     * @see RetryingTransactionHelper#setSnapshot(boolean)
+     * @since 23.1
+     */
+    @Override
+    public RetryingTransactionHelper getSnapshotTransactionHelper()
+    {
+        RetryingTransactionHelper helper = getRetryingTransactionHelper();
+        helper.setSnapshot(true);
+        return helper;
+    }
 }
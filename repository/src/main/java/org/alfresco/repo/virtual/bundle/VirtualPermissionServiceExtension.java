@@ -26,6 +26,7 @@
 
 package org.alfresco.repo.virtual.bundle;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -422,6 +423,28 @@ public class VirtualPermissionServiceExtension extends
         return getTrait().hasReadPermission(nodeRef);
     }
 
+    @Override
+    public List<NodeRef> filterReadable(Collection<NodeRef> nodeRefs)
+    {
+        return getTrait().filterReadable(nodeRefs);
+    }
+
+    @Override
+    public List<NodeRef> filterByPermission(Collection<NodeRef> nodeRefs, String permission)
+    {
+        for (NodeRef nodeRef : nodeRefs)
+        {
+            if (nodeRef != null && Reference.fromNodeRef(nodeRef) != null)
+            {
+                // Virtual nodes are checked one by one
+                return PermissionServiceExtension.super.filterByPermission(nodeRefs,
+                                                                           permission);
+            }
+        }
+        return getTrait().filterByPermission(nodeRefs,
+                                             permission);
+    }
+
     @Override
     public Set<String> getReaders(Long aclId)
     {
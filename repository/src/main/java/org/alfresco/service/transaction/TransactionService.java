@@ -144,4 +144,16 @@ public interface TransactionService
      */
     @NotAuditable
     RetryingTransactionHelper getRetryingTransactionHelper();
+
+    /**
+     * Get a helper object that runs read-only <b>snapshot</b> transactions, reading straight from the
+     * shared caches without per-transaction cache layers, transaction listeners or behaviours.
+     *
+     * @return
+     *      Returns a helper object that executes read-only units of work as snapshot transactions.
+     *
+     * @since 23.1
+     */
+    @NotAuditable
+    RetryingTransactionHelper getSnapshotTransactionHelper();
 }
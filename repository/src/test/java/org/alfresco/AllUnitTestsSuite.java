@@ -50,9 +50,12 @@ import org.junit.runners.Suite;
     org.alfresco.repo.admin.Log4JHierarchyInitTest.class,
     org.alfresco.repo.attributes.PropTablesCleanupJobTest.class,
     org.alfresco.repo.cache.AbstractCacheFactoryTest.class,
+    org.alfresco.repo.cache.AbstractCacheWarmupLoaderTest.class,
     org.alfresco.repo.cache.DefaultCacheFactoryTest.class,
     org.alfresco.repo.cache.DefaultSimpleCacheTest.class,
     org.alfresco.repo.cache.InMemoryCacheStatisticsTest.class,
+    org.alfresco.repo.cache.OffHeapSimpleCacheTest.class,
+    org.alfresco.repo.cache.TinyLfuSimpleCacheTest.class,
     org.alfresco.repo.cache.TransactionStatsTest.class,
     org.alfresco.repo.cache.lookup.EntityLookupCacheTest.class,
     org.alfresco.repo.calendar.CalendarHelpersTest.class,
@@ -144,6 +147,7 @@ import org.junit.runners.Suite;
     SpringBasedIdentityServiceFacadeUnitTest.class,
     org.alfresco.repo.security.authentication.CompositePasswordEncoderTest.class,
     org.alfresco.repo.security.authentication.PasswordHashingTest.class,
+    org.alfresco.repo.security.authentication.RepositoryAuthenticationProviderTest.class,
     org.alfresco.repo.security.authority.script.ScriptAuthorityService_RegExTest.class,
     org.alfresco.repo.security.permissions.PermissionCheckCollectionTest.class,
     org.alfresco.repo.security.sync.LDAPUserRegistryTest.class,
@@ -206,6 +210,8 @@ import org.junit.runners.Suite;
     org.alfresco.repo.content.caching.quota.UnlimitedQuotaStrategyTest.class,
     org.alfresco.repo.content.caching.CachingContentStoreTest.class,
     org.alfresco.repo.content.caching.ContentCacheImplTest.class,
+    org.alfresco.repo.domain.node.NodeCacheBinaryCodecTest.class,
+    org.alfresco.repo.domain.node.CompactPropertyMapTest.class,
     org.alfresco.repo.domain.permissions.FixedAclUpdaterUnitTest.class,
     org.alfresco.repo.domain.propval.PropertyTypeConverterTest.class,
     org.alfresco.repo.domain.schema.script.ScriptBundleExecutorImplTest.class,
@@ -218,6 +224,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.security.authentication.AlfrescoSSLSocketFactoryTest.class,
     org.alfresco.repo.security.authentication.AuthorizationTest.class,
     org.alfresco.repo.security.permissions.PermissionCheckedCollectionTest.class,
+    org.alfresco.repo.security.permissions.impl.CompiledAclTest.class,
     org.alfresco.repo.security.permissions.impl.acegi.FilteringResultSetTest.class,
     org.alfresco.repo.security.permissions.impl.acegi.ACLEntryVoterUtilsTest.class,
     org.alfresco.repo.security.authentication.ChainingAuthenticationServiceTest.class,
@@ -245,6 +252,7 @@ import org.junit.runners.Suite;
     org.alfresco.util.resource.HierarchicalResourceLoaderTest.class,
     org.alfresco.repo.events.ClientUtilTest.class,
     org.alfresco.repo.rendition2.RenditionService2Test.class,
+    org.alfresco.repo.rendition2.LocalTransformClientTest.class,
     org.alfresco.repo.rendition2.TransformationOptionsConverterTest.class,
 
     org.alfresco.repo.event2.RepoEvent2UnitSuite.class,
@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import org.alfresco.repo.cache.lookup.CacheRegionKey;
+import org.alfresco.repo.cache.lookup.CacheRegionValueKey;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AbstractCacheWarmupLoader}.
+ * 
+ * @since 23.1
+ */
+public class AbstractCacheWarmupLoaderTest
+{
+    @Test
+    public void hottestEntityKeysOfRegion()
+    {
+        TinyLfuSimpleCache<Serializable, Object> cache = new TinyLfuSimpleCache<Serializable, Object>(20, getClass().getName());
+        // Access frequencies are only tracked once the cache is half full
+        for (long i = 0; i < 10; i++)
+        {
+            cache.put(new CacheRegionKey("C", i), "C" + i);
+        }
+        cache.put(new CacheRegionKey("A", 1L), "A1");
+        cache.put(new CacheRegionKey("A", 2L), "A2");
+        cache.put(new CacheRegionKey("B", 3L), "B3");
+        cache.put(new CacheRegionValueKey("A", "A1"), 1L);
+        cache.put(new TransactionalCache.CacheRegionKey("tenant", new CacheRegionKey("A", 4L)), "A4");
+        for (int i = 0; i < 10; i++)
+        {
+            cache.get(new CacheRegionKey("A", 2L));
+        }
+
+        List<Serializable> keys = AbstractCacheWarmupLoader.getHottestEntityKeys(cache, "A", 10);
+        assertEquals(Arrays.asList(2L, 1L), keys);
+
+        keys = AbstractCacheWarmupLoader.getHottestEntityKeys(cache, "A", 1);
+        assertEquals(Arrays.asList(2L), keys);
+    }
+
+    @Test
+    public void entityKeysOfCacheWithoutFrequencies()
+    {
+        DefaultSimpleCache<Serializable, Object> cache = new DefaultSimpleCache<Serializable, Object>(100, getClass().getName());
+        cache.put(new CacheRegionKey("A", 1L), "A1");
+        cache.put(new CacheRegionKey("B", 3L), "B3");
+
+        List<Serializable> keys = AbstractCacheWarmupLoader.getHottestEntityKeys(cache, "A", 10);
+        assertEquals(Arrays.asList(1L), keys);
+    }
+}
@@ -35,6 +35,7 @@ import junit.framework.TestCase;
 
 import org.alfresco.repo.cache.TransactionStats.OpType;
 import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
+import org.alfresco.repo.security.permissions.AccessDeniedException;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
@@ -501,6 +502,130 @@ public class CacheTest extends TestCase
                 "   transaction: " + (end-start)/((long)count) + " ns\\count"); 
     }
     
+    /**
+     * Time read-mostly and write-heavy transactions, including the commit that replays
+     * the transaction's changes into the shared cache.
+     */
+    public void testTransactionMixPerformance() throws Exception
+    {
+        final int keyCount = 1000;
+        for (int i = 0; i < keyCount; i++)
+        {
+            transactionalCache.put(Integer.toString(i), Integer.valueOf(i));
+        }
+        TransactionService transactionService = serviceRegistry.getTransactionService();
+        int txnCount = 2000;
+        for (int writePercent : new int[] {5, 80})
+        {
+            long start = System.nanoTime();
+            for (int i = 0; i < txnCount; i++)
+            {
+                UserTransaction txn = transactionService.getUserTransaction();
+                txn.begin();
+                for (int j = 0; j < 50; j++)
+                {
+                    String key = Integer.toString((i * 50 + j) % keyCount);
+                    if (j * 2 < writePercent)
+                    {
+                        transactionalCache.put(key, Integer.valueOf(i));
+                    }
+                    else
+                    {
+                        transactionalCache.get(key);
+                    }
+                }
+                txn.commit();
+            }
+            long end = System.nanoTime();
+
+            // report
+            System.out.println(
+                    "Cache transaction mix performance test: \n" +
+                    "   writes:      " + writePercent + "%\n" +
+                    "   count:       " + txnCount + "\n" +
+                    "   transaction: " + (end-start)/((long)txnCount) + " ns\\count");
+        }
+    }
+    
+    /**
+     * Snapshot transactions work directly against the shared cache and are read-only.
+     */
+    public void testSnapshotTransaction() throws Throwable
+    {
+        TransactionService transactionService = serviceRegistry.getTransactionService();
+        RetryingTransactionHelper txnHelper = transactionService.getSnapshotTransactionHelper();
+        TransactionalCache.putSharedCacheValue(backingCache, "A", "AAA", null);
+        txnHelper.doInTransaction(() -> {
+            assertTrue(AlfrescoTransactionSupport.isSnapshot());
+            assertEquals("AAA", transactionalCache.get("A"));
+            // New values are shared immediately but existing values are not replaced
+            transactionalCache.put("B", "BBB");
+            assertEquals("BBB", TransactionalCache.getSharedCacheValue(backingCache, "B", null));
+            transactionalCache.put("A", "aaa");
+            assertEquals("AAA", transactionalCache.get("A"));
+            // Removals go straight to the shared cache
+            transactionalCache.remove("B");
+            assertNull(backingCache.get("B"));
+            // The cache does not take part in the transaction
+            assertFalse(AlfrescoTransactionSupport.getListeners().contains(transactionalCache));
+            return null;
+        }, true);
+        // Writes are not allowed
+        try
+        {
+            txnHelper.doInTransaction(() -> null, false);
+            fail("Snapshot transactions must be read-only");
+        }
+        catch (AccessDeniedException e)
+        {
+            // Expected
+        }
+        // Normal transactions are unaffected
+        transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+            assertFalse(AlfrescoTransactionSupport.isSnapshot());
+            return null;
+        }, true);
+    }
+    
+    /**
+     * Time reads in normal read-only transactions against the same reads in snapshot transactions.
+     */
+    public void testSnapshotReadPerformance() throws Exception
+    {
+        final int keyCount = 1000;
+        for (int i = 0; i < keyCount; i++)
+        {
+            transactionalCache.put(Integer.toString(i), Integer.valueOf(i));
+        }
+        TransactionService transactionService = serviceRegistry.getTransactionService();
+        RetryingTransactionCallback<Void> readCallback = () -> {
+            for (int i = 0; i < keyCount; i++)
+            {
+                transactionalCache.get(Integer.toString(i));
+            }
+            return null;
+        };
+        int txnCount = 500;
+        for (boolean snapshot : new boolean[] {false, true})
+        {
+            RetryingTransactionHelper txnHelper = snapshot ?
+                    transactionService.getSnapshotTransactionHelper() : transactionService.getRetryingTransactionHelper();
+            long start = System.nanoTime();
+            for (int i = 0; i < txnCount; i++)
+            {
+                txnHelper.doInTransaction(readCallback, true);
+            }
+            long end = System.nanoTime();
+
+            // report
+            System.out.println(
+                    "Cache read-only transaction performance test: \n" +
+                    "   snapshot:    " + snapshot + "\n" +
+                    "   count:       " + txnCount + "\n" +
+                    "   transaction: " + (end-start)/((long)txnCount) + " ns\\count");
+        }
+    }
+    
     /**
      * @see #testPerformance()
      */
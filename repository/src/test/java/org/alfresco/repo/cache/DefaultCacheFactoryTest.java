@@ -26,6 +26,7 @@
 package org.alfresco.repo.cache;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
 
 import java.util.Properties;
 
@@ -62,6 +63,13 @@ public class DefaultCacheFactoryTest
         properties.setProperty("cache.withMaxIdle.maxItems", "0");
         properties.setProperty("cache.withMaxIdle.eviction-policy", "NONE");
         properties.setProperty("cache.withMaxIdle.maxIdleSeconds", "7");
+        // cache.tinyLfu
+        properties.setProperty("cache.tinyLfu.maxItems", "5");
+        properties.setProperty("cache.tinyLfu.eviction-policy", "LRU");
+        properties.setProperty("cache.tinyLfu.implementation", "tinylfu");
+        properties.setProperty("cache.tinyLfu.statsEnabled", "true");
+        // cache.unknownImpl
+        properties.setProperty("cache.unknownImpl.implementation", "unknown");
         
         cacheFactory.setProperties(properties);
     }
@@ -100,4 +108,22 @@ public class DefaultCacheFactoryTest
         assertEquals(0, cache.getTTLSecs());        
         assertEquals(7, cache.getMaxIdleSecs());        
     }
+    
+    @Test
+    public void canCreateTinyLfuCache()
+    {
+        CacheStatistics cacheStatistics = mock(CacheStatistics.class);
+        cacheFactory.setCacheStatistics(cacheStatistics);
+        TinyLfuSimpleCache<String, String> tinyLfuCache = (TinyLfuSimpleCache<String, String>) cacheFactory.createCache("cache.tinyLfu");
+        assertEquals("cache.tinyLfu", tinyLfuCache.getCacheName());
+        assertEquals(5, tinyLfuCache.getMaxItems());
+        assertTrue(tinyLfuCache.isUseMaxItems());
+        assertTrue(tinyLfuCache.isStatsEnabled());
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void cannotCreateUnknownImplementation()
+    {
+        cacheFactory.createCache("cache.unknownImpl");
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link OffHeapSimpleCache} and {@link TieredSimpleCache} classes.
+ * 
+ * @since 23.1
+ */
+public class OffHeapSimpleCacheTest extends SimpleCacheTestBase<OffHeapSimpleCache<Integer, String>>
+{
+    @Override
+    protected OffHeapSimpleCache<Integer, String> createCache()
+    {
+        return new OffHeapSimpleCache<Integer, String>(64 * 1024, new SerializingBinaryCodec<String>(), getClass().getName());
+    }
+    
+    @Test
+    public void valuesAreCopies()
+    {
+        cache.put(1, "one");
+        String first = cache.get(1);
+        String second = cache.get(1);
+        assertEquals("one", first);
+        assertEquals(first, second);
+        assertNotSame("Each get must decode a new value", first, second);
+    }
+    
+    @Test
+    public void replacedValues()
+    {
+        cache.put(1, "one");
+        cache.put(1, "uno");
+        assertEquals("uno", cache.get(1));
+        assertEquals(1, cache.getKeys().size());
+    }
+    
+    @Test
+    public void oldestSegmentIsEvicted()
+    {
+        // Two segments of 1K each
+        cache = new OffHeapSimpleCache<Integer, String>(2048, 1024, new SerializingBinaryCodec<String>(), getClass().getName());
+        for (int i = 0; i < 200; i++)
+        {
+            cache.put(i, "value-" + i);
+        }
+        // The first values have been evicted
+        assertFalse(cache.contains(0));
+        assertNull(cache.get(0));
+        // The last values are still present
+        assertTrue(cache.contains(199));
+        assertEquals("value-199", cache.get(199));
+        // Evicted keys are not reported
+        for (Integer key : cache.getKeys())
+        {
+            assertEquals("value-" + key, cache.get(key));
+        }
+    }
+    
+    @Test
+    public void valuesLargerThanSegmentAreNotCached()
+    {
+        cache = new OffHeapSimpleCache<Integer, String>(2048, 1024, new SerializingBinaryCodec<String>(), getClass().getName());
+        cache.put(1, "small");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+        {
+            sb.append('x');
+        }
+        cache.put(1, sb.toString());
+        assertFalse("Old value must not be left behind", cache.contains(1));
+    }
+    
+    @Test
+    public void rewrittenAndRemovedKeysAcrossSegments()
+    {
+        // Two segments of 1K each
+        cache = new OffHeapSimpleCache<Integer, String>(2048, 1024, new SerializingBinaryCodec<String>(), getClass().getName());
+        for (int i = 0; i < 500; i++)
+        {
+            // Key 0 is rewritten into every segment, key 1 is removed as soon as it is written
+            cache.put(0, "value-" + i);
+            cache.put(1, "value-" + i);
+            cache.remove(1);
+            cache.put(i + 2, "value-" + i);
+            assertEquals("value-" + i, cache.get(0));
+            assertFalse(cache.contains(1));
+        }
+        assertTrue(cache.getKeys().contains(0));
+        assertFalse(cache.getKeys().contains(1));
+    }
+    
+    @Test
+    public void tieredCachePromotesFromSecondLevel()
+    {
+        DefaultSimpleCache<Integer, String> firstLevel = new DefaultSimpleCache<Integer, String>(2, "firstLevel");
+        TieredSimpleCache<Integer, String> tieredCache = new TieredSimpleCache<Integer, String>(firstLevel, cache, "tiered");
+        for (int i = 0; i < 10; i++)
+        {
+            tieredCache.put(i, Integer.toString(i));
+        }
+        assertFalse(firstLevel.contains(0));
+        assertEquals(10, tieredCache.getKeys().size());
+        // Served by the second level and promoted
+        assertEquals("0", tieredCache.get(0));
+        assertTrue(firstLevel.contains(0));
+        // Null values are held at both levels
+        tieredCache.put(20, null);
+        assertTrue(tieredCache.contains(20));
+        assertNull(tieredCache.get(20));
+        
+        tieredCache.remove(0);
+        assertFalse(tieredCache.contains(0));
+        assertFalse(cache.contains(0));
+        tieredCache.clear();
+        assertEquals(0, tieredCache.getKeys().size());
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void tieredCacheDoesNotPromoteOverConcurrentWrite()
+    {
+        DefaultSimpleCache<Integer, String> firstLevel = new DefaultSimpleCache<Integer, String>(10, "firstLevel");
+        SimpleCache<Integer, String> secondLevel = mock(SimpleCache.class);
+        TieredSimpleCache<Integer, String> tieredCache = new TieredSimpleCache<Integer, String>(firstLevel, secondLevel, "tiered");
+        // Another thread replaces the value while the stale one is being read from the second level
+        doAnswer(invocation -> {
+            tieredCache.put(1, "new");
+            return "old";
+        }).when(secondLevel).get(any());
+        
+        assertEquals("old", tieredCache.get(1));
+        assertNotEquals("A stale value must not be promoted", "old", firstLevel.get(1));
+    }
+}
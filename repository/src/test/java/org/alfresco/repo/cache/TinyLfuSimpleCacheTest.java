@@ -0,0 +1,246 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.alfresco.repo.cache.TransactionStats.OpType;
+import org.alfresco.util.testing.category.PerformanceTests;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Tests for the {@link TinyLfuSimpleCache} class.
+ * 
+ * @since 23.1
+ */
+public class TinyLfuSimpleCacheTest extends SimpleCacheTestBase<TinyLfuSimpleCache<Integer, String>>
+{
+    @Override
+    protected TinyLfuSimpleCache<Integer, String> createCache()
+    {
+        return new TinyLfuSimpleCache<Integer, String>(100, true, 0, 0, getClass().getName(), null);
+    }
+    
+    @Test
+    public void defaultMaxItems()
+    {
+        cache = new TinyLfuSimpleCache<Integer, String>(0, true, 0, 0, getClass().getName(), null);
+        assertEquals(Integer.MAX_VALUE, cache.getMaxItems());
+        assertTrue(cache.isUseMaxItems());
+        assertFalse(cache.isStatsEnabled());
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void noNegativeMaxItems()
+    {
+        cache = new TinyLfuSimpleCache<Integer, String>(-1, true, 0, 0, getClass().getName(), null);
+    }
+    
+    @Test
+    public void putAndCheckUpdate()
+    {
+        assertFalse(cache.contains(101));
+        assertEquals(false, cache.putAndCheckUpdate(101, "101"));
+        assertEquals(true, cache.putAndCheckUpdate(101, "99101"));
+        assertEquals("99101", cache.get(101));
+        // Repeat the put, this should not be an update
+        assertEquals(false, cache.putAndCheckUpdate(101, "99101"));
+        // Back to null is an update
+        assertEquals(true, cache.putAndCheckUpdate(101, null));
+        assertEquals(false, cache.putAndCheckUpdate(101, null));
+    }
+    
+    @Test
+    public void boundedSizeCache()
+    {
+        cache = new TinyLfuSimpleCache<Integer, String>(10, getClass().getName());
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put(i, Integer.toString(i));
+        }
+        // Eviction is done by the calling threads, so the cache is immediately back to size
+        assertTrue("Cache should respect its size limit", cache.getKeys().size() <= 10);
+    }
+    
+    @Test
+    public void frequentlyUsedItemsSurviveScan()
+    {
+        cache = new TinyLfuSimpleCache<Integer, String>(100, getClass().getName());
+        // Build up some frequently used items
+        for (int round = 0; round < 20; round++)
+        {
+            for (int i = 0; i < 50; i++)
+            {
+                if (cache.get(i) == null)
+                {
+                    cache.put(i, Integer.toString(i));
+                }
+            }
+        }
+        // Scan through a large number of items that are only used once
+        for (int i = 1000; i < 11000; i++)
+        {
+            cache.put(i, Integer.toString(i));
+        }
+        int hits = 0;
+        for (int i = 0; i < 50; i++)
+        {
+            if (cache.contains(i))
+            {
+                hits++;
+            }
+        }
+        assertTrue("Most of the frequently used items should have survived the scan, but only found " + hits, hits >= 25);
+    }
+    
+    @Test
+    public void hottestKeys()
+    {
+        cache = new TinyLfuSimpleCache<Integer, String>(100, getClass().getName());
+        for (int i = 0; i < 80; i++)
+        {
+            cache.put(i, Integer.toString(i));
+        }
+        // Make a few entries much more popular than the rest
+        for (int round = 0; round < 20; round++)
+        {
+            for (int i = 10; i < 15; i++)
+            {
+                cache.get(i);
+            }
+        }
+        Collection<Integer> hottest = cache.getHottestKeys(5);
+        assertEquals(5, hottest.size());
+        assertTrue("Expected the popular keys but got " + hottest, hottest.containsAll(Arrays.asList(10, 11, 12, 13, 14)));
+    }
+    
+    @Test
+    public void statisticsAreRecorded()
+    {
+        InMemoryCacheStatistics cacheStats = new InMemoryCacheStatistics();
+        cacheStats.setApplicationContext(Mockito.mock(ApplicationContext.class));
+        cache = new TinyLfuSimpleCache<Integer, String>(2, true, 0, 0, "statsCache", cacheStats);
+        assertTrue(cache.isStatsEnabled());
+        
+        cache.put(1, "1");
+        cache.get(1);
+        cache.get(4);
+        cache.remove(1);
+        cache.clear();
+        // Go over the size limit
+        cache.put(1, "1");
+        cache.put(2, "2");
+        cache.put(3, "3");
+        
+        assertEquals(4, cacheStats.count("statsCache", OpType.PUT));
+        assertEquals(1, cacheStats.count("statsCache", OpType.GET_HIT));
+        assertEquals(1, cacheStats.count("statsCache", OpType.GET_MISS));
+        assertEquals(1, cacheStats.count("statsCache", OpType.REMOVE));
+        assertEquals(1, cacheStats.count("statsCache", OpType.CLEAR));
+        assertTrue("Expected an eviction", cacheStats.count("statsCache", OpType.EVICT) >= 1);
+    }
+    
+    @Test
+    public void statisticsFromOtherThreadsAreNotLost() throws InterruptedException
+    {
+        InMemoryCacheStatistics cacheStats = new InMemoryCacheStatistics();
+        cacheStats.setApplicationContext(Mockito.mock(ApplicationContext.class));
+        cache = new TinyLfuSimpleCache<Integer, String>(10, true, 0, 0, "threadStatsCache", cacheStats);
+        
+        Thread thread = new Thread(() ->
+        {
+            cache.put(1, "1");
+            cache.get(1);
+        });
+        thread.start();
+        thread.join();
+        
+        assertEquals(1, cacheStats.count("threadStatsCache", OpType.PUT));
+        assertEquals(1, cacheStats.count("threadStatsCache", OpType.GET_HIT));
+        
+        cache.get(2);
+        assertEquals(1, cacheStats.count("threadStatsCache", OpType.GET_MISS));
+        assertEquals(1, cacheStats.count("threadStatsCache", OpType.PUT));
+    }
+    
+    /**
+     * Compares the hit ratio with the {@link DefaultSimpleCache} for a workload of
+     * repeatedly used items mixed with one-off scans.
+     */
+    @Category(PerformanceTests.class)
+    @Test
+    public void compareWithDefaultSimpleCache()
+    {
+        int maxItems = 10000;
+        for (int run = 0; run < 3; run++)
+        {
+            double defaultRatio = runScanWorkload(new DefaultSimpleCache<Integer, String>(maxItems, "default"), maxItems);
+            double tinyLfuRatio = runScanWorkload(new TinyLfuSimpleCache<Integer, String>(maxItems, "tinylfu"), maxItems);
+            assertTrue("TinyLFU hit ratio should beat LRU under scans", tinyLfuRatio > defaultRatio);
+        }
+    }
+    
+    private double runScanWorkload(SimpleCache<Integer, String> testCache, int maxItems)
+    {
+        int hotItems = maxItems / 2;
+        long hits = 0;
+        long gets = 0;
+        int scanKey = Integer.MAX_VALUE / 2;
+        for (int round = 0; round < 200; round++)
+        {
+            // Hot items
+            for (int i = 0; i < hotItems; i++)
+            {
+                gets++;
+                if (testCache.get(i) == null)
+                {
+                    testCache.put(i, "hot");
+                }
+                else
+                {
+                    hits++;
+                }
+            }
+            // A one-off scan, as done by reindexing or bulk import
+            for (int i = 0; i < maxItems; i++)
+            {
+                gets++;
+                Integer key = scanKey++;
+                if (testCache.get(key) == null)
+                {
+                    testCache.put(key, "scan");
+                }
+            }
+        }
+        return (double) hits / gets;
+    }
+}
@@ -26,6 +26,8 @@
 package org.alfresco.repo.cache.lookup;
 
 import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -136,6 +138,37 @@ public class EntityLookupCacheTest extends TestCase implements EntityLookupCallb
         assertEquals("ID is incorrect", new Long(3), entityPair.getFirst());
     }
 
+    public void testLookupMultipleKeys() throws Exception
+    {
+        // Put some values in the "database"
+        createValue(new TestValue("AAA"));
+        createValue(new TestValue("BBB"));
+        createValue(new TestValue("CCC"));
+        
+        // Prime the cache with one of the values
+        Pair<Long, Object> entityPair = entityLookupCacheA.getByKey(new Long(1));
+        assertNotNull("Expected value to be found", entityPair);
+        assertEquals(2, cache.getKeys().size());
+        
+        List<Pair<Long, Object>> entityPairs = entityLookupCacheA.getByKeys(Arrays.asList(new Long(1), new Long(2), new Long(3), new Long(4)));
+        assertEquals("Only existing entities should be returned", 3, entityPairs.size());
+        Map<Long, Object> valuesByKey = new TreeMap<Long, Object>();
+        for (Pair<Long, Object> pair : entityPairs)
+        {
+            valuesByKey.put(pair.getFirst(), pair.getSecond());
+        }
+        assertEquals(new TestValue("AAA"), valuesByKey.get(new Long(1)));
+        assertEquals(new TestValue("BBB"), valuesByKey.get(new Long(2)));
+        assertEquals(new TestValue("CCC"), valuesByKey.get(new Long(3)));
+        // The missing entity is not cached
+        assertEquals(6, cache.getKeys().size());
+        
+        // Everything now comes from the cache
+        database.clear();
+        entityPairs = entityLookupCacheA.getByKeys(Arrays.asList(new Long(1), new Long(2), new Long(3)));
+        assertEquals("Entities should have come from the cache", 3, entityPairs.size());
+    }
+
     public void testRegions() throws Exception
     {
         TestValue valueAAA = new TestValue("AAA");
@@ -27,7 +27,11 @@ package org.alfresco.repo.content.filestore;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Locale;
+import java.util.stream.Stream;
 
 import org.alfresco.repo.content.AbstractWritableContentStoreTest;
 import org.alfresco.repo.content.ContentContext;
@@ -42,6 +46,7 @@ import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.test_category.OwnJVMTestsCategory;
 import org.alfresco.util.TempFileProvider;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -219,6 +224,133 @@ public class FileContentStoreTest extends AbstractWritableContentStoreTest
     }
     
     
+    /**
+     * Identical content written to different URLs is stored once and released with the last URL.
+     */
+    @Test
+    public void testDeduplicatedContent() throws Exception
+    {
+        File root = new File(store.getRootLocation());
+        Assume.assumeTrue(Files.getFileStore(root.toPath()).supportsFileAttributeView("unix"));
+        store.setDeduplicate(true);
+        
+        String url1 = "store://1966/1/1/1/1/first.bin";
+        String url2 = "store://1966/1/1/1/1/second.bin";
+        String url3 = "store://1966/1/1/1/1/third.bin";
+        String content = "Duplicated content for test: " + getName();
+        store.getWriter(new ContentContext(null, url1)).putContent(content);
+        store.getWriter(new ContentContext(null, url2)).putContent(content);
+        store.getWriter(new ContentContext(null, url3)).putContent("Different content");
+        
+        assertEquals(1, store.getDeduplicatedCount());
+        assertEquals(content.length(), store.getDeduplicatedBytes());
+        assertTrue(Files.isSameFile(store.makeFile(url1).toPath(), store.makeFile(url2).toPath()));
+        assertFalse(Files.isSameFile(store.makeFile(url1).toPath(), store.makeFile(url3).toPath()));
+        
+        // Deleting one URL leaves the content for the other
+        store.delete(url1);
+        assertEquals(content, store.getReader(url2).getContentString());
+        assertDirExists(root, FileContentStore.DEDUPLICATION_DIRECTORY);
+        
+        // The shared copy goes with the last URL
+        store.delete(url2);
+        store.delete(url3);
+        assertDirNotExists(root, FileContentStore.DEDUPLICATION_DIRECTORY);
+    }
+    
+    /**
+     * Shared copies are released even once deduplication is switched off, but never while
+     * something other than a content URL still links to them.
+     */
+    @Test
+    public void testSharedContentRelease() throws Exception
+    {
+        File root = new File(store.getRootLocation());
+        Assume.assumeTrue(Files.getFileStore(root.toPath()).supportsFileAttributeView("unix"));
+        store.setDeduplicate(true);
+        
+        String url1 = "store://1966/1/1/1/1/first.bin";
+        String url2 = "store://1966/1/1/1/1/second.bin";
+        String url3 = "store://1966/1/1/1/1/third.bin";
+        String url4 = "store://1966/1/1/1/1/fourth.bin";
+        String content = "Duplicated content for test: " + getName();
+        String otherContent = "Other duplicated content for test: " + getName();
+        store.getWriter(new ContentContext(null, url1)).putContent(content);
+        store.getWriter(new ContentContext(null, url2)).putContent(content);
+        store.getWriter(new ContentContext(null, url3)).putContent(otherContent);
+        // Random access writes are digested too
+        FileChannel channel = store.getWriter(new ContentContext(null, url4)).getFileChannel(true);
+        channel.write(ByteBuffer.wrap(otherContent.getBytes()));
+        channel.close();
+        
+        assertEquals(2, store.getDeduplicatedCount());
+        assertTrue(Files.isSameFile(store.makeFile(url3).toPath(), store.makeFile(url4).toPath()));
+        File sharedDir = new File(root, FileContentStore.DEDUPLICATION_DIRECTORY);
+        assertEquals(2, countFiles(sharedDir));
+        
+        // Something other than the store holds a link to the second binary
+        File otherLink = new File(TempFileProvider.getTempDir(), getName() + ".bin");
+        otherLink.delete();
+        Files.createLink(otherLink.toPath(), store.makeFile(url3).toPath());
+        try
+        {
+            store.setDeduplicate(false);
+            store.delete(url1);
+            store.delete(url2);
+            assertEquals(1, countFiles(sharedDir));
+            store.delete(url3);
+            store.delete(url4);
+            assertEquals(1, countFiles(sharedDir));
+            assertEquals(otherContent, new String(Files.readAllBytes(otherLink.toPath())));
+        }
+        finally
+        {
+            otherLink.delete();
+        }
+    }
+    
+    /**
+     * Counts the shared copies, leaving out the index of their inodes
+     */
+    private long countFiles(File dir) throws Exception
+    {
+        try (Stream<Path> paths = Files.walk(dir.toPath()))
+        {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getParent().getFileName().toString().equals("inodes"))
+                    .count();
+        }
+    }
+    
+    /**
+     * Content hard linked by something other than the store, such as a backup, is simply deleted
+     * when the store does not deduplicate.
+     */
+    @Test
+    public void testHardLinkedContentWithoutDeduplication() throws Exception
+    {
+        File root = new File(store.getRootLocation());
+        Assume.assumeTrue(Files.getFileStore(root.toPath()).supportsFileAttributeView("unix"));
+        
+        String url = "store://1966/1/1/1/1/linked.bin";
+        String content = "Hard linked content for test: " + getName();
+        store.getWriter(new ContentContext(null, url)).putContent(content);
+        File backup = new File(TempFileProvider.getTempDir(), getName() + ".bin");
+        backup.delete();
+        Files.createLink(backup.toPath(), store.makeFile(url).toPath());
+        try
+        {
+            assertTrue(store.delete(url));
+            assertFalse(store.makeFile(url).exists());
+            assertEquals(content, new String(Files.readAllBytes(backup.toPath())));
+            assertDirNotExists(root, FileContentStore.DEDUPLICATION_DIRECTORY);
+        }
+        finally
+        {
+            backup.delete();
+        }
+    }
+    
     /**
      * Empty parent directories are not deleted if the store is configured not to.
      */
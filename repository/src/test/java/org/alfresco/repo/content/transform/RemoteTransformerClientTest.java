@@ -37,6 +37,8 @@ import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -48,6 +50,8 @@ import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -218,6 +222,67 @@ public class RemoteTransformerClientTest
         requestTransform();
     }
 
+    @Test
+    // A busy connection pool fails the request but says nothing about the transformer being unavailable.
+    public void poolTimeoutRequestTest() throws Exception
+    {
+        requestTransform();
+
+        doThrow(ConnectionPoolTimeoutException.class).when(remoteTransformerClient).execute(any(), any(HttpPost.class));
+        try
+        {
+            requestTransform();
+            fail("There should have been an exception");
+        }
+        catch (Exception e)
+        {
+            assertTrue("Should report the pool timeout",
+                    getMessage(e).startsWith("TRANSFORMER timed out waiting for a pooled connection"));
+        }
+        // A connection failure would delay the next check
+        Pair<Boolean, String> available = remoteTransformerClient.check(mockLogger);
+        assertTrue("There should be no wait before checking the transformer", available.getFirst());
+    }
+
+    @Test
+    // Reporting pool statistics, as the debug logging does, must not recreate a pool that has been closed.
+    public void poolStatsDoNotCreatePoolTest()
+    {
+        RemoteTransformerClient.ConnectionPools connectionPools = new RemoteTransformerClient.ConnectionPools();
+        RemoteTransformerClient client = new RemoteTransformerClient("TRANSFORMER", "http://localhost:1234/test",
+                new HttpClientConfig(), connectionPools);
+        client.setMaxConnections(4);
+        assertEquals(0, client.getPoolStats().getMax());
+
+        client.getHttpClient();
+        assertEquals(4, client.getPoolStats().getMax());
+
+        connectionPools.close();
+        assertEquals(0, client.getPoolStats().getMax());
+        assertEquals(0, client.getPoolStats().getMax());
+    }
+
+    @Test
+    // Closing the pools of one owner leaves the pools of another owner of the same endpoint open.
+    public void closingPoolsOnlyAffectsTheirOwnerTest()
+    {
+        String baseUrl = "http://localhost:1234/test";
+        HttpClientConfig httpClientConfig = new HttpClientConfig();
+        RemoteTransformerClient.ConnectionPools connectionPools1 = new RemoteTransformerClient.ConnectionPools();
+        RemoteTransformerClient.ConnectionPools connectionPools2 = new RemoteTransformerClient.ConnectionPools();
+        RemoteTransformerClient client1 = new RemoteTransformerClient("TRANSFORMER", baseUrl, httpClientConfig, connectionPools1);
+        RemoteTransformerClient client2 = new RemoteTransformerClient("TRANSFORMER", baseUrl, httpClientConfig, connectionPools2);
+        CloseableHttpClient httpClient1 = client1.getHttpClient();
+        CloseableHttpClient httpClient2 = client2.getHttpClient();
+        assertNotSame(httpClient1, httpClient2);
+
+        connectionPools1.close();
+        assertNotSame(httpClient1, client1.getHttpClient());
+        assertSame(httpClient2, client2.getHttpClient());
+        connectionPools1.close();
+        connectionPools2.close();
+    }
+
     @Test
     public void assertOnceAvailableAlwaysAvailable() throws Exception
     {
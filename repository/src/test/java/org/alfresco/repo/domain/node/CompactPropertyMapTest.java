@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.service.cmr.repository.MLText;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CompactPropertyMap} class.
+ * 
+ * @since 23.1
+ */
+public class CompactPropertyMapTest
+{
+    private Map<QName, Serializable> props;
+    
+    @Before
+    public void setUp()
+    {
+        props = new HashMap<QName, Serializable>();
+        props.put(ContentModel.PROP_NAME, "name");
+        props.put(ContentModel.PROP_TITLE, new MLText(Locale.ENGLISH, "title"));
+        props.put(ContentModel.PROP_CREATED, new Date(1000L));
+        props.put(ContentModel.PROP_SIZE_CURRENT, 42L);
+        props.put(ContentModel.PROP_ORIGINAL_ID, 7);
+        props.put(ContentModel.PROP_ARCHIVED_BY, null);
+        props.put(ContentModel.PROP_WORKING_COPY_OWNER, Boolean.TRUE);
+        props.put(QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "doubleProp"), 1.5D);
+        props.put(QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "floatProp"), -2.5F);
+    }
+    
+    @Test
+    public void sameContentAsSource()
+    {
+        Map<QName, Serializable> compact = new CompactPropertyMap(props);
+        assertEquals(props, compact);
+        assertEquals(compact, props);
+        assertEquals(props.hashCode(), compact.hashCode());
+        assertEquals(props.keySet(), compact.keySet());
+        for (Map.Entry<QName, Serializable> entry : props.entrySet())
+        {
+            assertTrue(compact.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), compact.get(entry.getKey()));
+        }
+        assertNull(compact.get(ContentModel.PROP_DESCRIPTION));
+        assertFalse(compact.containsKey(ContentModel.PROP_DESCRIPTION));
+        assertFalse(compact.containsKey("name"));
+    }
+    
+    @Test
+    public void datesAreRebuilt()
+    {
+        Map<QName, Serializable> compact = new CompactPropertyMap(props);
+        Date created = (Date) compact.get(ContentModel.PROP_CREATED);
+        created.setTime(2000L);
+        assertEquals(new Date(1000L), compact.get(ContentModel.PROP_CREATED));
+    }
+    
+    @Test
+    public void withProperties()
+    {
+        CompactPropertyMap compact = new CompactPropertyMap(props);
+        Map<QName, Serializable> more = new HashMap<QName, Serializable>();
+        more.put(ContentModel.PROP_NAME, "other");
+        more.put(ContentModel.PROP_CREATOR, "admin");
+        Map<QName, Serializable> expected = new HashMap<QName, Serializable>(props);
+        expected.putAll(more);
+        
+        assertEquals(expected, compact.withProperties(more));
+        // The original is untouched
+        assertEquals(props, compact);
+    }
+    
+    @Test
+    public void unmodifiable()
+    {
+        Map<QName, Serializable> compact = new CompactPropertyMap(props);
+        try
+        {
+            compact.put(ContentModel.PROP_NAME, "other");
+            fail("Compact maps must be unmodifiable");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // Expected
+        }
+        try
+        {
+            compact.keySet().remove(ContentModel.PROP_NAME);
+            fail("Compact maps must be unmodifiable");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // Expected
+        }
+        assertEquals(props, compact);
+    }
+    
+    @Test
+    public void shortStringsAreSharedWithoutTheStringPool()
+    {
+        String first = new String("compact-shared");
+        String second = new String("compact-shared");
+        Map<QName, Serializable> compactFirst = new CompactPropertyMap(Map.of(ContentModel.PROP_NAME, first));
+        Map<QName, Serializable> compactSecond = new CompactPropertyMap(Map.of(ContentModel.PROP_NAME, second));
+        assertSame(compactFirst.get(ContentModel.PROP_NAME), compactSecond.get(ContentModel.PROP_NAME));
+        assertNotSame("Values must not go to the JVM string pool", "compact-shared", compactSecond.get(ContentModel.PROP_NAME));
+        
+        // A stream of distinct values simply replaces older ones
+        for (int i = 0; i < 100000; i++)
+        {
+            assertEquals("value-" + i, CompactPropertyMap.intern("value-" + i));
+        }
+    }
+}
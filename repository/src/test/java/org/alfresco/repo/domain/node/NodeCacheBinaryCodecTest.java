@@ -0,0 +1,285 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.cache.TransactionalCache;
+import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
+import org.alfresco.service.cmr.repository.MLText;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link NodeCacheBinaryCodec} class.
+ * 
+ * @since 23.1
+ */
+public class NodeCacheBinaryCodecTest
+{
+    private NodeCacheBinaryCodec codec = new NodeCacheBinaryCodec();
+    
+    private Serializable roundTrip(Serializable value)
+    {
+        return codec.decode(codec.encode(value));
+    }
+    
+    /**
+     * Checks that the value is decoded as an equal value of exactly the same type.
+     */
+    private void assertRoundTrip(Serializable value)
+    {
+        Serializable decoded = roundTrip(value);
+        assertEquals(value, decoded);
+        assertEquals(value.getClass(), decoded.getClass());
+    }
+    
+    @Test
+    public void simpleValues()
+    {
+        assertNull(roundTrip(null));
+        assertRoundTrip("@@VALUE_NULL@@");
+        assertRoundTrip("");
+        assertRoundTrip(123L);
+        assertRoundTrip(123);
+        assertRoundTrip(Boolean.FALSE);
+        assertRoundTrip(new Date(1000L));
+        assertRoundTrip(new Timestamp(1000L));
+        assertRoundTrip(1.5d);
+        assertRoundTrip(2.5f);
+        assertRoundTrip(new NodeVersionKey(5L, 3L));
+        assertRoundTrip(ContentModel.PROP_NAME);
+        assertRoundTrip(new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, "abc"));
+        assertRoundTrip(new MLText(Locale.ENGLISH, "title"));
+    }
+    
+    @Test
+    public void locales()
+    {
+        assertRoundTrip(Locale.FRANCE);
+        assertRoundTrip(Locale.ROOT);
+        assertRoundTrip(new Locale("en", "GB", "POSIX"));
+        assertRoundTrip(new Locale("no", "NO", "NY"));
+        assertRoundTrip(new Locale("ja", "JP", "JP"));
+        assertRoundTrip(new Locale("th", "TH", "TH"));
+        assertRoundTrip(new Locale("iw", "IL"));
+        assertRoundTrip(Locale.forLanguageTag("zh-Hant-TW"));
+        assertRoundTrip(Locale.forLanguageTag("de-DE-u-co-phonebk"));
+    }
+    
+    @Test
+    public void collectionsKeepTheirType()
+    {
+        Map<QName, Serializable> qnameMap = new HashMap<QName, Serializable>();
+        qnameMap.put(ContentModel.PROP_NAME, "name");
+        assertRoundTrip((Serializable) qnameMap);
+        assertRoundTrip(new HashMap<QName, Serializable>());
+        assertRoundTrip(new CompactPropertyMap(new HashMap<QName, Serializable>()));
+        
+        Set<QName> qnameSet = new HashSet<QName>();
+        qnameSet.add(ContentModel.ASPECT_TITLED);
+        assertRoundTrip((Serializable) qnameSet);
+        assertRoundTrip(new HashSet<QName>());
+        assertRoundTrip((Serializable) Collections.unmodifiableSet(new HashSet<QName>()));
+        
+        ArrayList<Serializable> list = new ArrayList<Serializable>();
+        list.add(ContentModel.PROP_NAME);
+        list.add("value");
+        assertRoundTrip(list);
+    }
+    
+    @Test
+    public void propertyMaps()
+    {
+        Map<QName, Serializable> props = new HashMap<QName, Serializable>();
+        props.put(ContentModel.PROP_NAME, "name");
+        props.put(ContentModel.PROP_TITLE, new MLText(Locale.ENGLISH, "title"));
+        props.put(ContentModel.PROP_CREATED, new Date(1000L));
+        props.put(ContentModel.PROP_SIZE_CURRENT, 42L);
+        props.put(ContentModel.PROP_LOCALE, Locale.FRANCE);
+        props.put(ContentModel.PROP_ORIGINAL_ID, 7);
+        props.put(ContentModel.PROP_ARCHIVED_BY, null);
+        props.put(ContentModel.PROP_WORKING_COPY_OWNER, Boolean.TRUE);
+        props.put(QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "nodeRefProp"), new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, "abc"));
+        
+        @SuppressWarnings("unchecked")
+        Map<QName, Serializable> decoded = (Map<QName, Serializable>) roundTrip(new CompactPropertyMap(props));
+        assertEquals(props, decoded);
+        assertEquals(CompactPropertyMap.class, decoded.getClass());
+        try
+        {
+            decoded.put(ContentModel.PROP_NAME, "other");
+            fail("Decoded maps must be unmodifiable");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // Expected
+        }
+    }
+    
+    @Test
+    public void aspectSets()
+    {
+        Set<QName> aspects = new HashSet<QName>();
+        aspects.add(ContentModel.ASPECT_AUDITABLE);
+        aspects.add(ContentModel.ASPECT_TITLED);
+        assertRoundTrip((Serializable) Collections.unmodifiableSet(aspects));
+    }
+    
+    /**
+     * Wraps the value as the shared cache behind a <tt>TransactionalCache</tt> holds it
+     */
+    private ValueHolder<Serializable> wrap(Serializable value)
+    {
+        SimpleCache<String, ValueHolder<Serializable>> sharedCache = new DefaultSimpleCache<String, ValueHolder<Serializable>>();
+        TransactionalCache.putSharedCacheValue(sharedCache, "key", value, null);
+        return sharedCache.get("key");
+    }
+    
+    /**
+     * Checks that a wrapped value keeps its identity and gets the given compact encoding
+     */
+    private Serializable assertHolderRoundTrip(Serializable value, byte type)
+    {
+        ValueHolder<Serializable> valueHolder = wrap(value);
+        byte[] bytes = codec.encode(valueHolder);
+        assertEquals(NodeCacheBinaryCodec.TYPE_VALUE_HOLDER, bytes[0]);
+        // The holder's identity is followed by the wrapped value
+        assertEquals(type, bytes[5]);
+        
+        @SuppressWarnings("unchecked")
+        ValueHolder<Serializable> decoded = (ValueHolder<Serializable>) codec.decode(bytes);
+        assertEquals(valueHolder, decoded);
+        assertEquals(value, decoded.getValue());
+        return decoded.getValue();
+    }
+    
+    @Test
+    public void valueHolders()
+    {
+        Map<QName, Serializable> props = new HashMap<QName, Serializable>();
+        props.put(ContentModel.PROP_NAME, "name");
+        props.put(ContentModel.PROP_CREATED, new Date(1000L));
+        Serializable decodedProps = assertHolderRoundTrip(new CompactPropertyMap(props), NodeCacheBinaryCodec.TYPE_QNAME_MAP);
+        assertEquals(CompactPropertyMap.class, decodedProps.getClass());
+        
+        Set<QName> aspects = new HashSet<QName>();
+        aspects.add(ContentModel.ASPECT_AUDITABLE);
+        assertHolderRoundTrip((Serializable) Collections.unmodifiableSet(aspects), NodeCacheBinaryCodec.TYPE_QNAME_SET);
+        
+        NodeEntity node = newNode();
+        NodeEntity decodedNode = (NodeEntity) assertHolderRoundTrip(node, NodeCacheBinaryCodec.TYPE_NODE);
+        assertEquals(node.getNodeRef(), decodedNode.getNodeRef());
+        
+        // Null values and the lookup cache's markers
+        assertHolderRoundTrip(null, NodeCacheBinaryCodec.TYPE_NULL);
+        assertHolderRoundTrip("@@VALUE_NOT_FOUND@@", NodeCacheBinaryCodec.TYPE_STRING);
+    }
+    
+    private NodeEntity newNode()
+    {
+        StoreEntity store = new StoreEntity();
+        store.setId(1L);
+        store.setVersion(1L);
+        store.setProtocol("workspace");
+        store.setIdentifier("SpacesStore");
+        NodeEntity node = new NodeEntity();
+        node.setId(200L);
+        node.setVersion(1L);
+        node.setStore(store);
+        node.setUuid("uuid-200");
+        node.setTypeQNameId(5L);
+        node.lock();
+        return node;
+    }
+    
+    @Test
+    public void nodes()
+    {
+        StoreEntity store = new StoreEntity();
+        store.setId(1L);
+        store.setVersion(1L);
+        store.setProtocol("workspace");
+        store.setIdentifier("SpacesStore");
+        TransactionEntity txn = new TransactionEntity();
+        txn.setId(10L);
+        txn.setVersion(1L);
+        txn.setChangeTxnId("txn-10");
+        txn.setCommitTimeMs(12345L);
+        AuditablePropertiesEntity auditableProperties = new AuditablePropertiesEntity();
+        auditableProperties.setAuditCreator("admin");
+        auditableProperties.setAuditCreated("2023-01-01T00:00:00.000Z");
+        auditableProperties.setAuditModifier("admin");
+        auditableProperties.setAuditModified("2023-01-02T00:00:00.000Z");
+        NodeEntity node = new NodeEntity();
+        node.setId(100L);
+        node.setVersion(2L);
+        node.setStore(store);
+        node.setUuid("uuid-100");
+        node.setTypeQNameId(5L);
+        node.setAclId(9L);
+        node.setTransaction(txn);
+        node.setAuditableProperties(auditableProperties);
+        node.lock();
+        
+        NodeEntity decoded = (NodeEntity) roundTrip(node);
+        assertEquals(node, decoded);
+        assertEquals(node.getNodeRef(), decoded.getNodeRef());
+        assertEquals(Long.valueOf(5L), decoded.getTypeQNameId());
+        assertNull(decoded.getLocaleId());
+        assertEquals(Long.valueOf(9L), decoded.getAclId());
+        assertEquals("txn-10", decoded.getTransaction().getChangeTxnId());
+        assertEquals(Long.valueOf(12345L), decoded.getTransaction().getCommitTimeMs());
+        assertEquals("admin", decoded.getAuditableProperties().getAuditCreator());
+        assertEquals("2023-01-02T00:00:00.000Z", decoded.getAuditableProperties().getAuditModified());
+        try
+        {
+            decoded.setAclId(10L);
+            fail("Decoded nodes must be locked");
+        }
+        catch (IllegalStateException e)
+        {
+            // Expected
+        }
+    }
+}
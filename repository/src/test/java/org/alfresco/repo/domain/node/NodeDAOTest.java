@@ -27,9 +27,12 @@ package org.alfresco.repo.domain.node;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -45,17 +48,23 @@ import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransacti
 import org.alfresco.service.ServiceRegistry;
 import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.Path;
 import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.repository.datatype.DefaultTypeConverter;
+import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.test_category.OwnJVMTestsCategory;
 import org.alfresco.util.ApplicationContextHelper;
+import org.alfresco.util.GUID;
 import org.alfresco.util.Pair;
 import org.alfresco.util.testing.category.DBTests;
 import org.alfresco.util.testing.category.LuceneTests;
 import org.junit.Assert;
 import org.junit.experimental.categories.Category;
 import org.springframework.context.ApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
 
 /**
  * Additional tests for the Node DAO.
@@ -407,4 +416,234 @@ public class NodeDAOTest extends TestCase
         assertTrue(nextTxnCommitTime >= fromCommitTime);
     }
 
-}
\ No newline at end of file
+    /**
+     * Cached paths must follow moves of the node itself and of its ancestors
+     */
+    public void testGetPathsAfterMoves() throws Throwable
+    {
+        final NodeService nodeService = (NodeService) ctx.getBean("nodeService");
+        final StoreRef storeRef = new StoreRef(StoreRef.PROTOCOL_WORKSPACE, "SpacesStore");
+        // Build A/child1, A/child2 and B
+        final NodeRef[] nodeRefs = txnHelper.doInTransaction(() -> {
+            NodeRef rootNodeRef = nodeService.getRootNode(storeRef);
+            NodeRef folderA = createFolder(nodeService, rootNodeRef);
+            NodeRef folderB = createFolder(nodeService, rootNodeRef);
+            NodeRef child1 = createFolder(nodeService, folderA);
+            NodeRef child2 = createFolder(nodeService, folderA);
+            return new NodeRef[] {folderA, folderB, child1, child2};
+        });
+        final NodeRef folderA = nodeRefs[0];
+        final NodeRef folderB = nodeRefs[1];
+        final NodeRef child1 = nodeRefs[2];
+        final NodeRef child2 = nodeRefs[3];
+        try
+        {
+            txnHelper.doInTransaction(() -> {
+                Pair<Long, NodeRef> child1Pair = nodeDAO.getNodePair(child1);
+                Pair<Long, NodeRef> child2Pair = nodeDAO.getNodePair(child2);
+                List<Path> paths = nodeDAO.getPaths(child1Pair, false);
+                assertEquals(1, paths.size());
+                assertEquals(folderA, getParentRef(paths.get(0), 1));
+                assertEquals("Cached paths must match", paths, nodeDAO.getPaths(child1Pair, false));
+                // Get both siblings in one go
+                Map<Long, List<Path>> pathsByNodeId = nodeDAO.getPaths(Arrays.asList(child1Pair, child2Pair), true);
+                assertEquals(paths, pathsByNodeId.get(child1Pair.getFirst()));
+                assertEquals(nodeDAO.getPaths(child2Pair, true), pathsByNodeId.get(child2Pair.getFirst()));
+                return null;
+            }, true);
+            // Move the node itself
+            txnHelper.doInTransaction(() -> {
+                nodeService.moveNode(child1, folderB, ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS);
+                return null;
+            });
+            txnHelper.doInTransaction(() -> {
+                Path path = nodeDAO.getPaths(nodeDAO.getNodePair(child1), true).get(0);
+                assertEquals(folderB, getParentRef(path, 1));
+                assertEquals(ContentModel.ASSOC_CONTAINS, ((Path.ChildAssocElement) path.last()).getRef().getQName());
+                return null;
+            }, true);
+            // Move an ancestor
+            txnHelper.doInTransaction(() -> {
+                nodeService.moveNode(folderA, folderB, ContentModel.ASSOC_CONTAINS, ContentModel.ASSOC_CONTAINS);
+                return null;
+            });
+            txnHelper.doInTransaction(() -> {
+                Path path = nodeDAO.getPaths(nodeDAO.getNodePair(child2), true).get(0);
+                assertEquals(folderA, getParentRef(path, 1));
+                assertEquals(folderB, getParentRef(path, 2));
+                return null;
+            }, true);
+        }
+        finally
+        {
+            txnHelper.doInTransaction(() -> {
+                nodeService.deleteNode(folderB);
+                return null;
+            });
+        }
+    }
+
+    public void testNewNodes() throws Throwable
+    {
+        final NodeService nodeService = (NodeService) ctx.getBean("nodeService");
+        final StoreRef storeRef = new StoreRef(StoreRef.PROTOCOL_WORKSPACE, "SpacesStore");
+        final int count = 200;
+        final NodeRef folderRef = txnHelper.doInTransaction(() -> createFolder(nodeService, nodeService.getRootNode(storeRef)));
+        try
+        {
+            final Long folderId = txnHelper.doInTransaction(() -> nodeDAO.getNodePair(folderRef).getFirst(), true);
+            final List<ChildAssocEntity> assocs = txnHelper.doInTransaction(() -> {
+                List<NewNodeSpec> specs = new ArrayList<NewNodeSpec>(count);
+                for (int i = 0; i < count; i++)
+                {
+                    specs.add(makeNewNodeSpec(folderId, storeRef, "batch-" + i));
+                }
+                return nodeDAO.newNodes(specs);
+            });
+            assertEquals(count, assocs.size());
+            
+            // Check the nodes from the caches and then directly from the database
+            for (final boolean clearCaches : new boolean[] {false, true})
+            {
+                txnHelper.doInTransaction(() -> {
+                    if (clearCaches)
+                    {
+                        nodeDAO.clear();
+                    }
+                    for (int i = 0; i < count; i++)
+                    {
+                        Long nodeId = assocs.get(i).getChildNode().getId();
+                        assertEquals("batch-" + i, nodeDAO.getNodeProperty(nodeId, ContentModel.PROP_NAME));
+                        assertEquals("Title " + i, DefaultTypeConverter.INSTANCE.convert(
+                                String.class, nodeDAO.getNodeProperty(nodeId, ContentModel.PROP_TITLE)));
+                        assertTrue(nodeDAO.hasNodeAspect(nodeId, ContentModel.ASPECT_TITLED));
+                        assertTrue(nodeDAO.hasNodeAspect(nodeId, ContentModel.ASPECT_AUDITABLE));
+                        assertEquals(folderRef, nodeDAO.getPrimaryParentAssoc(nodeId).getSecond().getParentRef());
+                    }
+                    return null;
+                }, true);
+            }
+        }
+        finally
+        {
+            txnHelper.doInTransaction(() -> {
+                nodeService.deleteNode(folderRef);
+                return null;
+            });
+        }
+    }
+
+    public void testGetNodePropertiesAndAspectsInBulk() throws Throwable
+    {
+        final NodeService nodeService = (NodeService) ctx.getBean("nodeService");
+        final StoreRef storeRef = new StoreRef(StoreRef.PROTOCOL_WORKSPACE, "SpacesStore");
+        final int count = 20;
+        final NodeRef folderRef = txnHelper.doInTransaction(() -> createFolder(nodeService, nodeService.getRootNode(storeRef)));
+        try
+        {
+            final List<Long> nodeIds = txnHelper.doInTransaction(() -> {
+                Long folderId = nodeDAO.getNodePair(folderRef).getFirst();
+                List<NewNodeSpec> specs = new ArrayList<NewNodeSpec>(count);
+                for (int i = 0; i < count; i++)
+                {
+                    specs.add(makeNewNodeSpec(folderId, storeRef, "bulk-" + i));
+                }
+                List<Long> ids = new ArrayList<Long>(count);
+                for (ChildAssocEntity assoc : nodeDAO.newNodes(specs))
+                {
+                    ids.add(assoc.getChildNode().getId());
+                }
+                return ids;
+            });
+            
+            txnHelper.doInTransaction(() -> {
+                // Nothing cached
+                nodeDAO.clear();
+                checkNodePropertiesAndAspects(nodeIds);
+                // Everything cached by the previous calls
+                checkNodePropertiesAndAspects(nodeIds);
+                // Some nodes cached
+                nodeDAO.clear();
+                nodeDAO.getNodeProperties(nodeIds.get(0));
+                nodeDAO.getNodeAspects(nodeIds.get(1));
+                checkNodePropertiesAndAspects(nodeIds);
+                
+                // Nodes that do not exist fail in the same way as for the single node methods
+                List<Long> withMissingNode = new ArrayList<Long>(nodeIds);
+                withMissingNode.add(Long.MAX_VALUE);
+                try
+                {
+                    nodeDAO.getNodeProperties(withMissingNode);
+                    fail("Properties of a node that does not exist should not be found");
+                }
+                catch (ConcurrencyFailureException e)
+                {
+                    // Expected
+                }
+                try
+                {
+                    nodeDAO.getNodeAspects(withMissingNode);
+                    fail("Aspects of a node that does not exist should not be found");
+                }
+                catch (ConcurrencyFailureException e)
+                {
+                    // Expected
+                }
+                return null;
+            }, true);
+        }
+        finally
+        {
+            txnHelper.doInTransaction(() -> {
+                nodeService.deleteNode(folderRef);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Checks the bulk getters against the single node getters for the nodes made by {@link #makeNewNodeSpec}
+     */
+    private void checkNodePropertiesAndAspects(List<Long> nodeIds)
+    {
+        Map<Long, Map<QName, Serializable>> propsByNodeId = nodeDAO.getNodeProperties(nodeIds);
+        Map<Long, Set<QName>> aspectsByNodeId = nodeDAO.getNodeAspects(nodeIds);
+        assertEquals(nodeIds.size(), propsByNodeId.size());
+        assertEquals(nodeIds.size(), aspectsByNodeId.size());
+        for (int i = 0; i < nodeIds.size(); i++)
+        {
+            Long nodeId = nodeIds.get(i);
+            assertEquals("bulk-" + i, propsByNodeId.get(nodeId).get(ContentModel.PROP_NAME));
+            assertEquals(nodeDAO.getNodeProperties(nodeId), propsByNodeId.get(nodeId));
+            assertTrue(aspectsByNodeId.get(nodeId).contains(ContentModel.ASPECT_TITLED));
+            assertEquals(nodeDAO.getNodeAspects(nodeId), aspectsByNodeId.get(nodeId));
+        }
+    }
+
+    private NewNodeSpec makeNewNodeSpec(Long parentNodeId, StoreRef storeRef, String name)
+    {
+        QName assocQName = QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, name);
+        NewNodeSpec spec = new NewNodeSpec(parentNodeId, ContentModel.ASSOC_CONTAINS, assocQName, storeRef, ContentModel.TYPE_CONTENT);
+        spec.setChildNodeName(name);
+        Map<QName, Serializable> properties = new HashMap<QName, Serializable>();
+        properties.put(ContentModel.PROP_NAME, name);
+        properties.put(ContentModel.PROP_TITLE, "Title " + name.substring(name.indexOf('-') + 1));
+        spec.setProperties(properties);
+        spec.setAspectQNames(Collections.singleton(ContentModel.ASPECT_TITLED));
+        return spec;
+    }
+
+    private NodeRef createFolder(NodeService nodeService, NodeRef parentNodeRef)
+    {
+        QName assocQName = QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, GUID.generate());
+        return nodeService.createNode(parentNodeRef, ContentModel.ASSOC_CHILDREN, assocQName, ContentModel.TYPE_FOLDER).getChildRef();
+    }
+
+    /**
+     * @return                      the parent of the association <tt>n</tt> elements from the end of the path
+     */
+    private NodeRef getParentRef(Path path, int n)
+    {
+        return ((Path.ChildAssocElement) path.get(path.size() - n)).getRef().getParentRef();
+    }
+}
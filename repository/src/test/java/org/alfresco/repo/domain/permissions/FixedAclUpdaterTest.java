@@ -29,6 +29,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -43,6 +50,8 @@ import org.alfresco.model.ContentModel;
 import org.alfresco.repo.content.MimetypeMap;
 import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.domain.node.NodeDAO.NodeRefQueryCallback;
+import org.alfresco.repo.lock.JobLockService;
+import org.alfresco.repo.lock.JobLockService.JobLockRefreshCallback;
 import org.alfresco.repo.model.Repository;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.permissions.impl.PermissionsDaoComponent;
@@ -256,6 +265,73 @@ public class FixedAclUpdaterTest
         }
     }
 
+    /*
+     * Subtrees that the job itself leaves pending are processed by further passes of the same execution
+     */
+    @Test
+    @RetryAtMost(3)
+    public void testAsyncSplitSubtreesInOneExecution()
+    {
+        NodeRef folderRef = createFolderHierarchyInRootForFolderTests("testAsyncSplitSubtreesFolder");
+        ACLComparator aclComparator = new ACLComparator(folderRef);
+
+        try
+        {
+            setPermissionsOnTree(folderRef, true, true);
+            int initiallyPending = getNodesCountWithPendingFixedAclAspect();
+
+            // Every node processed by the job leaves its children pending
+            setFixedAclMaxTransactionTime(permissionsDaoComponent, homeFolderNodeRef, 0);
+            int count = txnHelper.doInTransaction(() -> fixedAclUpdater.execute(), false, true);
+
+            assertEquals("Not all nodes were processed in one execution", 0, getNodesCountWithPendingFixedAclAspect());
+            assertTrue("Split subtrees were not processed by further passes", count > initiallyPending);
+            assertEquals("Node count of the execution not recorded", count, fixedAclUpdater.getLastExecutionNodeCount());
+            assertTrue("Execution time not recorded", fixedAclUpdater.getLastExecutionTime() >= 0);
+            aclComparator.updateCurrentACLs();
+            assertTrue("Permissions not applied on split subtrees", aclComparator.firstChildHasOriginalPermission());
+        }
+        finally
+        {
+            setFixedAclMaxTransactionTime(permissionsDaoComponent, homeFolderNodeRef, maxTransactionTime);
+            deleteNodes(folderRef);
+        }
+    }
+
+    /*
+     * Once the job lock is lost no more nodes are handed out and they are left pending for the new lock holder
+     */
+    @Test
+    public void testAsyncStopsWhenLockIsLost()
+    {
+        NodeRef folderRef = createFolderHierarchyInRootForFolderTests("testAsyncLockLostFolder");
+        JobLockService jobLockService = (JobLockService) ctx.getBean("jobLockService");
+        JobLockService lostJobLockService = mock(JobLockService.class);
+        when(lostJobLockService.getLock(any(QName.class), anyLong(), anyLong(), anyInt())).thenReturn("lostLockToken");
+        doAnswer(invocation -> {
+            invocation.<JobLockRefreshCallback>getArgument(3).lockReleased();
+            return null;
+        }).when(lostJobLockService).refreshLock(anyString(), any(QName.class), anyLong(), any(JobLockRefreshCallback.class));
+
+        try
+        {
+            setPermissionsOnTree(folderRef, true, true);
+            int pending = getNodesCountWithPendingFixedAclAspect();
+
+            fixedAclUpdater.setJobLockService(lostJobLockService);
+            int count = txnHelper.doInTransaction(() -> fixedAclUpdater.execute(), false, true);
+
+            assertEquals("No nodes should be processed once the lock is lost", 0, count);
+            assertEquals("Nodes should be left pending", pending, getNodesCountWithPendingFixedAclAspect());
+            assertEquals("Node count of the execution not recorded", 0, fixedAclUpdater.getLastExecutionNodeCount());
+        }
+        finally
+        {
+            fixedAclUpdater.setJobLockService(jobLockService);
+            deleteNodes(folderRef);
+        }
+    }
+
     /*
      * MNT-21847 - Create a new content in folder that has the aspect applied
      */
@@ -0,0 +1,231 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ *
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.rendition2;
+
+import org.alfresco.repo.content.transform.LocalTransform;
+import org.alfresco.repo.content.transform.LocalTransformServiceRegistry;
+import org.alfresco.repo.management.DynamicMBeanExportOperations;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.ContentWriter;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.transaction.TransactionService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the queueing of transforms in the {@link LocalTransformClient}: interactive renditions run first, identical
+ * requests are queued once and a full queue drops non-interactive requests once they have waited long enough, without
+ * recording a failure that would stop them being requested again.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LocalTransformClientTest
+{
+    private static final String PDF = "application/pdf";
+    private static final String BLOCKER = "blocker";
+    private static final NodeRef NODE_1 = new NodeRef("workspace://SpacesStore/test-1");
+    private static final NodeRef NODE_2 = new NodeRef("workspace://SpacesStore/test-2");
+
+    @Mock private LocalTransformServiceRegistry localTransformServiceRegistry;
+    @Mock private TransactionService transactionService;
+    @Mock private RetryingTransactionHelper retryingTransactionHelper;
+    @Mock private ContentService contentService;
+    @Mock private RenditionService2Impl renditionService2;
+    @Mock private LocalTransform localTransform;
+    @Mock private ContentReader reader;
+    @Mock private ContentWriter writer;
+    @Mock private ContentReader transformedReader;
+    @Mock private DynamicMBeanExportOperations mbeanExporter;
+
+    private LocalTransformClient localTransformClient;
+    private final List<String> transformed = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blockerStarted = new CountDownLatch(1);
+    private final CountDownLatch blockerReleased = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        when(localTransformServiceRegistry.getLocalTransform(any(), anyLong(), any(), any(), any())).thenReturn(localTransform);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(retryingTransactionHelper);
+        when(retryingTransactionHelper.doInTransaction(any())).thenAnswer(invocation ->
+                ((RetryingTransactionHelper.RetryingTransactionCallback<?>) invocation.getArgument(0)).execute());
+        when(contentService.getReader(any(), any())).thenReturn(reader);
+        when(reader.exists()).thenReturn(true);
+        when(contentService.getTempWriter()).thenReturn(writer);
+        when(writer.getReader()).thenReturn(transformedReader);
+
+        // The blocker keeps the only transform thread busy until it is released
+        doAnswer(invocation ->
+        {
+            String renditionName = invocation.getArgument(3);
+            if (BLOCKER.equals(renditionName))
+            {
+                blockerStarted.countDown();
+                blockerReleased.await(10, TimeUnit.SECONDS);
+            }
+            transformed.add(renditionName);
+            return null;
+        }).when(localTransform).transform(any(), any(), any(), any(), any());
+
+        localTransformClient = new LocalTransformClient();
+        localTransformClient.setLocalTransformServiceRegistry(localTransformServiceRegistry);
+        localTransformClient.setTransactionService(transactionService);
+        localTransformClient.setContentService(contentService);
+        localTransformClient.setRenditionService2(renditionService2);
+        localTransformClient.setDirectAccessUrlEnabled(false);
+        localTransformClient.setMaxConcurrentTransforms(1);
+        localTransformClient.setInteractiveRenditions("doclib");
+    }
+
+    private void request(String renditionName, NodeRef sourceNodeRef, int sourceContentHashCode)
+    {
+        RenditionDefinition2 renditionDefinition = new RenditionDefinition2Impl(renditionName, PDF,
+                Collections.emptyMap(), null);
+        localTransformClient.checkSupported(sourceNodeRef, renditionDefinition, PDF, 1024L, null);
+        localTransformClient.transform(sourceNodeRef, renditionDefinition, "testUser", sourceContentHashCode);
+    }
+
+    private void startBlocker() throws InterruptedException
+    {
+        request(BLOCKER, NODE_1, 1);
+        assertTrue("The blocker should have started", blockerStarted.await(10, TimeUnit.SECONDS));
+    }
+
+    private void waitForCompletedTransforms(long count) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + 10000;
+        while (localTransformClient.getCompletedTransforms() < count && System.currentTimeMillis() < end)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(count, localTransformClient.getCompletedTransforms());
+    }
+
+    @Test
+    public void interactiveRenditionsRunFirst() throws Exception
+    {
+        localTransformClient.afterPropertiesSet();
+        startBlocker();
+
+        request("pdf", NODE_1, 1);
+        request("avatar", NODE_1, 1);
+        request("doclib", NODE_1, 1);
+        blockerReleased.countDown();
+
+        waitForCompletedTransforms(4);
+        assertEquals(List.of(BLOCKER, "doclib", "pdf", "avatar"), transformed);
+    }
+
+    @Test
+    public void identicalRequestsAreQueuedOnce() throws Exception
+    {
+        localTransformClient.afterPropertiesSet();
+        startBlocker();
+
+        request("pdf", NODE_1, 1);
+        request("pdf", NODE_1, 1);
+        // New content or another node needs its own transform
+        request("pdf", NODE_1, 2);
+        request("pdf", NODE_2, 1);
+        blockerReleased.countDown();
+
+        waitForCompletedTransforms(4);
+        assertEquals(1, localTransformClient.getDeduplicatedTransforms());
+        assertEquals(List.of(BLOCKER, "pdf", "pdf", "pdf"), transformed);
+    }
+
+    @Test
+    public void fullQueueDropsRequestWithoutFailure() throws Exception
+    {
+        localTransformClient.setMaxQueuedTransforms(2);
+        localTransformClient.setQueueTimeoutMs(100);
+        localTransformClient.afterPropertiesSet();
+        startBlocker();
+        request("pdf", NODE_1, 1);
+
+        long start = System.currentTimeMillis();
+        request("avatar", NODE_1, 1);
+        assertTrue("The request should have waited for room", System.currentTimeMillis() - start >= 100);
+
+        // Interactive renditions are never blocked
+        request("doclib", NODE_1, 1);
+        blockerReleased.countDown();
+
+        waitForCompletedTransforms(3);
+        assertEquals(List.of(BLOCKER, "doclib", "pdf"), transformed);
+        verify(renditionService2, never()).failure(any(), any(), anyInt());
+
+        // The dropped rendition was left unset, so a later request still produces it
+        request("avatar", NODE_1, 1);
+        waitForCompletedTransforms(4);
+        assertEquals(List.of(BLOCKER, "doclib", "pdf", "avatar"), transformed);
+        verify(renditionService2).consume(eq(NODE_1), any(),
+                argThat(renditionDefinition -> "avatar".equals(renditionDefinition.getRenditionName())), eq(1));
+        verify(renditionService2, never()).failure(any(), any(), anyInt());
+    }
+
+    @Test
+    public void mbeanIsNamedAfterTheBeanAndRegisteredOnFirstUse() throws Exception
+    {
+        ObjectName objectName = new ObjectName("Alfresco:Name=LocalTransformClient,Bean=transformClient");
+        when(mbeanExporter.registerMBean(any(), any())).thenReturn(objectName);
+        localTransformClient.setMbeanExporter(mbeanExporter);
+        localTransformClient.setBeanName("transformClient");
+        localTransformClient.afterPropertiesSet();
+        verify(mbeanExporter, never()).registerMBean(any(), any());
+
+        request("pdf", NODE_1, 1);
+        request("pdf", NODE_2, 1);
+        waitForCompletedTransforms(2);
+        verify(mbeanExporter).registerMBean(localTransformClient, objectName);
+
+        localTransformClient.destroy();
+        verify(mbeanExporter).unregisterMBean(objectName);
+    }
+}
@@ -27,13 +27,18 @@ package org.alfresco.repo.rendition2;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.alfresco.model.ContentModel;
+import org.alfresco.model.RenditionModel;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.content.metadata.AsynchronousExtractor;
 import org.alfresco.repo.policy.BehaviourFilter;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.rendition.RenditionPreventionRegistry;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.util.PostTxnCallbackScheduler;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentService;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
@@ -56,8 +61,11 @@ import java.util.Set;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
@@ -89,6 +97,8 @@ public class RenditionService2Test
     @Mock private TransformServiceRegistryImpl transformServiceRegistry;
     @Mock private TransformReplyProvider transformReplyProvider;
     @Mock private AsynchronousExtractor asynchronousExtractor;
+    @Mock private RetryingTransactionHelper retryingTransactionHelper;
+    @Mock private ContentReader renditionContentReader;
 
     private NodeRef nodeRef = new NodeRef("workspace://spacesStore/test-id");
     private NodeRef nodeRefMissing = new NodeRef("workspace://spacesStore/bad-test-id");
@@ -275,6 +285,70 @@ public class RenditionService2Test
         }
     }
 
+    @Test
+    public void useCachedRenditionContent()
+    {
+        NodeRef renditionNodeRef = new NodeRef("workspace://spacesStore/rendition-id");
+        ContentData renditionContentData = new ContentData("rendition-content-url", JPEG, 100L, "UTF-8");
+        SimpleCache<String, ContentData> renditionContentCache = new DefaultSimpleCache<>();
+        renditionService2.setRenditionContentCache(renditionContentCache);
+        renditionService2.setTransformServiceRegistry(transformServiceRegistry);
+        when(transformServiceRegistry.findTransformerName(any(), anyLong(), any(), any(), any())).thenReturn("transformer");
+        RenditionDefinition2 renditionDefinition = renditionDefinitionRegistry2.getRenditionDefinition(TEST_RENDITION);
+        renditionContentCache.put(renditionService2.getRenditionContentCacheKey(nodeRef, renditionDefinition), renditionContentData);
+
+        when(contentService.getRawReader("rendition-content-url")).thenReturn(renditionContentReader);
+        when(renditionContentReader.exists()).thenReturn(true);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(retryingTransactionHelper);
+        when(retryingTransactionHelper.doInTransaction(any(), anyBoolean(), anyBoolean())).thenAnswer(invocation ->
+                ((RetryingTransactionHelper.RetryingTransactionCallback<?>) invocation.getArgument(0)).execute());
+        when(nodeService.createNode(any(), any(), any(), any(), any())).thenReturn(new ChildAssociationRef(
+                RenditionModel.ASSOC_RENDITION, nodeRef, ContentModel.PROP_CONTENT, renditionNodeRef));
+
+        renditionService2.render(nodeRef, TEST_RENDITION);
+
+        verify(transformClient, never()).transform(any(), any(), nullable(String.class), anyInt());
+        verify(nodeService).setProperty(renditionNodeRef, ContentModel.PROP_CONTENT, renditionContentData);
+    }
+
+    @Test
+    public void transformWhenCachedRenditionContentIsMissing()
+    {
+        SimpleCache<String, ContentData> renditionContentCache = new DefaultSimpleCache<>();
+        renditionService2.setRenditionContentCache(renditionContentCache);
+        renditionService2.setTransformServiceRegistry(transformServiceRegistry);
+        when(transformServiceRegistry.findTransformerName(any(), anyLong(), any(), any(), any())).thenReturn("transformer");
+        RenditionDefinition2 renditionDefinition = renditionDefinitionRegistry2.getRenditionDefinition(TEST_RENDITION);
+        String cacheKey = renditionService2.getRenditionContentCacheKey(nodeRef, renditionDefinition);
+        renditionContentCache.put(cacheKey, new ContentData("deleted-content-url", JPEG, 100L, "UTF-8"));
+
+        when(contentService.getRawReader("deleted-content-url")).thenReturn(renditionContentReader);
+        when(renditionContentReader.exists()).thenReturn(false);
+
+        renditionService2.render(nodeRef, TEST_RENDITION);
+
+        verify(transformClient, times(1)).transform(any(), any(), nullable(String.class), anyInt());
+        assertNull("The missing rendition content should be removed from the cache", renditionContentCache.get(cacheKey));
+    }
+
+    @Test
+    public void cachedRenditionContentIsNotReusedByAnotherTransformer()
+    {
+        renditionService2.setRenditionContentCache(new DefaultSimpleCache<>());
+        renditionService2.setTransformServiceRegistry(transformServiceRegistry);
+        RenditionDefinition2 renditionDefinition = renditionDefinitionRegistry2.getRenditionDefinition(TEST_RENDITION);
+
+        when(transformServiceRegistry.findTransformerName(any(), anyLong(), any(), any(), any())).thenReturn("transformer1");
+        String cacheKey1 = renditionService2.getRenditionContentCacheKey(nodeRef, renditionDefinition);
+        when(transformServiceRegistry.findTransformerName(any(), anyLong(), any(), any(), any())).thenReturn("transformer2");
+        String cacheKey2 = renditionService2.getRenditionContentCacheKey(nodeRef, renditionDefinition);
+        when(transformServiceRegistry.findTransformerName(any(), anyLong(), any(), any(), any())).thenReturn(null);
+
+        assertNotEquals(cacheKey1, cacheKey2);
+        assertNull("Unsupported renditions should not be cached",
+                renditionService2.getRenditionContentCacheKey(nodeRef, renditionDefinition));
+    }
+
     @Test()
     public void overriddenRendition()
     {
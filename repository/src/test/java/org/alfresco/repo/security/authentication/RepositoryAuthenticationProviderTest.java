@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.authentication;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import net.sf.acegisecurity.GrantedAuthority;
+import net.sf.acegisecurity.providers.UsernamePasswordAuthenticationToken;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the verified credentials cache of {@link RepositoryAuthenticationProvider}.
+ *
+ * @since 23.1
+ */
+public class RepositoryAuthenticationProviderTest
+{
+    private static final List<String> HASH_INDICATOR = CompositePasswordEncoder.SHA256;
+
+    private CompositePasswordEncoder encoder;
+    private RepositoryAuthenticationProvider provider;
+
+    @Before
+    public void setUp()
+    {
+        encoder = mock(CompositePasswordEncoder.class);
+        when(encoder.matchesPassword(anyString(), anyString(), any(), any())).thenAnswer(
+                invocation -> "secret".equals(invocation.getArgument(0)));
+        provider = new RepositoryAuthenticationProvider();
+        provider.setCompositePasswordEncoder(encoder);
+        provider.setVerifiedCredentialsCache(new DefaultSimpleCache<>(100, "verifiedCredentialsCache"));
+    }
+
+    @Test
+    public void testRepeatedCheckSkipsHashing()
+    {
+        RepositoryAuthenticatedUser user = user("hash1");
+        assertTrue(provider.isPasswordCorrect(token("secret"), user));
+        assertTrue(provider.isPasswordCorrect(token("secret"), user));
+        verify(encoder, times(1)).matchesPassword("secret", "hash1", null, HASH_INDICATOR);
+    }
+
+    @Test
+    public void testFailedCheckIsNotRemembered()
+    {
+        RepositoryAuthenticatedUser user = user("hash1");
+        assertFalse(provider.isPasswordCorrect(token("wrong"), user));
+        assertFalse(provider.isPasswordCorrect(token("wrong"), user));
+        verify(encoder, times(2)).matchesPassword("wrong", "hash1", null, HASH_INDICATOR);
+    }
+
+    @Test
+    public void testChangedHashIsCheckedAgain()
+    {
+        assertTrue(provider.isPasswordCorrect(token("secret"), user("hash1")));
+        assertTrue(provider.isPasswordCorrect(token("secret"), user("hash2")));
+        verify(encoder, times(1)).matchesPassword("secret", "hash2", null, HASH_INDICATOR);
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysHashes()
+    {
+        provider.setVerifiedCredentialsCacheEnabled(false);
+        RepositoryAuthenticatedUser user = user("hash1");
+        assertTrue(provider.isPasswordCorrect(token("secret"), user));
+        assertTrue(provider.isPasswordCorrect(token("secret"), user));
+        verify(encoder, times(2)).matchesPassword("secret", "hash1", null, HASH_INDICATOR);
+    }
+
+    private static RepositoryAuthenticatedUser user(String passwordHash)
+    {
+        return new RepositoryAuthenticatedUser("someUser", passwordHash, true, true, true, true,
+                new GrantedAuthority[0], HASH_INDICATOR, null);
+    }
+
+    private static UsernamePasswordAuthenticationToken token(String password)
+    {
+        return new UsernamePasswordAuthenticationToken("someUser", password);
+    }
+}
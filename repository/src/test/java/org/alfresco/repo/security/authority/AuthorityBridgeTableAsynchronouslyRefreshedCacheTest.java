@@ -52,6 +52,7 @@ import org.alfresco.service.cmr.security.PersonService;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.test_category.OwnJVMTestsCategory;
 import org.alfresco.util.ApplicationContextHelper;
+import org.alfresco.util.BridgeTable;
 import org.alfresco.util.GUID;
 
 import org.junit.experimental.categories.Category;
@@ -154,6 +155,50 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCacheTest extends TestCa
         AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
     }
 
+    public void testIncrementalLinkChanges() throws Exception
+    {
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+        // Make sure there is a live bridge table to update
+        authorityBridgeTableCache.get();
+
+        final String[] groups = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<String[]>()
+        {
+            @Override
+            public String[] execute() throws Throwable
+            {
+                String g1 = authorityService.createAuthority(AuthorityType.GROUP, "incrementalGroup1" + GUID.generate());
+                String g2 = authorityService.createAuthority(AuthorityType.GROUP, "incrementalGroup2" + GUID.generate());
+                String g3 = authorityService.createAuthority(AuthorityType.GROUP, "incrementalGroup3" + GUID.generate());
+                authorityService.addAuthority(g1, g2);
+                authorityService.addAuthority(g2, g3);
+                // Uncommitted links are not in the bridge table
+                assertFalse(authorityBridgeTableCache.isUpToDate());
+                return new String[] { g1, g2, g3 };
+            }
+        }, false, true);
+
+        BridgeTable<String> bridgeTable = authorityBridgeTableCache.get();
+        Set<String> ancestors = bridgeTable.getAncestors(groups[2]);
+        assertEquals(2, ancestors.size());
+        assertTrue(ancestors.contains(groups[0]));
+        assertTrue(ancestors.contains(groups[1]));
+
+        transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                authorityService.removeAuthority(groups[0], groups[1]);
+                return null;
+            }
+        }, false, true);
+
+        ancestors = authorityBridgeTableCache.get().getAncestors(groups[2]);
+        assertEquals(1, ancestors.size());
+        assertTrue(ancestors.contains(groups[1]));
+        assertTrue(authorityBridgeTableCache.get().getDescendants(groups[0]).isEmpty());
+    }
+
     private void createTenant(final String tenantDomain)
     {
         transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
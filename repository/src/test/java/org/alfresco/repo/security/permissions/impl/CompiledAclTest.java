@@ -0,0 +1,250 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2023 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.permissions.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.alfresco.repo.security.permissions.AccessControlEntry;
+import org.alfresco.repo.security.permissions.PermissionReference;
+import org.alfresco.repo.security.permissions.SimpleAccessControlEntry;
+import org.alfresco.repo.security.permissions.impl.CompiledAcl.AuthorityIds;
+import org.alfresco.service.cmr.security.AccessStatus;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.service.namespace.QName;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Unit tests for {@link CompiledAcl} and {@link AuthorityMask}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CompiledAclTest
+{
+    private static final QName PERMISSION_TYPE = QName.createQName("{test}permissions");
+    private static final String GROUP_A = "GROUP_compiledAclTestA";
+    private static final String GROUP_B = "GROUP_compiledAclTestB";
+
+    private final PermissionReference read = SimplePermissionReference.getPermissionReference(PERMISSION_TYPE, PermissionService.READ);
+    private final PermissionReference coordinator = SimplePermissionReference.getPermissionReference(PERMISSION_TYPE, PermissionService.COORDINATOR);
+    private final PermissionReference all = SimplePermissionReference.getPermissionReference(PERMISSION_TYPE, PermissionService.ALL_PERMISSIONS);
+
+    private Set<PermissionReference> granters;
+    private Set<PermissionReference> allPermissions;
+    private CompiledAclRegistry registry;
+    private AuthorityIds authorityIds;
+
+    @Mock
+    private ModelDAO modelDAO;
+
+    @Before
+    public void setUp()
+    {
+        granters = new HashSet<PermissionReference>();
+        granters.add(read);
+        granters.add(coordinator);
+        granters.add(all);
+        allPermissions = new HashSet<PermissionReference>();
+        allPermissions.add(all);
+        registry = new CompiledAclRegistry();
+        authorityIds = registry.getAuthorityIds();
+    }
+
+    @Test
+    public void allowedAuthoritiesAreCompiled()
+    {
+        CompiledAcl acl = new CompiledAcl(entries(
+                ace(GROUP_A, read, AccessStatus.ALLOWED),
+                ace(GROUP_B, coordinator, AccessStatus.ALLOWED)));
+
+        CompiledAcl.PermissionBits bits = acl.getPermissionBits(authorityIds, read, granters, allPermissions, modelDAO);
+
+        assertArrayEquals(ids(GROUP_A, GROUP_B), bits.allowed);
+        assertEquals(0, bits.denied.length);
+        assertSame(bits, acl.getPermissionBits(authorityIds, read, granters, allPermissions, modelDAO));
+    }
+
+    @Test
+    public void earlierDenyHidesLaterAllow()
+    {
+        CompiledAcl acl = new CompiledAcl(entries(
+                ace(GROUP_A, read, AccessStatus.DENIED),
+                ace(GROUP_A, read, AccessStatus.ALLOWED),
+                ace(GROUP_B, read, AccessStatus.ALLOWED),
+                ace(GROUP_B, read, AccessStatus.DENIED)));
+
+        CompiledAcl.PermissionBits bits = acl.getPermissionBits(authorityIds, read, granters, allPermissions, modelDAO);
+
+        assertArrayEquals(ids(GROUP_B), bits.allowed);
+        assertArrayEquals(ids(GROUP_A), bits.denied);
+    }
+
+    @Test
+    public void denyingGranteeHidesLaterAllow()
+    {
+        when(modelDAO.getGranteePermissions(coordinator)).thenReturn(Set.of(read));
+        CompiledAcl acl = new CompiledAcl(entries(
+                ace(GROUP_A, coordinator, AccessStatus.DENIED),
+                ace(GROUP_A, read, AccessStatus.ALLOWED)));
+
+        CompiledAcl.PermissionBits bits = acl.getPermissionBits(authorityIds, read, granters, allPermissions, modelDAO);
+
+        assertEquals(0, bits.allowed.length);
+        assertEquals(0, bits.allowedUnlessAllDenied.length);
+    }
+
+    @Test
+    public void denyingAllPermissionsIsConditional()
+    {
+        CompiledAcl acl = new CompiledAcl(entries(
+                ace(GROUP_A, all, AccessStatus.DENIED),
+                ace(GROUP_A, read, AccessStatus.ALLOWED)));
+
+        CompiledAcl.PermissionBits bits = acl.getPermissionBits(authorityIds, read, granters, allPermissions, modelDAO);
+
+        assertEquals(0, bits.allowed.length);
+        assertArrayEquals(ids(GROUP_A), bits.allowedUnlessAllDenied);
+    }
+
+    @Test
+    public void maskResolvesMembershipOnce()
+    {
+        CountingSet authorities = new CountingSet();
+        authorities.add(GROUP_A);
+        AuthorityMask mask = new AuthorityMask(authorityIds, authorities);
+        int[] groups = ids(GROUP_A, GROUP_B);
+
+        assertTrue(mask.containsAny(groups));
+        assertFalse(mask.contains(authorityIds.getId(GROUP_B)));
+        assertTrue(mask.containsAny(groups));
+        assertEquals(2, authorities.containsCount);
+    }
+
+    @Test
+    public void additionalAuthoritiesDoNotChangeTheMask()
+    {
+        Set<String> authorities = new HashSet<String>();
+        authorities.add(GROUP_A);
+        AuthorityMask mask = new AuthorityMask(authorityIds, authorities);
+        int groupB = authorityIds.getId(GROUP_B);
+
+        AuthorityMask extended = mask.withAuthorities(Set.of(GROUP_B));
+
+        assertTrue(extended.contains(groupB));
+        assertTrue(extended.contains(authorityIds.getId(GROUP_A)));
+        assertFalse(mask.contains(groupB));
+        assertSame(authorities, extended.getAuthorities());
+    }
+
+    @Test
+    public void clearingTheRegistryRecompiles()
+    {
+        CompiledAcl acl = new CompiledAcl(entries(ace(GROUP_A, read, AccessStatus.ALLOWED)));
+        CompiledAcl.PermissionBits bits = acl.getPermissionBits(authorityIds, read, granters, allPermissions, modelDAO);
+
+        registry.clear();
+        AuthorityIds clearedIds = registry.getAuthorityIds();
+
+        assertNotSame(authorityIds, clearedIds);
+        CompiledAcl.PermissionBits recompiled = acl.getPermissionBits(clearedIds, read, granters, allPermissions, modelDAO);
+        assertNotSame(bits, recompiled);
+        assertArrayEquals(new int[] {clearedIds.getId(GROUP_A)}, recompiled.allowed);
+    }
+
+    @Test
+    public void fullRegistryIsReplaced()
+    {
+        registry.setMaxAuthorities(2);
+        AuthorityIds ids = registry.getAuthorityIds();
+        ids.getId(GROUP_A);
+        assertSame(ids, registry.getAuthorityIds());
+
+        ids.getId(GROUP_B);
+        AuthorityIds replaced = registry.getAuthorityIds();
+
+        assertNotSame(ids, replaced);
+        assertFalse(replaced.isFull());
+        assertEquals(0, replaced.getId(GROUP_B));
+    }
+
+    private int[] ids(String... authorities)
+    {
+        int[] ids = new int[authorities.length];
+        for (int i = 0; i < authorities.length; i++)
+        {
+            ids[i] = authorityIds.getId(authorities[i]);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static List<AccessControlEntry> entries(AccessControlEntry... aces)
+    {
+        List<AccessControlEntry> entries = new ArrayList<AccessControlEntry>();
+        for (AccessControlEntry ace : aces)
+        {
+            entries.add(ace);
+        }
+        return entries;
+    }
+
+    private static AccessControlEntry ace(String authority, PermissionReference permission, AccessStatus accessStatus)
+    {
+        SimpleAccessControlEntry ace = new SimpleAccessControlEntry();
+        ace.setAuthority(authority);
+        ace.setPermission(permission);
+        ace.setAccessStatus(accessStatus);
+        return ace;
+    }
+
+    private static class CountingSet extends HashSet<String>
+    {
+        private static final long serialVersionUID = 1L;
+
+        int containsCount;
+
+        @Override
+        public boolean contains(Object o)
+        {
+            containsCount++;
+            return super.contains(o);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import org.alfresco.repo.model.filefolder.FileFolderServiceImpl;
 import org.alfresco.repo.policy.JavaBehaviour;
 import org.alfresco.repo.policy.Policy;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authority.AuthorityDAOImpl;
 import org.alfresco.repo.security.permissions.ACLType;
 import org.alfresco.repo.security.permissions.AccessControlEntry;
 import org.alfresco.repo.security.permissions.AccessDeniedException;
@@ -52,7 +53,7 @@ import org.alfresco.repo.security.permissions.PermissionServicePolicies.OnGrantL
 import org.alfresco.repo.security.permissions.PermissionServicePolicies.OnInheritPermissionsDisabled;
 import org.alfresco.repo.security.permissions.PermissionServicePolicies.OnInheritPermissionsEnabled;
 import org.alfresco.repo.security.permissions.PermissionServicePolicies.OnRevokeLocalPermission;
-import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.security.AccessPermission;
@@ -357,8 +358,7 @@ public class PermissionServiceTest extends AbstractPermissionTest
         assertTrue(permissionService.hasReadPermission(four) == AccessStatus.DENIED);
         
         runAs("admin");
-        authorityService.removeAuthority("GROUP_ONE", "andy");
-        AlfrescoTransactionSupport.bindResource("MyAuthCache", null);
+        removeMember("GROUP_ONE", "andy");
         
         runAs("andy");
         assertEquals("andy", authenticationComponent.getCurrentUserName());
@@ -373,8 +373,7 @@ public class PermissionServiceTest extends AbstractPermissionTest
         assertTrue(permissionService.hasReadPermission(four) == AccessStatus.DENIED);
         
         runAs("admin");
-        authorityService.removeAuthority("GROUP_TWO", "andy");
-        AlfrescoTransactionSupport.bindResource("MyAuthCache", null);
+        removeMember("GROUP_TWO", "andy");
         
         runAs("andy");
         assertEquals("andy", authenticationComponent.getCurrentUserName());
@@ -389,8 +388,7 @@ public class PermissionServiceTest extends AbstractPermissionTest
         assertTrue(permissionService.hasReadPermission(four) == AccessStatus.DENIED);
         
         runAs("admin");
-        authorityService.removeAuthority("GROUP_THREE", "andy");
-        AlfrescoTransactionSupport.bindResource("MyAuthCache", null);
+        removeMember("GROUP_THREE", "andy");
         
         runAs("andy");
         assertEquals("andy", authenticationComponent.getCurrentUserName());
@@ -447,6 +445,42 @@ public class PermissionServiceTest extends AbstractPermissionTest
         assertTrue("", authorisations.contains("andy"));
     }
 
+    /*
+     * Tests that authorisations kept for the transaction follow membership changes it makes
+     */
+    public void testAuthorisationsFollowMembershipChanges()
+    {
+        runAs(AuthenticationUtil.getAdminUserName());
+        authorityService.createAuthority(AuthorityType.GROUP, "MEMBERS");
+        permissionService.setPermission(rootNodeRef, "GROUP_MEMBERS", PermissionService.READ, true);
+
+        runAs("andy");
+        assertFalse(permissionService.getAuthorisations().contains("GROUP_MEMBERS"));
+        assertEquals(AccessStatus.DENIED, permissionService.hasPermission(rootNodeRef, PermissionService.READ));
+
+        AuthenticationUtil.runAs(new AuthenticationUtil.RunAsWork<Object>()
+        {
+            public Object doWork() throws Exception
+            {
+                authorityService.addAuthority("GROUP_MEMBERS", "andy");
+                return null;
+            }
+        }, AuthenticationUtil.getAdminUserName());
+        assertTrue(permissionService.getAuthorisations().contains("GROUP_MEMBERS"));
+        assertEquals(AccessStatus.ALLOWED, permissionService.hasPermission(rootNodeRef, PermissionService.READ));
+
+        AuthenticationUtil.runAs(new AuthenticationUtil.RunAsWork<Object>()
+        {
+            public Object doWork() throws Exception
+            {
+                authorityService.removeAuthority("GROUP_MEMBERS", "andy");
+                return null;
+            }
+        }, AuthenticationUtil.getAdminUserName());
+        assertFalse(permissionService.getAuthorisations().contains("GROUP_MEMBERS"));
+        assertEquals(AccessStatus.DENIED, permissionService.hasPermission(rootNodeRef, PermissionService.READ));
+    }
+
     public void testMove()
     {
         runAs("admin");
@@ -1408,6 +1442,62 @@ public class PermissionServiceTest extends AbstractPermissionTest
         assertEquals(permissionService.hasPermission(rootNodeRef, (PermissionService.CONSUMER)), AccessStatus.DENIED);
     }
 
+    public void testFilterByPermission()
+    {
+        runAs(AuthenticationUtil.getAdminUserName());
+        NodeRef n1 = nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}one"), ContentModel.TYPE_FOLDER).getChildRef();
+        NodeRef n2 = nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}two"), ContentModel.TYPE_FOLDER).getChildRef();
+        NodeRef n3 = nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}three"), ContentModel.TYPE_FOLDER).getChildRef();
+        NodeRef n4 = nodeService.createNode(n3, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}four"), ContentModel.TYPE_FOLDER).getChildRef();
+        permissionService.setPermission(new SimplePermissionEntry(rootNodeRef, getPermission(PermissionService.READ), "andy", AccessStatus.ALLOWED));
+        permissionService.setInheritParentPermissions(n3, false);
+
+        List<NodeRef> nodeRefs = new ArrayList<NodeRef>();
+        nodeRefs.add(n3);
+        nodeRefs.add(n1);
+        nodeRefs.add(null);
+        nodeRefs.add(n4);
+        nodeRefs.add(n2);
+        nodeRefs.add(n1);
+
+        runAs("andy");
+        List<NodeRef> expected = new ArrayList<NodeRef>();
+        expected.add(n1);
+        expected.add(n2);
+        expected.add(n1);
+        assertEquals(expected, permissionService.filterByPermission(nodeRefs, PermissionService.READ));
+        assertEquals(expected, permissionService.filterReadable(nodeRefs));
+        for (NodeRef nodeRef : nodeRefs)
+        {
+            if (nodeRef != null)
+            {
+                assertEquals(expected.contains(nodeRef), permissionService.hasPermission(nodeRef, PermissionService.READ) == AccessStatus.ALLOWED);
+            }
+        }
+
+        runAs(AuthenticationUtil.getAdminUserName());
+        assertEquals(5, permissionService.filterReadable(nodeRefs).size());
+    }
+
+    public void testGetReadersDenied()
+    {
+        runAs(AuthenticationUtil.getAdminUserName());
+        NodeRef n1 = nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{namespace}one"), ContentModel.TYPE_FOLDER).getChildRef();
+        permissionService.setPermission(new SimplePermissionEntry(n1, getPermission(PermissionService.READ), "andy", AccessStatus.ALLOWED));
+        permissionService.setPermission(new SimplePermissionEntry(n1, getPermission(PermissionService.READ), "lemur", AccessStatus.DENIED));
+        Long aclId = nodeDAO.getNodeAclId(nodeDAO.getNodePair(n1).getFirst());
+
+        Set<String> readers = permissionService.getReaders(aclId);
+        assertTrue(readers.contains("andy"));
+        assertFalse(readers.contains("lemur"));
+
+        Set<String> denied = permissionService.getReadersDenied(aclId);
+        assertTrue(denied.contains("lemur"));
+        assertFalse(denied.contains("andy"));
+        // Served from the cache the second time
+        assertSame(denied, permissionService.getReadersDenied(aclId));
+    }
+
     public void testEqualBarCaseAuthorities()
     {
 
@@ -1864,6 +1954,18 @@ public class PermissionServiceTest extends AbstractPermissionTest
         assertFalse(permissionService.hasPermission(rootNodeRef, getPermission(PermissionService.READ_PROPERTIES)) == AccessStatus.ALLOWED);
     }
 
+    /**
+     * Remove a member through the counted membership change path, so that authorities kept for the
+     * transaction are evaluated again by the following checks
+     */
+    private void removeMember(String parentName, String childName)
+    {
+        int membershipChanges = TransactionalResourceHelper.getCount(AuthorityDAOImpl.KEY_MEMBERSHIP_CHANGES);
+        authorityService.removeAuthority(parentName, childName);
+        assertTrue("Membership change not counted",
+                TransactionalResourceHelper.getCount(AuthorityDAOImpl.KEY_MEMBERSHIP_CHANGES) > membershipChanges);
+    }
+
     private int countGranted(Set<AccessPermission> permissions)
     {
         int count = 0;
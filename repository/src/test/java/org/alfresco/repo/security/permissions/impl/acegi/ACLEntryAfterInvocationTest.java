@@ -39,6 +39,7 @@ import net.sf.acegisecurity.ConfigAttribute;
 import net.sf.acegisecurity.ConfigAttributeDefinition;
 
 import org.alfresco.model.ContentModel;
+import org.alfresco.repo.search.SimpleResultSetMetaData;
 import org.alfresco.repo.search.results.ChildAssocRefResultSet;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.permissions.PermissionCheckCollection.PermissionCheckCollectionMixin;
@@ -47,7 +48,11 @@ import org.alfresco.repo.security.permissions.impl.SimplePermissionEntry;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.search.LimitBy;
+import org.alfresco.service.cmr.search.PermissionEvaluationMode;
 import org.alfresco.service.cmr.search.ResultSet;
+import org.alfresco.service.cmr.search.ResultSetMetaData;
+import org.alfresco.service.cmr.search.SearchParameters;
 import org.alfresco.service.cmr.security.AccessStatus;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.service.namespace.QName;
@@ -650,6 +655,56 @@ public class ACLEntryAfterInvocationTest extends AbstractPermissionTest
     }
     
     
+    public void testResultSetChecksStopAtMaxItems() throws Exception
+    {
+        runAs(AuthenticationUtil.getAdminUserName());
+
+        final List<NodeRef> nodeRefList = new ArrayList<NodeRef>();
+        for (int i = 0; i < 6; i++)
+        {
+            nodeRefList.add(nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN,
+                    QName.createQName("{namespace}n" + i), ContentModel.TYPE_FOLDER).getChildRef());
+        }
+
+        // The first two nodes are hidden from "andy" and the rest are visible
+        permissionService.setPermission(new SimplePermissionEntry(rootNodeRef, getPermission(PermissionService.ALL_PERMISSIONS), "andy", AccessStatus.DENIED));
+        for (NodeRef nodeRef : nodeRefList.subList(2, 6))
+        {
+            permissionService.setPermission(new SimplePermissionEntry(nodeRef, getPermission(PermissionService.ALL_PERMISSIONS), "andy", AccessStatus.ALLOWED));
+        }
+
+        runAs("andy");
+
+        Object o = new ClassWithMethods();
+        Method methodResultSet = o.getClass().getMethod("echoResultSet", new Class[] { ResultSet.class });
+
+        AdvisorAdapterRegistry advisorAdapterRegistry = GlobalAdvisorAdapterRegistry.getInstance();
+
+        // The batch would cover every node, so it has to be cut down to the results still wanted
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.addAdvisor(advisorAdapterRegistry.wrap(new Interceptor("AFTER_ACL_NODE.sys:base.Read", 10)));
+        proxyFactory.setTargetSource(new SingletonTargetSource(o));
+        Object proxy = proxyFactory.getProxy();
+
+        final SearchParameters searchParameters = new SearchParameters();
+        searchParameters.setMaxItems(2);
+        ResultSet rsIn = new ChildAssocRefResultSet(nodeService, nodeRefList, false)
+        {
+            @Override
+            public ResultSetMetaData getResultSetMetaData()
+            {
+                return new SimpleResultSetMetaData(LimitBy.UNLIMITED, PermissionEvaluationMode.EAGER, searchParameters);
+            }
+        };
+
+        ResultSet answerResultSet = (ResultSet) methodResultSet.invoke(proxy, new Object[] { rsIn });
+        assertEquals(2, answerResultSet.length());
+        assertEquals(nodeRefList.subList(2, 4), answerResultSet.getNodeRefs());
+        assertEquals(LimitBy.FINAL_SIZE, answerResultSet.getResultSetMetaData().getLimitedBy());
+        // Checks stopped as soon as one result more than wanted had passed
+        assertEquals(3, answerResultSet.getNumberFound());
+    }
+
     public void testResultSetFilterForNullParentOnly() throws Exception
     {
         runAs(AuthenticationUtil.getAdminUserName());
@@ -1018,6 +1073,13 @@ public class ACLEntryAfterInvocationTest extends AbstractPermissionTest
     public class Interceptor implements MethodInterceptor
     {
         ConfigAttributeDefinition cad = new ConfigAttributeDefinition();
+        int bulkFetchSize;
+
+        Interceptor(final String config, int bulkFetchSize)
+        {
+            this(config);
+            this.bulkFetchSize = bulkFetchSize;
+        }
 
         Interceptor(final String config)
         {
@@ -1044,6 +1106,7 @@ public class ACLEntryAfterInvocationTest extends AbstractPermissionTest
             after.setPermissionService(permissionService);
             after.setNodeService(nodeService);
             after.setUnfilteredFor(Collections.singleton("{ns}ln"));
+            after.setOptimisePermissionsBulkFetchSize(bulkFetchSize);
             after.afterPropertiesSet();
 
             Object returnObject = invocation.proceed();
@@ -26,6 +26,7 @@
 package org.alfresco.repo.security.sync;
 
 import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.model.ContentModel;
 import org.alfresco.repo.security.authentication.ldap.LDAPInitialDirContextFactory;
 import org.alfresco.repo.security.sync.ldap.LDAPUserRegistry;
 import org.alfresco.service.namespace.NamespaceService;
@@ -40,10 +41,15 @@ import javax.naming.NamingException;
 import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
+import javax.naming.directory.BasicAttribute;
+import javax.naming.directory.BasicAttributes;
 import javax.naming.directory.InitialDirContext;
 import javax.naming.directory.SearchResult;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -51,6 +57,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -81,7 +89,28 @@ public class LDAPUserRegistryTest
     private static final String MEMBER_ATTRIBUTE_NAME = "member";
     private static final String MEMBER_ATTRIBUTE_VALUE = "cn=foouser10,cn=Users,dc=example,dc=foo";
 
+    private static final String MEMBER_1 = "cn=foouser1,cn=Users,dc=example,dc=foo";
+    private static final String MEMBER_2 = "cn=foouser2,cn=Users,dc=example,dc=foo";
+
     private LDAPUserRegistry createRegistry() throws Exception
+    {
+        LDAPUserRegistry registry = newRegistry(-1);
+        when(initialDirContext.search(eq(GROUP_SEARCH_BASE), eq(GROUP_DIFFERENTIAL_QUERY), any())).thenReturn(searchResults);
+        when(searchResults.hasMore()).thenReturn(true);
+        when(searchResults.next()).thenReturn(searchResult);
+        when(searchResult.getAttributes()).thenReturn(attributes);
+        when(attributes.get(GROUP_ID_ATTRIBUTE_NAME)).thenReturn(groupAttribute);
+        when(groupAttribute.get(0)).thenReturn(GROUP_ATTRIBUTE);
+        when(attributes.get(MEMBER_ATTRIBUTE_NAME)).thenReturn(rangeRestrictedAttribute);
+        when(rangeRestrictedAttribute.size()).thenReturn(1);
+        when(rangeRestrictedAttribute.get(0)).thenReturn(MEMBER_ATTRIBUTE_VALUE);
+        return registry;
+    }
+
+    /**
+     * @param memberLookupCacheSize     the size of the member lookup cache, or a negative number for the default
+     */
+    private LDAPUserRegistry newRegistry(int memberLookupCacheSize) throws Exception
     {
         LDAPUserRegistry registry = new LDAPUserRegistry();
         registry.setLDAPInitialDirContextFactory(contextFactory);
@@ -95,6 +124,10 @@ public class LDAPUserRegistryTest
         registry.setGroupIdAttributeName(GROUP_ID_ATTRIBUTE_NAME);
         registry.setUserIdAttributeName(USER_ID_ATTRIBUTE_NAME);
         registry.setMemberAttribute(MEMBER_ATTRIBUTE_NAME);
+        if (memberLookupCacheSize >= 0)
+        {
+            registry.setMemberLookupCacheSize(memberLookupCacheSize);
+        }
 
         Set<String> prefixes = new HashSet<>();
         prefixes.add(NamespaceService.CONTENT_MODEL_PREFIX);
@@ -105,21 +138,98 @@ public class LDAPUserRegistryTest
                 .thenReturn(NamespaceService.CONTENT_MODEL_1_0_URI);
         when(contextFactory.getDefaultIntialDirContext()).thenReturn(initialDirContext);
         when(contextFactory.getDefaultIntialDirContext(0)).thenReturn(initialDirContext);
-        when(initialDirContext.search(eq(GROUP_SEARCH_BASE), eq(GROUP_DIFFERENTIAL_QUERY), any())).thenReturn(searchResults);
-        when(searchResults.hasMore()).thenReturn(true);
-        when(searchResults.next()).thenReturn(searchResult);
-        when(searchResult.getAttributes()).thenReturn(attributes);
-        when(attributes.get(GROUP_ID_ATTRIBUTE_NAME)).thenReturn(groupAttribute);
-        when(groupAttribute.get(0)).thenReturn(GROUP_ATTRIBUTE);
-        when(attributes.get(MEMBER_ATTRIBUTE_NAME)).thenReturn(rangeRestrictedAttribute);
-        when(rangeRestrictedAttribute.size()).thenReturn(1);
-        when(rangeRestrictedAttribute.get(0)).thenReturn(MEMBER_ATTRIBUTE_VALUE);
-
 
         registry.afterPropertiesSet();
         return registry;
     }
 
+    /**
+     * Synchronizes one group for each of the given member DNs, which are all resolved by directory lookup as the
+     * member DNs do not contain the user id attribute.
+     * 
+     * @return the members of each group, keyed by group name
+     */
+    private Map<String, Set<String>> getGroupMembers(LDAPUserRegistry registry, String... memberDistinguishedNames)
+            throws Exception
+    {
+        SearchResult[] groups = new SearchResult[memberDistinguishedNames.length];
+        for (int i = 0; i < groups.length; i++)
+        {
+            Attributes groupAttributes = new BasicAttributes(true);
+            groupAttributes.put(GROUP_ID_ATTRIBUTE_NAME, "foogroup" + i);
+            groupAttributes.put(MEMBER_ATTRIBUTE_NAME, memberDistinguishedNames[i]);
+            groups[i] = new SearchResult("cn=foogroup" + i, null, groupAttributes);
+            groups[i].setNameInNamespace("cn=foogroup" + i + "," + GROUP_SEARCH_BASE);
+        }
+        Boolean[] hasMore = new Boolean[groups.length];
+        Arrays.fill(hasMore, Boolean.TRUE);
+        hasMore[groups.length - 1] = Boolean.FALSE;
+        when(initialDirContext.search(eq(GROUP_SEARCH_BASE), eq(GROUP_DIFFERENTIAL_QUERY), any())).thenReturn(searchResults);
+        when(searchResults.hasMore()).thenReturn(true, hasMore);
+        when(searchResults.next()).thenReturn(groups[0], Arrays.copyOfRange(groups, 1, groups.length));
+        when(initialDirContext.getAttributes(any(String.class), any(String[].class))).thenAnswer(invocation ->
+        {
+            String member = invocation.getArgument(0);
+            Attributes memberAttributes = new BasicAttributes(true);
+            memberAttributes.put("objectclass", "inetOrgPerson");
+            memberAttributes.put(USER_ID_ATTRIBUTE_NAME, member.substring(member.indexOf('=') + 1, member.indexOf(',')));
+            return memberAttributes;
+        });
+
+        Map<String, Set<String>> members = new HashMap<>();
+        for (NodeDescription group : registry.getGroups(new Date()))
+        {
+            members.put((String) group.getProperties().get(ContentModel.PROP_AUTHORITY_NAME), group.getChildAssociations());
+        }
+        return members;
+    }
+
+    private void verifyLookups(String memberDistinguishedName, int count) throws Exception
+    {
+        verify(initialDirContext, times(count)).getAttributes(eq(LDAPUserRegistry.jndiName(memberDistinguishedName)),
+                any(String[].class));
+    }
+
+    @Test
+    public void testMemberLookupCache() throws Exception
+    {
+        LDAPUserRegistry userRegistry = newRegistry(10);
+
+        Map<String, Set<String>> members = getGroupMembers(userRegistry, MEMBER_1, MEMBER_2, MEMBER_1, MEMBER_1);
+
+        assertEquals(4, members.size());
+        assertEquals(Set.of("foouser1"), members.get("GROUP_foogroup0"));
+        assertEquals(Set.of("foouser2"), members.get("GROUP_foogroup1"));
+        assertEquals(Set.of("foouser1"), members.get("GROUP_foogroup2"));
+        assertEquals(Set.of("foouser1"), members.get("GROUP_foogroup3"));
+        verifyLookups(MEMBER_1, 1);
+        verifyLookups(MEMBER_2, 1);
+    }
+
+    @Test
+    public void testMemberLookupCacheEviction() throws Exception
+    {
+        LDAPUserRegistry userRegistry = newRegistry(1);
+
+        Map<String, Set<String>> members = getGroupMembers(userRegistry, MEMBER_1, MEMBER_2, MEMBER_2, MEMBER_1);
+
+        assertEquals(Set.of("foouser1"), members.get("GROUP_foogroup3"));
+        // The second member pushed the first out of the cache
+        verifyLookups(MEMBER_1, 2);
+        verifyLookups(MEMBER_2, 1);
+    }
+
+    @Test
+    public void testMemberLookupCacheDisabled() throws Exception
+    {
+        LDAPUserRegistry userRegistry = newRegistry(0);
+
+        Map<String, Set<String>> members = getGroupMembers(userRegistry, MEMBER_1, MEMBER_1);
+
+        assertEquals(Set.of("foouser1"), members.get("GROUP_foogroup1"));
+        verifyLookups(MEMBER_1, 2);
+    }
+
     /**
      * Test for MNT-17966
      */